@@ -9,6 +9,9 @@ import java.awt.image.BufferedImage;
 import java.math.RoundingMode;
 import java.text.DecimalFormat;
 
+import flingball.physics.Collisions;
+import flingball.physics.ParabolicCollisions;
+import flingball.physics.PhysicsContext;
 import physics.*;
 
 public class Ball {
@@ -18,29 +21,47 @@ public class Ball {
 	 */ 
 	public final static double DEFAULT_RADIUS = 0.25;
 	
-	
-	private Vect boardCenter, cartesianCenter, boardVelocity, cartesianVelocity, anchor;
-	private double radius = DEFAULT_RADIUS;
+	/**
+	 * Default quantization step in L used to round the position and velocity of a moving ball. 
+	 */
+	public final static double DEFAULT_QUANTUM = PhysicsContext.DEFAULT_QUANTUM;
+	
+	// The state of the ball is held in slot index of store. The store of a ball changes when it is 
+	// added to or removed from a board. 
+	private BallStore store;
+	private int index;
+	// A ball which is not on a board has no store. Its state is held by these fields in Cartesian space 
+	// until it is added to a board or first moved. A moved ball stays within width L x height L. 
+	private double x, y, vx, vy, radius;
+	private int flags;
+	private double width = Board.DEFAULT_WIDTH, height = Board.DEFAULT_HEIGHT;
 	private final String NAME;
-	private boolean trapped = false;
+	// Reflections and collisions with rotating geometry are calculated by collisions, which is only used
+	// by the thread moving the ball
+	private final Collisions collisions = new Collisions();
 	
 	//TODO Add support for rotating Wall and Ball collisions
 	
 	
 	/*
-	 * AF(position, velocity, radius) ::= A ball with radius r, center = position, moving with velocity velocity. )
+	 * AF(store, index, x, y, vx, vy, radius, flags) ::= A ball with radius store.radius(index), center = 
+	 * 		(store.x(index), -store.y(index)) on the board, moving with velocity (store.vx(index), -store.vy(index)) 
+	 * 		on the board. If store is null, a ball with radius radius and center (x, -y) moving with velocity 
+	 * 		(vx, -vy) whose TRAPPED, IN_PLAY and ASLEEP bits are flags. 
 	 * Rep Invariant
 	 * 	radius > 0 - A ball with 0 radius cannot exist as it would not collide with a gadget
 	 * 	0 <= |velocity| <= 200
+	 * 	store is null or store.ball(index) == this
 	 * Safety from rep exposure
 	 * 	timeUntilCollision and reflect methods return new Ball objects
 	 * 	getVelocity and getPosition return immutable Vect
 	 */
 
 	private void checkRep() {
-		assert radius >= 0;
-		assert Math.abs(this.boardVelocity.length()) <= 200 : this.NAME + "velocity = " + this.boardVelocity.length();
-		assert Math.abs(this.boardVelocity.length()) >= 0;
+		assert this.getRadius() >= 0;
+		assert this.speed() <= 200 : this.NAME + "velocity = " + this.speed();
+		assert this.speed() >= 0;
+		assert this.store == null || this.store.ball(this.index) == this;
 	}
 	
 	/**
@@ -50,15 +71,7 @@ public class Ball {
 	 * @param velocity velocity of the ball
 	 */
 	public Ball(String name, Vect center, Vect velocity) {
-		this.NAME = name;
-		this.boardCenter = center;
-		this.cartesianCenter = new Vect(this.boardCenter.x(), -this.boardCenter.y());
-		this.anchor = new Vect(center.x() - radius, center.y() - radius);
-		
-		this.boardVelocity = velocity;
-		this.cartesianVelocity = new Vect(velocity.x(), -velocity.y());
-		
-		checkRep();
+		this(name, center, velocity, DEFAULT_RADIUS);
 	}
 	
 	/**
@@ -70,41 +83,232 @@ public class Ball {
 	 */
 	public Ball(String name, Vect center, Vect velocity, double radius) {
 		this.NAME = name;
-		this.boardCenter = center;
-		this.cartesianCenter = new Vect(this.boardCenter.x(), -this.boardCenter.y());
-		this.anchor = new Vect(center.x() - radius, center.y() - radius);
-		
-		this.boardVelocity = velocity;
-		this.cartesianVelocity = new Vect(velocity.x(), -velocity.y());
-		this.radius = radius;
+		this.detach(center.x(), -center.y(), velocity.x(), -velocity.y(), radius, 0, Board.DEFAULT_WIDTH, Board.DEFAULT_HEIGHT);
 		
 		checkRep();
 	}
 	
 	/**
-	 * Given the coordinate of the center of a ball on a flingball board. Returns the center in Cartesian space.
-	 * 
-	 * @param center center of the ball on a flingabll board
-	 * @return center of the ball in Cartesian Space. 
+	 * Makes this ball a handle to a slot in a store. Only called by BallStore. 
+	 * @param store store holding the state of the ball
+	 * @param index slot of the ball in store
+	 */
+	void attach(BallStore store, int index) {
+		this.store = store;
+		this.index = index;
+	}
+	
+	/**
+	 * Makes this ball hold its own state once it has been removed from a store. Only called by BallStore. 
+	 * @param x x coordinate of the center of the ball in Cartesian space
+	 * @param y y coordinate of the center of the ball in Cartesian space
+	 * @param vx x component of the velocity of the ball in Cartesian space
+	 * @param vy y component of the velocity of the ball in Cartesian space
+	 * @param radius radius of the ball. Must be > 0
+	 * @param flags TRAPPED, IN_PLAY and ASLEEP bits of the ball
+	 * @param width width in L of the board the ball stays on if it is moved. Must be > 0
+	 * @param height height in L of the board the ball stays on if it is moved. Must be > 0
+	 */
+	void detach(double x, double y, double vx, double vy, double radius, int flags, double width, double height) {
+		this.store = null;
+		this.x = x;
+		this.y = y;
+		this.vx = vx;
+		this.vy = vy;
+		this.radius = radius;
+		this.flags = flags;
+		this.width = width;
+		this.height = height;
+	}
+	
+	/**
+	 * @return the store holding the state of this ball or null if the ball is not on a board and has not been 
+	 * 		moved since it was created or removed
+	 */
+	BallStore store() {
+		return this.store;
+	}
+	
+	/**
+	 * @return the store holding the state of this ball. A ball which is not in a store is put in a store 
+	 * 		of its own, which it stays in until it is added to a board
+	 */
+	private BallStore attached() {
+		if (this.store == null) {
+			new BallStore(1, this.width, this.height).add(this, this.x, this.y, this.vx, this.vy, this.radius, this.flags);
+		}
+		return this.store;
+	}
+	
+	/**
+	 * @return x coordinate of the center of the ball in Cartesian space
+	 */
+	double x() {
+		return this.store == null ? this.x : this.store.x(this.index);
+	}
+	
+	/**
+	 * @return y coordinate of the center of the ball in Cartesian space
+	 */
+	double y() {
+		return this.store == null ? this.y : this.store.y(this.index);
+	}
+	
+	/**
+	 * @return x component of the velocity of the ball in Cartesian space
+	 */
+	double vx() {
+		return this.store == null ? this.vx : this.store.vx(this.index);
+	}
+	
+	/**
+	 * @return y component of the velocity of the ball in Cartesian space
+	 */
+	double vy() {
+		return this.store == null ? this.vy : this.store.vy(this.index);
+	}
+	
+	/**
+	 * @return the TRAPPED, IN_PLAY and ASLEEP bits of the ball
+	 */
+	int flags() {
+		return this.store == null ? this.flags : this.store.flags(this.index);
+	}
+	
+	/**
+	 * @param flag TRAPPED, IN_PLAY or ASLEEP
+	 * @return true if flag is set for the ball
+	 */
+	private boolean is(int flag) {
+		return (this.flags() & flag) != 0;
+	}
+	
+	/**
+	 * Sets or clears a flag of the ball, which may move it to another slot of its store
+	 * @param flag TRAPPED, IN_PLAY or ASLEEP
+	 * @param value true if flag should be set
+	 */
+	private void set(int flag, boolean value) {
+		if (this.store != null) {
+			this.store.set(this.index, flag, value);
+		} else if (value) {
+			this.flags |= flag;
+		} else {
+			this.flags &= ~flag;
+		}
+	}
+	
+	/**
+	 * Sets the center of the ball in Cartesian space
+	 */
+	private void setCenter(double x, double y) {
+		if (this.store != null) {
+			this.store.setCenter(this.index, x, y);
+		} else {
+			this.x = x;
+			this.y = y;
+		}
+	}
+	
+	/**
+	 * Sets the velocity of the ball in Cartesian space
+	 */
+	private void setCartesianVelocity(double vx, double vy) {
+		if (this.store != null) {
+			this.store.setVelocity(this.index, vx, vy);
+		} else {
+			this.vx = vx;
+			this.vy = vy;
+		}
+	}
+	
+	/**
+	 * @return the slot of this ball in its store
+	 */
+	int index() {
+		return this.index;
+	}
+	
+	/**
+	 * @return x coordinate of the center of the ball on a flingball board
+	 */
+	double boardX() {
+		return this.x();
+	}
+	
+	/**
+	 * @return y coordinate of the center of the ball on a flingball board
+	 */
+	double boardY() {
+		return -this.y();
+	}
+	
+	/**
+	 * @return x component of the velocity of the ball on a flingball board
+	 */
+	double velocityX() {
+		return this.vx();
+	}
+	
+	/**
+	 * @return y component of the velocity of the ball on a flingball board
+	 */
+	double velocityY() {
+		return -this.vy();
+	}
+	
+	/**
+	 * @return the speed of the ball
+	 */
+	double speed() {
+		return this.store == null ? Math.sqrt((this.vx * this.vx) + (this.vy * this.vy)) : this.store.speed(this.index);
+	}
+	
+	/**
+	 * @return true if the ball is in play and is moved by the board's simulation
 	 */
-	private static Vect getCartesianCenterFromBoardCenter(Vect boardCenter) {
-		return new Vect(boardCenter.x(), -boardCenter.y());
+	boolean isInPlay() {
+		return this.is(BallStore.IN_PLAY);
 	}
 	
-	private static Vect getBoardCenterFromCartesianCenter(Vect cartesianCenter) {
-		return new Vect(cartesianCenter.x(), -cartesianCenter.y());
+	/**
+	 * Puts the ball into play or takes it out of play
+	 * @param inPlay true if the ball should be moved by the board's simulation
+	 */
+	void setInPlay(boolean inPlay) {
+		this.set(BallStore.IN_PLAY, inPlay);
+	}
+	
+	/**
+	 * @return true if the ball is asleep and is not moved until it is woken
+	 */
+	boolean isAsleep() {
+		return this.is(BallStore.ASLEEP);
 	}
 	
 	/**
-	 * Computes the anchor of the bounding box of the ball. The anchor is the top left corner of the bounding box.
-	 * @return anchor of the ball on a flingBall board. 
+	 * Wakes the ball so that it is moved again. Has no effect on a trapped ball. 
 	 */
-	private Vect getAnchorFromCartesianCenter(Vect cartesianCenter) {
-		return new Vect(cartesianCenter.x() - this.radius, -cartesianCenter.y() - this.radius);
+	void wake() {
+		if (this.isTrapped()) return;
+		if (this.store != null) {
+			this.store.wake(this.index);
+		} else {
+			// A ball which is not in a store only starts to rest once it is added to one
+			this.flags &= ~BallStore.ASLEEP;
+		}
 	}
 	
-	private Vect getAnchorFromBoardCenter(Vect boardCenter) {
-		return new Vect(boardCenter.x() - this.radius, boardCenter.y() - this.radius);
+	/**
+	 * Records that the ball has been moved for time seconds and puts it to sleep if it has been at rest 
+	 * for at least sleepTime seconds. A ball is at rest while it stays within BallStore.SLEEP_DISTANCE of 
+	 * one point. 
+	 * @param time time in seconds the ball has just been moved for
+	 * @param sleepTime time in seconds a ball must rest before it sleeps or 0 if it never sleeps
+	 * @return true if the ball was put to sleep
+	 */
+	boolean settle(double time, double sleepTime) {
+		return this.attached().settle(this.index, time, sleepTime);
 	}
 	
 	/**
@@ -117,7 +321,7 @@ public class Ball {
 	
 	public void move(double time) {
 		// distance = position + velocity * t
-		Vect newCenter = this.cartesianVelocity.times(time).plus(this.cartesianCenter);
+		Vect newCenter = this.getCartesianVelocity().times(time).plus(this.getCartesianCenter());
 		
 		//Round Decimal to avoid floating point math errors after ~15 decimal places
 		DecimalFormat df = new DecimalFormat("#.###########");
@@ -125,15 +329,12 @@ public class Ball {
 		double newXCenter = Double.parseDouble(df.format(newCenter.x()));
 		double newYCenter = Double.parseDouble(df.format(newCenter.y()));
 		
-		Vect roundedCenter = new Vect(newXCenter, newYCenter);
-		
-		this.cartesianCenter = roundedCenter;
-		this.boardCenter = getBoardCenterFromCartesianCenter(roundedCenter);
-		this.anchor = getAnchorFromCartesianCenter(roundedCenter);
+		this.setCenter(newXCenter, newYCenter);
 	}
 	
 	/**
 	 * Moves the ball the distance it would travel during time time given the current velocity of the ball while accounting for both gravity and friction. 
+	 * The position and velocity of the ball are rounded to DEFAULT_QUANTUM. 
 	 * 
 	 * @param time time in seconds during which the ball will travel. 
 	 * @param gravity - Gravity constant for the gives space in L / s^-2
@@ -142,84 +343,42 @@ public class Ball {
 	 * @return A new ball in the end location moving with velocity affected by gravity and friction
 	 */
 	public void move(double time, double gravity, double mu, double mu2) {
-		// let a = acceleration
-		// displacement = position + velocity * t + at^2
-		// delta_v = at
-		// v_new_f = v_old * (1 - mu*delta_t - mu2*|v_old|*delta_t) 
-		
-		double v_initial = this.cartesianVelocity.length();
-		
-		//Change in velocity due to gravity = gravity * time
-		final Vect deltaVGravity = new Vect(Angle.DEG_270, gravity).times(time);
-		
-		// Final velocity as a result of friction
-		double vFinalFriction = v_initial * (1 - mu*time - mu2 * time * Math.abs(v_initial));
-		
-		//Change in velocity due to friction = a_f * t (where a_f is acceleration due to friction)
-		Vect deltaVFriction = new Vect(this.cartesianVelocity.angle().plus(Angle.DEG_180), Math.abs(vFinalFriction - v_initial));
-		
-		// Net change in velocity = a*t
-		Vect deltaV = deltaVGravity.plus(deltaVFriction);
-		
-		DecimalFormat vf = new DecimalFormat("#.##");
-		vf.setRoundingMode(RoundingMode.HALF_UP);
-		Vect newVelocity = this.cartesianVelocity.plus(deltaV);
-		
-		double newVx = Double.parseDouble(vf.format(newVelocity.x()));
-		double newVy = Double.parseDouble(vf.format(newVelocity.y()));
-		
-		Vect correctedVelocity = new Vect(newVx, newVy);
-		
-		
-		// displacement = v_i*t + a*t*t = v_i*t + deltaV * t
-		Vect displacement = this.cartesianVelocity.times(time).plus(deltaV.times(time));
-		
-		Vect newCartesianCenter = this.cartesianCenter.plus(displacement);
-		
-		//Round displacement to avoid floating point errors which lead to ball being off the board. 
-		DecimalFormat df = new DecimalFormat("#.##");
-		df.setRoundingMode(RoundingMode.HALF_UP);
-		
-		double newCX = Double.parseDouble(df.format(newCartesianCenter.x()));
-		double newCY = Double.parseDouble(df.format(newCartesianCenter.y()));
-		
-		Vect correctedCartesianCenter = roundedVector(new Vect(newCX, newCY), this.radius);
-		
-		Vect newBoardCenter = getBoardCenterFromCartesianCenter(correctedCartesianCenter);
-		this.cartesianCenter = correctedCartesianCenter;
-		this.boardCenter = newBoardCenter;
-		this.cartesianVelocity = correctedVelocity;
-		this.boardVelocity = convertVelocity(correctedVelocity);
-		this.anchor = getAnchorFromCartesianCenter(correctedCartesianCenter);
-		
+		this.move(time, gravity, mu, mu2, DEFAULT_QUANTUM);
 	}
 	
 	/**
-	 * If the ball is off a 20x20 grid it sets is location to the point on the grid border perpendicular to the ball's center
-	 * @param v
-	 * @param radius
-	 * @return
+	 * Moves the ball the distance it would travel during time time given the current velocity of the ball while accounting for both gravity and friction. 
+	 * Works on primitive doubles only and does not create any objects. 
+	 * 
+	 * @param time time in seconds during which the ball will travel. 
+	 * @param gravity - Gravity constant for the gives space in L / s^-2
+	 * @param mu - Coefficient of friction for the flingball board in s^-1
+	 * @param mu2 - Coefficient of friction for the flingball board in L^-1
+	 * @param quantum - The position and velocity of the ball are rounded half up to a multiple of quantum. Must be 
+	 * 		1 / n for a whole number n or 0 if the ball should not be rounded. 
 	 */
-	private static Vect roundedVector(Vect v, double radius) {
-		double vx = v.x();
-		double vy = v.y();
-		
-		if (vx - radius < 0.0) vx = radius;
-		if (vx + radius> 20.0) vx = 20 - radius;
-		if (vy + radius > 0.0) vy = -radius;
-		if (vy - radius < -20.0) vy = -20 + radius;
-		
-		return new Vect (vx, vy);
+	public void move(double time, double gravity, double mu, double mu2, double quantum) {
+		this.attached().move(this.index, time, gravity, mu, mu2, quantum);
 	}
 	
-	
+	/**
+	 * Moves the ball the distance it would travel during time time given the current velocity of the ball while accounting 
+	 * for the gravity, friction and quantization of a board. 
+	 * 
+	 * @param time time in seconds during which the ball will travel. 
+	 * @param physics physical constants of the board the ball is on
+	 */
+	public void move(double time, PhysicsContext physics) {
+		this.attached().move(this.index, time, physics.gravity(), physics.friction1(), physics.friction2(), physics.quantum());
+	}
 	
 	/**
 	 * 
 	 * @return The position of the origin (top left) of the bounding box of the ball
 	 */
 	public Vect getAnchor() {
-		return this.anchor;
+		final double radius = this.getRadius();
+		return new Vect(this.boardX() - radius, this.boardY() - radius);
 	}
 	
 	/**
@@ -227,7 +386,7 @@ public class Ball {
 	 * @return The position of the center of the ball on a flingball board.
 	 */
 	public Vect getBoardCenter() {
-		return this.boardCenter;
+		return new Vect(this.boardX(), this.boardY());
 	}
 	
 	/**
@@ -235,7 +394,7 @@ public class Ball {
 	 * @return The position of the center of the ball in Cartesian Space.
 	 */
 	public Vect getCartesianCenter() {
-		return this.cartesianCenter;
+		return new Vect(this.x(), this.y());
 	}
 	
 	/**
@@ -243,7 +402,7 @@ public class Ball {
 	 * @return Radius of the ball
 	 */
 	public double getRadius() {
-		return this.radius;
+		return this.store == null ? this.radius : this.store.radius(this.index);
 	}
 	
 	/**
@@ -251,25 +410,37 @@ public class Ball {
 	 * @return The current velocity of the ball on the flingball board.
 	 */
 	public Vect getVelocity() {
-		return this.boardVelocity;
+		return new Vect(this.velocityX(), this.velocityY());
 	}
 	
 	/**
-	 * Converts velocity from Cartesian to flingball space and vice versa
-	 * @param v velocity to be converted
-	 * @return new velocity
+	 * @return The current velocity of the ball in Cartesian space. 
 	 */
-	private static Vect convertVelocity(Vect v) {
-		return new Vect(v.x(), -v.y());
+	private Vect getCartesianVelocity() {
+		return new Vect(this.vx(), this.vy());
 	}
+	
+	/**
+	 * Sets the velocity of the ball from a velocity (vx, vy) in Cartesian space. A velocity faster than 200 L/s 
+	 * is slowed to 190 L/s in the same direction. 
+	 */
+	private void setCappedVelocity(double vx, double vy) {
+		final double speed = Math.sqrt((vx * vx) + (vy * vy));
+		if (speed > 200) {
+			this.setCartesianVelocity(190 * (vx / speed), 190 * (vy / speed));
+		} else {
+			this.setCartesianVelocity(vx, vy);
+		}
+	}
+	
 	/**
 	 * 
 	 * @param v The new velocity of the ball
 	 * @return A ball with velocity v
 	 */
 	public void setVelocity(Vect v) {
-		this.boardVelocity = v;
-		this.cartesianVelocity = getCartesianCenterFromBoardCenter(v);
+		this.setCartesianVelocity(v.x(), -v.y());
+		this.wake();
 		checkRep();
 	}
 	
@@ -278,6 +449,15 @@ public class Ball {
 	 * @return An image of the ball
 	 */
 	public BufferedImage generate(int L) {
+		return generate(L, this.getRadius());
+	}
+	
+	/**
+	 * @param L the dimension of the board 20L x 20L pixels wide
+	 * @param radius radius of the ball in L
+	 * @return An image of a ball with the given radius
+	 */
+	public static BufferedImage generate(int L, double radius) {
 		final int diameter = (int) (2*radius*L);
 		BufferedImage output = new BufferedImage(diameter, diameter, BufferedImage.TYPE_4BYTE_ABGR);
         Graphics2D graphics = (Graphics2D) output.getGraphics();
@@ -297,7 +477,8 @@ public class Ball {
 	 * @return Collision time in seconds or POSITIVE_INFINITY if no collision will occur
 	 */
 	public double timeUntilLineCollision(LineSegment line) {
-		return Physics.timeUntilWallCollision(line, new Circle(this.cartesianCenter, this.radius), this.cartesianVelocity);
+		return Collisions.timeUntilWallCollision(line.p1().x(), line.p1().y(), line.p2().x(), line.p2().y(),
+				this.x(), this.y(), this.vx(), this.vy(), this.getRadius());
 	}
 	
 	/**
@@ -308,7 +489,48 @@ public class Ball {
 	 * @return Collision time in seconds or POSITIVE_INFINITY if no collision will occur
 	 */
 	public double timeUntilCircleCollision(Circle circle) {
-		return Physics.timeUntilCircleCollision(circle, new Circle(this.cartesianCenter, this.radius), this.cartesianVelocity);
+		return Collisions.timeUntilCircleCollision(circle.getCenter().x(), circle.getCenter().y(), circle.getRadius(),
+				this.x(), this.y(), this.vx(), this.vy(), this.getRadius());
+	}
+	
+	/**
+	 * Calculates the time in seconds until the ball may collide with a line segment. If the board predicts 
+	 * collisions along the curved path of the ball, gravity and friction are accounted for and collisions are 
+	 * only searched for up to the horizon of ParabolicCollisions. 
+	 * 
+	 * @param line Line with which the ball may collide
+	 * @param physics physics of the board the ball is on
+	 * @return Collision time in seconds or POSITIVE_INFINITY if no collision will occur
+	 */
+	public double timeUntilLineCollision(LineSegment line, PhysicsContext physics) {
+		if (!physics.parabolicPrediction()) {
+			return this.timeUntilLineCollision(line);
+		}
+		final double vx = this.vx();
+		final double vy = this.vy();
+		return ParabolicCollisions.timeUntilWallCollision(line.p1().x(), line.p1().y(), line.p2().x(), line.p2().y(),
+				this.x(), this.y(), vx, vy, ParabolicCollisions.accelerationX(vx, vy, physics),
+				ParabolicCollisions.accelerationY(vx, vy, physics), this.getRadius(), ParabolicCollisions.horizon(physics));
+	}
+	
+	/**
+	 * Calculates the time in seconds until the ball may collide with a circle. If the board predicts 
+	 * collisions along the curved path of the ball, gravity and friction are accounted for and collisions are 
+	 * only searched for up to the horizon of ParabolicCollisions. 
+	 * 
+	 * @param circle circle with which the ball may collide
+	 * @param physics physics of the board the ball is on
+	 * @return Collision time in seconds or POSITIVE_INFINITY if no collision will occur
+	 */
+	public double timeUntilCircleCollision(Circle circle, PhysicsContext physics) {
+		if (!physics.parabolicPrediction()) {
+			return this.timeUntilCircleCollision(circle);
+		}
+		final double vx = this.vx();
+		final double vy = this.vy();
+		return ParabolicCollisions.timeUntilCircleCollision(circle.getCenter().x(), circle.getCenter().y(), circle.getRadius(),
+				this.x(), this.y(), vx, vy, ParabolicCollisions.accelerationX(vx, vy, physics),
+				ParabolicCollisions.accelerationY(vx, vy, physics), this.getRadius(), ParabolicCollisions.horizon(physics));
 	}
 	
 	/**
@@ -316,11 +538,16 @@ public class Ball {
 	 * will occur Double.POSITIVE_INFINITY is returned. 
 	 * 
 	 * @param line Line with which the ball may collide
+	 * @param pivot the point about which the line is rotating
+	 * @param angularVelocity the angular velocity of the rotating line
+	 * @param physics physical constants of the board. Collisions are searched for up to its foresight
 	 * @return Collision time in seconds or POSITIVE_INFINITY if no collision will occur
 	 */
-	public double timeUntilRotatingLineCollision(LineSegment line, Vect pivot, double angularVelocity) {
-		return Physics.timeUntilRotatingWallCollision(line, pivot, angularVelocity, 
-				new Circle(this.cartesianCenter, this.radius), this.cartesianVelocity);
+	public double timeUntilRotatingLineCollision(LineSegment line, Vect pivot, double angularVelocity, PhysicsContext physics) {
+		return this.collisions.timeUntilRotatingWallCollision(line.p1().x(), line.p1().y(), line.p2().x(), line.p2().y(),
+				pivot.x(), pivot.y(), angularVelocity, 
+				this.x(), this.y(), this.vx(), this.vy(), this.getRadius(),
+				physics.foresight());
 	}
 	
 	/**
@@ -328,14 +555,46 @@ public class Ball {
 	 * will occur Double.POSITIVE_INFINITY is returned. 
 	 * 
 	 * @param circle circle with which the ball may collide
+	 * @param pivot the point about which the circle is rotating
+	 * @param angularVelocity the angular velocity of the rotating circle
+	 * @param physics physical constants of the board. Collisions are searched for up to its foresight
 	 * @return Collision time in seconds or POSITIVE_INFINITY if no collision will occur
 	 */
-	public double timeUntilRoatatingCircleCollision(Circle circle, Vect pivot, double angularVelocity) {
-		return Physics.timeUntilRotatingCircleCollision(circle, pivot, angularVelocity, 
-				new Circle(this.cartesianCenter, this.radius), 
-				this.cartesianVelocity);
+	public double timeUntilRoatatingCircleCollision(Circle circle, Vect pivot, double angularVelocity, PhysicsContext physics) {
+		return this.collisions.timeUntilRotatingCircleCollision(circle.getCenter().x(), circle.getCenter().y(), circle.getRadius(),
+				pivot.x(), pivot.y(), angularVelocity, 
+				this.x(), this.y(), this.vx(), this.vy(), this.getRadius(),
+				physics.foresight());
 	}
 	
+	/**
+	 * Calculates the time in seconds until the ball may collide with another ball. If no collision
+	 * will occur Double.POSITIVE_INFINITY is returned.
+	 *
+	 * @param that ball with which this ball may collide
+	 * @return Collision time in seconds or POSITIVE_INFINITY if no collision will occur
+	 */
+	public double timeUntilBallCollision(Ball that) {
+		return Collisions.timeUntilBallBallCollision(
+				this.x(), this.y(), this.vx(), this.vy(), this.getRadius(),
+				that.x(), that.y(), that.vx(), that.vy(), that.getRadius());
+	}
+
+	/**
+	 * Performs a perfectly elastic collision between this ball and another ball of equal mass.
+	 * The velocities of both balls are updated.
+	 *
+	 * @param that ball with which this ball is colliding
+	 */
+	public void reflectBall(Ball that) {
+		this.collisions.reflectBalls(this.x(), this.y(), 1.0, this.vx(), this.vy(),
+				that.x(), that.y(), 1.0, that.vx(), that.vy());
+		this.setCartesianVelocity(this.collisions.vx(), this.collisions.vy());
+		that.setCartesianVelocity(this.collisions.otherVx(), this.collisions.otherVy());
+		checkRep();
+		that.checkRep();
+	}
+
 	/**
 	 * Returns a ball that has perfectly elastic collision with a line,
 	 * 
@@ -343,8 +602,9 @@ public class Ball {
 	 * @return A ball that has collided with the line. 
 	 */
 	public void reflectLine(LineSegment line) {
-		this.cartesianVelocity = Physics.reflectWall(line, this.cartesianVelocity);
-		this.boardVelocity = convertVelocity(this.cartesianVelocity);
+		this.collisions.reflectWall(line.p1().x(), line.p1().y(), line.p2().x(), line.p2().y(),
+				this.vx(), this.vy());
+		this.setCartesianVelocity(this.collisions.vx(), this.collisions.vy());
 		checkRep();
 	}
 	
@@ -355,8 +615,9 @@ public class Ball {
 	 * @return A ball which has collided with the line
 	 */
 	public void reflectLine(LineSegment line, double reflectionCoeff) {
-		this.cartesianVelocity = Physics.reflectWall(line, this.cartesianVelocity, reflectionCoeff);
-		this.boardVelocity = convertVelocity(this.cartesianVelocity);
+		this.collisions.reflectWall(line.p1().x(), line.p1().y(), line.p2().x(), line.p2().y(),
+				this.vx(), this.vy(), reflectionCoeff);
+		this.setCartesianVelocity(this.collisions.vx(), this.collisions.vy());
 		checkRep();
 	}
 	
@@ -369,12 +630,10 @@ public class Ball {
 	 * @return A ball which has collided with the line
 	 */
 	public void reflectRotatingLine(LineSegment line, Vect pivot, double angularVelocity, double reflectionCoeff) {
-		this.cartesianVelocity = Physics.reflectRotatingWall(line, pivot, angularVelocity,
-					new Circle(this.cartesianCenter, this.radius), this.cartesianVelocity, reflectionCoeff);
-		if (this.cartesianVelocity.length() > 200) {
-			this.cartesianVelocity = new Vect(this.cartesianVelocity.angle(), 190);
-		}
-		this.boardVelocity = convertVelocity(this.cartesianVelocity);
+		this.collisions.reflectRotatingWall(line.p1().x(), line.p1().y(), line.p2().x(), line.p2().y(), pivot.x(), pivot.y(),
+				angularVelocity, this.x(), this.y(), this.vx(), this.vy(),
+				reflectionCoeff);
+		this.setCappedVelocity(this.collisions.vx(), this.collisions.vy());
 		checkRep();
 	}
 	
@@ -384,8 +643,9 @@ public class Ball {
 	 * @return A ball that has collided with the circle
 	 */
 	public void reflectCircle(Circle circle) {
-		this.cartesianVelocity = Physics.reflectCircle(circle.getCenter(), this.cartesianCenter, cartesianVelocity);
-		this.boardVelocity = convertVelocity(this.cartesianVelocity);
+		this.collisions.reflectCircle(circle.getCenter().x(), circle.getCenter().y(), this.x(), this.y(),
+				this.vx(), this.vy());
+		this.setCartesianVelocity(this.collisions.vx(), this.collisions.vy());
 		checkRep();
 	}
 	
@@ -396,19 +656,17 @@ public class Ball {
 	 * @return A ball which has collided with the circle
 	 */
 	public void reflectCircle(Circle circle, double reflectionCoeff) {
-		this.cartesianVelocity = Physics.reflectCircle(circle.getCenter(), this.cartesianCenter, 
-				cartesianVelocity, reflectionCoeff);
-		this.boardVelocity = convertVelocity(this.cartesianVelocity);
+		this.collisions.reflectCircle(circle.getCenter().x(), circle.getCenter().y(), this.x(), this.y(),
+				this.vx(), this.vy(), reflectionCoeff);
+		this.setCartesianVelocity(this.collisions.vx(), this.collisions.vy());
 		checkRep();
 	}
 	
 	public void reflectRotatingCircle(Circle circle, Vect pivot, double angularVelocity, double relectionCoeff) {
-		this.cartesianVelocity = Physics.reflectRotatingCircle(circle, pivot, angularVelocity, 
-				new Circle(this.cartesianCenter, this.radius), this.cartesianVelocity, relectionCoeff);
-		if (this.cartesianVelocity.length() > 200) {
-			this.cartesianVelocity = new Vect(this.cartesianVelocity.angle(), 190);
-		}
-		this.boardVelocity = convertVelocity(this.cartesianVelocity);
+		this.collisions.reflectRotatingCircle(circle.getCenter().x(), circle.getCenter().y(), circle.getRadius(), pivot.x(), pivot.y(),
+				angularVelocity, this.x(), this.y(), this.getRadius(),
+				this.vx(), this.vy(), relectionCoeff);
+		this.setCappedVelocity(this.collisions.vx(), this.collisions.vy());
 		
 		checkRep();
 	}
@@ -419,21 +677,23 @@ public class Ball {
 	}
 
 	private boolean sameParts(Ball that) {
-		return this.boardVelocity == that.boardVelocity &&
-				this.boardCenter == that.boardCenter &&
-				this.radius == that.radius &&
+		return this.boardX() == that.boardX() && this.boardY() == that.boardY() &&
+				this.velocityX() == that.velocityX() && this.velocityY() == that.velocityY() &&
+				this.getRadius() == that.getRadius() &&
 				this.NAME == that.NAME;
 	}
 	
 	@Override
 	public String toString() {
-		return "Ball{name=" + this.NAME + ", center=" + this.boardCenter + ", velocity=" + 
-				this.boardVelocity + ", radius=" + this.radius + "}";
+		return "Ball{name=" + this.NAME + ", center=" + this.getBoardCenter() + ", velocity=" + 
+				this.getVelocity() + ", radius=" + this.getRadius() + "}";
 	}
 	
 	@Override
 	public int hashCode() {
-		return NAME.hashCode() + this.cartesianCenter.hashCode();
+		// The center is mutable so it cannot be used. Otherwise a moving ball could not be found
+		// on the board once it has moved.
+		return NAME.hashCode();
 	}
 
 	/**
@@ -449,21 +709,22 @@ public class Ball {
 	 * @return true if the ball is currently trapped;
 	 */
 	public boolean isTrapped() {
-		return this.trapped ;
+		return this.is(BallStore.TRAPPED);
 	}
 	
 	/**
-	 * Traps the ball
+	 * Traps the ball. A trapped ball is asleep until it is released. 
 	 */
 	public void trap() {
-		this.trapped = true;
+		this.set(BallStore.TRAPPED | BallStore.ASLEEP, true);
 	}
 	
 	/**
-	 * Releases the ball
+	 * Releases the ball and wakes it
 	 */
 	public void release() {
-		this.trapped = false;
+		this.set(BallStore.TRAPPED, false);
+		this.wake();
 	}
 	
 	/**
@@ -472,9 +733,8 @@ public class Ball {
 	 * @param vect new position of the ball. 
 	 */
 	public void setBoardPosition(Vect vect) {
-		this.boardCenter = vect;
-		this.cartesianCenter = getCartesianCenterFromBoardCenter(this.boardCenter);
-		this.anchor = getAnchorFromBoardCenter(this.boardCenter);
+		this.setCenter(vect.x(), -vect.y());
+		this.wake();
 	}
 	
 	/**
@@ -483,9 +743,8 @@ public class Ball {
 	 * @param vect new position of the ball. 
 	 */
 	public void setCartesianPosition(Vect vect) {
-		this.cartesianCenter = vect;
-		this.boardCenter = getBoardCenterFromCartesianCenter(this.cartesianCenter);
-		this.anchor = this.getAnchorFromCartesianCenter(this.cartesianCenter);
+		this.setCenter(vect.x(), vect.y());
+		this.wake();
 	}
 	
 }
@@ -2,27 +2,38 @@ package flingball;
 
 
 /**
- * BallListeners will create a new thread that performs the actions provided in <code>onStart()</code> 
- * and then sleeps for <code>time</code> seconds before performing the provided actions again. 
- * 
+ * A BallListener controls whether a ball on a flingball board is in play.
+ *
+ * By default a board plays every ball from a single <code>SimulationEngine</code> and
+ * <code>onStart()</code> only marks the ball as in play. In the legacy thread-per-ball mode
+ * (see <code>Board.setLegacyBallThreads</code>) BallListeners will create a new thread that
+ * performs the actions provided in <code>onStart()</code> and then sleeps for <code>time</code>
+ * seconds before performing the provided actions again.
+ *
  * @author Stephan Halarewicz
  *
  */
 interface BallListener {
 	/**
-	 * Starts a thread which sleeps for time ms between performing the given actions. 
+	 * Puts the ball into play. In legacy mode starts a thread which sleeps for time ms between
+	 * performing the given actions.
 	 * @param time time in seconds for which the thread will sleep
 	 */
 	public void onStart(final double time);
-	
+
 	/**
-	 * Stops the ball's thread.
+	 * Takes the ball out of play and stops the ball's thread if it has one.
 	 */
 	public void onEnd();
-	
+
+	/**
+	 * @return true if the ball is currently in play
+	 */
+	public boolean isRunning();
+
 	/**
-	 * @return the name of the created thread. 
-	 * @throws NullPointerException if the thread has not yet been started. 
+	 * @return the name of the created thread.
+	 * @throws NullPointerException if the thread has not yet been started.
 	 */
 	public String name() throws NullPointerException;
 }
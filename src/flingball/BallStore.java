@@ -0,0 +1,554 @@
+package flingball;
+
+import java.util.Arrays;
+
+/**
+ * A BallStore holds the state of a group of balls in parallel arrays of primitives. The position,
+ * velocity and radius of the ball in slot i are x[i], y[i], vx[i], vy[i] and radius[i] in Cartesian
+ * space, and flags[i] holds its TRAPPED, IN_PLAY and ASLEEP bits. Code which works on every ball, such
+ * as moving, drawing or finding collisions, iterates the slots from 0 to size() - 1 so the arrays are
+ * read in order.
+ *
+ * A ball which has stayed within SLEEP_DISTANCE of one point for long enough is put to sleep and is not
+ * moved again until it is woken. restX[i], restY[i] and rest[i] hold that point and how long in seconds
+ * the ball has stayed near it. Trapped balls are always asleep. The slots are kept in three groups:
+ * balls which are awake in slots 0 to awake() - 1, balls which are asleep but not trapped in slots
+ * awake() to free() - 1 and trapped balls in slots free() to size() - 1. Moving the balls only visits
+ * the first group and finding collisions between balls only visits the first two.
+ *
+ * A Ball is a handle to a slot in a store. Every board keeps its balls in its own store. A ball which
+ * is not on a board holds its own state and is only put in a store of its own if it is moved. When a
+ * ball is removed, falls asleep or wakes up,
+ * balls are swapped between slots so the groups stay in order and the slots in use are always 0 to
+ * size() - 1. The handles of the moved balls are updated. A ball which is removed from the first group
+ * is replaced by the last ball of that group.
+ */
+class BallStore {
+
+	/** Set if the ball is trapped, for example by an absorber */
+	static final int TRAPPED = 1;
+	/** Set if the ball is in play and is moved by the simulation */
+	static final int IN_PLAY = 2;
+	/** Set if the ball is asleep and is not moved until it is woken */
+	static final int ASLEEP = 4;
+
+	// A ball which moves less than this in L while it rests is considered to be at rest
+	static final double SLEEP_DISTANCE = 0.01;
+
+	private static final int DEFAULT_CAPACITY = 16;
+	// Bounds of a store which does not belong to a board
+	private static final double DEFAULT_WIDTH = Board.DEFAULT_WIDTH;
+	private static final double DEFAULT_HEIGHT = Board.DEFAULT_HEIGHT;
+	// Multiplying by this splits a double into two halves whose products are exact
+	private static final double SPLITTER = 134217729.0; // 2^27 + 1
+
+	private double[] x, y, vx, vy, radius;
+	private double[] restX, restY, rest;
+	private int[] flags;
+	private Ball[] balls;
+	private int size = 0;
+	private int awake = 0;
+	private int free = 0;
+	// A moved ball is kept within 0 <= x <= width and -height <= y <= 0
+	private final double width, height;
+
+	/*
+	 * AF(x, y, vx, vy, radius, restX, restY, rest, flags, balls, size, awake, free, width, height) ::= The balls balls[0..size-1]
+	 * 		where the ball in slot i has center (x[i], y[i]) and velocity (vx[i], vy[i]) in Cartesian space,
+	 * 		radius radius[i] and is trapped, in play or asleep as given by flags[i]. The ball has stayed
+	 * 		within SLEEP_DISTANCE of (restX[i], restY[i]) for the last rest[i] seconds it was moved. Moved balls
+	 * 		stay on a width L x height L board.
+	 * Rep Invariant ::=
+	 * 		0 <= size <= capacity, where every array has length capacity
+	 * 		width > 0 and height > 0
+	 * 		balls[i] is not null and is a handle to slot i of this store for 0 <= i < size
+	 * 		balls[i] is null for size <= i < capacity
+	 * 		radius[i] > 0 and rest[i] >= 0 for 0 <= i < size
+	 * 		0 <= awake <= free <= size
+	 * 		ASLEEP is clear in flags[i] for 0 <= i < awake
+	 * 		ASLEEP is set and TRAPPED is clear in flags[i] for awake <= i < free
+	 * 		ASLEEP and TRAPPED are set in flags[i] for free <= i < size
+	 * Safety from rep exposure ::=
+	 * 		The arrays are never returned. Only primitives and balls, which are handles to this store, are
+	 * 		returned.
+	 * Thread Safety Argument ::=
+	 * 		Every method which moves balls between slots or replaces the arrays is synchronized, so two such
+	 * 		changes never interleave. Reading and moving a ball is not synchronized and the arrays are not
+	 * 		published safely, so a ball's handle and state may only be used by a thread which holds the lock
+	 * 		on the balls of the board the store belongs to. Every thread which changes the store holds it.
+	 * 		Other threads read the balls of a board through a BoardSnapshot, which is taken while holding it.
+	 * 		A store which does not belong to a board holds a single ball and is only used by the thread
+	 * 		moving that ball.
+	 */
+
+	private void checkRep() {
+		assert 0 <= size && size <= balls.length;
+		assert width > 0 && height > 0 : "BallStore: empty bounds";
+		assert 0 <= awake && awake <= free && free <= size : "BallStore: groups out of order";
+		for (int i = 0; i < size; i++) {
+			assert balls[i] != null && radius[i] > 0 && rest[i] >= 0 : "BallStore: invalid slot " + i;
+			assert group(flags[i]) == (i < awake ? 0 : i < free ? 1 : 2) : "BallStore: slot " + i + " in wrong group";
+		}
+	}
+
+	/**
+	 * Creates an empty store for balls on a default sized board.
+	 */
+	BallStore() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty store for balls on a board of the given size.
+	 * @param width width of the board in L. Must be > 0
+	 * @param height height of the board in L. Must be > 0
+	 */
+	BallStore(double width, double height) {
+		this(DEFAULT_CAPACITY, width, height);
+	}
+
+	/**
+	 * Creates an empty store for balls on a default sized board with room for capacity balls. The store grows
+	 * if more balls are added.
+	 * @param capacity number of balls the store can hold before it grows. Must be >= 1
+	 */
+	BallStore(int capacity) {
+		this(capacity, DEFAULT_WIDTH, DEFAULT_HEIGHT);
+	}
+
+	/**
+	 * Creates an empty store for balls on a board of the given size with room for capacity balls. The store
+	 * grows if more balls are added.
+	 * @param capacity number of balls the store can hold before it grows. Must be >= 1
+	 * @param width width of the board in L. Must be > 0
+	 * @param height height of the board in L. Must be > 0
+	 */
+	BallStore(int capacity, double width, double height) {
+		this.width = width;
+		this.height = height;
+		this.x = new double[capacity];
+		this.y = new double[capacity];
+		this.vx = new double[capacity];
+		this.vy = new double[capacity];
+		this.radius = new double[capacity];
+		this.restX = new double[capacity];
+		this.restY = new double[capacity];
+		this.rest = new double[capacity];
+		this.flags = new int[capacity];
+		this.balls = new Ball[capacity];
+	}
+
+	/**
+	 * Adds a ball to the store with the given state and makes ball a handle to its slot.
+	 * @param ball ball which is added. Must not be in another store
+	 * @param x x coordinate of the center of the ball in Cartesian space
+	 * @param y y coordinate of the center of the ball in Cartesian space
+	 * @param vx x component of the velocity of the ball in Cartesian space
+	 * @param vy y component of the velocity of the ball in Cartesian space
+	 * @param radius radius of the ball. Must be > 0
+	 * @param flags TRAPPED, IN_PLAY and ASLEEP bits of the ball
+	 */
+	synchronized void add(Ball ball, double x, double y, double vx, double vy, double radius, int flags) {
+		if (this.size == this.balls.length) {
+			this.grow(2 * this.balls.length);
+		}
+		final int i = this.size;
+		this.x[i] = x;
+		this.y[i] = y;
+		this.vx[i] = vx;
+		this.vy[i] = vy;
+		this.radius[i] = radius;
+		this.restX[i] = x;
+		this.restY[i] = y;
+		this.rest[i] = 0;
+		this.flags[i] = flags;
+		this.balls[i] = ball;
+		this.size++;
+		ball.attach(this, i);
+		this.place(i);
+		checkRep();
+	}
+
+	/**
+	 * Moves a ball from the store it is in, if any, to this store. Its state is unchanged.
+	 * @param ball ball to be added
+	 */
+	void adopt(Ball ball) {
+		final BallStore from = ball.store();
+		if (from != null) {
+			from.remove(ball);
+		}
+		this.add(ball, ball.x(), ball.y(), ball.vx(), ball.vy(), ball.getRadius(), ball.flags());
+	}
+
+	/**
+	 * Removes a ball from this store. The ball then holds its own state, which is unchanged.
+	 * @param ball a ball in this store
+	 */
+	synchronized void remove(Ball ball) {
+		assert ball.store() == this : "BallStore: " + ball + " is not in this store";
+		this.release(ball.index());
+		// The state of the ball is left in the slot just past the last one in use
+		final int i = this.size;
+		ball.detach(this.x[i], this.y[i], this.vx[i], this.vy[i], this.radius[i], this.flags[i], this.width, this.height);
+	}
+
+	/**
+	 * Frees slot i by moving its ball to the last slot, past the end of each group it passes.
+	 */
+	private synchronized void release(int i) {
+		if (i < this.awake) {
+			this.swap(i, --this.awake);
+			i = this.awake;
+		}
+		if (i < this.free) {
+			this.swap(i, --this.free);
+			i = this.free;
+		}
+		final int last = this.size - 1;
+		this.swap(i, last);
+		this.balls[last] = null;
+		this.size--;
+		checkRep();
+	}
+
+	/**
+	 * @return 0 if a ball with the given flags is awake, 1 if it is asleep and 2 if it is trapped
+	 */
+	private static int group(int flags) {
+		return (flags & TRAPPED) != 0 ? 2 : (flags & ASLEEP) != 0 ? 1 : 0;
+	}
+
+	/**
+	 * Moves the ball in slot i into the group given by its flags.
+	 */
+	private void place(int i) {
+		final int group = group(this.flags[i]);
+		if (i < this.awake && group > 0) {
+			this.swap(i, --this.awake);
+			i = this.awake;
+		}
+		if (i < this.free && group > 1) {
+			this.swap(i, --this.free);
+			i = this.free;
+		}
+		if (i >= this.free && group < 2) {
+			this.swap(i, this.free++);
+			i = this.free - 1;
+		}
+		if (i >= this.awake && group < 1) {
+			this.swap(i, this.awake++);
+		}
+	}
+
+	/**
+	 * Swaps the balls in slots i and j.
+	 */
+	private void swap(int i, int j) {
+		if (i == j) return;
+		double t;
+		t = this.x[i]; this.x[i] = this.x[j]; this.x[j] = t;
+		t = this.y[i]; this.y[i] = this.y[j]; this.y[j] = t;
+		t = this.vx[i]; this.vx[i] = this.vx[j]; this.vx[j] = t;
+		t = this.vy[i]; this.vy[i] = this.vy[j]; this.vy[j] = t;
+		t = this.radius[i]; this.radius[i] = this.radius[j]; this.radius[j] = t;
+		t = this.restX[i]; this.restX[i] = this.restX[j]; this.restX[j] = t;
+		t = this.restY[i]; this.restY[i] = this.restY[j]; this.restY[j] = t;
+		t = this.rest[i]; this.rest[i] = this.rest[j]; this.rest[j] = t;
+		final int flags = this.flags[i];
+		this.flags[i] = this.flags[j];
+		this.flags[j] = flags;
+		final Ball ball = this.balls[i];
+		this.balls[i] = this.balls[j];
+		this.balls[j] = ball;
+		this.balls[i].attach(this, i);
+		if (this.balls[j] != null) this.balls[j].attach(this, j);
+	}
+
+	private void grow(int capacity) {
+		this.x = Arrays.copyOf(this.x, capacity);
+		this.y = Arrays.copyOf(this.y, capacity);
+		this.vx = Arrays.copyOf(this.vx, capacity);
+		this.vy = Arrays.copyOf(this.vy, capacity);
+		this.radius = Arrays.copyOf(this.radius, capacity);
+		this.restX = Arrays.copyOf(this.restX, capacity);
+		this.restY = Arrays.copyOf(this.restY, capacity);
+		this.rest = Arrays.copyOf(this.rest, capacity);
+		this.flags = Arrays.copyOf(this.flags, capacity);
+		this.balls = Arrays.copyOf(this.balls, capacity);
+	}
+
+	/**
+	 * @return the number of balls in the store. Slots 0 to size() - 1 are in use
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return the number of balls which are awake. Slots 0 to awake() - 1 hold the balls which are awake
+	 */
+	int awake() {
+		return this.awake;
+	}
+
+	/**
+	 * @return the number of balls which are not trapped. Slots 0 to free() - 1 hold the balls which are
+	 * 		not trapped
+	 */
+	int free() {
+		return this.free;
+	}
+
+	/**
+	 * @return the number of balls the store can hold before it grows
+	 */
+	int capacity() {
+		return this.balls.length;
+	}
+
+	/**
+	 * @param i slot of a ball
+	 * @return the ball in slot i or null if the slot is not in use
+	 */
+	Ball ball(int i) {
+		return this.balls[i];
+	}
+
+	double x(int i) {
+		return this.x[i];
+	}
+
+	double y(int i) {
+		return this.y[i];
+	}
+
+	double vx(int i) {
+		return this.vx[i];
+	}
+
+	double vy(int i) {
+		return this.vy[i];
+	}
+
+	double radius(int i) {
+		return this.radius[i];
+	}
+
+	/**
+	 * @param i slot of a ball
+	 * @return the TRAPPED, IN_PLAY and ASLEEP bits of the ball in slot i
+	 */
+	int flags(int i) {
+		return this.flags[i];
+	}
+
+	/**
+	 * @param i slot of a ball
+	 * @param flag TRAPPED, IN_PLAY or ASLEEP
+	 * @return true if flag is set for the ball in slot i
+	 */
+	boolean is(int i, int flag) {
+		return (this.flags[i] & flag) != 0;
+	}
+
+	/**
+	 * Sets or clears a flag for the ball in slot i. Setting TRAPPED or ASLEEP may move the ball to
+	 * another slot.
+	 * @param i slot of a ball
+	 * @param flag TRAPPED, IN_PLAY or ASLEEP
+	 * @param value true if flag should be set
+	 */
+	synchronized void set(int i, int flag, boolean value) {
+		if (value) {
+			this.flags[i] |= flag;
+		} else {
+			this.flags[i] &= ~flag;
+		}
+		this.place(i);
+	}
+
+	/**
+	 * Records that the ball in slot i has been moved for time seconds and puts it to sleep if it has
+	 * stayed within SLEEP_DISTANCE of one point for at least sleepTime seconds. A sleeping ball is
+	 * stopped.
+	 * @param i slot of a ball
+	 * @param time time in seconds the ball has just been moved for
+	 * @param sleepTime time in seconds a ball must rest before it sleeps or 0 if balls never sleep
+	 * @return true if the ball was put to sleep. A ball which is already asleep is not put to sleep again
+	 */
+	synchronized boolean settle(int i, double time, double sleepTime) {
+		if (sleepTime == 0 || (this.flags[i] & ASLEEP) != 0) return false;
+		final double dx = this.x[i] - this.restX[i];
+		final double dy = this.y[i] - this.restY[i];
+		if (dx * dx + dy * dy > SLEEP_DISTANCE * SLEEP_DISTANCE) {
+			this.wake(i);
+			return false;
+		}
+		this.rest[i] += time;
+		if (this.rest[i] < sleepTime) return false;
+		this.vx[i] = 0.0;
+		this.vy[i] = 0.0;
+		this.flags[i] |= ASLEEP;
+		this.place(i);
+		return true;
+	}
+
+	/**
+	 * Wakes the ball in slot i, which may move it to another slot. It rests from its current center before
+	 * it can sleep again.
+	 * @param i slot of a ball which is not trapped
+	 */
+	synchronized void wake(int i) {
+		this.restX[i] = this.x[i];
+		this.restY[i] = this.y[i];
+		this.rest[i] = 0;
+		if ((this.flags[i] & ASLEEP) != 0) {
+			this.flags[i] &= ~ASLEEP;
+			this.place(i);
+		}
+	}
+
+	/**
+	 * Sets the center of the ball in slot i in Cartesian space.
+	 */
+	void setCenter(int i, double x, double y) {
+		this.x[i] = x;
+		this.y[i] = y;
+	}
+
+	/**
+	 * Sets the velocity of the ball in slot i in Cartesian space.
+	 */
+	void setVelocity(int i, double vx, double vy) {
+		this.vx[i] = vx;
+		this.vy[i] = vy;
+	}
+
+	/**
+	 * @param i slot of a ball
+	 * @return the speed of the ball in slot i
+	 */
+	double speed(int i) {
+		return Math.sqrt((this.vx[i] * this.vx[i]) + (this.vy[i] * this.vy[i]));
+	}
+
+	/**
+	 * Moves the ball in slot i the distance it would travel during time time given its current velocity while
+	 * accounting for both gravity and friction. Works on primitive doubles only and does not create any objects.
+	 *
+	 * @param i slot of the ball
+	 * @param time time in seconds during which the ball will travel.
+	 * @param gravity - Gravity constant for the gives space in L / s^-2
+	 * @param mu - Coefficient of friction for the flingball board in s^-1
+	 * @param mu2 - Coefficient of friction for the flingball board in L^-1
+	 * @param quantum - The position and velocity of the ball are rounded half up to a multiple of quantum. Must be
+	 * 		1 / n for a whole number n or 0 if the ball should not be rounded.
+	 */
+	void move(int i, double time, double gravity, double mu, double mu2, double quantum) {
+		// let a = acceleration
+		// displacement = position + velocity * t + at^2
+		// delta_v = at
+		// v_new_f = v_old * (1 - mu*delta_t - mu2*|v_old|*delta_t)
+
+		final double vx = this.vx[i];
+		final double vy = this.vy[i];
+		final double radius = this.radius[i];
+		final double vInitial = this.speed(i);
+
+		//Change in velocity due to gravity = gravity * time. Gravity points straight down.
+		final double gravityTime = gravity * time;
+		final double deltaVGravityY = gravityTime == 0.0 ? 0.0 : -gravityTime;
+
+		// Final velocity as a result of friction
+		final double vFinalFriction = vInitial * (1 - mu*time - mu2 * time * Math.abs(vInitial));
+
+		//Change in velocity due to friction = a_f * t (where a_f is acceleration due to friction). It points
+		// against the velocity.
+		final double frictionLength = Math.abs(vFinalFriction - vInitial);
+		double deltaVFrictionX = 0.0, deltaVFrictionY = 0.0;
+		if (frictionLength != 0.0) {
+			final double cos = vInitial == 0.0 ? 1.0 : vx / vInitial;
+			final double sin = vInitial == 0.0 ? 0.0 : vy / vInitial;
+			final double oppositeCos = -cos;
+			final double oppositeSin = -sin;
+			final double length = Math.sqrt((oppositeCos * oppositeCos) + (oppositeSin * oppositeSin));
+			deltaVFrictionX = frictionLength * (oppositeCos / length);
+			deltaVFrictionY = frictionLength * (oppositeSin / length);
+		}
+
+		// Net change in velocity = a*t
+		final double deltaVX = deltaVFrictionX;
+		final double deltaVY = deltaVGravityY + deltaVFrictionY;
+
+		// displacement = v_i*t + a*t*t = v_i*t + deltaV * t
+		double newX = this.x[i] + ((vx * time) + (deltaVX * time));
+		double newY = this.y[i] + ((vy * time) + (deltaVY * time));
+		double newVX = vx + deltaVX;
+		double newVY = vy + deltaVY;
+
+		//Round to avoid floating point errors which lead to ball being off the board.
+		if (quantum > 0.0) {
+			final double scale = 1.0 / quantum;
+			newX = roundHalfUp(newX, scale);
+			newY = roundHalfUp(newY, scale);
+			newVX = roundHalfUp(newVX, scale);
+			newVY = roundHalfUp(newVY, scale);
+		}
+
+		// If the ball is off the board set its location to the point on the board border perpendicular to the ball's center
+		if (newX - radius < 0.0) newX = radius;
+		if (newX + radius > this.width) newX = this.width - radius;
+		if (newY + radius > 0.0) newY = -radius;
+		if (newY - radius < -this.height) newY = -this.height + radius;
+
+		this.x[i] = newX;
+		this.y[i] = newY;
+		this.vx[i] = newVX;
+		this.vy[i] = newVY;
+	}
+
+	/**
+	 * Rounds a value to the nearest multiple of 1 / scale. Ties are rounded away from zero. The result is
+	 * the same as formatting value with a DecimalFormat using RoundingMode.HALF_UP and parsing it again,
+	 * which rounds the exact binary value of the double.
+	 *
+	 * @param value value to be rounded
+	 * @param scale the number of multiples per unit. Must be a whole number
+	 * @return value rounded half up to a multiple of 1 / scale
+	 */
+	static double roundHalfUp(double value, double scale) {
+		final double magnitude = Math.abs(value);
+		final double scaled = magnitude * scale;
+		double whole = Math.floor(scaled);
+		// fraction is exact. The exact product differs from scaled by less than the spacing of doubles
+		// near scaled, so it is only needed to break an exact tie.
+		final double fraction = scaled - whole;
+		if (fraction > 0.5 || (fraction == 0.5 && productError(magnitude, scale, scaled) >= 0.0)) {
+			whole++;
+		}
+		return Math.copySign(whole / scale, value);
+	}
+
+	/**
+	 * Computes the rounding error of a product exactly using Dekker's algorithm.
+	 * @param a a finite double
+	 * @param b a finite double
+	 * @param product a * b rounded to a double
+	 * @return the exact value of a * b - product
+	 */
+	private static double productError(double a, double b, double product) {
+		final double aSplit = SPLITTER * a;
+		final double aHigh = aSplit - (aSplit - a);
+		final double aLow = a - aHigh;
+		final double bSplit = SPLITTER * b;
+		final double bHigh = bSplit - (bSplit - b);
+		final double bLow = b - bHigh;
+		return (((aHigh * bHigh - product) + aHigh * bLow) + aLow * bHigh) + aLow * bLow;
+	}
+
+	@Override
+	public String toString() {
+		return "BallStore{size=" + this.size + ", capacity=" + this.balls.length + "}";
+	}
+}
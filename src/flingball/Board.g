@@ -1,7 +1,7 @@
 @skip whitespace {
 	
 	BOARD ::= boardName '\n'* ((comment '\n'*) | (command '\n'*))* ;
-	boardName ::='board' 'name' '='NAME (GRAVITY)? (FRICTION1)? (FRICTION2)? '\n';
+	boardName ::='board' 'name' '='NAME (GRAVITY)? (FRICTION1)? (FRICTION2)? (WIDTH)? (HEIGHT)? '\n';
 	comment ::= '#' [\-A-Za-z0-9\.,_'!=]* '\n';
 	command ::= BALL | BUMPER | ABSORBER | FLIPPER | PORTAL | KEYEVENT | ACTION;
 	
@@ -30,6 +30,8 @@
 	GRAVITY ::= 'gravity' '='  FLOAT;
 	FRICTION1 ::= 'friction1' '='  FLOAT;
 	FRICTION2 ::= 'friction2' '='  FLOAT;
+	WIDTH ::= 'width' '=' INTEGER;
+	HEIGHT ::= 'height' '=' INTEGER;
 	ORIENTATION ::= '0' | '90' | '180' | '270';
 	
 }
@@ -1,9 +1,11 @@
 package flingball;
 
-import java.awt.event.KeyAdapter;
-import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -12,10 +14,14 @@ import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+import edu.mit.eecs.parserlib.UnableToParseException;
 import flingball.gadgets.*;
-import physics.Physics;
+import flingball.physics.ParabolicCollisions;
+import flingball.physics.PhysicsContext;
 import physics.Vect;
 
 /**
@@ -24,10 +30,10 @@ import physics.Vect;
  * that implements the the Gadget interface (including Square, Triangle and
  * Circle Bumpers, Absorbers, Portals and Flippers. 
  * 
- * A flingball board is a 20L x 20L grid with the origin in the upper
- * left-hand corner. Gadgets are placed in one or more squares on the grid. 
- * No two gadgets are allowed to occupy the same square on the grid. The default
- * gadget limit for a board is 60. 
+ * A flingball board is a WIDTH L x HEIGHT L grid with the origin in the upper
+ * left-hand corner. Boards are 20L x 20L unless the board file specifies a width
+ * and height. Gadgets are placed in one or more squares on the grid. 
+ * No two gadgets are allowed to occupy the same square on the grid. 
  * 
  * Balls on the flingball travel with a velocity between 0 L/s and 200 L/s.
  * 
@@ -80,31 +86,53 @@ import physics.Vect;
 public class Board {
 
 	// Default Values
-	public static final int GADGET_LIMIT = 60;
-	public static final double DEFAULT_GRAVITY = 25.0;
-	public static final double DEFAULT_FRICTION_1 = 0.025;
-	public static final double DEFAULT_FRICTION_2 = 0.025;
+	public static final int DEFAULT_WIDTH = 20;
+	public static final int DEFAULT_HEIGHT = 20;
+	public static final double DEFAULT_GRAVITY = PhysicsContext.DEFAULT_GRAVITY;
+	public static final double DEFAULT_FRICTION_1 = PhysicsContext.DEFAULT_FRICTION_1;
+	public static final double DEFAULT_FRICTION_2 = PhysicsContext.DEFAULT_FRICTION_2;
+	// Ball collisions closer together than this are treated as happening at the same time
+	private static final double SIMULTANEOUS_COLLISION_TIME = 1e-9;
+	public static final double DEFAULT_TIMESTEP = PhysicsContext.DEFAULT_TIMESTEP;
+	// A ball colliding more often than this in one tick is pinned and stops moving for the rest of the tick
+	public static final int DEFAULT_MAX_COLLISIONS_PER_STEP = 64;
+	// A ball near a gadget is moved in at most this many sub-steps per tick when the board steps adaptively
+	public static final int MAX_SUBSTEPS = 16;
+	// Returned by moveToNextCollision once a ball has finished moving
+	private static final double DONE = -1;
+	// Returned by collideBalls if two balls no longer collide once the lock on balls is held
+	private static final double MISSED = -2;
 	
 	// Board Params
 	public final String NAME;
-	public final int HEIGHT = 20;
-	public final int WIDTH = 20;
-	private final Wall TOP = new Wall("TOP", 0, 0, WIDTH, 0);
-	private final Wall BOTTOM = new Wall("BOTTOM", 0, -HEIGHT, WIDTH, -HEIGHT);
-	private final Wall LEFT = new Wall("LEFT", 0, 0, 0, -HEIGHT);
-	private final Wall RIGHT = new Wall("RIGHT", WIDTH, 0, WIDTH, -HEIGHT);
-	private final int[][] gadgetCoverage = new int[WIDTH + 1][HEIGHT + 1];
-	
-	// Default Constants
-	private double gravity = DEFAULT_GRAVITY;
-	private double friction1 = DEFAULT_FRICTION_1;
-	private double friction2 = DEFAULT_FRICTION_2;
+	public final int HEIGHT;
+	public final int WIDTH;
+	private final Wall TOP;
+	private final Wall BOTTOM;
+	private final Wall LEFT;
+	private final Wall RIGHT;
+	// Bit x + y * WIDTH is set if the square (x, y) is covered by a gadget
+	private final BitSet gadgetCoverage;
+	private final GadgetIndex gadgetIndex;
+	private final SweepAndPrune sweepAndPrune = new SweepAndPrune();
+	// Compiled when first needed and discarded whenever a gadget or an action is added
+	private volatile StaticGeometry geometry = null;
+	
+	// Gravity, friction, timestep and foresight of this board. Replaced as a whole whenever one of them changes
+	private volatile PhysicsContext physics = PhysicsContext.DEFAULT;
 
 	// Objects on board
 	private Set<Gadget> gadgets = ConcurrentHashMap.newKeySet();
+	// Flippers are rotated once per tick by the thread playing the board
+	private final List<Flipper> flippers = new CopyOnWriteArrayList<Flipper>();
 	private ConcurrentMap<Ball, BallListener> balls = new ConcurrentHashMap<Ball, BallListener>();
+	// Every ball on the board in the order it was added. Replaced as a whole whenever a ball is added or 
+	// removed so it can be read without a lock. 
+	private volatile Ball[] registry = new Ball[0];
+	// The state of every ball on the board. Balls are moved and drawn by iterating the store in order. 
+	private final BallStore ballStore;
 	private Map<Portal, List<String>> portals = new HashMap<Portal, List<String>>();
-	private final Set<Wall> walls = new HashSet<Wall>(Arrays.asList(TOP, BOTTOM, LEFT, RIGHT));
+	private final Set<Wall> walls;
 	
 	private final Set<Wall> neighbors = ConcurrentHashMap.newKeySet();
 	
@@ -119,25 +147,31 @@ public class Board {
 	
 	// Track if the board is connected to server
 	private boolean connected = false;
+	
+	// Simulation
+	private SimulationEngine engine;
+	private boolean legacyBallThreads = false;
+	private double tickLength = 0.0;
+	private volatile int maxCollisionsPerStep = DEFAULT_MAX_COLLISIONS_PER_STEP;
+	private final AtomicLong collisionCapHits = new AtomicLong();
+	private final AtomicLong collisionQueries = new AtomicLong();
+	private EventScheduler scheduler = null;
+	private long ticks = 0;
+	private double simulatedTime = 0.0;
+	// Last published snapshot, or null until one is asked for. Gadgets in the order they are drawn, or null once 
+	// a gadget is added
+	private volatile BoardSnapshot snapshot = null;
+	private Gadget[] drawnGadgets = null;
+	
 	// Listeners
 	private final List<RequestListener> requestListeners = new ArrayList<RequestListener>();
 	
-	// MagicKeyListener accounts for a bug in Linux where holding down a key causes repeated keyPressed
-	// and keyReleased events. 
-	public final MagicKeyListener keyListener = new MagicKeyListener(new KeyAdapter() {
-		@Override public void keyReleased(KeyEvent e) {
-			onKey(KeyNames.keyName.get(e.getKeyCode()), keyUpTriggers, keyUpBoardTriggers);
-		}
-		@Override public void keyPressed(KeyEvent e) {
-			onKey(KeyNames.keyName.get(e.getKeyCode()), keyDownTriggers, keyDownBoardTriggers);
-		}
-	});
-	
 	/*
 	 * AF(height, width, gadgets, balls, triggers, neighbors) ::= 
 	 * 		Flingball board of size width*L x height*L. The board contains all gadgets, balls and triggers. The board is
 	 *  	connected to all neighbors. 
 	 * Rep Invariant = 
+	 * 		WIDTH > 0 and HEIGHT > 0
 	 * 		No two gadgets have same anchor
 	 * 		All gadgets are entirely on the board
 	 * 		All balls are entirely on the board or a neighboring board
@@ -147,9 +181,18 @@ public class Board {
 	 * 		All keys in boardTriggers are gadgets on the board
 	 * 		All items in the lists of values in keyTriggers are on the board
 	 * 		Each neighbor is connected to this board
+	 * 		registry holds exactly the keys of balls, each once
 	 * TODO: Safety from rep exposure
-	 * 		coverage is exposed in gadget.setCoverage();
+	 * 		gadgetCoverage is never returned. Gadget.setCoverage() is not used by the board.
 	 * TODO: Thread Safety Argument
+	 * 		registry is only replaced while holding the lock on balls and is read without a lock. 
+	 * 		snapshot is only replaced while holding the lock on balls, once every ball has been moved through 
+	 * 		a tick, and is read without a lock. ticks and simulatedTime are only changed by the thread playing 
+	 * 		the board. 
+	 * 		Balls are only moved, woken, put to sleep, trapped or released while holding the lock on balls, 
+	 * 		since each of these can move other balls between slots of ballStore. The thread playing the board 
+	 * 		holds it for the whole tick, a legacy ball thread while it moves its ball and a key press while 
+	 * 		its actions are taken. 
 	 */
 	
 	private void checkRep() {
@@ -169,14 +212,22 @@ public class Board {
 			
 			//TODO Check for ball overlaps in bumpers allow portals and absorbers
 		}
-		for (Ball ball : balls.keySet()) {
-			final Vect position = ball.getAnchor();
+		final Ball[] registered = registry;
+		assert registered.length == balls.size() : "Registry out of date: " + Arrays.toString(registered);
+		for (Ball ball : registered) {
+			assert balls.containsKey(ball) : "Registered ball not on board: " + ball;
+		}
+		for (int i = 0; i < ballStore.size(); i++) {
+			final Ball ball = ballStore.ball(i);
+			final double radius = ballStore.radius(i);
+			final double x = ballStore.x(i) - radius;
+			final double y = -ballStore.y(i) - radius;
 			
-			assert position.x() >= 0 : "x < 0: " + ball;
-			assert position.y() >= 0 : "y < 0: " + ball;
+			assert x >= 0 : "x < 0: " + ball;
+			assert y >= 0 : "y < 0: " + ball;
 			
-			assert position.x() + ball.getRadius() * 2 <= WIDTH : "x + WIDTH > " + WIDTH + ": " + ball;
-			assert position.y() + ball.getRadius() * 2 <= HEIGHT : "x + HEIGHT > " + HEIGHT + ": " + ball;
+			assert x + radius * 2 <= WIDTH : "x + WIDTH > " + WIDTH + ": " + ball;
+			assert y + radius * 2 <= HEIGHT : "x + HEIGHT > " + HEIGHT + ": " + ball;
 		}
 		
 		for (Gadget gadget : triggers.keySet()) {
@@ -211,46 +262,123 @@ public class Board {
 	 * @param friction2 value of mu2
 	 */
 	protected Board(String name, double gravity, double friction1, double friction2) {
+		this(name, DEFAULT_WIDTH, DEFAULT_HEIGHT, gravity, friction1, friction2);
+	}
+	
+	/**
+	 * Constructs a blank board with the provided name, dimensions and constants
+	 * @param name name of the board
+	 * @param width width of the board in L. Must be > 0
+	 * @param height height of the board in L. Must be > 0
+	 * @param gravity value for gravity on the board
+	 * @param friction1 value of mu1
+	 * @param friction2 value of mu2
+	 * @throws IllegalArgumentException if width or height is not positive or the board has more than 
+	 * 		Integer.MAX_VALUE cells, which could not be indexed by its gadget coverage and gadget index
+	 */
+	protected Board(String name, int width, int height, double gravity, double friction1, double friction2) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Board dimensions must be positive: " + width + " x " + height);
+		}
+		if ((long) width * height > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Board has too many cells: " + width + " x " + height);
+		}
 		this.NAME = name;
-		this.gravity = gravity;
-		this.friction1 = friction1;
-		this.friction2 = friction2;
-		// Set a sufficiently small foresight for the physics engine to prevent looking for flipper 
-		// collisions past the flippers point of rotation
-		Physics.setForesight(0.0005);
+		this.WIDTH = width;
+		this.HEIGHT = height;
+		this.TOP = new Wall("TOP", 0, 0, width, 0);
+		this.BOTTOM = new Wall("BOTTOM", 0, -height, width, -height);
+		this.LEFT = new Wall("LEFT", 0, 0, 0, -height);
+		this.RIGHT = new Wall("RIGHT", width, 0, width, -height);
+		this.walls = new HashSet<Wall>(Arrays.asList(TOP, BOTTOM, LEFT, RIGHT));
+		this.gadgetCoverage = new BitSet(width * height);
+		this.gadgetIndex = new GadgetIndex(width, height);
+		this.ballStore = new BallStore(width, height);
+		// The default foresight is small enough to prevent looking for flipper collisions past the 
+		// flippers point of rotation
+		this.physics = PhysicsContext.DEFAULT.withGravity(gravity).withFriction(friction1, friction2);
 		checkRep();
 	}
 	
+	/**
+	 * Constructs a flingball board from the provided file
+	 * @param file must be a ."fb" file specifying a flingball board
+	 * @return board specified by file
+	 * @throws IOException if there is a problem reading the file
+	 * @throws UnableToParseException if the fb file is not properly formatted
+	 */
+	public static Board load(String file) throws IOException, UnableToParseException {
+		final List<String> lines = Files.readAllLines(Paths.get(file));
+		return BoardParser.parse(String.join("\n", lines) + "\n");
+	}
+	
 	/**
 	 * Adds a gadget to the flingball board using the gadgets position. If the Gadget has a position
 	 * not on the board, it is not added. 
 	 * @param gadget gadget to be added
 	 */
 	public void addGadget(Gadget gadget) {
+		if (!this.isOnBoard(gadget)) return;
 		this.gadgets.add(gadget); // Gadgets are equal if they are of the same class and have the same position
 		this.setCoverage(gadget);
+		this.gadgetIndex.add(gadget);
+		if (gadget instanceof Flipper) {
+			this.flippers.add((Flipper) gadget);
+		}
+		this.geometry = null;
+		synchronized (this.balls) {
+			this.drawnGadgets = null;
+		}
+		this.wakeBalls();
+		this.publishSnapshot();
 		checkRep();	
 	}
 	
 	/**
 	 * Adds a ball to the flingball board using the ball's position and velocity. If the ball has a position 
 	 * not on the board, it is not added. If the ball has a velocity >= 200 L / s, the velocity is set to 200. 
+	 * The ball is not in play until its listener is started. 
 	 * @param ball ball to be added. 
 	 * @return the listener for the Ball
 	 */
 	public BallListener addBall(Ball ball) {
 		synchronized (this.balls) {
+			final BallListener listener = this.newListener(ball);
+			this.ballStore.adopt(ball);
+			if (this.balls.put(ball, listener) == null) {
+				final Ball[] registered = Arrays.copyOf(this.registry, this.registry.length + 1);
+				registered[registered.length - 1] = ball;
+				this.registry = registered;
+			}
+			this.publishSnapshot();
+			checkRep();
+			return listener;
+		}
+	}
 	
-			BallListener listener = new BallListener() {
+	/**
+	 * Creates a listener which puts ball into play. In legacy mode the listener moves the ball in its own
+	 * thread, otherwise the ball is moved by the board's simulation engine. 
+	 * @param ball ball to be put into play
+	 * @return a new listener for ball
+	 */
+	private BallListener newListener(Ball ball) {
+		if (this.legacyBallThreads) {
+			return new BallListener() {
 				Thread worker;
 				AtomicBoolean running = new AtomicBoolean(false);
 				@Override
 				public void onStart(final double time) {
 					this.running.set(true);
+					ball.setInPlay(true);
 					this.worker = new Thread(() ->  {
 						while (running.get()) {
 							try {
-								moveOneBall(ball, time);
+								// A ball which falls asleep, is trapped or leaves the board moves other balls 
+								// between slots of the store, so balls are only moved while holding the lock
+								synchronized (balls) {
+									playBall(ball, time);
+								}
 								Thread.sleep( (long) (time * 1000));
 								} catch (InterruptedException e) {
 									e.printStackTrace();
@@ -263,6 +391,12 @@ public class Board {
 				@Override
 				public void onEnd() {
 					this.running.set(false);
+					ball.setInPlay(false);
+				}
+				
+				@Override
+				public boolean isRunning() {
+					return this.running.get();
 				}
 				
 				@Override
@@ -275,10 +409,34 @@ public class Board {
 					return ball.name() + " is running? " + this.running;
 				}
 			};
-			this.balls.put(ball, listener);
-			checkRep();
-			return listener;
 		}
+		// The simulation engine moves the ball. The listener only marks the ball as in play in the ball store. 
+		return new BallListener() {
+			@Override
+			public void onStart(final double time) {
+				ball.setInPlay(true);
+			}
+			
+			@Override
+			public void onEnd() {
+				ball.setInPlay(false);
+			}
+			
+			@Override
+			public boolean isRunning() {
+				return ball.isInPlay();
+			}
+			
+			@Override
+			public String name() {
+				return ball.name();
+			}
+			
+			@Override
+			public String toString() {
+				return ball.name() + " is running? " + ball.isInPlay();
+			}
+		};
 	}
 	
 	/**
@@ -287,9 +445,22 @@ public class Board {
 	 * @param ball ball to be removed. 
 	 */
 	public void removeBall(Ball ball) {
+		synchronized (this.balls) {
 			this.balls.get(ball).onEnd();
 			this.balls.remove(ball);
+			this.ballStore.remove(ball);
+			final Ball[] registered = this.registry;
+			for (int i = 0; i < registered.length; i++) {
+				if (registered[i].equals(ball)) {
+					final Ball[] remaining = Arrays.copyOf(registered, registered.length - 1);
+					System.arraycopy(registered, i + 1, remaining, i, registered.length - i - 1);
+					this.registry = remaining;
+					break;
+				}
+			}
+			this.publishSnapshot();
 			checkRep();
+		}
 	}
 	
 	/**
@@ -322,6 +493,7 @@ public class Board {
 			triggers.put(triggerGadget, new ArrayList<Gadget>());
 		}
 		triggers.get(triggerGadget).add(getGadget(action));
+		this.geometry = null;
 	}
 	
 	/**
@@ -346,6 +518,7 @@ public class Board {
 			keyDownTriggers.get(keyName).add(actionGadget);
 			
 		}
+		this.geometry = null;
 	}
 	
 	/**
@@ -419,14 +592,13 @@ public class Board {
 	}
 	
 	/**
-	 * 
-	 * @return a list of balls currently on this flingball board
+	 * Returns the balls on the board without obtaining a lock. While the board is being played the state 
+	 * of a ball may only be read by the thread playing it. Other threads, such as drawing code, read the 
+	 * balls through <code>snapshot()</code>. 
+	 * @return a list of balls currently on this flingball board in the order they were added
 	 */
 	public List<Ball> getBalls() {
-		synchronized (this.balls) {
-			List<Ball> result = new ArrayList<Ball>(this.balls.keySet());
-			return result;
-		}
+		return new ArrayList<Ball>(Arrays.asList(this.registry));
 	}
 	
 	/**
@@ -442,146 +614,682 @@ public class Board {
 	 * Sets the board into action the game is played in time (seconds) increments. For example, the call play(5)
 	 * will move all balls 5 seconds forward in time and take all actions which may have occurred during that time. 
 	 * 
+	 * Play continues in real time until <code>stop()</code> is called. All balls are moved by a single 
+	 * simulation thread unless the board is in legacy mode, in which case each ball is moved by its own thread. 
+	 * 
 	 * @param time length of time the board is played. 
 	 */
 	public void play(final double time) {
-		for (Ball ball : this.balls.keySet()) {
-			this.balls.get(ball).onStart(time);
+		while (true) {
+			final SimulationEngine previous;
+			synchronized (this.balls) {
+				previous = this.engine;
+				if (previous != null && previous.isRunning()) return;
+				if (previous == null || !previous.isAlive()) {
+					this.physics = this.physics.withTimestep(time);
+					for (BallListener listener : this.balls.values()) {
+						listener.onStart(time);
+					}
+					this.engine = new SimulationEngine(this, time, SimulationEngine.DEFAULT_MAX_STEPS_PER_FRAME);
+					this.engine.start();
+					break;
+				}
+			}
+			// A stopped engine may still be completing a tick, which needs the lock on balls
+			previous.join();
+		}
+		checkRep();
+	}
+	
+	/**
+	 * Stops play on the board. All balls remain in their current position. Once stop returns no tick 
+	 * is being played by the simulation engine. 
+	 */
+	public void stop() {
+		final SimulationEngine engine;
+		synchronized (this.balls) {
+			engine = this.engine;
+		}
+		// The engine's last tick needs the lock on balls, so the engine is stopped without holding it
+		if (engine != null) {
+			engine.stop();
+		}
+		synchronized (this.balls) {
+			for (BallListener listener : this.balls.values()) {
+				listener.onEnd();
+			}
+		}
+	}
+	
+	/**
+	 * Plays the board for the given number of ticks from the calling thread as fast as possible. Every ball 
+	 * on the board is put into play and moved by <code>step(timestep)</code> once per tick. No window is 
+	 * opened and no real time passes between ticks, so a board can be played on a machine without a display. 
+	 * 
+	 * @param ticks number of ticks to play. Must be >= 0
+	 * @param timestep length of each tick in seconds. Must be > 0
+	 * @return a report of the final state of the board and how long play took
+	 * @throws IllegalStateException if the board is in legacy mode or is already being played in real time
+	 */
+	public SimulationReport simulate(final int ticks, final double timestep) {
+		if (this.legacyBallThreads) {
+			throw new IllegalStateException("Balls moved by their own threads cannot be simulated");
+		}
+		this.putBallsInPlay(timestep);
+		final long start = System.nanoTime();
+		for (int i = 0; i < ticks; i++) {
+			this.step(timestep);
+		}
+		final long elapsed = System.nanoTime() - start;
+		checkRep();
+		return new SimulationReport(this, ticks, timestep, elapsed);
+	}
+	
+	/**
+	 * Puts every ball on the board into play without starting the simulation engine. The board is then 
+	 * played by calling <code>step</code>. 
+	 * @param timestep length of each tick in seconds. Must be > 0
+	 * @throws IllegalStateException if the board is already being played in real time
+	 */
+	void putBallsInPlay(final double timestep) {
+		synchronized (this.balls) {
+			if (this.engine != null && this.engine.isRunning()) {
+				throw new IllegalStateException(this.NAME + " is already being played");
+			}
+			this.physics = this.physics.withTimestep(timestep);
+			for (BallListener listener : this.balls.values()) {
+				listener.onStart(timestep);
+			}
+		}
+	}
+	
+	/**
+	 * Plays a single tick of length time on the board. Every ball in play is moved by time seconds and 
+	 * all actions triggered during that time are taken. In legacy mode balls are moved by their own 
+	 * threads and are not moved by this method. 
+	 * 
+	 * @param time length of the tick in seconds
+	 */
+	void step(final double time) {
+		this.ticks++;
+		this.simulatedTime += time;
+		if (this.legacyBallThreads) {
+			this.advanceFlippers(time);
+			this.publishSnapshot();
+			return;
+		}
+		if (this.scheduler != null) {
+			synchronized (this.balls) {
+				this.scheduler.advance(time);
+			}
+			this.advanceFlippers(time);
+			this.publishSnapshot();
+			return;
+		}
+		this.tickLength = time;
+		synchronized (this.balls) {
+			this.sweepAndPrune.update(this.freeBalls(), time, this.physics.gravity());
+			// Only balls which are awake are moved. A ball which leaves the board or falls asleep is replaced 
+			// by the last ball which is awake. Iterating backwards ensures that ball has already been moved. 
+			// A ball which is woken or released during the tick joins the end of the awake balls and is 
+			// first moved in the next tick, whichever ball woke it. 
+			for (int i = this.ballStore.awake() - 1; i >= 0; i--) {
+				if (this.ballStore.is(i, BallStore.IN_PLAY)) {
+					playBall(this.ballStore.ball(i), time);
+				}
+			}
+		}
+		this.advanceFlippers(time);
+		this.publishSnapshot();
+	}
+	
+	/**
+	 * Returns the state of the board at the end of the last tick without obtaining a lock, so the board can 
+	 * be drawn while it is being played. The board only publishes a snapshot every tick once one has been 
+	 * asked for. The first call takes a snapshot of the board as it is. 
+	 * @return the last snapshot published by the board
+	 */
+	public BoardSnapshot snapshot() {
+		final BoardSnapshot published = this.snapshot;
+		if (published != null) {
+			return published;
+		}
+		synchronized (this.balls) {
+			if (this.snapshot == null) {
+				this.snapshot = this.takeSnapshot();
+			}
+			return this.snapshot;
+		}
+	}
+	
+	/**
+	 * Replaces the published snapshot with the current state of the board if a snapshot has been asked for. 
+	 * In legacy mode balls keep moving in their own threads while the snapshot is taken. 
+	 */
+	private void publishSnapshot() {
+		if (this.snapshot == null) return;
+		synchronized (this.balls) {
+			this.snapshot = this.takeSnapshot();
+		}
+	}
+	
+	/**
+	 * Must be called while holding the lock on balls. 
+	 * @return a snapshot of the board as it is
+	 */
+	private BoardSnapshot takeSnapshot() {
+		if (this.drawnGadgets == null) {
+			this.drawnGadgets = this.gadgets.toArray(new Gadget[0]);
+		}
+		return new BoardSnapshot(this.ticks, this.simulatedTime, this.registry, this.drawnGadgets, this.snapshot);
+	}
+	
+	/**
+	 * Advances the rotation of every flipper on the board once all balls have been moved through a tick, 
+	 * so that every ball is moved against the pose the flippers had at the start of the tick. 
+	 * @param time length of the tick in seconds
+	 */
+	private void advanceFlippers(final double time) {
+		for (Flipper flipper : this.flippers) {
+			if (flipper.isRotating()) {
+				this.wakeBallsNear(flipper);
+				flipper.advance(time);
+			}
+		}
+	}
+	
+	/**
+	 * @return every ball on the board which is not trapped. Trapped balls cannot collide with other balls
+	 */
+	private List<Ball> freeBalls() {
+		final List<Ball> result = new ArrayList<Ball>(this.ballStore.free());
+		for (int i = 0; i < this.ballStore.free(); i++) {
+			result.add(this.ballStore.ball(i));
+		}
+		return result;
+	}
+	
+	/**
+	 * Wakes every ball which is touching the bounding box of a gadget so that it is moved again once 
+	 * the gadget has moved. Trapped balls stay asleep. 
+	 * @param gadget gadget which is about to move
+	 */
+	void wakeBallsNear(Gadget gadget) {
+		final Vect position = gadget.position();
+		synchronized (this.balls) {
+			// A ball which wakes is swapped with the first ball which is asleep, which has already been checked
+			for (int i = this.ballStore.awake(); i < this.ballStore.free(); i++) {
+				final Ball ball = this.ballStore.ball(i);
+				final double radius = ball.getRadius();
+				final double x = ball.boardX();
+				final double y = ball.boardY();
+				if (x + radius >= position.x() && x - radius <= position.x() + gadget.width()
+						&& y + radius >= position.y() && y - radius <= position.y() + gadget.height()) {
+					ball.wake();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Wakes every ball on the board which is not trapped. 
+	 */
+	void wakeBalls() {
+		synchronized (this.balls) {
+			for (int i = this.ballStore.awake(); i < this.ballStore.free(); i++) {
+				this.ballStore.ball(i).wake();
+			}
+		}
+	}
+	
+	/**
+	 * Configures the board to move balls from event to event instead of in fixed ticks. Collisions are 
+	 * predicted ahead of time and held in an <code>EventScheduler</code>. Only the predictions involving 
+	 * a ball are updated when it collides. Has no effect in legacy mode. Must be called before play begins. 
+	 * @param enabled true if balls should be moved by an event scheduler
+	 */
+	void setEventDriven(boolean enabled) {
+		this.scheduler = enabled ? new EventScheduler(this) : null;
+	}
+	
+	/**
+	 * @return the event scheduler moving balls on this board or null if the board is played in fixed ticks
+	 */
+	EventScheduler getScheduler() {
+		return this.scheduler;
+	}
+	
+	/**
+	 * @return every ball which is currently in play on the board
+	 */
+	List<Ball> ballsInPlay() {
+		final List<Ball> result = new ArrayList<Ball>();
+		for (int i = 0; i < this.ballStore.size(); i++) {
+			if (this.ballStore.is(i, BallStore.IN_PLAY)) {
+				result.add(this.ballStore.ball(i));
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * @return the store holding the state of every ball on the board
+	 */
+	BallStore getBallStore() {
+		return this.ballStore;
+	}
+	
+	/**
+	 * Returns the collision geometry of the board, compiling it if a gadget or an action has been added 
+	 * since it was last compiled. Gadgets whose action is taken by a trigger or a key may move and are 
+	 * not compiled. 
+	 * @return the compiled collision geometry of the board
+	 */
+	StaticGeometry geometry() {
+		StaticGeometry result = this.geometry;
+		if (result == null) {
+			final Set<Gadget> moving = new HashSet<Gadget>(this.flippers);
+			for (List<Gadget> targets : this.triggers.values()) {
+				moving.addAll(targets);
+			}
+			for (List<Gadget> targets : this.keyUpTriggers.values()) {
+				moving.addAll(targets);
+			}
+			for (List<Gadget> targets : this.keyDownTriggers.values()) {
+				moving.addAll(targets);
+			}
+			result = new StaticGeometry(this.gadgetIndex, this.walls, moving);
+			this.geometry = result;
+		}
+		return result;
+	}
+	
+	/**
+	 * @param gadget a gadget on the board
+	 * @return true if a collision with gadget triggers an action
+	 */
+	boolean hasTriggers(Gadget gadget) {
+		return this.triggers.containsKey(gadget) || this.boardTriggers.containsKey(gadget);
+	}
+	
+	/**
+	 * Moves a ball on the board for the given amount of time accounting for the effects of gravity and 
+	 * friction. Collisions are not checked. 
+	 * @param ball ball to be moved
+	 * @param time time in seconds during which the ball moves
+	 */
+	void moveBall(Ball ball, double time) {
+		ball.move(time, this.physics);
+	}
+	
+	/**
+	 * @return the physical constants and tuning parameters used to play the board
+	 */
+	public PhysicsContext getPhysics() {
+		return this.physics;
+	}
+	
+	/**
+	 * Replaces the physical constants and tuning parameters used to play the board. The timestep of 
+	 * physics is replaced by the length of the tick whenever the board is put into play. 
+	 * @param physics physics of the board
+	 */
+	public void setPhysics(PhysicsContext physics) {
+		this.physics = physics;
+	}
+	
+	/**
+	 * @return the gravity on the board in L / s^2
+	 */
+	double getGravity() {
+		return this.physics.gravity();
+	}
+	
+	/**
+	 * @return the coefficient of friction mu in s^-1
+	 */
+	double getFriction1() {
+		return this.physics.friction1();
+	}
+	
+	/**
+	 * @return the coefficient of friction mu2 in L^-1
+	 */
+	double getFriction2() {
+		return this.physics.friction2();
+	}
+	
+	/**
+	 * Configures the board to move each ball in its own thread instead of from a single simulation thread. 
+	 * Must be called before play begins. 
+	 * @param enabled true if each ball should be moved by its own thread
+	 */
+	void setLegacyBallThreads(boolean enabled) {
+		synchronized (this.balls) {
+			this.legacyBallThreads = enabled;
+			for (Ball ball : this.balls.keySet()) {
+				this.balls.put(ball, this.newListener(ball));
+			}
+		}
+	}
+	
+	/**
+	 * Moves a ball which is awake for the given amount of time and puts it to sleep if it has come to 
+	 * rest. 
+	 * @param ball ball to be moved
+	 * @param time time in seconds during which the ball moves
+	 */
+	private void playBall(Ball ball, final double time) {
+		if (ball.isAsleep()) return;
+		this.moveOneBall(ball, time);
+		// A ball which left the board during the tick is no longer in its store
+		if (ball.store() == this.ballStore) {
+			ball.settle(time, this.physics.sleepTime());
 		}
-			checkRep();
 	}
 	
 	/**
 	 * Moves one ball on the board for the given amount of time accounting for the effects of friction
-	 * and gravity. Any actions that are triggered during this time are taken. 
-	 * @param ball
-	 * @param time
+	 * and gravity. Any actions that are triggered during this time are taken. At most 
+	 * <code>maxCollisionsPerStep</code> collisions are resolved. A ball which would collide more often 
+	 * is left where it is for the rest of the time so that a ball pinned between gadgets cannot stall 
+	 * the tick. 
+	 * 
+	 * If the board has a step tolerance the time is split into sub-steps chosen by <code>subStep</code>, 
+	 * and collisions are predicted again at the start of each. Gadgets and walls are not searched while 
+	 * the ball is too far from every covered cell to reach one. 
+	 * @param ball ball to be moved
+	 * @param time time in seconds during which the ball moves
 	 */
 	private void moveOneBall(Ball ball, final double time) {
-		final Gadget NO_COLLISION = new Wall("NO_COLLISION", 0, 0, 0, 0);
+		final StaticGeometry geometry = this.geometry();
+		final StaticGeometry.Hit hit = new StaticGeometry.Hit();
+		final double tolerance = this.physics.stepTolerance();
+		int collisions = 0;
+		double left = time;
+		try {
+			do {
+				// Clearance is only looked up once per sub-step. A ball which cannot reach a gadget or wall 
+				// during the rest of the tick is moved in one step without searching them. Once it has 
+				// collided with another ball its path has changed, so they are searched again. 
+				boolean clear = tolerance > 0 && this.reach(ball, left) 
+						< geometry.clearance(ball.boardX(), ball.boardY()) - ball.getRadius();
+				final double step = clear || tolerance == 0 ? left : this.subStep(ball, left, time, tolerance);
+				left = step < left ? left - step : 0;
+				for (double remaining = step; remaining != DONE; collisions++) {
+					if (collisions == this.maxCollisionsPerStep) {
+						this.collisionCapHits.incrementAndGet();
+						return;
+					}
+					remaining = this.moveToNextCollision(ball, remaining, left, clear, geometry, hit);
+					clear = false;
+				}
+				// A ball which left the board or was trapped is not moved any further
+				if (ball.store() != this.ballStore || ball.isAsleep()) return;
+			} while (left > 0);
+		} finally {
+			this.collisionQueries.addAndGet(hit.queries);
+		}
+	}
+	
+	/**
+	 * Chooses how long a ball which may reach a gadget or wall during the rest of the tick is moved before 
+	 * its collisions are predicted again. Collisions are predicted along a straight line from which the ball 
+	 * strays by at most its acceleration times the square of the step, so the step is chosen to keep that 
+	 * below tolerance. Friction grows with the square of the speed, so fast balls are given the shortest 
+	 * steps. 
+	 * @param ball ball to be moved
+	 * @param left time in seconds left in the tick
+	 * @param tick length of the tick in seconds
+	 * @param tolerance step tolerance of the board in L
+	 * @return length of the next step in seconds, at most left and at least tick / MAX_SUBSTEPS unless left 
+	 * 		is shorter. The rest of the tick is split evenly so no short step is left at its end. 
+	 */
+	private double subStep(Ball ball, final double left, final double tick, final double tolerance) {
+		final double step = Math.max(Math.sqrt(tolerance / this.acceleration(ball)), tick / MAX_SUBSTEPS);
+		if (step >= left) return left;
+		return left / Math.ceil(left / step);
+	}
+	
+	/**
+	 * @param ball ball on the board
+	 * @param time time in seconds
+	 * @return the furthest distance in L the ball can move in time seconds unless it collides
+	 */
+	private double reach(Ball ball, final double time) {
+		final double vx = ball.velocityX();
+		final double vy = ball.velocityY();
+		return Math.sqrt(vx * vx + vy * vy) * time + this.acceleration(ball) * time * time;
+	}
+	
+	/**
+	 * @param ball ball on the board
+	 * @return the magnitude of the acceleration of the ball due to gravity and friction during its next move
+	 */
+	private double acceleration(Ball ball) {
+		final double va = ball.velocityX();
+		final double vb = -ball.velocityY();
+		final double aa = ParabolicCollisions.accelerationX(va, vb, this.physics);
+		final double ab = ParabolicCollisions.accelerationY(va, vb, this.physics);
+		return Math.sqrt(aa * aa + ab * ab);
+	}
+	
+	/**
+	 * Moves a ball until it collides with a gadget, a wall or another ball, or until time has passed. 
+	 * The collision is resolved and any actions it triggers are taken. 
+	 * @param ball ball to be moved
+	 * @param time time in seconds during which the ball moves
+	 * @param after time in seconds left in the tick once the ball has been moved for time
+	 * @param clear true if the ball cannot reach any gadget or wall during time, in which case they are not 
+	 * 		searched
+	 * @param geometry collision geometry of the board
+	 * @param hit reused to query geometry
+	 * @return the time in seconds the ball must still be moved after the collision or DONE if the ball 
+	 * 		has finished moving
+	 */
+	private double moveToNextCollision(Ball ball, final double time, final double after, final boolean clear, 
+			StaticGeometry geometry, StaticGeometry.Hit hit) {
 		double collisionTime = Double.POSITIVE_INFINITY;
 		double ballCollisionTime = Double.POSITIVE_INFINITY;
-		final Ball NO_BALL_COLLISION = new Ball("NO_COLLISION", Vect.ZERO, Vect.ZERO);
-		Ball nextBall = NO_BALL_COLLISION;
+		Ball nextBall = null;
 		
-		Gadget nextGadget = NO_COLLISION;
-		// Find the gadget with which the ball will collide next
-		for (Gadget gadget : this.gadgets) {
-			if (gadget.collisionTime(ball) < collisionTime) {
-				collisionTime = gadget.collisionTime(ball);
-				nextGadget = gadget;
-			}
+		// Find the gadget with which the ball will collide next. Only gadgets the ball can reach during 
+		// time need to be checked. 
+		Gadget nextGadget = clear ? null : geometry.earliest(ball, time, this.physics, null, 0, hit);
+		if (nextGadget != null) {
+			collisionTime = hit.time;
 		}
 		
-		// Obtain a lock to prevent balls processing simultaneous collisions and simultaneous mutations to a ball
-		synchronized (this.balls) {
-				for (Ball b : this.balls.keySet()) {
-					if (b.isTrapped()) continue; // Skip collisions for balls stuck in absorbers. 
-						if (!ball.isTrapped() && ball.timeUntilBallCollision(b) < ballCollisionTime) {
-							ballCollisionTime = ball.timeUntilBallCollision(b);
-							nextBall = b;
-						}
+		// In legacy mode every ball is checked. Otherwise only balls found by the sweep and prune broadphase 
+		// at the start of the tick can collide with ball. 
+		final double elapsed = this.tickLength - time - after;
+		final Ball[] registry = this.registry;
+		final int nearby = this.legacyBallThreads ? registry.length : this.sweepAndPrune.partnerCount(ball);
+		for (int k = 0; k < nearby; k++) {
+			final Ball b = this.legacyBallThreads ? registry[k] : this.sweepAndPrune.partner(ball, k);
+			if (b == ball || b.isTrapped()) continue; // Skip collisions for balls stuck in absorbers. 
+			if (!ball.isTrapped()) {
+				final double timeUntilCollision = this.legacyBallThreads ? ball.timeUntilBallCollision(b) 
+						: this.sweepAndPrune.timeUntilCollision(ball, k, elapsed);
+				hit.queries++;
+				if (timeUntilCollision < ballCollisionTime) {
+					ballCollisionTime = timeUntilCollision;
+					nextBall = b;
 				}
-				
-				if (ballCollisionTime < time && ballCollisionTime < collisionTime && nextBall != NO_BALL_COLLISION) {
-					ball.move(ballCollisionTime, this.gravity, this.friction1, this.friction2);
-					nextBall.move(ballCollisionTime, this.gravity, this.friction1, this.friction2);
-					ball.reflectBall(nextBall);
-					moveOneBall(ball, time - ballCollisionTime);
-					return;
 			}
 		}
 		
-		// If the ball will not collide with a gadget or another ball check the outer walls of the board. 
-		if (nextGadget == NO_COLLISION) {
-			for (Gadget wall : this.walls) {
-				if (wall.collisionTime(ball) < collisionTime) {
-					collisionTime = wall.collisionTime(ball);
-					nextGadget = wall;
-				}
+		if (ballCollisionTime < time && ballCollisionTime < collisionTime && nextBall != null) {
+			final double remaining = this.collideBalls(ball, nextBall, ballCollisionTime, Math.min(time, collisionTime), time);
+			if (remaining != MISSED) {
+				return remaining;
 			}
 		}
 		
-		if (collisionTime <= time && nextGadget != NO_COLLISION) {
-			//TODO This causes a bug with flippers since they rotate in their own thread. 
-			// if the ball is moved the flipper will continue to rotate and can rotate past
-			// the collision point. reflect ball should just be an all inclusive method. 
-			// where it is given the collision time and total play time and moves the ball appropriately
-			synchronized (nextGadget) {
-				// Move ball to collision point
-				ball.move(collisionTime, this.gravity, this.friction1, this.friction2);
-				checkRep();
-				
-				// Check if the board is connected to another board and handle the ball transfer
-				if (this.neighbors.contains(nextGadget)) {
-					this.removeBall(ball);
-					Vect center = ball.getBoardCenter();
-					switch (Border.fromString(nextGadget.name())) {
-						case TOP:{
-							ball.setBoardPosition(new Vect(center.x(), this.HEIGHT - ball.getRadius()));
-							break;
-						}
-						case BOTTOM: {
-							ball.setBoardPosition(new Vect(center.x(), ball.getRadius()));
-							break;
-						}
-						case LEFT: {
-							ball.setBoardPosition(new Vect(this.HEIGHT - ball.getRadius(), center.y()));
-							break;
-						}
-						case RIGHT: {
-							ball.setBoardPosition(new Vect(ball.getRadius(), center.y())); 
-							break;
-						}
-					}
-					Vect velocity = ball.getVelocity();
-					center = ball.getBoardCenter();
-					String name = ball.name().replaceAll("\\s", "");  // Ball names cannot have any spaces. 
-					
-					this.notifyRequestListeners("addBall " + nextGadget.name() + " " + name + " " + center.x() + " " + center.y() + " " + velocity.x() + " " + velocity.y());
-					return;
-					
-				} else if (nextGadget instanceof Portal 
-						&& ((Portal) nextGadget).isConnected()
-						&& !((Portal) nextGadget).getTargetBboard().equals(this.NAME) 
-						) {
-					if (this.connected) {
-						// If the ball hits a connected portal teleport it to the appropriate board. 
-						this.removeBall(ball);
-						this.notifyRequestListeners("teleport " + nextGadget.name() + " " + ball.name() + " " + 
-								ball.getVelocity().x() + " " + ball.getVelocity().y());
-					}
-					
-					
-				} else {
-					nextGadget.reflectBall(ball);
-				}
+		// If the ball will not collide with a gadget or another ball check the outer walls of the board. 
+		if (nextGadget == null && !clear) {
+			nextGadget = geometry.earliestWall(ball, this.physics, null, 0, hit);
+			if (nextGadget != null) {
+				collisionTime = hit.time;
 			}
+		}
+		
+		if (collisionTime <= time && nextGadget != null) {
+			final boolean onBoard = this.collide(ball, nextGadget, collisionTime);
 			
-			// Perform any actions triggered by the collision
-			if (triggers.containsKey(nextGadget)) {
-				for (Gadget gadget : triggers.get(nextGadget)) {
-					//TODO - Triangle rotation needs to be delayed as rotation can cover the ball 
-					// and invalidate the rep. Can use a new thread to do this maybe
-					gadget.takeAction();
-				}
+			// Move ball during the rest of time after collision has occurred. 
+			if (onBoard && ball.getVelocity().length() > 0.0 && collisionTime > 0 && !(nextGadget instanceof Portal)) {
+				return time - collisionTime;
 			}
-			if (boardTriggers.containsKey(nextGadget)) {
-				for (Action action : boardTriggers.get(nextGadget)) {
-					// TODO Board Actions Come back to this. It should be possible to do this without ball
-				//	this.takeAction(action, ball);
-				}
+		} else {
+			ball.move(time, this.physics);
+		}
+		return DONE;
+	}
+	
+	/**
+	 * Moves two balls to the point where they collide and reflects them off each other while holding the 
+	 * lock on balls. In legacy mode the other ball may have been moved by its own thread since the collision 
+	 * was found, so the time of the collision is found again once the lock is held. 
+	 * @param ball ball which is being moved
+	 * @param other ball with which ball collides
+	 * @param collisionTime time in seconds until the balls collide
+	 * @param before time in seconds before which the collision must happen to be resolved
+	 * @param time time in seconds during which ball moves
+	 * @return the time in seconds ball must still be moved after the collision, DONE if ball has finished 
+	 * 		moving or MISSED if the balls no longer collide before before
+	 */
+	private double collideBalls(Ball ball, Ball other, final double collisionTime, final double before, final double time) {
+		synchronized (this.balls) {
+			final double t = this.legacyBallThreads ? ball.timeUntilBallCollision(other) : collisionTime;
+			if (!(t < before)) return MISSED;
+			ball.move(t, this.physics);
+			other.move(t, this.physics);
+			ball.reflectBall(other);
+			other.wake();
+			this.sweepAndPrune.invalidate(ball);
+			this.sweepAndPrune.invalidate(other);
+			// Ball.move rounds velocities, which can undo a reflection between two touching balls. Only 
+			// continue if the ball has moved, otherwise the same collision would be found again. 
+			if (t > SIMULTANEOUS_COLLISION_TIME) {
+				return time - t;
 			}
+			ball.move(time, this.physics);
+			return DONE;
+		}
+	}
+	
+	/**
+	 * Limits the number of collisions resolved for one ball in one tick. 
+	 * @param maxCollisionsPerStep maximum number of collisions per ball per tick. Must be >= 1
+	 */
+	void setMaxCollisionsPerStep(int maxCollisionsPerStep) {
+		assert maxCollisionsPerStep >= 1 : "maxCollisionsPerStep < 1";
+		this.maxCollisionsPerStep = maxCollisionsPerStep;
+	}
+	
+	/**
+	 * @return the maximum number of collisions resolved for one ball in one tick
+	 */
+	int getMaxCollisionsPerStep() {
+		return this.maxCollisionsPerStep;
+	}
+	
+	/**
+	 * @return the number of times a ball has stopped moving for the rest of a tick because it reached 
+	 * 		the maximum number of collisions per tick
+	 */
+	long collisionCapHits() {
+		return this.collisionCapHits.get();
+	}
+	
+	/**
+	 * @return the number of collision times with a gadget, a wall or another ball computed while moving balls 
+	 * 		in fixed ticks. Collision times computed by an event scheduler are counted by the scheduler
+	 */
+	long collisionQueries() {
+		return this.collisionQueries.get();
+	}
+	
+	/**
+	 * Moves a ball to the point where it collides with a gadget and resolves the collision. The ball is 
+	 * either reflected by the gadget, transferred to a neighboring board or teleported by a portal. Any 
+	 * actions triggered by the collision are taken. 
+	 * 
+	 * @param ball ball which collides with gadget
+	 * @param gadget gadget or wall with which the ball collides
+	 * @param collisionTime time in seconds until the ball collides with the gadget
+	 * @return true if the ball is still on this board after the collision
+	 */
+	boolean collide(Ball ball, Gadget gadget, final double collisionTime) {
+		synchronized (gadget) {
+			// Move ball to collision point
+			ball.move(collisionTime, this.physics);
+			checkRep();
 			
-			// Move ball during the rest of time after collision has occurred. 
-			if (ball.getVelocity().length() > 0.0 && collisionTime > 0 && !(nextGadget instanceof Portal)) {
-				moveOneBall(ball, time - collisionTime);
+			// Check if the board is connected to another board and handle the ball transfer
+			if (this.neighbors.contains(gadget)) {
+				this.removeBall(ball);
+				Vect center = ball.getBoardCenter();
+				switch (Border.fromString(gadget.name())) {
+					case TOP:{
+						ball.setBoardPosition(new Vect(center.x(), this.HEIGHT - ball.getRadius()));
+						break;
+					}
+					case BOTTOM: {
+						ball.setBoardPosition(new Vect(center.x(), ball.getRadius()));
+						break;
+					}
+					case LEFT: {
+						ball.setBoardPosition(new Vect(this.WIDTH - ball.getRadius(), center.y()));
+						break;
+					}
+					case RIGHT: {
+						ball.setBoardPosition(new Vect(ball.getRadius(), center.y())); 
+						break;
+					}
+				}
+				Vect velocity = ball.getVelocity();
+				center = ball.getBoardCenter();
+				String name = ball.name().replaceAll("\\s", "");  // Ball names cannot have any spaces. 
+				
+				this.notifyRequestListeners("addBall " + gadget.name() + " " + name + " " + center.x() + " " + center.y() + " " + velocity.x() + " " + velocity.y());
+				return false;
 				
+			} else if (gadget instanceof Portal 
+					&& ((Portal) gadget).isConnected()
+					&& !((Portal) gadget).getTargetBboard().equals(this.NAME) 
+					) {
+				if (this.connected) {
+					// If the ball hits a connected portal teleport it to the appropriate board. 
+					this.removeBall(ball);
+					this.notifyRequestListeners("teleport " + gadget.name() + " " + ball.name() + " " + 
+							ball.getVelocity().x() + " " + ball.getVelocity().y());
+				}
+				
+				
+			} else {
+				gadget.reflectBall(ball, this.physics);
+				this.sweepAndPrune.invalidate(ball);
 			}
-		} else {
-			ball.move(time, this.gravity, this.friction1, this.friction2);
 		}
 		
+		// Perform any actions triggered by the collision
+		if (triggers.containsKey(gadget)) {
+			for (Gadget triggered : triggers.get(gadget)) {
+				//TODO - Triangle rotation needs to be delayed as rotation can cover the ball 
+				// and invalidate the rep. Can use a new thread to do this maybe
+				this.wakeBallsNear(triggered);
+				triggered.takeAction();
+			}
+		}
+		if (boardTriggers.containsKey(gadget)) {
+			for (Action action : boardTriggers.get(gadget)) {
+				// TODO Board Actions Come back to this. It should be possible to do this without ball
+			//	this.takeAction(action, ball);
+			}
+		}
+		return this.balls.containsKey(ball);
 	}
 	
 	/**
@@ -590,6 +1298,7 @@ public class Board {
 	 */
 	private void takeAction(Action action) {
 		//TODO BoardActions
+		this.wakeBalls();
 	}
 	
 	/**
@@ -600,6 +1309,7 @@ public class Board {
 	 * @param board name of the board on which the target is located
 	 */
 	void addPortal(Portal portal, String target, String board) {
+		if (!this.isOnBoard(portal)) return;
 		portals.put(portal, Arrays.asList(target, board));
 		this.addGadget(portal);
 	}
@@ -660,8 +1370,37 @@ public class Board {
 		}
 		throw new NoSuchElementException(name + " portal not found");
 	}
+
+	/**
+	 * @param name name of a portal
+	 * @return true if the board has a portal with name name
+	 */
+	boolean hasPortal(String name) {
+		for (Portal p : portals.keySet()) {
+			if (name.equals(p.name())) {
+				return true;
+			}
+		}
+		return false;
+	}
 	
 
+	/**
+	 * Triggers the actions associated with releasing key. 
+	 * @param key name of the key as given in KeyNames
+	 */
+	public void keyReleased(String key) {
+		onKey(key, keyUpTriggers, keyUpBoardTriggers);
+	}
+	
+	/**
+	 * Triggers the actions associated with pressing key. 
+	 * @param key name of the key as given in KeyNames
+	 */
+	public void keyPressed(String key) {
+		onKey(key, keyDownTriggers, keyDownBoardTriggers);
+	}
+	
 	/**
 	 * Triggers the actions associated with key in keyTriggers and keyBoardTriggers
 	 * @param key that is pressed or released
@@ -670,10 +1409,15 @@ public class Board {
 	 */
 	private void onKey(String key, Map<String, List<Gadget>> keyTriggers, 
 			Map<String, List<Action>> keyBoardTriggers) {
-		for (String k : keyTriggers.keySet()) {
-			for (Gadget g : keyTriggers.get(k)) {
-				if (k.equals(key)) {
-					g.takeAction();
+		// An absorber releasing a ball moves balls between slots of the store, so actions are taken 
+		// while holding the lock on balls, as they are when triggered by a collision during a tick
+		synchronized (this.balls) {
+			for (String k : keyTriggers.keySet()) {
+				for (Gadget g : keyTriggers.get(k)) {
+					if (k.equals(key)) {
+						this.wakeBallsNear(g);
+						g.takeAction();
+					}
 				}
 			}
 		}
@@ -699,22 +1443,46 @@ public class Board {
 		final int x = (int) gadget.position().x();
 		final int y = (int) gadget.position().y();
 		
-		for (int i = x; i < x + width; i++) {
-			for (int j = y; j < y + height; j++) {
-				this.gadgetCoverage[i][j] = 1;
-			}
-		}
-		
-		if (gadget instanceof Absorber) {
-			this.gadgetCoverage[x + width - 1][y + height -1] = 1;
+		for (int j = y; j < y + height; j++) {
+			this.gadgetCoverage.set(x + j * this.WIDTH, x + width + j * this.WIDTH);
 		}
 	}
 	
+	/**
+	 * @param gadget a gadget
+	 * @return true if every square of the bounding box of gadget is on this board
+	 */
+	boolean isOnBoard(Gadget gadget) {
+		final double x = gadget.position().x();
+		final double y = gadget.position().y();
+		return x >= 0 && y >= 0 && x + gadget.width() <= this.WIDTH && y + gadget.height() <= this.HEIGHT;
+	}
+	
+	/**
+	 * @param ball a ball
+	 * @return true if the whole of ball is on this board
+	 */
+	boolean isOnBoard(Ball ball) {
+		final Vect center = ball.getBoardCenter();
+		final double radius = ball.getRadius();
+		return center.x() - radius >= 0 && center.y() - radius >= 0 
+				&& center.x() + radius <= this.WIDTH && center.y() + radius <= this.HEIGHT;
+	}
+	
+	/**
+	 * @param x x coordinate of a square on this board
+	 * @param y y coordinate of a square on this board
+	 * @return true if the square (x, y) is covered by a gadget on this board
+	 */
+	boolean isCovered(int x, int y) {
+		return this.gadgetCoverage.get(x + y * this.WIDTH);
+	}
+	
 	@Override
 	public String toString() {
 		StringBuilder result = new StringBuilder();
-		result.append("FLINGBALL BOARD:{ Specs:" + this.NAME + ", Gravity: " + this.gravity);
-		result.append(", friction1: " + this.friction1 + ", friction2: " + this.friction2);
+		result.append("FLINGBALL BOARD:{ Specs:" + this.NAME + ", Gravity: " + this.getGravity());
+		result.append(", friction1: " + this.getFriction1() + ", friction2: " + this.getFriction2());
 		result.append(", Balls:" + this.balls);
 		result.append(", Gadgets:" + this.gadgets +"}");
 		return result.toString();
@@ -763,7 +1531,7 @@ public class Board {
 			 double vx = Double.parseDouble(tokens[4]);
 			 double vy = Double.parseDouble(tokens[5]);
 			 BallListener listener = this.addBall(new Ball(name, new Vect(x, y), new Vect(vx, vy)));
-			 listener.onStart((double) BoardAnimation.getFrameRate() / 1000);
+			 listener.onStart(this.physics.timestep());
 			 break;
 		 }
 		 case "TELEPORT": {
@@ -775,7 +1543,7 @@ public class Board {
 				 double vx = Double.parseDouble(tokens[3]);
 				 double vy = Double.parseDouble(tokens[4]);
 				 BallListener listener = this.addBall(new Ball(name, center, new Vect(vx, vy)));
-				 listener.onStart((double) BoardAnimation.getFrameRate() / 1000);
+				 listener.onStart(this.physics.timestep());
 				 break;
 			 }
 				 catch (NoSuchElementException e) {
@@ -1,11 +1,20 @@
 package flingball;
 
-import java.awt.Color;
+import java.awt.Canvas;
+import java.awt.DisplayMode;
 import java.awt.Dimension;
 import java.awt.EventQueue;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.BufferCapabilities;
+import java.awt.image.BufferStrategy;
 import java.awt.image.ImageObserver;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -13,26 +22,51 @@ import javax.swing.JFrame;
 import javax.swing.JPanel;
 import javax.swing.UIManager;
 
-import flingball.gadgets.Gadget;
-import physics.Vect;
-
 /**
  * Begins play and animates a flingball board with specified value for L. By default the board will 
  * animate with a frame rate of 5 miliseconds. The value of L represents the number of 
  * pixels for one board unit. Board play begins when the new <code>BoardAnimation</code> object is created. 
+ * 
+ * A board can also be drawn actively at a chosen number of frames per second. An actively drawn board is 
+ * drawn by its own render thread into a <code>BufferStrategy</code> instead of asking Swing to repaint it. 
+ * The render thread keeps its own clock, independent of the ticks of the board, and only draws a frame 
+ * when there is something new to draw, as decided by a <code>FramePacer</code>. Frames are paced by sleeping 
+ * between them and are not synchronized with the refreshes of the display. 
+ * 
+ * The board is drawn one tick behind play. Balls and flippers are drawn part of the way between the last 
+ * two snapshots published by the board, by how much of a tick has passed since the last one, so a board 
+ * played in long ticks still moves smoothly at a higher frame rate. 
+ * 
+ * Only the pixels which have changed since the last frame are drawn again: the areas swept by moving balls 
+ * and the bounding boxes of gadgets drawn in a new state, as found by a <code>DirtyRegion</code>. A repainted 
+ * panel is given the bounding box of the changed pixels, as Swing merges the areas it is asked to repaint. 
  * @author Stephan Halarewicz
  */
 public class BoardAnimation {
 	
 	public static final int DEFAULT_L = 40; 
+	// Frame rate of an actively drawn board which draws as many frames per second as the display mode reports
+	// the display is refreshed. Frames are paced by the render thread sleeping, not synchronized with the
+	// refreshes of the display, so a frame may still be shown part of the way through a refresh.
+	public static final int DISPLAY_MODE_RATE = 0;
+	// Frame rate of an actively drawn board when the refresh rate of the display is unknown
+	public static final int DEFAULT_FRAMES_PER_SECOND = 60;
 	
 	private static final long FRAME_RATE = 5; 
 	private final Board board;
 	private final int L;
+	private final boolean active;
+	private final int framesPerSecond;
+	private final double timestep;
 	
 	/*
-	 * AF(board) ::= Displays and animates a flingball board at FRAME_RATE
-	 * Rep Invariant ::= true
+	 * AF(board, L, active, framesPerSecond, timestep) ::= Displays and animates a flingball board at L pixels 
+	 * 		per L. The board is played in ticks of timestep seconds. If active it is drawn by a render thread at 
+	 * 		framesPerSecond, or at the refresh rate of the display mode if framesPerSecond is DISPLAY_MODE_RATE. 
+	 * 		Otherwise it is repainted every FRAME_RATE. 
+	 * Rep Invariant ::= 
+	 * 		framesPerSecond >= 0
+	 * 		timestep > 0
 	 * 
 	 * Safety from rep exposure
 	 *	 Only the final static field FRAME_RATE is ever returned.  
@@ -40,7 +74,8 @@ public class BoardAnimation {
 	 */
 
 	private void checkRep() {
-		assert true;
+		assert framesPerSecond >= 0 : "BoardAnimation: framesPerSecond < 0";
+		assert timestep > 0 : "BoardAnimation: timestep <= 0";
 	}
 	
 	/**
@@ -53,15 +88,56 @@ public class BoardAnimation {
 
 	/**
 	 * Displays and begins play for the provided flingball board represented by <code>board</code> 
-	 * with the specified value of L. The displayed board will be <code>board.WIDTH() * L</code> wide and 
-	 * <code>board.HEIGHT</code> pixels tall.
+	 * with the specified value of L. The displayed board will be <code>board.WIDTH * L</code> wide and 
+	 * <code>board.HEIGHT * L</code> pixels tall.
 	 * 
 	 * @param board The board which will be displayed
 	 * @param L The number of pixels that each unit L represents. 
 	 */
     public BoardAnimation(Board board, int L) {
+    	this(board, L, false, DISPLAY_MODE_RATE, (double) FRAME_RATE / 1000);
+    }
+    
+	/**
+	 * Displays and begins play for the provided flingball board represented by <code>board</code> 
+	 * with the specified value of L. The board is drawn actively by its own render thread. 
+	 * 
+	 * @param board The board which will be displayed
+	 * @param L The number of pixels that each unit L represents. 
+	 * @param framesPerSecond number of frames drawn per second, or DISPLAY_MODE_RATE to draw as many 
+	 * 		frames per second as the display mode is refreshed. Must be >= 0
+	 */
+    public BoardAnimation(Board board, int L, int framesPerSecond) {
+    	this(board, L, true, framesPerSecond, (double) FRAME_RATE / 1000);
+    }
+    
+	/**
+	 * Displays and begins play for the provided flingball board represented by <code>board</code> 
+	 * with the specified value of L. The board is played in ticks of timestep seconds and is drawn actively 
+	 * by its own render thread. 
+	 * 
+	 * @param board The board which will be displayed
+	 * @param L The number of pixels that each unit L represents. 
+	 * @param framesPerSecond number of frames drawn per second, or DISPLAY_MODE_RATE to draw as many 
+	 * 		frames per second as the display mode is refreshed. Must be >= 0
+	 * @param timestep length of each tick in seconds. Must be > 0
+	 */
+    public BoardAnimation(Board board, int L, int framesPerSecond, double timestep) {
+    	this(board, L, true, framesPerSecond, timestep);
+    }
+    
+    private BoardAnimation(Board board, int L, boolean active, int framesPerSecond, double timestep) {
+    	if (framesPerSecond < 0) {
+    		throw new IllegalArgumentException("Frame rate must not be negative: " + framesPerSecond);
+    	}
+    	if (!(timestep > 0)) {
+    		throw new IllegalArgumentException("Timestep must be positive: " + timestep);
+    	}
     	this.board = board;
     	this.L = L;
+    	this.active = active;
+    	this.framesPerSecond = framesPerSecond;
+    	this.timestep = timestep;
         EventQueue.invokeLater(new Runnable() {
 
 			@Override
@@ -74,16 +150,78 @@ public class BoardAnimation {
 
                 JFrame frame = new JFrame("Flingball");
                 frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-                frame.add(new Animation());
+                final ActiveAnimation canvas = active ? new ActiveAnimation() : null;
+                frame.add(active ? canvas : new Animation());
                 frame.pack();
                 frame.setLocationRelativeTo(null);
                 frame.setVisible(true);
-                frame.addKeyListener(board.keyListener);
+                if (active) {
+                	canvas.start(framesPerSecond == DISPLAY_MODE_RATE ? refreshRate(frame) : framesPerSecond);
+                }
+                // MagicKeyListener accounts for a bug in Linux where holding down a key causes repeated keyPressed
+                // and keyReleased events. 
+                frame.addKeyListener(new MagicKeyListener(new KeyAdapter() {
+                	@Override public void keyReleased(KeyEvent e) {
+                		board.keyReleased(KeyNames.keyName.get(e.getKeyCode()));
+                	}
+                	@Override public void keyPressed(KeyEvent e) {
+                		board.keyPressed(KeyNames.keyName.get(e.getKeyCode()));
+                	}
+                }));
             }
         });
         checkRep();
     }
 
+    /**
+     * @param frame a frame which is showing
+     * @return the refresh rate the display mode of the screen showing frame reports, or 
+     * 		DEFAULT_FRAMES_PER_SECOND if it is unknown
+     */
+    private static int refreshRate(JFrame frame) {
+    	final DisplayMode mode = frame.getGraphicsConfiguration().getDevice().getDisplayMode();
+    	return mode.getRefreshRate() == DisplayMode.REFRESH_RATE_UNKNOWN ? DEFAULT_FRAMES_PER_SECOND 
+    			: mode.getRefreshRate();
+    }
+    
+    /**
+     * Draws the board part of the way through the tick before snapshot. Only pixels within the clip of 
+     * graphics are drawn. 
+     * @param graphics graphics with (0, 0) at the upper left corner of the board
+     * @param snapshot a snapshot of the board
+     * @param blend fraction of the tick before snapshot which has passed. Must be 0 <= blend <= 1
+     * @param sprites images of gadgets and balls, only used by the calling thread
+     * @param background background of the board, only used by the calling thread
+     */
+    private void draw(Graphics2D graphics, BoardSnapshot snapshot, double blend, SpriteCache sprites, 
+    		BoardBackground background) {
+    	final ImageObserver NO_OBSERVER_NEEDED = null;
+    	background.draw(graphics, snapshot, blend, sprites, L);
+    	
+    	for (int i = 0; i < snapshot.balls(); i++) {
+    		final double radius = snapshot.radius(i);
+    		final int x = (int) ((snapshot.x(i, blend) - radius) * L);
+    		final int y = (int) ((snapshot.y(i, blend) - radius) * L);
+    		final int size = (int) (2 * radius * L);
+    		if (!graphics.hitClip(x, y, size, size)) continue;
+    		
+    		graphics.drawImage(sprites.ball(radius, L), x, y, NO_OBSERVER_NEEDED);
+    	}
+    }
+
+    /**
+     * A frame of the board: a snapshot drawn part of the way through the tick before it
+     */
+    private static class Frame {
+    	private final BoardSnapshot snapshot;
+    	private final double blend;
+    	
+    	private Frame(BoardSnapshot snapshot, double blend) {
+    		this.snapshot = snapshot;
+    		this.blend = blend;
+    	}
+    }
+
     /**
      * The Animation class draws and re-draws the flingball board specified in BoardAnimation
      * @author Stephan Halarewicz
@@ -91,17 +229,32 @@ public class BoardAnimation {
     private class Animation extends JPanel {
 
 		private static final long serialVersionUID = 1L;
+		// Only used from the event dispatch thread, which paints the panel
+		private final SpriteCache sprites = new SpriteCache();
+		// Created once the panel is shown, so the background is compatible with the display
+		private BoardBackground background = null;
+		// Only used from the timer thread, which chooses each frame and asks for the pixels it changes
+		private final DirtyRegion dirty = new DirtyRegion(board.WIDTH, board.HEIGHT);
+		// Last frame chosen by the timer thread, which is the frame painted
+		private volatile Frame frame = null;
 
 		/**
 		 * Starts play on the flingball board and begins the animation process. 
 		 */
         private Animation() {
             Timer timer = new Timer();
-            board.play((double) FRAME_RATE / 1000);
+            board.play(timestep);
             TimerTask play = new TimerTask() {
                 @Override
                 public void run() {
-                    repaint();
+                	final BoardSnapshot snapshot = board.snapshot();
+                	final Frame next = new Frame(snapshot, snapshot.blend(System.nanoTime()));
+                	// The frame is set before its pixels are repainted, so a paint never draws an older frame 
+                	// than the one whose changes it was asked for
+                	frame = next;
+                	for (Rectangle changed : dirty.update(next.snapshot, next.blend, L)) {
+                		repaint(changed);
+                	}
                 }
             };
             timer.schedule(play, 0, FRAME_RATE);
@@ -110,39 +263,132 @@ public class BoardAnimation {
 
         @Override
         public Dimension getPreferredSize() {
-            return new Dimension(board.HEIGHT * L, board.WIDTH * L);
+            return new Dimension(board.WIDTH * L, board.HEIGHT * L);
         }
 
         @Override
         protected void paintComponent(Graphics graphics) {
             super.paintComponent(graphics);
             Graphics2D g2d = (Graphics2D) graphics.create();
-            graphics.setColor(Color.BLACK);
-    		graphics.fillRect(0, 0, board.HEIGHT * L, board.WIDTH * L);
     		
-    		final ImageObserver NO_OBSERVER_NEEDED = null;
-    		
-    		for (Gadget gadget : board.getGadgets()) {
-    			final int xAnchor = (int) gadget.position().x()*L;
-    			final int yAnchor = (int) gadget.position().y()*L;
-    			
-    			g2d.drawImage(gadget.generate(L), xAnchor, yAnchor, NO_OBSERVER_NEEDED);
-    			
+    		if (this.background == null) {
+    			this.background = new BoardBackground(board.WIDTH, board.HEIGHT, this.getGraphicsConfiguration());
     		}
-    		
-    		graphics.setColor(Color.BLUE);
-    		for (Ball ball : board.getBalls()) {
-    			final Vect anchor = ball.getAnchor().times(L);
-    			
-    			
-    			g2d.drawImage(ball.generate(L), (int) anchor.x(), (int) anchor.y(), NO_OBSERVER_NEEDED);
-    					
+    		// Draw the board from the last snapshot, which never waits for the board to be played
+    		final Frame frame = this.frame;
+    		if (frame == null) {
+    			draw(g2d, board.snapshot(), 1, sprites, this.background);
+    		} else {
+    			draw(g2d, frame.snapshot, frame.blend, sprites, this.background);
     		}
     		
-    		
             g2d.dispose();
         }
 
 	    }
+	
+    /**
+     * The ActiveAnimation class draws the flingball board specified in BoardAnimation from its own render thread
+     * @author Stephan Halarewicz
+     */
+    private class ActiveAnimation extends Canvas {
+    	
+    	private static final long serialVersionUID = 1L;
+    	// Only used from the render thread
+    	private final SpriteCache sprites = new SpriteCache();
+    	private BoardBackground background = null;
+    	private final DirtyRegion dirty = new DirtyRegion(board.WIDTH, board.HEIGHT);
+    	// Pixels changed by the frame before the last one, which must also be drawn when the back buffer 
+    	// holds that frame
+    	private List<Rectangle> previous = new ArrayList<Rectangle>();
+    	private FramePacer pacer = null;
+    	
+    	private ActiveAnimation() {
+    		// Frames are only drawn by the render thread. Keys are listened for by the frame. 
+    		this.setIgnoreRepaint(true);
+    		this.setFocusable(false);
+    	}
+    	
+    	@Override
+    	public Dimension getPreferredSize() {
+    		return new Dimension(board.WIDTH * L, board.HEIGHT * L);
+    	}
+    	
+    	/**
+    	 * Starts play on the flingball board and starts the render thread. Must be called once the canvas is 
+    	 * showing. 
+    	 * @param framesPerSecond number of frames drawn per second. Must be > 0
+    	 */
+    	private void start(int framesPerSecond) {
+    		this.createBufferStrategy(2);
+    		final BufferStrategy strategy = this.getBufferStrategy();
+    		this.background = new BoardBackground(board.WIDTH, board.HEIGHT, this.getGraphicsConfiguration());
+    		board.play(timestep);
+    		this.pacer = new FramePacer(framesPerSecond, System.nanoTime());
+    		final Thread renderer = new Thread(() -> {
+    			while (this.isDisplayable()) {
+    				this.render(strategy);
+    				final long delay = this.pacer.delay(System.nanoTime());
+    				try {
+    					Thread.sleep(delay / 1000000, (int) (delay % 1000000));
+    				} catch (InterruptedException e) {
+    					return;
+    				}
+    			}
+    		}, board.NAME + " renderer");
+    		renderer.setDaemon(true);
+    		renderer.start();
+    	}
+    	
+    	/**
+    	 * Draws the last snapshot of the board and shows it, unless it has already been shown at the end of 
+    	 * its tick. Only the pixels which differ from the frame held by the back buffer are drawn. 
+    	 */
+    	private void render(BufferStrategy strategy) {
+    		final BoardSnapshot snapshot = board.snapshot();
+    		final double blend = snapshot.blend(System.nanoTime());
+    		if (!this.pacer.needsFrame(snapshot, blend, strategy.contentsLost())) return;
+    		final BufferCapabilities capabilities = strategy.getCapabilities();
+    		final BufferCapabilities.FlipContents contents = capabilities.getFlipContents();
+    		if (capabilities.isPageFlipping() && contents != BufferCapabilities.FlipContents.COPIED 
+    				&& contents != BufferCapabilities.FlipContents.PRIOR) {
+    			// The back buffer holds nothing which can be drawn over
+    			this.dirty.invalidate();
+    		}
+    		final List<Rectangle> changed = this.dirty.update(snapshot, blend, L);
+    		final List<Rectangle> regions = new ArrayList<Rectangle>(changed);
+    		if (capabilities.isPageFlipping() && contents == BufferCapabilities.FlipContents.PRIOR) {
+    			// The back buffer holds the frame before the last one
+    			regions.addAll(this.previous);
+    		}
+    		this.previous = changed;
+    		final boolean lost = strategy.contentsLost();
+    		if (regions.isEmpty() && !lost) return;
+    		int passes = 0;
+    		do {
+    			do {
+    				final Graphics2D graphics = (Graphics2D) strategy.getDrawGraphics();
+    				// A buffer which is drawn again has been restored, and holds nothing which can be drawn over
+    				if (lost || passes > 0) {
+    					draw(graphics, snapshot, blend, this.sprites, this.background);
+    				} else {
+    					for (Rectangle region : regions) {
+    						graphics.setClip(region);
+    						draw(graphics, snapshot, blend, this.sprites, this.background);
+    					}
+    				}
+    				graphics.dispose();
+    				passes++;
+    			} while (strategy.contentsRestored());
+    			strategy.show();
+    		} while (strategy.contentsLost());
+    		if (lost || passes > 1) {
+    			// Every buffer may have been lost, so the next frame is drawn in full
+    			this.dirty.invalidate();
+    			this.previous = new ArrayList<Rectangle>();
+    		}
+    		Toolkit.getDefaultToolkit().sync();
+    	}
+    }
 
-	}
+}
@@ -0,0 +1,161 @@
+package flingball;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.image.BufferedImage;
+
+import flingball.gadgets.Gadget;
+
+/**
+ * A BoardBackground draws the gadgets of a flingball board from an image of the board which is rendered once.
+ * Each gadget is drawn into the image in the state it had when the image was rendered. A frame is drawn by
+ * copying the image and then drawing only the gadgets whose state has changed since, such as a flipper which
+ * is rotating or an absorber which holds a ball, over a cleared bounding box.
+ *
+ * The image is rendered again when a gadget is added, when the pixels in one L change or when a gadget which
+ * is not animated changes its state, for example when a triangle bumper is rotated.
+ *
+ * A BoardBackground is used by a single drawing thread.
+ */
+class BoardBackground {
+
+	private static final Color BACKGROUND = Color.BLACK;
+	private static final Gadget[] NO_GADGETS = new Gadget[0];
+
+	private final int width, height;
+	private final GraphicsConfiguration configuration;
+	private BufferedImage image = null;
+	private int L = 0;
+	private Gadget[] gadgets = NO_GADGETS;
+	private int[] states = new int[0];
+	private int renders = 0;
+
+	/*
+	 * AF(width, height, configuration, image, L, gadgets, states, renders) ::= The background of a width x height
+	 * 		board at L pixels per L, compatible with configuration if it is not null. image shows gadgets[j] in
+	 * 		state states[j] on an empty board, or nothing has been rendered if image is null. The image has been
+	 * 		rendered renders times.
+	 * Rep Invariant ::=
+	 * 		width, height > 0
+	 * 		gadgets.length == states.length and no element of gadgets is null
+	 * 		image is null or is width * L x height * L pixels
+	 * Safety from rep exposure ::=
+	 * 		No field is returned. gadgets is copied from a snapshot.
+	 * Thread Safety Argument ::=
+	 * 		BoardBackground is not thread safe. It is only used by the thread drawing a board.
+	 */
+
+	private void checkRep() {
+		assert width > 0 && height > 0 : "BoardBackground: empty board";
+		assert gadgets.length == states.length : "BoardBackground: states";
+		for (Gadget gadget : gadgets) {
+			assert gadget != null : "BoardBackground: null gadget";
+		}
+		assert image == null || (image.getWidth() == width * L && image.getHeight() == height * L) :
+			"BoardBackground: image is the wrong size";
+	}
+
+	/**
+	 * Creates the background of a board. Nothing is rendered until the board is first drawn.
+	 * @param width width of the board in L. Must be > 0
+	 * @param height height of the board in L. Must be > 0
+	 * @param configuration configuration of the device the board is drawn on, or null to render into an image
+	 * 		which is not accelerated
+	 */
+	BoardBackground(int width, int height, GraphicsConfiguration configuration) {
+		this.width = width;
+		this.height = height;
+		this.configuration = configuration;
+		checkRep();
+	}
+
+	/**
+	 * Draws every gadget in snapshot, filling the rest of the board with the background color. Balls are
+	 * not drawn. Only pixels within the clip of graphics are drawn, and gadgets outside it are skipped.
+	 * @param graphics graphics of the board with (0, 0) at the upper left corner of the board
+	 * @param snapshot state of the board to be drawn
+	 * @param blend fraction of the tick before snapshot which has passed. Must be 0 <= blend <= 1
+	 * @param sprites images of the gadgets
+	 * @param L number of pixels in one L. Must be > 0
+	 */
+	void draw(Graphics2D graphics, BoardSnapshot snapshot, double blend, SpriteCache sprites, int L) {
+		if (this.isStale(snapshot, blend, L)) {
+			this.render(snapshot, blend, sprites, L);
+		}
+		graphics.drawImage(this.image, 0, 0, null);
+		graphics.setColor(BACKGROUND);
+		for (int j = 0; j < this.gadgets.length; j++) {
+			final int state = snapshot.state(j, blend);
+			if (state == this.states[j]) continue;
+			// Gadgets never share a square, so only this gadget is cleared
+			final Gadget gadget = this.gadgets[j];
+			final int x = (int) gadget.position().x() * L;
+			final int y = (int) gadget.position().y() * L;
+			if (!graphics.hitClip(x, y, gadget.width() * L, gadget.height() * L)) continue;
+			graphics.fillRect(x, y, gadget.width() * L, gadget.height() * L);
+			graphics.drawImage(sprites.gadget(gadget, state, L), x, y, null);
+		}
+	}
+
+	/**
+	 * @return the number of times the background has been rendered
+	 */
+	int renders() {
+		return this.renders;
+	}
+
+	/**
+	 * @return true if the image does not show the gadgets in snapshot after blend of the tick before at scale L
+	 */
+	private boolean isStale(BoardSnapshot snapshot, double blend, int L) {
+		if (this.image == null || L != this.L || snapshot.gadgets() != this.gadgets.length) {
+			return true;
+		}
+		for (int j = 0; j < this.gadgets.length; j++) {
+			final Gadget gadget = snapshot.gadget(j);
+			if (gadget != this.gadgets[j]) {
+				return true;
+			}
+			if (!gadget.isAnimated() && snapshot.state(j, blend) != this.states[j]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Renders every gadget in snapshot after blend of the tick before into a new image
+	 */
+	private void render(BoardSnapshot snapshot, double blend, SpriteCache sprites, int L) {
+		final int pixelWidth = this.width * L;
+		final int pixelHeight = this.height * L;
+		if (this.image == null || L != this.L) {
+			this.image = this.configuration == null
+					? new BufferedImage(pixelWidth, pixelHeight, BufferedImage.TYPE_INT_RGB)
+					: this.configuration.createCompatibleImage(pixelWidth, pixelHeight);
+		}
+		this.L = L;
+		this.gadgets = new Gadget[snapshot.gadgets()];
+		this.states = new int[snapshot.gadgets()];
+		final Graphics2D graphics = this.image.createGraphics();
+		graphics.setColor(BACKGROUND);
+		graphics.fillRect(0, 0, pixelWidth, pixelHeight);
+		for (int j = 0; j < this.gadgets.length; j++) {
+			final Gadget gadget = snapshot.gadget(j);
+			this.gadgets[j] = gadget;
+			this.states[j] = snapshot.state(j, blend);
+			graphics.drawImage(sprites.gadget(gadget, this.states[j], L),
+					(int) gadget.position().x() * L, (int) gadget.position().y() * L, null);
+		}
+		graphics.dispose();
+		this.renders++;
+		checkRep();
+	}
+
+	@Override
+	public String toString() {
+		return "BoardBackground{" + this.width + "x" + this.height + " at L=" + this.L + ", " + this.gadgets.length
+				+ " gadgets, rendered " + this.renders + " times}";
+	}
+}
@@ -37,7 +37,7 @@ public class BoardParser {
 		BOARD, COMMENT, COMMAND, BALL, BUMPER, SQUAREBUMPER, CIRCLEBUMPER, 
 		TRIANGLEBUMPER, INTEGER, FLOAT, NAME, WHITESPACE, ORIENTATION, FRICTION2, FRICTION1, 
 		GRAVITY, BOARDNAME, ABSORBER, ACTION, ACTIONTOTAKE, FLIPPER, LEFTFLIPPER, RIGHTFLIPPER, 
-		PORTAL, KEYEVENT, KEYUP, KEYDOWN, KEY
+		PORTAL, KEYEVENT, KEYUP, KEYDOWN, KEY, WIDTH, HEIGHT
 	}
 
 	private static Parser<BoardGrammar> parser = makeParser();
@@ -55,6 +55,14 @@ public class BoardParser {
 		
 		
 	
+	/**
+	 * Parses a flingball board. 
+	 * @param input contents of a ".fb" file
+	 * @return the board described by input
+	 * @throws UnableToParseException if input does not match the grammar or describes a board which cannot 
+	 * 		be built, such as one whose width or height is 0 or too large, or one with a gadget or ball which
+	 * 		does not fit on it
+	 */
 	public static Board parse(final String input) throws UnableToParseException{
 		final ParseTree<BoardGrammar> parseTree = parser.parse(input);
 		
@@ -66,7 +74,32 @@ public class BoardParser {
 		return board;
 	}
 	
-	private static Board makeAbstractSyntaxTree(final ParseTree<BoardGrammar> parseTree) {
+	/**
+	 * @param text an INTEGER matched by the grammar
+	 * @return the value of text
+	 * @throws UnableToParseException if text is too large for an int
+	 */
+	private static int parseInteger(final String text) throws UnableToParseException {
+		try {
+			return Integer.parseInt(text);
+		} catch (NumberFormatException nfe) {
+			throw new UnableToParseException(text + " is too large");
+		}
+	}
+	
+	/**
+	 * Adds gadget to board
+	 * @throws UnableToParseException if gadget does not lie entirely on board
+	 */
+	private static void addGadget(final Board board, final Gadget gadget) throws UnableToParseException {
+		if (!board.isOnBoard(gadget)) {
+			throw new UnableToParseException(gadget.name() + " at " + gadget.position() + " does not fit on board "
+					+ board.NAME + " of size " + board.WIDTH + " x " + board.HEIGHT);
+		}
+		board.addGadget(gadget);
+	}
+	
+	private static Board makeAbstractSyntaxTree(final ParseTree<BoardGrammar> parseTree) throws UnableToParseException {
 		//TODO Restructure this methods by creating a second makeAST method where one parameter is a board. 
 		// This will get rid of any confusion when it comes to nesting. 
 		switch (parseTree.name()) {
@@ -100,6 +133,10 @@ public class BoardParser {
             				final double vx = Double.parseDouble(greatGrandChildren.get(3).text());
             				final double vy = Double.parseDouble(greatGrandChildren.get(4).text());
             				final Ball ball = new Ball(name, new Vect(cx, cy), new Vect(vx, vy));
+            				if (!board.isOnBoard(ball)) {
+            					throw new UnableToParseException(name + " at " + ball.getBoardCenter()
+            							+ " does not fit on board " + board.NAME + " of size " + board.WIDTH + " x " + board.HEIGHT);
+            				}
             				board.addBall(ball);
             				continue;
             			}
@@ -113,28 +150,28 @@ public class BoardParser {
             				case SQUAREBUMPER: //squareBumper ::= 'squareBumper name' '=' NAME 'x' '=' INTEGER 'y' '=' INTEGER '\n';
             				{
             					String name = bumperProperties.get(0).text();
-            					final int x = Integer.parseInt(bumperProperties.get(1).text());
-            					final int y = Integer.parseInt(bumperProperties.get(2).text());
+            					final int x = parseInteger(bumperProperties.get(1).text());
+            					final int y = parseInteger(bumperProperties.get(2).text());
             					
             					Gadget bumper = new SquareBumper(name, x, y);
-            					board.addGadget(bumper);
+            					addGadget(board, bumper);
             					continue;
             				}
             				case CIRCLEBUMPER: // circleBumper ::= 'circleBumper name' '=' NAME 'x' '=' INTEGER 'y' '=' INTEGER '\n';
             				{
             					String name = bumperProperties.get(0).text();
-            					final int x = Integer.parseInt(bumperProperties.get(1).text());
-            					final int y = Integer.parseInt(bumperProperties.get(2).text());
+            					final int x = parseInteger(bumperProperties.get(1).text());
+            					final int y = parseInteger(bumperProperties.get(2).text());
             					
             					Gadget bumper = new CircleBumper(name, x, y);
-            					board.addGadget(bumper);
+            					addGadget(board, bumper);
             					continue;
             				}
             				case TRIANGLEBUMPER: // triangleBumper ::= 'triangleBumper name' '=' NAME 'x' '=' INTEGER 'y' '=' INTEGER ('orientation' '=' ORIENTATION)? '\n';
             				{
             					String name = bumperProperties.get(0).text();
-            					final int x = Integer.parseInt(bumperProperties.get(1).text());
-            					final int y = Integer.parseInt(bumperProperties.get(2).text());
+            					final int x = parseInteger(bumperProperties.get(1).text());
+            					final int y = parseInteger(bumperProperties.get(2).text());
             					Orientation o = Orientation.ZERO;
             					if (bumperProperties.size() > 2) {
             						try {
@@ -143,7 +180,7 @@ public class BoardParser {
 										throw new RuntimeException("Should never get here. Cannot parse orientation " + bumperProperties.get(bumperProperties.size()-1).text());
 									}
             					}
-            					board.addGadget(new TriangleBumper(name, x, y, o));
+            					addGadget(board, new TriangleBumper(name, x, y, o));
             					continue;
             				}
             				default:
@@ -154,11 +191,11 @@ public class BoardParser {
             			case ABSORBER: //ABSORBER ::= 'absorber' 'name' '=' NAME 'x' '=' INTEGER 'y' '=' INTEGER 'width' '=' INTEGER 'height' '=' INTEGER '\n';
             			{
             				String name = greatGrandChildren.get(0).text();
-            				int x = Integer.parseInt(greatGrandChildren.get(1).text());
-            				int y = Integer.parseInt(greatGrandChildren.get(2).text());
-            				int width = Integer.parseInt(greatGrandChildren.get(3).text());
-            				int height = Integer.parseInt(greatGrandChildren.get(4).text());
-            				board.addGadget(new Absorber(name, x, y, width, height));
+            				int x = parseInteger(greatGrandChildren.get(1).text());
+            				int y = parseInteger(greatGrandChildren.get(2).text());
+            				int width = parseInteger(greatGrandChildren.get(3).text());
+            				int height = parseInteger(greatGrandChildren.get(4).text());
+            				addGadget(board, new Absorber(name, x, y, width, height));
             				continue;
             			}
             			case FLIPPER: //FLIPPER ::= LEFTFLIPPER | RIGHTFLIPPER;
@@ -170,8 +207,8 @@ public class BoardParser {
             				case LEFTFLIPPER: // LEFTFLIPPER ::= 'leftFlipper' 'name' '=' NAME 'x' '=' INTEGER 'y' '=' INTEGER ('orientation' '=' ORIENTATION)? '\n';
             				{
             					String name = flipperProperties.get(0).text();
-            					int x = Integer.parseInt(flipperProperties.get(1).text());
-            					int y = Integer.parseInt(flipperProperties.get(2).text());
+            					int x = parseInteger(flipperProperties.get(1).text());
+            					int y = parseInteger(flipperProperties.get(2).text());
             					Orientation o = Orientation.ZERO;
             					if (flipperProperties.size() > 3) {
             						try {
@@ -180,15 +217,15 @@ public class BoardParser {
 										throw new RuntimeException("Should never get here. Cannot parse orientation " + flipperProperties.get(flipperProperties.size()-1).text());
 									}
             					}
-            					board.addGadget(new LeftFlipper(name, x, y, o));
+            					addGadget(board, new LeftFlipper(name, x, y, o));
             					continue;
             					
             				}
             				case RIGHTFLIPPER: // RIGHTFLIPPER ::= 'rightFlipper' 'name' '=' NAME 'x' '=' INTEGER 'y' '=' INTEGER ('orientation' '=' ORIENTATION)? '\n';
             				{
             					String name = flipperProperties.get(0).text();
-            					int x = Integer.parseInt(flipperProperties.get(1).text());
-            					int y = Integer.parseInt(flipperProperties.get(2).text());
+            					int x = parseInteger(flipperProperties.get(1).text());
+            					int y = parseInteger(flipperProperties.get(2).text());
             					Orientation o = Orientation.ZERO;
             					if (flipperProperties.size() > 3) {
             						try {
@@ -197,7 +234,7 @@ public class BoardParser {
 										throw new RuntimeException("Should never get here. Cannot parse orientation " + flipperProperties.get(flipperProperties.size()-1).text());
 									}
             					}
-            					board.addGadget(new RightFlipper(name, x, y, o));
+            					addGadget(board, new RightFlipper(name, x, y, o));
             					continue;
             				}
             				default:
@@ -212,14 +249,18 @@ public class BoardParser {
             			{
             				List<ParseTree<BoardGrammar>> portalProperties = grandChild.children();
             				String name = portalProperties.get(0).text();
-        					int x = Integer.parseInt(portalProperties.get(1).text());
-        					int y = Integer.parseInt(portalProperties.get(2).text());
+        					int x = parseInteger(portalProperties.get(1).text());
+        					int y = parseInteger(portalProperties.get(2).text());
         					String otherBoard = board.NAME;
         					String target = portalProperties.get(portalProperties.size() - 1).text();
         					if (portalProperties.size() > 4) {
         						otherBoard = portalProperties.get(3).text();
         					}
         					Portal portal = new Portal(name, x, y);
+        					if (!board.isOnBoard(portal)) {
+        						throw new UnableToParseException(name + " at " + portal.position() + " does not fit on board "
+        								+ board.NAME + " of size " + board.WIDTH + " x " + board.HEIGHT);
+        					}
         					board.addPortal(portal, target, otherBoard);
         					continue;
             			}
@@ -277,12 +318,14 @@ public class BoardParser {
             	
             	return board;
             }
-        case BOARDNAME: // boardName ::='board name''='NAME (GRAVITY)? (FRICTION1)? (FRICTION2)? '\n';
+        case BOARDNAME: // boardName ::='board name''='NAME (GRAVITY)? (FRICTION1)? (FRICTION2)? (WIDTH)? (HEIGHT)? '\n';
         {
         	List<ParseTree<BoardGrammar>> children = parseTree.children();
         	double gravity = Board.DEFAULT_GRAVITY;
         	double friction1 = Board.DEFAULT_FRICTION_1;
         	double friction2 = Board.DEFAULT_FRICTION_2;
+        	int width = Board.DEFAULT_WIDTH;
+        	int height = Board.DEFAULT_HEIGHT;
         	String name = children.get(0).text();
         	if (children.size() > 1) {
 	        	for (int i = 1; i < children.size(); i++) {
@@ -300,12 +343,24 @@ public class BoardParser {
 	        			friction2 = Double.parseDouble(child.children().get(0).text());
 	        			continue;
 	        		}
+	        		case WIDTH:{
+	        			width = parseInteger(child.children().get(0).text());
+	        			continue;
+	        		}
+	        		case HEIGHT:{
+	        			height = parseInteger(child.children().get(0).text());
+	        			continue;
+	        		}
 	        		default:
 	        			makeAbstractSyntaxTree(child);
 	    		}
 	        	}
         	}
-        	return new Board(name, gravity, friction1, friction2);
+        	try {
+        		return new Board(name, width, height, gravity, friction1, friction2);
+        	} catch (IllegalArgumentException iae) {
+        		throw new UnableToParseException(iae.getMessage());
+        	}
         }
                 	
 		default:
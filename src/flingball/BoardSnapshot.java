@@ -0,0 +1,344 @@
+package flingball;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import flingball.gadgets.Gadget;
+
+/**
+ * An immutable record of a flingball board at the end of a tick. A snapshot holds the position, velocity
+ * and radius of every ball on the board and the drawn state of every gadget: the keyframe of each flipper,
+ * the orientation of each triangle bumper and the number of balls in each absorber. A board publishes a
+ * new snapshot once per tick, so the board can be drawn from a consistent state without waiting for the
+ * thread playing it.
+ *
+ * Balls and gadgets are indexed from 0. Positions and velocities are given in board coordinates. Balls are
+ * in the order they were added to the board.
+ *
+ * A snapshot also holds the positions of its balls and the states of its gadgets at the end of the tick
+ * before, so that a board can be drawn at any moment between the two. A ball which jumped further than it
+ * could have moved in a tick, for example through a portal, or which was not on the board a tick before
+ * is not blended.
+ */
+public final class BoardSnapshot {
+
+	private final long tick;
+	private final double time, previousTime;
+	private final long nanoTime;
+	private final String[] names;
+	private final double[] x, y, vx, vy, radius;
+	private final double[] previousX, previousY;
+	private final Gadget[] gadgets;
+	private final int[] states, previousStates;
+
+	/*
+	 * AF(tick, time, previousTime, nanoTime, names, x, y, vx, vy, radius, previousX, previousY, gadgets, states,
+	 * 		previousStates) ::= A board after tick ticks and time seconds of play, published at System.nanoTime()
+	 * 		nanoTime. The ball named names[i] is centered at (x[i], y[i]), moves with velocity (vx[i], vy[i]) and
+	 * 		has radius radius[i]. gadgets[j] is drawn as gadgets[j].generate(L, states[j]). After previousTime
+	 * 		seconds of play the ball was centered at (previousX[i], previousY[i]) and gadgets[j] was in state
+	 * 		previousStates[j].
+	 * Rep Invariant ::=
+	 * 		tick >= 0 and 0 <= previousTime <= time
+	 * 		names, x, y, vx, vy, radius, previousX and previousY have the same length and radius[i] > 0
+	 * 		gadgets, states and previousStates have the same length and no element of gadgets is null
+	 * Safety from rep exposure ::=
+	 * 		All fields are private and final. The arrays are never returned, only their elements, and are never
+	 * 		modified once the snapshot is built. previousX, previousY and previousStates may be shared with the
+	 * 		snapshot before, and gadgets with the board, which replaces it instead of modifying it. Strings are
+	 * 		immutable. Gadgets are returned as handles to the gadgets of the board, which are mutable, but
+	 * 		their state in the snapshot is held in states.
+	 * Thread Safety Argument ::=
+	 * 		BoardSnapshot is immutable. It is fully built before it is published through a volatile field of
+	 * 		the board, so every reader sees the complete snapshot.
+	 */
+
+	private void checkRep() {
+		assert tick >= 0 : "BoardSnapshot: tick < 0";
+		assert previousTime >= 0 && previousTime <= time : "BoardSnapshot: time before previous time";
+		assert x.length == names.length && y.length == names.length : "BoardSnapshot: positions";
+		assert vx.length == names.length && vy.length == names.length : "BoardSnapshot: velocities";
+		assert radius.length == names.length : "BoardSnapshot: radii";
+		assert previousX.length == names.length && previousY.length == names.length : "BoardSnapshot: previous positions";
+		for (double r : radius) {
+			assert r > 0 : "BoardSnapshot: radius <= 0";
+		}
+		assert states.length == gadgets.length : "BoardSnapshot: states";
+		assert previousStates.length == gadgets.length : "BoardSnapshot: previous states";
+		for (Gadget gadget : gadgets) {
+			assert gadget != null : "BoardSnapshot: null gadget";
+		}
+	}
+
+	/**
+	 * Records balls and the state of gadgets. Must be called while no ball is moved.
+	 * @param tick number of ticks played. Must be >= 0
+	 * @param time seconds of play. Must be >= 0
+	 * @param balls balls on the board, in the order they were added. Must not be modified afterwards
+	 * @param gadgets gadgets on the board. Must not be modified afterwards
+	 * @param previous snapshot of the board at the end of the tick before, or null if there is none
+	 */
+	BoardSnapshot(long tick, double time, Ball[] balls, Gadget[] gadgets, BoardSnapshot previous) {
+		this.tick = tick;
+		this.time = time;
+		this.nanoTime = System.nanoTime();
+		final int size = balls.length;
+		this.names = new String[size];
+		this.x = new double[size];
+		this.y = new double[size];
+		this.vx = new double[size];
+		this.vy = new double[size];
+		this.radius = new double[size];
+		for (int i = 0; i < size; i++) {
+			final Ball ball = balls[i];
+			this.names[i] = ball.name();
+			this.x[i] = ball.boardX();
+			this.y[i] = ball.boardY();
+			this.vx[i] = ball.velocityX();
+			this.vy[i] = ball.velocityY();
+			this.radius[i] = ball.getRadius();
+		}
+		this.gadgets = gadgets;
+		this.states = new int[gadgets.length];
+		for (int j = 0; j < gadgets.length; j++) {
+			this.states[j] = gadgets[j].state();
+		}
+		if (previous == null || previous.time > time) {
+			this.previousTime = time;
+			this.previousX = this.x;
+			this.previousY = this.y;
+			this.previousStates = this.states;
+		} else {
+			this.previousTime = previous.time;
+			final double[][] positions = this.previousPositions(previous);
+			this.previousX = positions[0];
+			this.previousY = positions[1];
+			this.previousStates = this.previousStates(previous);
+		}
+		checkRep();
+	}
+
+	/**
+	 * @param previous snapshot before this one
+	 * @return the x and y coordinates of each ball in previous, or in this snapshot if it cannot be blended
+	 */
+	private double[][] previousPositions(BoardSnapshot previous) {
+		final double elapsed = this.time - previous.time;
+		// Balls are usually the same as in the snapshot before, so the arrays can be shared
+		final boolean same = Arrays.equals(this.names, previous.names);
+		Map<String, Integer> indices = null;
+		if (!same) {
+			indices = new HashMap<String, Integer>();
+			for (int i = 0; i < previous.names.length; i++) {
+				indices.put(previous.names[i], i);
+			}
+		}
+		double[] px = same ? previous.x : new double[this.names.length];
+		double[] py = same ? previous.y : new double[this.names.length];
+		for (int i = 0; i < this.names.length; i++) {
+			final Integer k = same ? Integer.valueOf(i) : indices.get(this.names[i]);
+			final boolean blended = k != null && this.isContinuous(i, previous, k, elapsed);
+			if (!same) {
+				px[i] = blended ? previous.x[k] : this.x[i];
+				py[i] = blended ? previous.y[k] : this.y[i];
+			} else if (!blended) {
+				if (px == previous.x) {
+					px = previous.x.clone();
+					py = previous.y.clone();
+				}
+				px[i] = this.x[i];
+				py[i] = this.y[i];
+			}
+		}
+		return new double[][] {px, py};
+	}
+
+	/**
+	 * @return true if ball i could have moved from the position of ball k in previous in elapsed seconds
+	 */
+	private boolean isContinuous(int i, BoardSnapshot previous, int k, double elapsed) {
+		final double dx = this.x[i] - previous.x[k];
+		final double dy = this.y[i] - previous.y[k];
+		final double speed = Math.max(Math.hypot(this.vx[i], this.vy[i]), Math.hypot(previous.vx[k], previous.vy[k]));
+		final double reach = speed * elapsed + this.radius[i];
+		return dx * dx + dy * dy <= reach * reach;
+	}
+
+	/**
+	 * @param previous snapshot before this one
+	 * @return the state of each gadget in previous, or in this snapshot if it was not on the board
+	 */
+	private int[] previousStates(BoardSnapshot previous) {
+		if (previous.gadgets == this.gadgets) {
+			return previous.states;
+		}
+		final Map<Gadget, Integer> indices = new HashMap<Gadget, Integer>();
+		for (int j = 0; j < previous.gadgets.length; j++) {
+			indices.put(previous.gadgets[j], j);
+		}
+		final int[] result = this.states.clone();
+		for (int j = 0; j < this.gadgets.length; j++) {
+			final Integer k = indices.get(this.gadgets[j]);
+			if (k != null) {
+				result[j] = previous.states[k];
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of ticks the board had played when the snapshot was taken
+	 */
+	public long tick() {
+		return this.tick;
+	}
+
+	/**
+	 * @return the number of seconds the board had been played for when the snapshot was taken
+	 */
+	public double time() {
+		return this.time;
+	}
+
+	/**
+	 * @return the number of seconds the board had been played for at the end of the tick before
+	 */
+	public double previousTime() {
+		return this.previousTime;
+	}
+
+	/**
+	 * @return the value of System.nanoTime() when the snapshot was taken
+	 */
+	public long nanoTime() {
+		return this.nanoTime;
+	}
+
+	/**
+	 * Returns how far a board drawn one tick behind play has got from the tick before this snapshot towards
+	 * this snapshot, if the next tick takes as long as this one.
+	 * @param now a value of System.nanoTime()
+	 * @return a fraction between 0 and 1, which is 1 if the tick before this snapshot is not known
+	 */
+	public double blend(long now) {
+		final double tick = (this.time - this.previousTime) * 1e9;
+		if (tick <= 0) {
+			return 1;
+		}
+		return Math.min(Math.max((now - this.nanoTime) / tick, 0), 1);
+	}
+
+	/**
+	 * @return the number of balls on the board
+	 */
+	public int balls() {
+		return this.names.length;
+	}
+
+	/**
+	 * @param i index of a ball. Must be 0 <= i < balls()
+	 * @return the name of the ball
+	 */
+	public String name(int i) {
+		return this.names[i];
+	}
+
+	/**
+	 * @param i index of a ball. Must be 0 <= i < balls()
+	 * @return the x coordinate of the center of the ball
+	 */
+	public double x(int i) {
+		return this.x[i];
+	}
+
+	/**
+	 * @param i index of a ball. Must be 0 <= i < balls()
+	 * @return the y coordinate of the center of the ball
+	 */
+	public double y(int i) {
+		return this.y[i];
+	}
+
+	/**
+	 * @param i index of a ball. Must be 0 <= i < balls()
+	 * @param blend fraction of the tick before this snapshot which has passed. Must be 0 <= blend <= 1
+	 * @return the x coordinate of the center of the ball after that fraction of the tick
+	 */
+	public double x(int i, double blend) {
+		return this.previousX[i] + (this.x[i] - this.previousX[i]) * blend;
+	}
+
+	/**
+	 * @param i index of a ball. Must be 0 <= i < balls()
+	 * @param blend fraction of the tick before this snapshot which has passed. Must be 0 <= blend <= 1
+	 * @return the y coordinate of the center of the ball after that fraction of the tick
+	 */
+	public double y(int i, double blend) {
+		return this.previousY[i] + (this.y[i] - this.previousY[i]) * blend;
+	}
+
+	/**
+	 * @param i index of a ball. Must be 0 <= i < balls()
+	 * @return the x component of the velocity of the ball in L / s
+	 */
+	public double vx(int i) {
+		return this.vx[i];
+	}
+
+	/**
+	 * @param i index of a ball. Must be 0 <= i < balls()
+	 * @return the y component of the velocity of the ball in L / s
+	 */
+	public double vy(int i) {
+		return this.vy[i];
+	}
+
+	/**
+	 * @param i index of a ball. Must be 0 <= i < balls()
+	 * @return the radius of the ball
+	 */
+	public double radius(int i) {
+		return this.radius[i];
+	}
+
+	/**
+	 * @return the number of gadgets on the board
+	 */
+	public int gadgets() {
+		return this.gadgets.length;
+	}
+
+	/**
+	 * @param j index of a gadget. Must be 0 <= j < gadgets()
+	 * @return the gadget. Its current state may differ from its state in the snapshot
+	 */
+	public Gadget gadget(int j) {
+		return this.gadgets[j];
+	}
+
+	/**
+	 * @param j index of a gadget. Must be 0 <= j < gadgets()
+	 * @return the value of gadget(j).state() when the snapshot was taken
+	 */
+	public int state(int j) {
+		return this.states[j];
+	}
+
+	/**
+	 * @param j index of a gadget. Must be 0 <= j < gadgets()
+	 * @param blend fraction of the tick before this snapshot which has passed. Must be 0 <= blend <= 1
+	 * @return the state of gadget(j) after that fraction of the tick, as given by Gadget.interpolate
+	 */
+	public int state(int j, double blend) {
+		final int from = this.previousStates[j];
+		final int to = this.states[j];
+		return from == to ? to : this.gadgets[j].interpolate(from, to, blend);
+	}
+
+	@Override
+	public String toString() {
+		return "BoardSnapshot{tick=" + this.tick + ", time=" + this.time + ", balls=" + Arrays.toString(this.names)
+				+ ", gadgets=" + this.gadgets.length + "}";
+	}
+}
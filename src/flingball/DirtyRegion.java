@@ -0,0 +1,201 @@
+package flingball;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+import flingball.gadgets.Gadget;
+
+/**
+ * A DirtyRegion tracks which pixels of a drawn flingball board change from one frame to the next, so that
+ * only those pixels need to be drawn again. A frame changes where a ball has moved, over the area it has
+ * swept from its last drawn position to its new one, and over the bounding box of every gadget drawn in a
+ * different state, such as a rotating flipper, a rotated triangle bumper or an absorber whose contents
+ * have changed.
+ *
+ * The changed pixels are given as a few rectangles which do not overlap. Rectangles which touch are merged,
+ * and once there would be more than MAX_RECTANGLES a rectangle is merged with the one whose area grows least.
+ *
+ * A DirtyRegion is used by a single drawing thread.
+ */
+class DirtyRegion {
+
+	/**
+	 * Largest number of rectangles returned for one frame
+	 */
+	static final int MAX_RECTANGLES = 16;
+	private static final int[] NO_BALLS = new int[0];
+
+	private final int width, height;
+	private int L = 0;
+	private boolean invalid = true;
+	private Gadget[] gadgets = new Gadget[0];
+	private int[] states = new int[0];
+	private int[] ballX = NO_BALLS, ballY = NO_BALLS, ballSize = NO_BALLS;
+
+	/*
+	 * AF(width, height, L, invalid, gadgets, states, ballX, ballY, ballSize) ::= The pixels of a width x height
+	 * 		board drawn at L pixels per L. If invalid, nothing is known about what was last drawn. Otherwise the
+	 * 		last frame drew gadgets[j] in state states[j] and a ball in the ballSize[i] x ballSize[i] square of
+	 * 		pixels with its upper left corner at (ballX[i], ballY[i]).
+	 * Rep Invariant ::=
+	 * 		width, height > 0
+	 * 		gadgets.length == states.length and no element of gadgets is null
+	 * 		ballX, ballY and ballSize have the same length
+	 * Safety from rep exposure ::=
+	 * 		No field is returned. The rectangles returned by update are created for each frame.
+	 * Thread Safety Argument ::=
+	 * 		DirtyRegion is not thread safe. It is only used by the thread drawing a board.
+	 */
+
+	private void checkRep() {
+		assert width > 0 && height > 0 : "DirtyRegion: empty board";
+		assert gadgets.length == states.length : "DirtyRegion: states";
+		for (Gadget gadget : gadgets) {
+			assert gadget != null : "DirtyRegion: null gadget";
+		}
+		assert ballY.length == ballX.length && ballSize.length == ballX.length : "DirtyRegion: balls";
+	}
+
+	/**
+	 * Creates a region for a board which has not been drawn yet. The first frame is drawn in full.
+	 * @param width width of the board in L. Must be > 0
+	 * @param height height of the board in L. Must be > 0
+	 */
+	DirtyRegion(int width, int height) {
+		this.width = width;
+		this.height = height;
+		checkRep();
+	}
+
+	/**
+	 * Forgets what was last drawn, so that the next frame is drawn in full. Called when the drawn pixels are
+	 * lost, for example when the contents of a buffer are restored.
+	 */
+	void invalidate() {
+		this.invalid = true;
+	}
+
+	/**
+	 * Finds the pixels which must be drawn to change the last frame into the frame showing snapshot after
+	 * blend of the tick before at scale L, and records that frame as the last frame.
+	 * @param snapshot state of the board to be drawn
+	 * @param blend fraction of the tick before snapshot which has passed. Must be 0 <= blend <= 1
+	 * @param L number of pixels in one L. Must be > 0
+	 * @return rectangles of pixels within the board which do not overlap and cover every changed pixel. Empty
+	 * 		if nothing has changed. A single rectangle covering the board if the last frame is not known, the
+	 * 		scale has changed or a gadget has been added
+	 */
+	List<Rectangle> update(BoardSnapshot snapshot, double blend, int L) {
+		final List<Rectangle> rectangles = new ArrayList<Rectangle>();
+		final boolean full = this.invalid || L != this.L || !this.hasGadgets(snapshot);
+		if (full) {
+			this.gadgets = new Gadget[snapshot.gadgets()];
+			this.states = new int[snapshot.gadgets()];
+			rectangles.add(new Rectangle(0, 0, this.width * L, this.height * L));
+		}
+		for (int j = 0; j < snapshot.gadgets(); j++) {
+			final Gadget gadget = snapshot.gadget(j);
+			final int state = snapshot.state(j, blend);
+			if (!full && state != this.states[j]) {
+				this.add(rectangles, new Rectangle((int) gadget.position().x() * L, (int) gadget.position().y() * L,
+						gadget.width() * L, gadget.height() * L), L);
+			}
+			this.gadgets[j] = gadget;
+			this.states[j] = state;
+		}
+
+		final int balls = snapshot.balls();
+		final int[] x = new int[balls], y = new int[balls], size = new int[balls];
+		for (int i = 0; i < balls; i++) {
+			// The same square BoardAnimation draws the image of the ball in
+			final double radius = snapshot.radius(i);
+			x[i] = (int) ((snapshot.x(i, blend) - radius) * L);
+			y[i] = (int) ((snapshot.y(i, blend) - radius) * L);
+			size[i] = (int) (2 * radius * L);
+		}
+		for (int i = 0; i < Math.max(balls, this.ballX.length) && !full; i++) {
+			final boolean drawn = i < this.ballX.length;
+			final boolean shown = i < balls;
+			if (drawn && shown && x[i] == this.ballX[i] && y[i] == this.ballY[i] && size[i] == this.ballSize[i]) {
+				continue;
+			}
+			// A ball is cleared from where it was drawn and drawn where it is now, which are merged into the
+			// area it has swept when they overlap
+			if (drawn) {
+				this.add(rectangles, new Rectangle(this.ballX[i], this.ballY[i], this.ballSize[i], this.ballSize[i]), L);
+			}
+			if (shown) {
+				this.add(rectangles, new Rectangle(x[i], y[i], size[i], size[i]), L);
+			}
+		}
+		this.ballX = x;
+		this.ballY = y;
+		this.ballSize = size;
+		this.L = L;
+		this.invalid = false;
+		checkRep();
+		return rectangles;
+	}
+
+	/**
+	 * @return true if snapshot holds the gadgets which were last drawn, in the same order
+	 */
+	private boolean hasGadgets(BoardSnapshot snapshot) {
+		if (snapshot.gadgets() != this.gadgets.length) {
+			return false;
+		}
+		for (int j = 0; j < this.gadgets.length; j++) {
+			if (snapshot.gadget(j) != this.gadgets[j]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the part of rectangle within the board to rectangles, merging it with every rectangle it touches
+	 * @param rectangles rectangles which do not overlap. Holds at most MAX_RECTANGLES elements
+	 * @param rectangle rectangle of pixels
+	 * @param L number of pixels in one L
+	 */
+	private void add(List<Rectangle> rectangles, Rectangle rectangle, int L) {
+		Rectangle merged = rectangle.intersection(new Rectangle(0, 0, this.width * L, this.height * L));
+		if (merged.isEmpty()) {
+			return;
+		}
+		// Grown by a pixel so rectangles which touch are merged as well as those which overlap
+		for (int k = 0; k < rectangles.size(); k++) {
+			final Rectangle other = rectangles.get(k);
+			if (new Rectangle(merged.x - 1, merged.y - 1, merged.width + 2, merged.height + 2).intersects(other)) {
+				merged = merged.union(other);
+				rectangles.remove(k);
+				// The union may now touch rectangles which were checked already
+				k = -1;
+			}
+		}
+		if (rectangles.size() < MAX_RECTANGLES) {
+			rectangles.add(merged);
+			return;
+		}
+		// Merged with the rectangle whose area grows least, which keeps far apart changes apart
+		int closest = 0;
+		long growth = Long.MAX_VALUE;
+		for (int k = 0; k < rectangles.size(); k++) {
+			final Rectangle other = rectangles.get(k);
+			final Rectangle union = merged.union(other);
+			final long grown = (long) union.width * union.height - (long) other.width * other.height;
+			if (grown < growth) {
+				closest = k;
+				growth = grown;
+			}
+		}
+		this.add(rectangles, merged.union(rectangles.remove(closest)), L);
+	}
+
+	@Override
+	public String toString() {
+		return "DirtyRegion{" + this.width + "x" + this.height + " at L=" + this.L + ", " + this.ballX.length
+				+ " balls, " + this.gadgets.length + " gadgets}";
+	}
+}
@@ -0,0 +1,431 @@
+package flingball;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import flingball.gadgets.Gadget;
+import flingball.gadgets.Flipper;
+import flingball.gadgets.Wall;
+import physics.Vect;
+
+/**
+ * An EventScheduler moves the balls on a flingball board from collision to collision instead of in
+ * fixed ticks. The time of every collision a ball will be part of is predicted and held in a priority
+ * queue. Play advances directly to the next event in the queue. When a collision is resolved only
+ * the predictions for the balls involved are computed again. Every other prediction is left in the
+ * queue and remains valid.
+ *
+ * Each ball keeps its own clock and is only moved when it takes part in an event or when the end of
+ * the requested play time is reached. Every prediction is stamped with the version of the balls it was
+ * computed for, and a ball's version changes whenever its predictions are computed again. Events with
+ * an old version are discarded when they reach the front of the queue.
+ *
+ * Collision times are computed for straight line motion while balls are moved along a curved path by
+ * gravity and friction. A prediction is therefore only trusted for as long as the curved path stays
+ * within POSITION_TOLERANCE of the straight line. A ball whose prediction expires before it
+ * collides with anything is predicted again at its horizon. Boards which predict collisions with
+ * gadgets along the curved path only need the straight line for collisions between balls. Gravity
+ * moves every ball alike, so only friction shortens the horizon on those boards. Rotating flippers change shape without a
+ * ball colliding, so balls near a rotating flipper are predicted again at the start of every call to
+ * <code>advance()</code>.
+ */
+class EventScheduler {
+
+	// Ball.move rounds positions to 0.01 L. Predictions do not need to be more accurate than this.
+	private static final double POSITION_TOLERANCE = 0.01;
+	private static final double MAX_HORIZON = 0.05;
+	// Collisions closer together than this are treated as happening at the same time
+	private static final double SIMULTANEOUS_COLLISION_TIME = 1e-9;
+
+	/**
+	 * Kinds of events which can be held by the scheduler.
+	 */
+	enum Type {
+		/** A ball collides with a gadget */
+		GADGET,
+		/** A ball collides with a wall of the board */
+		WALL,
+		/** Two balls collide */
+		BALL,
+		/** A ball is near a flipper which started rotating */
+		FLIPPER_SWEEP,
+		/** The prediction for a ball is no longer accurate */
+		HORIZON
+	}
+
+	private final Board board;
+	private final PriorityQueue<Event> events = new PriorityQueue<Event>();
+	private final Map<Ball, State> states = new HashMap<Ball, State>();
+	private final SweepAndPrune sweepAndPrune = new SweepAndPrune();
+	private double now = 0.0;
+	private double end = 0.0;
+
+	private long queries = 0;
+	private final StaticGeometry.Hit hit = new StaticGeometry.Hit();
+	private long resolved = 0;
+
+	/*
+	 * AF(board, events, states, now) ::= The balls in play on board where every ball in states was last
+	 * 		moved at time states.get(ball).time and will next take part in the earliest valid event for
+	 * 		that ball in events. now is the time up to which the board has been played. queries and
+	 * 		hit.queries count the collision times which have been computed and resolved the number of
+	 * 		events which have been resolved.
+	 * Rep Invariant ::=
+	 * 		every ball in states has a clock between now and end while advancing and equal to now otherwise
+	 * 		queries, resolved >= 0
+	 * Safety from rep exposure ::=
+	 * 		events and states are never returned. Only primitive types are returned.
+	 * Thread Safety Argument ::=
+	 * 		The scheduler is only used by the thread playing the board.
+	 */
+
+	private void checkRep() {
+		assert queries >= 0 && resolved >= 0;
+		for (State state : states.values()) {
+			assert state.time >= now && state.time <= end : "EventScheduler: ball clock out of range";
+		}
+	}
+
+	/**
+	 * Creates a new scheduler for the balls on board.
+	 * @param board board which will be played
+	 */
+	EventScheduler(Board board) {
+		this.board = board;
+	}
+
+	/**
+	 * Plays the board for time seconds. Every event occurring during this time is resolved in order and
+	 * every ball is moved to the end of the time.
+	 *
+	 * @param time time in seconds for which the board is played. Must be >= 0
+	 */
+	void advance(final double time) {
+		this.end = this.now + time;
+		final List<Ball> balls = this.board.ballsInPlay();
+
+		// Balls may have been added, removed, teleported or fired by an absorber since the last call
+		final Set<Ball> inPlay = new HashSet<Ball>(balls);
+		this.states.keySet().retainAll(inPlay);
+		final List<Ball> changed = new ArrayList<Ball>();
+		for (Ball ball : balls) {
+			final State state = this.states.get(ball);
+			if (state == null) {
+				this.states.put(ball, new State(ball, this.now));
+				changed.add(ball);
+			} else if (state.changedOutsideScheduler(ball)) {
+				state.record(ball);
+				changed.add(ball);
+			}
+		}
+
+		this.sweepAndPrune.update(balls, time, this.board.getGravity());
+
+		for (Ball ball : this.nearRotatingFlippers(balls, time)) {
+			this.schedule(new Event(Type.FLIPPER_SWEEP, this.now, ball, this.states.get(ball), null, null, null));
+		}
+		for (Ball ball : changed) {
+			this.predict(ball);
+		}
+
+		// Ball to ball predictions only last until the end of the call. Predict every pair again which
+		// was not predicted above.
+		final Set<Ball> predicted = new HashSet<Ball>(changed);
+		for (Ball ball : balls) {
+			if (predicted.add(ball)) {
+				this.predictBalls(ball, predicted);
+			}
+		}
+
+		while (!this.events.isEmpty() && this.events.peek().time <= this.end) {
+			final Event event = this.events.poll();
+			if (!event.isValid(this.states)) continue;
+			this.resolve(event);
+		}
+
+		for (Map.Entry<Ball, State> entry : this.states.entrySet()) {
+			this.moveTo(entry.getKey(), this.end);
+		}
+		this.now = this.end;
+		checkRep();
+	}
+
+	/**
+	 * Resolves a single event.
+	 * @param event a valid event
+	 */
+	private void resolve(Event event) {
+		this.resolved++;
+		final Ball ball = event.ball;
+		switch (event.type) {
+		case GADGET:
+		case WALL: {
+			final State state = this.states.get(ball);
+			final boolean onBoard = this.board.collide(ball, event.gadget, event.time - state.time);
+			state.time = event.time;
+			if (!onBoard) {
+				this.states.remove(ball);
+				return;
+			}
+			state.record(ball);
+			state.last = event.gadget;
+			this.predict(ball);
+			if (this.board.hasTriggers(event.gadget)) {
+				// Triggered actions such as an absorber firing may move other balls
+				for (Map.Entry<Ball, State> entry : this.states.entrySet()) {
+					if (entry.getValue().changedOutsideScheduler(entry.getKey())) {
+						entry.getValue().time = event.time;
+						entry.getValue().record(entry.getKey());
+						this.predict(entry.getKey());
+					}
+				}
+			}
+			break;
+		}
+		case BALL: {
+			final Ball other = event.other;
+			this.moveTo(ball, event.time);
+			this.moveTo(other, event.time);
+			ball.reflectBall(other);
+			this.states.get(ball).record(ball);
+			this.states.get(ball).last = other;
+			this.states.get(other).record(other);
+			this.states.get(other).last = ball;
+			// Both versions change before either ball is predicted, so the prediction for the pair is 
+			// stamped with the versions it is checked against and is only made once
+			this.states.get(ball).version++;
+			this.states.get(other).version++;
+			this.predictGadgets(ball);
+			this.predictGadgets(other);
+			this.predictBalls(ball, Collections.<Ball>emptySet());
+			this.predictBalls(other, Collections.singleton(ball));
+			break;
+		}
+		case FLIPPER_SWEEP:
+		case HORIZON: {
+			this.moveTo(ball, event.time);
+			this.states.get(ball).last = null;
+			this.predict(ball);
+			break;
+		}
+		default:
+			throw new RuntimeException("Should never get here. Invalid event type");
+		}
+	}
+
+	/**
+	 * Computes every prediction for a ball from its current position. All older predictions for the
+	 * ball become invalid.
+	 * @param ball ball to be predicted
+	 */
+	private void predict(Ball ball) {
+		this.states.get(ball).version++;
+		this.predictGadgets(ball);
+		this.predictBalls(ball, Collections.<Ball>emptySet());
+	}
+
+	/**
+	 * Predicts the next collision of a ball with a gadget or a wall, or the time at which its prediction
+	 * must be computed again. Must be called after the version of the ball has changed.
+	 * @param ball ball to be predicted
+	 */
+	private void predictGadgets(Ball ball) {
+		final State state = this.states.get(ball);
+		if (ball.isTrapped()) return;
+
+		final double horizon = this.horizon(ball);
+		final StaticGeometry geometry = this.board.geometry();
+		final Gadget last = state.last instanceof Gadget ? (Gadget) state.last : null;
+		Gadget next = geometry.earliest(ball, horizon, this.board.getPhysics(), last, SIMULTANEOUS_COLLISION_TIME,
+				this.hit);
+		double collisionTime = this.hit.time;
+		final Gadget wall = geometry.earliestWall(ball, this.board.getPhysics(), last, SIMULTANEOUS_COLLISION_TIME, this.hit);
+		if (this.hit.time < collisionTime) {
+			collisionTime = this.hit.time;
+			next = wall;
+		}
+
+		if (collisionTime <= horizon) {
+			final Type type = next instanceof Wall ? Type.WALL : Type.GADGET;
+			this.schedule(new Event(type, state.time + collisionTime, ball, state, null, null, next));
+		} else {
+			this.schedule(new Event(Type.HORIZON, state.time + horizon, ball, state, null, null, null));
+		}
+	}
+
+	/**
+	 * Predicts collisions between a ball and the balls near it which occur before the end of the
+	 * current call to <code>advance()</code>.
+	 * @param ball ball to be predicted
+	 * @param exclude balls which should not be predicted against ball
+	 */
+	private void predictBalls(Ball ball, Set<Ball> exclude) {
+		final State state = this.states.get(ball);
+		if (ball.isTrapped()) return;
+		for (int k = 0; k < this.sweepAndPrune.partnerCount(ball); k++) {
+			final Ball other = this.sweepAndPrune.partner(ball, k);
+			final State otherState = this.states.get(other);
+			if (otherState == null || other.isTrapped() || exclude.contains(other)) continue;
+			// Both balls must be at the same time for their collision time to be computed
+			if (otherState.time < state.time) {
+				this.moveTo(other, state.time);
+			} else if (state.time < otherState.time) {
+				this.moveTo(ball, otherState.time);
+			}
+			final double collisionTime = ball.timeUntilBallCollision(other);
+			this.queries++;
+			if (state.last == other && collisionTime <= SIMULTANEOUS_COLLISION_TIME) continue;
+			if (state.time + collisionTime <= this.end) {
+				this.schedule(new Event(Type.BALL, state.time + collisionTime, ball, state, other, otherState, null));
+			}
+		}
+	}
+
+	/**
+	 * Moves a ball along its path to the given time. The ball's predictions remain valid.
+	 * @param ball ball to be moved
+	 * @param time time to which the ball is moved. Must not be before the ball's clock
+	 */
+	private void moveTo(Ball ball, double time) {
+		final State state = this.states.get(ball);
+		if (time > state.time && !ball.isTrapped()) {
+			this.board.moveBall(ball, time - state.time);
+			state.record(ball);
+		}
+		state.time = time;
+	}
+
+	/**
+	 * Finds how long a straight line prediction for a ball remains accurate. Gravity and friction
+	 * accelerate the ball by at most |gravity| + |v| * (mu + mu2 * |v|) which moves it away from the
+	 * straight line by that amount times t^2. Gravity is left out if collisions with gadgets are
+	 * predicted along the curved path, as it does not move two balls relative to each other.
+	 * @param ball a ball
+	 * @return time in seconds after which the ball must be predicted again
+	 */
+	private double horizon(Ball ball) {
+		final double speed = ball.speed();
+		final double gravity = this.board.getPhysics().parabolicPrediction() ? 0 : Math.abs(this.board.getGravity());
+		final double acceleration = gravity + speed * (this.board.getFriction1() + this.board.getFriction2() * speed);
+		if (acceleration == 0) return MAX_HORIZON;
+		return Math.min(MAX_HORIZON, Math.sqrt(POSITION_TOLERANCE / acceleration));
+	}
+
+	/**
+	 * @param balls balls in play
+	 * @param time length of time being played
+	 * @return every ball which could reach a rotating flipper during time
+	 */
+	private List<Ball> nearRotatingFlippers(List<Ball> balls, double time) {
+		final List<Ball> result = new ArrayList<Ball>();
+		for (Gadget gadget : this.board.getGadgets()) {
+			if (!(gadget instanceof Flipper && ((Flipper) gadget).isRotating())) continue;
+			final Vect position = gadget.position();
+			for (Ball ball : balls) {
+				final double x = ball.boardX();
+				final double y = ball.boardY();
+				final double reach = ball.speed() * time + ball.getRadius() + POSITION_TOLERANCE;
+				if (x + reach >= position.x() && x - reach <= position.x() + gadget.width()
+						&& y + reach >= position.y() && y - reach <= position.y() + gadget.height()) {
+					result.add(ball);
+				}
+			}
+		}
+		return result;
+	}
+
+	private void schedule(Event event) {
+		this.events.add(event);
+	}
+
+	/**
+	 * @return the number of collision times computed by the scheduler
+	 */
+	long queries() {
+		return this.queries + this.hit.queries;
+	}
+
+	/**
+	 * @return the number of events resolved by the scheduler
+	 */
+	long resolved() {
+		return this.resolved;
+	}
+
+	@Override
+	public String toString() {
+		return "EventScheduler{now=" + this.now + ", pending=" + this.events.size() + ", queries=" + this.queries()
+				+ ", resolved=" + this.resolved + "}";
+	}
+
+	/**
+	 * The clock of a ball and the position and velocity it had when it was last moved or predicted.
+	 * A ball whose center or velocity is no longer the same has been changed outside of the scheduler.
+	 */
+	private static class State {
+		private double time;
+		private int version = 0;
+		private double x, y, vx, vy;
+		// The gadget or ball the ball last collided with
+		private Object last = null;
+
+		private State(Ball ball, double time) {
+			this.time = time;
+			this.record(ball);
+		}
+
+		private void record(Ball ball) {
+			this.x = ball.boardX();
+			this.y = ball.boardY();
+			this.vx = ball.velocityX();
+			this.vy = ball.velocityY();
+		}
+
+		private boolean changedOutsideScheduler(Ball ball) {
+			return ball.boardX() != this.x || ball.boardY() != this.y || ball.velocityX() != this.vx
+					|| ball.velocityY() != this.vy;
+		}
+	}
+
+	/**
+	 * A predicted event. An event is valid as long as the balls it involves have not been predicted
+	 * again since it was created.
+	 */
+	private static class Event implements Comparable<Event> {
+		private final Type type;
+		private final double time;
+		private final Ball ball, other;
+		private final State state, otherState;
+		private final int version, otherVersion;
+		private final Gadget gadget;
+
+		private Event(Type type, double time, Ball ball, State state, Ball other, State otherState, Gadget gadget) {
+			this.type = type;
+			this.time = time;
+			this.ball = ball;
+			this.state = state;
+			this.version = state.version;
+			this.other = other;
+			this.otherState = otherState;
+			this.otherVersion = otherState == null ? 0 : otherState.version;
+			this.gadget = gadget;
+		}
+
+		private boolean isValid(Map<Ball, State> states) {
+			if (states.get(this.ball) != this.state || this.state.version != this.version) return false;
+			if (this.other == null) return true;
+			return states.get(this.other) == this.otherState && this.otherState.version == this.otherVersion;
+		}
+
+		@Override
+		public int compareTo(Event that) {
+			return Double.compare(this.time, that.time);
+		}
+	}
+}
@@ -6,10 +6,6 @@ import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.Socket;
 import java.net.UnknownHostException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.stream.Stream;
 import org.apache.commons.cli.*;
 
 import edu.mit.eecs.parserlib.UnableToParseException;
@@ -22,12 +18,20 @@ import edu.mit.eecs.parserlib.UnableToParseException;
  */
 public class Flingball {
 	final static int L = BoardAnimation.DEFAULT_L;
+	// Frame rate of a board which is repainted by Swing instead of being drawn actively
+	private final static int PASSIVE = -1;
     
     /**
      * Usage:
-     * Flingball [--host HOST] [--port PORT] [FILE]
+     * Flingball [--host HOST] [--port PORT] [--threads] [--events] [--fps FPS] [--timestep TIMESTEP] [FILE]
      * HOST is an optional hostname or IP address of the server to connect to. 
      * PORT is an optional integer in the range 0 to 65535 inclusive, specifying the port where the server is listening for incoming connections. The default port is 10987.
+     * --threads optionally moves each ball in its own thread instead of from a single simulation thread. 
+     * --events optionally moves balls from collision to collision using an event scheduler instead of in fixed ticks. 
+     * FPS is an optional number of frames drawn per second by a render thread of its own. 0 draws a frame for every 
+     * refresh of the display. By default the board is repainted by Swing. 
+     * TIMESTEP is an optional length of each tick of the board in seconds. The default is Board.DEFAULT_TIMESTEP. 
+     * Giving a TIMESTEP draws the board from a render thread, at the refresh rate of the display unless FPS is given. 
      * FILE is an optional argument specifying a file pathname of the Flingball board that this client should run. 
      */
     public static void main(String[] args) {
@@ -35,9 +39,17 @@ public class Flingball {
     	
     	Option host = new Option("h", "host", true, "hostname or ip adddress of server"); 
     	Option port = new Option("p", "port", true, "port where server is listening");
+    	Option threads = new Option("t", "threads", false, "move each ball in its own thread (legacy mode)");
+    	Option events = new Option("e", "events", false, "move balls from collision to collision instead of in fixed ticks");
+    	Option fps = new Option("f", "fps", true, "frames drawn per second by a render thread, 0 for the refresh rate of the display mode");
     	
     	options.addOption(host);
     	options.addOption(port);
+    	options.addOption(threads);
+    	options.addOption(events);
+    	Option timestep = new Option("d", "timestep", true, "length of each tick in seconds");
+    	options.addOption(fps);
+    	options.addOption(timestep);
     	
     	CommandLineParser parser = new DefaultParser();
     	HelpFormatter formatter = new HelpFormatter();
@@ -45,6 +57,8 @@ public class Flingball {
     	
     	final int prt;
     	final String file;
+    	final int framesPerSecond;
+    	final double dt;
     	
     	try {
     		// Check if a port # was provided. If not use the default port. 
@@ -54,6 +68,14 @@ public class Flingball {
     		} else {
     			prt = 10987;
     		}
+    		if (cmd.hasOption("fps")) {
+    			framesPerSecond = Integer.parseInt(cmd.getOptionValue("fps"));
+    		} else if (cmd.hasOption("timestep")) {
+    			framesPerSecond = BoardAnimation.DISPLAY_MODE_RATE;
+    		} else {
+    			framesPerSecond = PASSIVE;
+    		}
+    		dt = cmd.hasOption("timestep") ? Double.parseDouble(cmd.getOptionValue("timestep")) : Board.DEFAULT_TIMESTEP;
     		
     		// Check if a board file was provided. If not use the default board
     		if (cmd.getArgList().size() > 0) {
@@ -65,12 +87,18 @@ public class Flingball {
     		// Create the flingball board and start to play. 
     		try {
     			Board board = readFile(file);
+    			if (cmd.hasOption("threads")) {
+    				board.setLegacyBallThreads(true);
+    			}
+    			if (cmd.hasOption("events")) {
+    				board.setEventDriven(true);
+    			}
     		
     			if (cmd.hasOption("host")) {
     				String hst = cmd.getOptionValue("host");
     				try {
-    					connect(board, prt, hst);
-    					connectBoard(hst, prt, "boards/flippers.fb");
+    					connect(board, prt, hst, framesPerSecond, dt);
+    					connectBoard(hst, prt, "boards/flippers.fb", framesPerSecond, dt);
 //    					try {
 //							Thread.sleep(1000L);
 //						} catch (InterruptedException e) {
@@ -82,13 +110,13 @@ public class Flingball {
     					System.err.println(ioe.getMessage());
     					System.err.println("Could not connect to " + hst + ":" + prt + ". Playing in Singleplayer");
     					board.connectPortals();
-        				new BoardAnimation(board, L);
+        				animate(board, framesPerSecond, dt);
         				
     				} 
 	    		} else {
 	    			//Otherwise connect the portals and begin gameplay in singleplayer
     				board.connectPortals();
-    				new BoardAnimation(board, L);
+    				animate(board, framesPerSecond, dt);
 	    		}
     		
     		} catch (IOException e) {
@@ -107,11 +135,11 @@ public class Flingball {
 			
 	}
     // TODO Remove for testing only
-    private static void connectBoard(String host, int port, String file) throws IOException{
+    private static void connectBoard(String host, int port, String file, int framesPerSecond, double timestep) throws IOException{
     	new Thread(() -> {
     		try {
     		Board board = readFile(file);
-			connect(board, port, host);
+			connect(board, port, host, framesPerSecond, timestep);
     		} catch (IOException | UnableToParseException e) {
 				try {
 					throw e;
@@ -132,13 +160,22 @@ public class Flingball {
      * @throws UnableToParseException if the fb file is not properly formatted
      */
     private static Board readFile(String file) throws IOException, UnableToParseException{
-			Path filePath = Paths.get(file);
-			Stream<String> fileIn = Files.lines(filePath);
-			StringBuilder boardFile = new StringBuilder();
-			fileIn.forEach(s -> boardFile.append(s + "\n"));
-			fileIn.close();
-			final Board board = BoardParser.parse(boardFile.toString());
-			return board;
+			return Board.load(file);
+    }
+    
+    /**
+     * Displays and begins play for a board
+     * @param board board to be played
+     * @param framesPerSecond number of frames drawn per second by a render thread, 0 to follow the refresh rate 
+     * of the display or PASSIVE to let Swing repaint the board
+     * @param timestep length of each tick in seconds. Only used if the board is drawn by a render thread
+     */
+    private static void animate(Board board, int framesPerSecond, double timestep) {
+    	if (framesPerSecond == PASSIVE) {
+    		new BoardAnimation(board, L);
+    	} else {
+    		new BoardAnimation(board, L, framesPerSecond, timestep);
+    	}
     }
     
     /**
@@ -148,10 +185,12 @@ public class Flingball {
      * @param board - the board the client is playing with
      * @param prt - port the number the server is listening on
      * @param hostAdress - IP address of the server
+     * @param framesPerSecond - frame rate the board is drawn at once play begins, or PASSIVE
+     * @param timestep - length of each tick in seconds
      * @throws UnknownHostException - If the IP address of the host could not be determined
      * @throws IOException - if an I/O error occurs during the connection
      */
-    private static void connect(Board board, final int prt, String hostAdress) throws UnknownHostException, IOException {
+    private static void connect(Board board, final int prt, String hostAdress, int framesPerSecond, double timestep) throws UnknownHostException, IOException {
 		Socket socket = new Socket(hostAdress, prt);
 		PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
 		BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
@@ -201,7 +240,7 @@ public class Flingball {
 				}
 				else if (response.equals("READY")) {
 					//Start the game
-						new BoardAnimation(board, L);
+						animate(board, framesPerSecond, timestep);
 					
 				}
 				else if (response.split(" ")[0].equals("ERROR:")) {
@@ -0,0 +1,229 @@
+package flingball;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.cli.*;
+
+import edu.mit.eecs.parserlib.UnableToParseException;
+import flingball.physics.PhysicsContext;
+
+/**
+ * Plays flingball boards without displaying them. Each board is played from the main thread as fast as
+ * possible for a fixed length of simulated time, after which the final state of every ball and the time
+ * taken to play the board are printed. No window is opened, so boards can be played on machines without
+ * a display. Boards can also be joined and played together in a single World.
+ */
+public class FlingballHeadless {
+
+	private static final double DEFAULT_SECONDS = 10.0;
+
+	/**
+	 * Usage:
+	 * FlingballHeadless [--seconds SECONDS | --ticks TICKS] [--timestep TIMESTEP] [--events] [--parabolic]
+	 * 		[--adaptive [--step-tolerance TOLERANCE]] [--max-collisions MAX]
+	 * 		[--world [--parallelism THREADS] [--join h|v FIRST SECOND]...] [FILE...]
+	 * SECONDS is an optional length of simulated time to play each board for. The default is 10 seconds.
+	 * TICKS is an optional number of ticks to play each board for instead of a length of time.
+	 * TIMESTEP is an optional length of each tick in seconds. The default is Board.DEFAULT_TIMESTEP.
+	 * --events optionally moves balls from collision to collision using an event scheduler instead of in fixed ticks.
+	 * --parabolic optionally predicts collisions with gadgets along the curved path each ball follows under gravity
+	 * and friction instead of along a straight line.
+	 * --adaptive optionally moves each ball near a gadget in sub-steps chosen from its speed and acceleration, and
+	 * each ball far from every gadget in whole ticks without searching for collisions with gadgets. TOLERANCE is an
+	 * optional distance in L by which a ball may stray from the line along which its collisions are predicted. The
+	 * default is PhysicsContext.DEFAULT_STEP_TOLERANCE.
+	 * MAX is an optional number of collisions resolved for one ball in one tick. The default is
+	 * Board.DEFAULT_MAX_COLLISIONS_PER_STEP.
+	 * --world optionally plays every board together in one World instead of one after another.
+	 * THREADS is an optional number of threads used to play a world. The default is one for each processor.
+	 * --join optionally joins two boards in a world, using the same h and v commands as FlingballServer.
+	 * FILE is an optional list of flingball board files which are played one after another. If no FILE is
+	 * provided the default benchmark board is played.
+	 *
+	 * Exits with status 1 if the arguments are invalid or any board could not be read.
+	 */
+	public static void main(String[] args) {
+		// Nothing is drawn, but make sure that nothing tries to open a display if AWT is ever initialized
+		System.setProperty("java.awt.headless", "true");
+		Options options = new Options();
+
+		Option seconds = new Option("s", "seconds", true, "length of simulated time to play each board for");
+		Option ticks = new Option("n", "ticks", true, "number of ticks to play each board for");
+		Option timestep = new Option("d", "timestep", true, "length of each tick in seconds");
+		Option events = new Option("e", "events", false, "move balls from collision to collision instead of in fixed ticks");
+		Option parabolic = new Option("a", "parabolic", false, "predict collisions along the curved path of each ball");
+		Option adaptive = new Option("t", "adaptive", false, "move balls near gadgets in sub-steps and balls far from them in whole ticks");
+		Option stepTolerance = new Option("l", "step-tolerance", true, "distance in L a ball may stray from its predicted path in one sub-step");
+		Option maxCollisions = new Option("c", "max-collisions", true, "number of collisions resolved for one ball in one tick");
+		Option world = new Option("w", "world", false, "play every board together in one world");
+		Option parallelism = new Option("p", "parallelism", true, "number of threads used to play a world");
+		Option join = Option.builder("j").longOpt("join").numberOfArgs(3).argName("h|v FIRST SECOND")
+				.desc("join two boards in a world horizontally or vertically").build();
+
+		OptionGroup length = new OptionGroup();
+		length.addOption(seconds);
+		length.addOption(ticks);
+		options.addOptionGroup(length);
+		options.addOption(timestep);
+		options.addOption(events);
+		options.addOption(parabolic);
+		options.addOption(adaptive);
+		options.addOption(stepTolerance);
+		options.addOption(maxCollisions);
+		options.addOption(world);
+		options.addOption(parallelism);
+		options.addOption(join);
+
+		CommandLineParser parser = new DefaultParser();
+		HelpFormatter formatter = new HelpFormatter();
+
+		final List<String> files = new ArrayList<String>();
+		final double dt;
+		final int n;
+		final boolean eventDriven;
+		final boolean curved;
+		final double tolerance;
+		final int max;
+		final int threads;
+		final List<String> joins = new ArrayList<String>();
+		final CommandLine cmd;
+		try {
+			cmd = parser.parse(options, args);
+			dt = cmd.hasOption("timestep") ? Double.parseDouble(cmd.getOptionValue("timestep")) : Board.DEFAULT_TIMESTEP;
+			if (cmd.hasOption("ticks")) {
+				n = Integer.parseInt(cmd.getOptionValue("ticks"));
+			} else {
+				final double s = cmd.hasOption("seconds") ? Double.parseDouble(cmd.getOptionValue("seconds")) : DEFAULT_SECONDS;
+				n = (int) Math.round(s / dt);
+			}
+			if (dt <= 0 || n < 0) {
+				throw new ParseException("timestep must be > 0 and the length of play must be >= 0");
+			}
+			eventDriven = cmd.hasOption("events");
+			curved = cmd.hasOption("parabolic");
+			if (!cmd.hasOption("adaptive")) {
+				tolerance = 0;
+			} else {
+				tolerance = cmd.hasOption("step-tolerance") ? Double.parseDouble(cmd.getOptionValue("step-tolerance"))
+						: PhysicsContext.DEFAULT_STEP_TOLERANCE;
+			}
+			if (!(tolerance >= 0)) {
+				throw new ParseException("step-tolerance must be >= 0");
+			}
+			max = cmd.hasOption("max-collisions") ? Integer.parseInt(cmd.getOptionValue("max-collisions"))
+					: Board.DEFAULT_MAX_COLLISIONS_PER_STEP;
+			if (max < 1) {
+				throw new ParseException("max-collisions must be >= 1");
+			}
+			threads = cmd.hasOption("parallelism") ? Integer.parseInt(cmd.getOptionValue("parallelism"))
+					: Runtime.getRuntime().availableProcessors();
+			if (threads < 1) {
+				throw new ParseException("parallelism must be >= 1");
+			}
+			if (cmd.hasOption("join")) {
+				final String[] values = cmd.getOptionValues("join");
+				for (int i = 0; i < values.length; i += 3) {
+					if (!values[i].equals("h") && !values[i].equals("v")) {
+						throw new ParseException("'" + values[i] + "' is not a valid join command.");
+					}
+					joins.add(values[i] + " " + values[i + 1] + " " + values[i + 2]);
+				}
+			}
+			if (!cmd.hasOption("world") && !joins.isEmpty()) {
+				throw new ParseException("boards can only be joined in a world");
+			}
+			files.addAll(cmd.getArgList());
+		} catch (ParseException | NumberFormatException e) {
+			System.out.println(e.getMessage());
+			formatter.printHelp("FlingballHeadless [FILE...]", options);
+			System.exit(1);
+			return;
+		}
+		if (files.isEmpty()) {
+			files.add("boards/default.fb");
+		}
+
+		if (cmd.hasOption("world")) {
+			playWorld(files, joins, threads, eventDriven, curved, tolerance, max, n, dt);
+			return;
+		}
+
+		boolean failed = false;
+		for (String file : files) {
+			try {
+				final Board board = Board.load(file);
+				board.setEventDriven(eventDriven);
+				board.setPhysics(board.getPhysics().withParabolicPrediction(curved).withStepTolerance(tolerance));
+				board.setMaxCollisionsPerStep(max);
+				board.connectPortals();
+				System.out.println(file + ": " + board.simulate(n, dt));
+			} catch (IOException e) {
+				System.out.println(file + " not found");
+				failed = true;
+			} catch (UnableToParseException e) {
+				System.out.println("Unable to parse " + file);
+				failed = true;
+			}
+		}
+		if (failed) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Loads every board into one world, joins them and plays them together. Prints a report for every
+	 * board and exits with status 1 if any board could not be read or joined.
+	 * @param files board files to play
+	 * @param joins h or v commands joining two boards
+	 * @param threads number of threads used to play the world
+	 * @param eventDriven true if balls should be moved by an event scheduler
+	 * @param curved true if collisions should be predicted along the curved path of each ball
+	 * @param tolerance step tolerance of every board in L, or 0 if balls should be moved in whole ticks
+	 * @param max maximum number of collisions resolved for one ball in one tick
+	 * @param ticks number of ticks to play
+	 * @param timestep length of each tick in seconds
+	 */
+	private static void playWorld(List<String> files, List<String> joins, int threads, boolean eventDriven,
+			boolean curved, double tolerance, int max, int ticks, double timestep) {
+		try (World world = new World(threads)) {
+			for (String file : files) {
+				try {
+					final Board board = Board.load(file);
+					board.setEventDriven(eventDriven);
+					board.setPhysics(board.getPhysics().withParabolicPrediction(curved).withStepTolerance(tolerance));
+					board.setMaxCollisionsPerStep(max);
+					world.addBoard(board);
+				} catch (IOException e) {
+					System.out.println(file + " not found");
+					System.exit(1);
+				} catch (UnableToParseException e) {
+					System.out.println("Unable to parse " + file);
+					System.exit(1);
+				} catch (IllegalArgumentException e) {
+					System.out.println(e.getMessage());
+					System.exit(1);
+				}
+			}
+			for (String command : joins) {
+				final String[] tokens = command.split(" ");
+				try {
+					if (tokens[0].equals("h")) {
+						world.joinHorizontally(tokens[1], tokens[2]);
+					} else {
+						world.joinVertically(tokens[1], tokens[2]);
+					}
+				} catch (NoSuchElementException e) {
+					System.out.println(e.getMessage());
+					System.exit(1);
+				}
+			}
+			world.connectPortals();
+			for (SimulationReport report : world.simulate(ticks, timestep)) {
+				System.out.println(report);
+			}
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package flingball;
+
+/**
+ * A FramePacer decides when a board drawn by its own render thread draws its next frame, and whether a frame
+ * is needed at all. Frames are paced by sleeping on System.nanoTime() until the next frame is due. A frame
+ * which is late is not made up for: the frame after it is due a whole period after the late one was drawn.
+ *
+ * A frame is skipped if it would show the snapshot which was last shown, at the end of its tick, into a
+ * buffer which still holds it. Such a frame would draw exactly the same pixels.
+ */
+class FramePacer {
+
+	private final long period;
+	private long next;
+	private BoardSnapshot shown = null;
+	private double shownBlend = 0;
+
+	/*
+	 * AF(period, next, shown, shownBlend) ::= Frames drawn every period nanoseconds, the next of which is due
+	 * 		at System.nanoTime() next. The last frame showed shown after shownBlend of the tick before it, or no
+	 * 		frame has been shown if shown is null.
+	 * Rep Invariant ::=
+	 * 		period > 0
+	 * 		0 <= shownBlend <= 1
+	 * Safety from rep exposure ::=
+	 * 		No field is returned. shown is immutable.
+	 * Thread Safety Argument ::=
+	 * 		FramePacer is not thread safe. It is only used by the thread drawing a board.
+	 */
+
+	private void checkRep() {
+		assert period > 0 : "FramePacer: period <= 0";
+		assert 0 <= shownBlend && shownBlend <= 1 : "FramePacer: blend";
+	}
+
+	/**
+	 * Creates a pacer whose first frame is due at start
+	 * @param framesPerSecond number of frames drawn per second. Must be > 0
+	 * @param start a value of System.nanoTime()
+	 */
+	FramePacer(int framesPerSecond, long start) {
+		this.period = 1000000000L / framesPerSecond;
+		this.next = start;
+		checkRep();
+	}
+
+	/**
+	 * Decides whether a frame showing snapshot after blend of the tick before it must be drawn, and if so
+	 * records it as the last frame shown
+	 * @param snapshot snapshot of the board to be drawn
+	 * @param blend fraction of the tick before snapshot which has passed. Must be 0 <= blend <= 1
+	 * @param lost true if the buffer the frame is drawn into no longer holds the last frame shown
+	 * @return false if the last frame shown snapshot at the end of its tick and the buffer still holds it,
+	 * 		true otherwise
+	 */
+	boolean needsFrame(BoardSnapshot snapshot, double blend, boolean lost) {
+		if (snapshot == this.shown && this.shownBlend == 1 && !lost) {
+			return false;
+		}
+		this.shown = snapshot;
+		this.shownBlend = blend;
+		checkRep();
+		return true;
+	}
+
+	/**
+	 * Finds how long to wait after a frame has been drawn before drawing the next one
+	 * @param now a value of System.nanoTime() after the frame has been drawn
+	 * @return number of nanoseconds until the next frame is due, >= 0
+	 */
+	long delay(long now) {
+		this.next += this.period;
+		if (this.next < now) {
+			this.next = now;
+		}
+		return this.next - now;
+	}
+
+	@Override
+	public String toString() {
+		return "FramePacer{" + 1000000000L / this.period + " fps}";
+	}
+}
@@ -0,0 +1,206 @@
+package flingball;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import flingball.gadgets.Gadget;
+import physics.Vect;
+
+/**
+ * A GadgetIndex is a uniform grid which buckets the gadgets on a flingball board by the 1L x 1L
+ * squares they cover. It is used as a broadphase for collision detection. Instead of asking every
+ * gadget on the board for its collision time with a ball, only the gadgets in the squares the ball
+ * can reach during a timestep need to be checked.
+ */
+class GadgetIndex {
+
+	// Swept areas are grown by MARGIN so that a ball touching the edge of a square is still
+	// tested against the gadgets in that square.
+	private static final double MARGIN = 0.05;
+	private static final Gadget[] EMPTY = new Gadget[0];
+
+	private final int width, height;
+	private final AtomicReferenceArray<Gadget[]> cells;
+
+	/*
+	 * AF(width, height, cells) ::= A width x height grid where cells[x + y * width] holds every
+	 * 		gadget that covers the square with upper left corner (x, y).
+	 * Rep Invariant ::=
+	 * 		width, height > 0
+	 * 		cells.length() == width * height
+	 * 		no gadget appears twice in the same cell
+	 * Safety from rep exposure ::=
+	 * 		cells is never returned. candidates() returns a new list and cell() returns a copy or an empty array.
+	 * Thread Safety Argument ::=
+	 * 		Cells are copied on write. add() is synchronized so writers never lose an update and
+	 * 		readers always see a complete array for every cell without obtaining a lock.
+	 */
+
+	private void checkRep() {
+		assert width > 0 && height > 0;
+		assert cells.length() == width * height;
+	}
+
+	/**
+	 * Creates an empty index for a board of the given size.
+	 * @param width width of the board in L. Must be > 0
+	 * @param height height of the board in L. Must be > 0, with width * height <= Integer.MAX_VALUE
+	 */
+	GadgetIndex(int width, int height) {
+		assert width > 0 && height > 0 && (long) width * height <= Integer.MAX_VALUE : "GadgetIndex: " + width + " x " + height;
+		this.width = width;
+		this.height = height;
+		this.cells = new AtomicReferenceArray<Gadget[]>(width * height);
+		for (int i = 0; i < width * height; i++) {
+			this.cells.set(i, EMPTY);
+		}
+		checkRep();
+	}
+
+	/**
+	 * Adds a gadget to every cell covered by its bounding box. Parts of the gadget which are not
+	 * on the board are ignored.
+	 * @param gadget gadget to be added
+	 */
+	synchronized void add(Gadget gadget) {
+		final Vect position = gadget.position();
+		final int x = (int) position.x();
+		final int y = (int) position.y();
+		for (int i = Math.max(x, 0); i < Math.min(x + Math.max(gadget.width(), 1), this.width); i++) {
+			for (int j = Math.max(y, 0); j < Math.min(y + Math.max(gadget.height(), 1), this.height); j++) {
+				final int cell = i + j * this.width;
+				final Gadget[] old = this.cells.get(cell);
+				final Gadget[] updated = new Gadget[old.length + 1];
+				System.arraycopy(old, 0, updated, 0, old.length);
+				updated[old.length] = gadget;
+				this.cells.set(cell, updated);
+			}
+		}
+		checkRep();
+	}
+
+	/**
+	 * Finds every gadget that a ball could reach while moving for the given amount of time. The
+	 * area swept by the ball accounts for its straight line path as well as the effects of
+	 * gravity and friction.
+	 *
+	 * @param ball ball which is moving
+	 * @param time time in seconds during which the ball moves
+	 * @param gravity gravity on the board in L / s^2
+	 * @param mu coefficient of friction in s^-1
+	 * @param mu2 coefficient of friction in L^-1
+	 * @return every gadget in a cell that the ball may pass through. Each gadget appears at most once
+	 */
+	List<Gadget> candidates(Ball ball, double time, double gravity, double mu, double mu2) {
+		final double[] area = new double[4];
+		sweptArea(ball, time, gravity, mu, mu2, area);
+		return this.candidates(area[0], area[1], area[2], area[3]);
+	}
+
+	/**
+	 * Finds the rectangle a ball could reach while moving for the given amount of time. The area
+	 * swept by the ball accounts for its straight line path as well as the effects of gravity and
+	 * friction.
+	 *
+	 * @param ball ball which is moving
+	 * @param time time in seconds during which the ball moves
+	 * @param gravity gravity on the board in L / s^2
+	 * @param mu coefficient of friction in s^-1
+	 * @param mu2 coefficient of friction in L^-1
+	 * @param area array of length 4 which is filled with minX, minY, maxX and maxY of the rectangle
+	 */
+	static void sweptArea(Ball ball, double time, double gravity, double mu, double mu2, double[] area) {
+		final double x = ball.boardX();
+		final double y = ball.boardY();
+		final double vx = ball.velocityX();
+		final double vy = ball.velocityY();
+		final double speed = ball.speed();
+
+		// Ball.move displaces the ball by v*t + a*t^2. Gravity acts along y. Friction only slows
+		// the ball, which is accounted for by growing the swept area by the largest distance it
+		// can pull the ball back.
+		final double slack = speed * (mu + mu2 * speed) * time * time + ball.getRadius() + MARGIN;
+
+		double minX = Math.min(x, x + vx * time);
+		double maxX = Math.max(x, x + vx * time);
+
+		double minY = Math.min(y, y + vy * time);
+		double maxY = Math.max(y, y + vy * time);
+		final double endY = y + vy * time + gravity * time * time;
+		minY = Math.min(minY, endY);
+		maxY = Math.max(maxY, endY);
+		if (gravity != 0) {
+			// Turning point of the parabola
+			final double turn = -vy / (2 * gravity);
+			if (turn > 0 && turn < time) {
+				final double turnY = y + vy * turn + gravity * turn * turn;
+				minY = Math.min(minY, turnY);
+				maxY = Math.max(maxY, turnY);
+			}
+		}
+
+		area[0] = minX - slack;
+		area[1] = minY - slack;
+		area[2] = maxX + slack;
+		area[3] = maxY + slack;
+	}
+
+	/**
+	 * Finds every gadget covering part of the given rectangle.
+	 * @param minX left edge of the rectangle
+	 * @param minY top edge of the rectangle
+	 * @param maxX right edge of the rectangle
+	 * @param maxY bottom edge of the rectangle
+	 * @return every gadget in a cell which overlaps the rectangle. Each gadget appears at most once
+	 */
+	List<Gadget> candidates(double minX, double minY, double maxX, double maxY) {
+		final int x1 = Math.max((int) Math.floor(minX), 0);
+		final int y1 = Math.max((int) Math.floor(minY), 0);
+		final int x2 = Math.min((int) Math.floor(maxX), this.width - 1);
+		final int y2 = Math.min((int) Math.floor(maxY), this.height - 1);
+
+		final List<Gadget> result = new ArrayList<Gadget>();
+		for (int j = y1; j <= y2; j++) {
+			for (int i = x1; i <= x2; i++) {
+				for (Gadget gadget : this.cells.get(i + j * this.width)) {
+					// Gadgets larger than 1L x 1L are found in more than one cell
+					if (!result.contains(gadget)) {
+						result.add(gadget);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param x column of a cell. Must be >= 0 and < width
+	 * @param y row of a cell. Must be >= 0 and < height
+	 * @return the gadgets covering the cell in the order they were added
+	 */
+	Gadget[] cell(int x, int y) {
+		final Gadget[] cell = this.cells.get(x + y * this.width);
+		// An empty array cannot be modified so it is not copied
+		return cell.length == 0 ? cell : cell.clone();
+	}
+
+	/**
+	 * @return the number of columns in the index
+	 */
+	int width() {
+		return this.width;
+	}
+
+	/**
+	 * @return the number of rows in the index
+	 */
+	int height() {
+		return this.height;
+	}
+
+	@Override
+	public String toString() {
+		return "GadgetIndex{" + this.width + "x" + this.height + "}";
+	}
+}
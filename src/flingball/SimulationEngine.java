@@ -0,0 +1,197 @@
+package flingball;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A SimulationEngine plays a flingball board from a single thread. Every ball on the board is
+ * advanced in the same tick using a fixed timestep, which keeps play deterministic and avoids
+ * creating one thread per ball.
+ *
+ * The engine keeps track of how much real time has passed since the last tick. If it falls
+ * behind, for example because a tick took longer than the timestep, it catches up by playing
+ * several ticks in a row. No more than <code>maxStepsPerFrame</code> ticks are played before the
+ * engine sleeps again. Any time left over after that is dropped so that a slow board falls
+ * behind real time instead of spiralling further and further behind.
+ */
+class SimulationEngine {
+
+	public static final int DEFAULT_MAX_STEPS_PER_FRAME = 5;
+
+	private final Board board;
+	private final double timestep;
+	private final int maxStepsPerFrame;
+	private final AtomicBoolean running = new AtomicBoolean(false);
+	private volatile Thread worker;
+
+	private double accumulator = 0.0;
+	private long ticks = 0;
+	private long droppedTicks = 0;
+
+	/*
+	 * AF(board, timestep, maxStepsPerFrame, accumulator, ticks, droppedTicks) ::= A simulation loop
+	 * 		playing board in timestep second increments, playing at most maxStepsPerFrame ticks between
+	 * 		sleeps. accumulator is the real time in seconds which has passed and not yet been played.
+	 * 		ticks is the number of ticks played and droppedTicks the number of ticks skipped to
+	 * 		catch up with real time.
+	 * Rep Invariant ::=
+	 * 		timestep > 0
+	 * 		maxStepsPerFrame >= 1
+	 * 		0 <= accumulator < timestep between calls to advance
+	 * 		ticks, droppedTicks >= 0
+	 * Safety from rep exposure ::=
+	 * 		Only primitive types are returned.
+	 * Thread Safety Argument ::=
+	 * 		The board is only played from the worker thread. running is atomic, worker is volatile and
+	 * 		accumulator, ticks and droppedTicks are only written by the worker thread. stop() waits for
+	 * 		the worker thread to end, so a stopped engine no longer plays the board once stop() returns.
+	 */
+
+	private void checkRep() {
+		assert timestep > 0 : "SimulationEngine: timestep <= 0";
+		assert maxStepsPerFrame >= 1 : "SimulationEngine: maxStepsPerFrame < 1";
+		assert 0 <= accumulator && accumulator < timestep : "SimulationEngine: accumulator";
+		assert ticks >= 0 && droppedTicks >= 0;
+	}
+
+	/**
+	 * Creates a new simulation engine for the provided board. The engine does not start until
+	 * <code>start()</code> is called.
+	 *
+	 * @param board board which will be played
+	 * @param timestep length of each tick in seconds. Must be > 0
+	 * @param maxStepsPerFrame maximum number of ticks played to catch up before sleeping. Must be >= 1
+	 */
+	SimulationEngine(Board board, double timestep, int maxStepsPerFrame) {
+		this.board = board;
+		this.timestep = timestep;
+		this.maxStepsPerFrame = maxStepsPerFrame;
+		checkRep();
+	}
+
+	/**
+	 * Starts the simulation loop in a new thread. Has no effect if the engine is already running.
+	 */
+	void start() {
+		if (!this.running.compareAndSet(false, true)) return;
+		this.accumulator = 0.0;
+		this.worker = new Thread(() -> {
+			long previous = System.nanoTime();
+			while (running.get()) {
+				final long now = System.nanoTime();
+				final double wait = this.advance((now - previous) / 1e9);
+				previous = now;
+
+				try {
+					final long sleep = (long) (wait * 1e9);
+					Thread.sleep(sleep / 1000000, (int) (sleep % 1000000));
+				} catch (InterruptedException e) {
+					// Interrupted by stop(), which has already cleared running
+				}
+			}
+		}, board.NAME + " simulation");
+		this.worker.setDaemon(true);
+		this.worker.start();
+	}
+
+	/**
+	 * Plays every tick which has become due after elapsed more seconds of real time, up to
+	 * maxStepsPerFrame ticks. Any whole ticks still due after that are dropped.
+	 *
+	 * @param elapsed seconds of real time since the last call. Must be >= 0
+	 * @return seconds of real time until the next tick is due
+	 */
+	double advance(double elapsed) {
+		this.accumulator += elapsed;
+		int steps = 0;
+		while (this.accumulator >= this.timestep && steps < this.maxStepsPerFrame) {
+			this.board.step(this.timestep);
+			this.accumulator -= this.timestep;
+			steps++;
+			this.ticks++;
+		}
+
+		// Drop any remaining backlog rather than trying to catch up on the next frame.
+		if (this.accumulator >= this.timestep) {
+			this.droppedTicks += (long) (this.accumulator / this.timestep);
+			this.accumulator %= this.timestep;
+		}
+		checkRep();
+		return this.timestep - this.accumulator;
+	}
+
+	/**
+	 * Stops the simulation loop and waits for the tick currently being played, if any, to be completed.
+	 * Must not be called while holding a lock the board takes to play a tick, or from a tick played by
+	 * this engine.
+	 */
+	void stop() {
+		this.running.set(false);
+		final Thread worker = this.worker;
+		if (worker == null) return;
+		worker.interrupt();
+		this.join();
+	}
+
+	/**
+	 * Waits for the thread of a stopped simulation loop to end. Must not be called while holding a lock
+	 * the board takes to play a tick.
+	 */
+	void join() {
+		final Thread worker = this.worker;
+		if (worker == null) return;
+		boolean interrupted = false;
+		while (worker.isAlive()) {
+			try {
+				worker.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return true if the simulation loop is running
+	 */
+	boolean isRunning() {
+		return this.running.get();
+	}
+
+	/**
+	 * @return true if the thread of the simulation loop has started and not yet ended. The thread of a
+	 * 		stopped loop may still be completing its last tick.
+	 */
+	boolean isAlive() {
+		final Thread worker = this.worker;
+		return worker != null && worker.isAlive();
+	}
+
+	/**
+	 * @return the length of each tick in seconds
+	 */
+	double timestep() {
+		return this.timestep;
+	}
+
+	/**
+	 * @return the number of ticks that have been played
+	 */
+	long ticks() {
+		return this.ticks;
+	}
+
+	/**
+	 * @return the number of ticks that were skipped because the board could not keep up with real time
+	 */
+	long droppedTicks() {
+		return this.droppedTicks;
+	}
+
+	@Override
+	public String toString() {
+		return "SimulationEngine{board=" + board.NAME + ", timestep=" + timestep + ", ticks=" + ticks
+				+ ", droppedTicks=" + droppedTicks + "}";
+	}
+}
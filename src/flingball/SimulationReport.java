@@ -0,0 +1,191 @@
+package flingball;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import physics.Vect;
+
+/**
+ * An immutable summary of a headless simulation of a flingball board. A report records how many ticks
+ * were played, the length of each tick, how long the ticks took to play in real time, how often a ball
+ * reached the maximum number of collisions in one tick and the state of every ball on the board once
+ * play stopped.
+ */
+public class SimulationReport {
+
+	private final String board;
+	private final int ticks;
+	private final double timestep;
+	private final long elapsedNanos;
+	private final long collisionCapHits;
+	private final List<BallState> balls;
+
+	/*
+	 * AF(board, ticks, timestep, elapsedNanos, collisionCapHits, balls) ::= The board named board was played
+	 * 		for ticks ticks of timestep seconds each, which took elapsedNanos nanoseconds of real time. A ball
+	 * 		reached the maximum number of collisions per tick collisionCapHits times since the board was
+	 * 		created. balls holds the final state of each ball on the board.
+	 * Rep Invariant ::=
+	 * 		ticks >= 0
+	 * 		timestep > 0
+	 * 		elapsedNanos >= 0
+	 * 		collisionCapHits >= 0
+	 * Safety from rep exposure ::=
+	 * 		All fields are private and final. balls is an unmodifiable list of immutable BallStates.
+	 * Thread Safety Argument ::=
+	 * 		SimulationReport is immutable.
+	 */
+
+	private void checkRep() {
+		assert ticks >= 0 : "SimulationReport: ticks < 0";
+		assert timestep > 0 : "SimulationReport: timestep <= 0";
+		assert elapsedNanos >= 0 : "SimulationReport: elapsedNanos < 0";
+		assert collisionCapHits >= 0 : "SimulationReport: collisionCapHits < 0";
+	}
+
+	/**
+	 * Creates a report for board as it is after playing ticks ticks.
+	 * @param board board which was played
+	 * @param ticks number of ticks played. Must be >= 0
+	 * @param timestep length of each tick in seconds. Must be > 0
+	 * @param elapsedNanos real time taken to play the ticks in nanoseconds. Must be >= 0
+	 */
+	SimulationReport(Board board, int ticks, double timestep, long elapsedNanos) {
+		this.board = board.NAME;
+		this.ticks = ticks;
+		this.timestep = timestep;
+		this.elapsedNanos = elapsedNanos;
+		this.collisionCapHits = board.collisionCapHits();
+		final List<BallState> states = new ArrayList<BallState>();
+		for (Ball ball : board.getBalls()) {
+			states.add(new BallState(ball.name(), ball.getBoardCenter(), ball.getVelocity()));
+		}
+		this.balls = Collections.unmodifiableList(states);
+		checkRep();
+	}
+
+	/**
+	 * @return the name of the board which was played
+	 */
+	public String board() {
+		return this.board;
+	}
+
+	/**
+	 * @return the number of ticks played
+	 */
+	public int ticks() {
+		return this.ticks;
+	}
+
+	/**
+	 * @return the length of each tick in seconds
+	 */
+	public double timestep() {
+		return this.timestep;
+	}
+
+	/**
+	 * @return the length of time simulated in seconds
+	 */
+	public double simulatedSeconds() {
+		return this.ticks * this.timestep;
+	}
+
+	/**
+	 * @return the real time taken to play every tick in nanoseconds
+	 */
+	public long elapsedNanos() {
+		return this.elapsedNanos;
+	}
+
+	/**
+	 * @return the number of times a ball stopped moving for the rest of a tick because it reached the
+	 * 		maximum number of collisions per tick
+	 */
+	public long collisionCapHits() {
+		return this.collisionCapHits;
+	}
+
+	/**
+	 * @return the state of every ball on the board when play stopped
+	 */
+	public List<BallState> balls() {
+		return this.balls;
+	}
+
+	/**
+	 * Returns the report as one line of timing followed by one line for each ball. Each ball is written
+	 * using the ball syntax of a flingball board file.
+	 */
+	@Override
+	public String toString() {
+		final double elapsedMillis = this.elapsedNanos / 1e6;
+		final StringBuilder result = new StringBuilder();
+		result.append(String.format("board %s ticks=%d timestep=%s simulated=%.3fs elapsed=%.3fms",
+				this.board, this.ticks, this.timestep, this.simulatedSeconds(), elapsedMillis));
+		if (this.elapsedNanos > 0) {
+			result.append(String.format(" (%.1fx real time)", this.simulatedSeconds() * 1e9 / this.elapsedNanos));
+		}
+		if (this.collisionCapHits > 0) {
+			result.append(" capped=" + this.collisionCapHits);
+		}
+		for (BallState ball : this.balls) {
+			result.append("\n").append(ball);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * The position and velocity of a ball when play stopped.
+	 */
+	public static class BallState {
+		private final String name;
+		private final Vect center;
+		private final Vect velocity;
+
+		/*
+		 * AF(name, center, velocity) ::= The ball named name centered at center on the board moving with
+		 * 		velocity in L / s. Both are given in board coordinates.
+		 * Rep Invariant ::= true
+		 * Safety from rep exposure ::=
+		 * 		All fields are private, final and immutable.
+		 * Thread Safety Argument ::=
+		 * 		BallState is immutable.
+		 */
+
+		private BallState(String name, Vect center, Vect velocity) {
+			this.name = name;
+			this.center = center;
+			this.velocity = velocity;
+		}
+
+		/**
+		 * @return the name of the ball
+		 */
+		public String name() {
+			return this.name;
+		}
+
+		/**
+		 * @return the center of the ball in board coordinates
+		 */
+		public Vect center() {
+			return this.center;
+		}
+
+		/**
+		 * @return the velocity of the ball in board coordinates
+		 */
+		public Vect velocity() {
+			return this.velocity;
+		}
+
+		@Override
+		public String toString() {
+			return "ball name=" + this.name + " x=" + this.center.x() + " y=" + this.center.y()
+				+ " xVelocity=" + this.velocity.x() + " yVelocity=" + this.velocity.y();
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package flingball;
+
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import flingball.gadgets.Gadget;
+
+/**
+ * A SpriteCache holds the images used to draw gadgets and balls so that they are generated once instead of
+ * every frame. Each gadget keeps the image it was last drawn with until it is drawn in a different state or
+ * at a different scale. Gadgets which look the same, for example every square bumper or every left flipper
+ * with the same orientation and keyframe, share one image.
+ *
+ * A SpriteCache is used by a single drawing thread.
+ */
+class SpriteCache {
+
+	private final Map<Gadget, Sprite> gadgets = new IdentityHashMap<Gadget, Sprite>();
+	private final Map<String, BufferedImage> images = new HashMap<String, BufferedImage>();
+	private final Map<String, BufferedImage> balls = new HashMap<String, BufferedImage>();
+	// Image of the last ball drawn, as most balls have the same radius
+	private double lastRadius = 0;
+	private int lastL = 0;
+	private BufferedImage lastBall = null;
+
+	/*
+	 * AF(gadgets, images, balls, lastRadius, lastL, lastBall) ::= The gadget g was last drawn as gadgets.get(g).image in state
+	 * 		gadgets.get(g).state at scale gadgets.get(g).L. images maps g.appearance(state) + "@" + L to the image
+	 * 		of every gadget g in state at scale L. balls maps radius + "@" + L to the image of a ball with that
+	 * 		radius at scale L. lastBall is the image of a ball with radius lastRadius at scale lastL.
+	 * Rep Invariant ::=
+	 * 		no key or value is null
+	 * 		lastBall is null or the value of balls for lastRadius and lastL
+	 * 		gadgets.get(g).image is the value of images for gadgets.get(g).state and gadgets.get(g).L
+	 * Safety from rep exposure ::=
+	 * 		The maps are never returned. Images are returned so they can be drawn and must not be modified.
+	 * Thread Safety Argument ::=
+	 * 		SpriteCache is not thread safe. It is only used by the thread drawing a board.
+	 */
+
+	private void checkRep() {
+		for (Map.Entry<Gadget, Sprite> entry : gadgets.entrySet()) {
+			final Sprite sprite = entry.getValue();
+			assert sprite.image == images.get(key(entry.getKey().appearance(sprite.state), sprite.L)) :
+				"SpriteCache: stale sprite for " + entry.getKey();
+		}
+	}
+
+	/**
+	 * @param gadget gadget to be drawn
+	 * @param state state of the gadget returned by gadget.state()
+	 * @param L number of pixels in one L
+	 * @return an image of gadget in state at scale L, the same as gadget.generate(L, state). Must not be modified
+	 */
+	BufferedImage gadget(Gadget gadget, int state, int L) {
+		final Sprite sprite = this.gadgets.get(gadget);
+		if (sprite != null && sprite.state == state && sprite.L == L) {
+			return sprite.image;
+		}
+		final String key = key(gadget.appearance(state), L);
+		BufferedImage image = this.images.get(key);
+		if (image == null) {
+			image = gadget.generate(L, state);
+			this.images.put(key, image);
+		}
+		this.gadgets.put(gadget, new Sprite(state, L, image));
+		checkRep();
+		return image;
+	}
+
+	/**
+	 * @param radius radius of a ball
+	 * @param L number of pixels in one L
+	 * @return an image of a ball with radius at scale L, the same as Ball.generate(L, radius). Must not be modified
+	 */
+	BufferedImage ball(double radius, int L) {
+		if (this.lastBall != null && radius == this.lastRadius && L == this.lastL) {
+			return this.lastBall;
+		}
+		final String key = key(Double.toString(radius), L);
+		BufferedImage image = this.balls.get(key);
+		if (image == null) {
+			image = Ball.generate(L, radius);
+			this.balls.put(key, image);
+		}
+		this.lastRadius = radius;
+		this.lastL = L;
+		this.lastBall = image;
+		return image;
+	}
+
+	/**
+	 * @return the number of distinct gadget and ball images held by the cache
+	 */
+	int size() {
+		return this.images.size() + this.balls.size();
+	}
+
+	private static String key(String appearance, int L) {
+		return appearance + "@" + L;
+	}
+
+	/**
+	 * The image a gadget was last drawn with
+	 */
+	private static class Sprite {
+		private final int state;
+		private final int L;
+		private final BufferedImage image;
+
+		private Sprite(int state, int L, BufferedImage image) {
+			this.state = state;
+			this.L = L;
+			this.image = image;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "SpriteCache{" + this.gadgets.size() + " gadgets, " + this.size() + " images}";
+	}
+}
@@ -0,0 +1,414 @@
+package flingball;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import flingball.gadgets.Absorber;
+import flingball.gadgets.CircleBumper;
+import flingball.gadgets.Gadget;
+import flingball.gadgets.SquareBumper;
+import flingball.gadgets.TriangleBumper;
+import flingball.gadgets.Wall;
+import flingball.physics.Collisions;
+import flingball.physics.ParabolicCollisions;
+import flingball.physics.PhysicsContext;
+import physics.Circle;
+import physics.Vect;
+
+/**
+ * StaticGeometry is the collision geometry of a flingball board compiled into flat arrays. The walls
+ * of every gadget which never moves are packed into an array of line segments, and the corners of those
+ * walls and the circles of circle bumpers into an array of circles. Each segment and circle is tagged
+ * with the gadget which owns it. Collisions with this geometry are found by a primitive loop over the
+ * arrays which allocates nothing and computes exactly the same times as <code>Gadget.collisionTime</code>.
+ * Boards which predict collisions along the curved path of a ball use ParabolicCollisions instead of
+ * Collisions for the same arrays.
+ *
+ * Gadgets which move, such as flippers, triangle bumpers rotated by an action and portals, are not
+ * compiled. They are still asked for their collision time. Cells are visited in the same order as
+ * <code>GadgetIndex.candidates</code>, so when two gadgets are hit at the same time the gadget found is
+ * the same gadget the index would have found.
+ */
+class StaticGeometry {
+
+	// Shared by every empty cell so large sparse boards do not hold an array per cell
+	private static final int[] NO_OWNERS = new int[0];
+
+	// Packed x1, y1, x2, y2 of every segment in cartesian coordinates
+	private final double[] segments;
+	// Packed x, y, radius of every circle in cartesian coordinates
+	private final double[] circles;
+	private final int[] segmentStart;
+	private final int[] circleStart;
+	private final Gadget[] owners;
+	private final boolean[] compiled;
+	private final boolean[] absorbers;
+	// Packed first column, first row, last column and last row covered by every owner
+	private final int[] bounds;
+	private final int[][] cells;
+	// Chebyshev distance in cells from every cell to the nearest cell which is covered or off the board
+	private final int[] clearance;
+	private final int[] walls;
+	private final int width, height;
+
+	/*
+	 * AF(segments, circles, segmentStart, circleStart, owners, compiled, absorbers, bounds, cells, clearance,
+	 * 		walls) ::=
+	 * 		The collision geometry of a board width cells wide and height cells high. The gadget owners[i]
+	 * 		owns the segments between segmentStart[i] and segmentStart[i + 1] and the circles between
+	 * 		circleStart[i] and circleStart[i + 1] if compiled[i], otherwise it is asked for its collision time.
+	 * 		Absorbers never collide with a ball which overlaps them. cells[x + y * width] lists the owners
+	 * 		covering the cell (x, y) in the order they were added to the board and walls lists the owners
+	 * 		which are the outer walls of the board. The nearest cell to (x, y) which is covered by an owner
+	 * 		or lies off the board is clearance[x + y * width] cells away along a row, column or diagonal.
+	 * Rep Invariant ::=
+	 * 		segments.length == 4 * segmentStart[owners.length]
+	 * 		circles.length == 3 * circleStart[owners.length]
+	 * 		segmentStart and circleStart are non decreasing
+	 * 		owners which are not compiled own no segments or circles
+	 * 		cells.length == width * height
+	 * 		clearance.length == width * height and clearance[i] == 0 iff cells[i] is not empty
+	 * Safety from rep exposure ::=
+	 * 		All fields are private and are never returned. Gadgets are returned but are not part of the rep.
+	 * Thread Safety Argument ::=
+	 * 		StaticGeometry is never modified after it is compiled and the geometry it is compiled from is
+	 * 		immutable. Queries only write to the Hit passed in by the caller.
+	 */
+
+	private void checkRep() {
+		assert segments.length == 4 * segmentStart[owners.length] : "StaticGeometry: segment count";
+		assert circles.length == 3 * circleStart[owners.length] : "StaticGeometry: circle count";
+		for (int i = 0; i < owners.length; i++) {
+			assert segmentStart[i] <= segmentStart[i + 1] && circleStart[i] <= circleStart[i + 1];
+			assert compiled[i] || (segmentStart[i] == segmentStart[i + 1] && circleStart[i] == circleStart[i + 1]);
+		}
+		assert cells.length == width * height;
+		assert clearance.length == width * height;
+		for (int i = 0; i < cells.length; i++) {
+			assert (clearance[i] == 0) == (cells[i].length > 0) : "StaticGeometry: clearance of cell " + i;
+		}
+	}
+
+	/**
+	 * The result of a query. A Hit may be reused by many queries made from the same thread.
+	 */
+	static class Hit {
+		/**
+		 * Time in seconds until the collision found by the last query or POSITIVE_INFINITY if none was found
+		 */
+		double time = Double.POSITIVE_INFINITY;
+		/**
+		 * Number of collision times computed with this Hit: gadgets tested by every query made with it, and
+		 * balls tested by a caller which counts them here
+		 */
+		long queries = 0;
+		private final double[] area = new double[4];
+	}
+
+	/**
+	 * Compiles the geometry of a board.
+	 *
+	 * @param index broadphase holding every gadget on the board
+	 * @param walls outer walls of the board
+	 * @param moving gadgets whose geometry may change during play. Gadgets other than walls, square,
+	 * 		circle and triangle bumpers and absorbers are never compiled.
+	 */
+	StaticGeometry(GadgetIndex index, Collection<Wall> walls, Set<Gadget> moving) {
+		this.width = index.width();
+		this.height = index.height();
+
+		// Number the gadgets in the order they are first found in the cells
+		final Map<Gadget, Integer> ids = new IdentityHashMap<Gadget, Integer>();
+		final List<Gadget> owners = new ArrayList<Gadget>();
+		final List<int[]> bounds = new ArrayList<int[]>();
+		this.cells = new int[this.width * this.height][];
+		for (int y = 0; y < this.height; y++) {
+			for (int x = 0; x < this.width; x++) {
+				final Gadget[] cell = index.cell(x, y);
+				if (cell.length == 0) {
+					this.cells[x + y * this.width] = NO_OWNERS;
+					continue;
+				}
+				final int[] cellIds = new int[cell.length];
+				for (int i = 0; i < cell.length; i++) {
+					Integer id = ids.get(cell[i]);
+					if (id == null) {
+						id = owners.size();
+						ids.put(cell[i], id);
+						owners.add(cell[i]);
+						bounds.add(new int[] {x, y, x, y});
+					}
+					bounds.get(id)[2] = Math.max(bounds.get(id)[2], x);
+					bounds.get(id)[3] = Math.max(bounds.get(id)[3], y);
+					cellIds[i] = id;
+				}
+				this.cells[x + y * this.width] = cellIds;
+			}
+		}
+		this.clearance = clearance(this.cells, this.width, this.height);
+		this.walls = new int[walls.size()];
+		int w = 0;
+		for (Wall wall : walls) {
+			this.walls[w++] = owners.size();
+			owners.add(wall);
+			bounds.add(new int[] {0, 0, this.width - 1, this.height - 1});
+		}
+
+		final int n = owners.size();
+		this.owners = owners.toArray(new Gadget[n]);
+		this.compiled = new boolean[n];
+		this.absorbers = new boolean[n];
+		this.bounds = new int[4 * n];
+		this.segmentStart = new int[n + 1];
+		this.circleStart = new int[n + 1];
+		final List<double[]> segments = new ArrayList<double[]>();
+		final List<double[]> circles = new ArrayList<double[]>();
+		for (int i = 0; i < n; i++) {
+			System.arraycopy(bounds.get(i), 0, this.bounds, 4 * i, 4);
+			this.segmentStart[i] = segments.size();
+			this.circleStart[i] = circles.size();
+			final Gadget owner = this.owners[i];
+			final List<Wall> parts;
+			if (moving.contains(owner)) {
+				continue;
+			} else if (owner instanceof Wall) {
+				parts = Arrays.asList((Wall) owner);
+			} else if (owner instanceof SquareBumper) {
+				parts = ((SquareBumper) owner).walls();
+			} else if (owner instanceof TriangleBumper) {
+				parts = ((TriangleBumper) owner).walls();
+			} else if (owner instanceof Absorber) {
+				parts = ((Absorber) owner).walls();
+				this.absorbers[i] = true;
+			} else if (owner instanceof CircleBumper) {
+				final Circle circle = ((CircleBumper) owner).circle();
+				parts = new ArrayList<Wall>();
+				circles.add(new double[] {circle.getCenter().x(), circle.getCenter().y(), circle.getRadius()});
+			} else {
+				continue;
+			}
+			for (Wall wall : parts) {
+				final Vect start = wall.start();
+				final Vect end = wall.end();
+				segments.add(new double[] {start.x(), start.y(), end.x(), end.y()});
+				addCorner(start, circles, this.circleStart[i]);
+				addCorner(end, circles, this.circleStart[i]);
+			}
+			this.compiled[i] = true;
+		}
+		this.segmentStart[n] = segments.size();
+		this.circleStart[n] = circles.size();
+		this.segments = flatten(segments, 4);
+		this.circles = flatten(circles, 3);
+		checkRep();
+	}
+
+	/**
+	 * Adds a zero radius circle at corner unless there is already one at corner after first. Corners
+	 * shared by two walls of a gadget are only added once since they collide at the same time.
+	 */
+	private static void addCorner(Vect corner, List<double[]> circles, int first) {
+		for (int i = first; i < circles.size(); i++) {
+			final double[] circle = circles.get(i);
+			if (circle[0] == corner.x() && circle[1] == corner.y() && circle[2] == 0) return;
+		}
+		circles.add(new double[] {corner.x(), corner.y(), 0});
+	}
+
+	/**
+	 * Computes the Chebyshev distance from every cell to the nearest cell which is covered or lies off the
+	 * board in one pass forwards and one pass backwards over the cells.
+	 */
+	private static int[] clearance(int[][] cells, int width, int height) {
+		final int[] result = new int[width * height];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				result[x + y * width] = cells[x + y * width].length > 0 ? 0
+						: Math.min(Math.min(x + 1, width - x), Math.min(y + 1, height - y));
+			}
+		}
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int d = result[x + y * width];
+				if (x > 0) d = Math.min(d, result[x - 1 + y * width] + 1);
+				if (y > 0) {
+					for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, width - 1); i++) {
+						d = Math.min(d, result[i + (y - 1) * width] + 1);
+					}
+				}
+				result[x + y * width] = d;
+			}
+		}
+		for (int y = height - 1; y >= 0; y--) {
+			for (int x = width - 1; x >= 0; x--) {
+				int d = result[x + y * width];
+				if (x < width - 1) d = Math.min(d, result[x + 1 + y * width] + 1);
+				if (y < height - 1) {
+					for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, width - 1); i++) {
+						d = Math.min(d, result[i + (y + 1) * width] + 1);
+					}
+				}
+				result[x + y * width] = d;
+			}
+		}
+		return result;
+	}
+
+	private static double[] flatten(List<double[]> parts, int stride) {
+		final double[] result = new double[parts.size() * stride];
+		for (int i = 0; i < parts.size(); i++) {
+			System.arraycopy(parts.get(i), 0, result, i * stride, stride);
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the gadget with which a ball will collide first out of every gadget the ball could reach while
+	 * moving for the given amount of time. The outer walls of the board are not checked.
+	 *
+	 * @param ball ball which is moving
+	 * @param time time in seconds during which the ball moves
+	 * @param physics physics of the board
+	 * @param ignore gadget whose collisions at or before ignoreBefore are ignored, or null
+	 * @param ignoreBefore time in seconds
+	 * @param hit set to the time until the collision
+	 * @return the gadget with which ball collides first or null if ball will not collide with any gadget
+	 */
+	Gadget earliest(Ball ball, double time, PhysicsContext physics, Gadget ignore, double ignoreBefore, Hit hit) {
+		final double[] area = hit.area;
+		GadgetIndex.sweptArea(ball, time, physics.gravity(), physics.friction1(), physics.friction2(), area);
+		final int x1 = Math.max((int) Math.floor(area[0]), 0);
+		final int y1 = Math.max((int) Math.floor(area[1]), 0);
+		final int x2 = Math.min((int) Math.floor(area[2]), this.width - 1);
+		final int y2 = Math.min((int) Math.floor(area[3]), this.height - 1);
+
+		final double a = ball.boardX();
+		final double b = -ball.boardY();
+		final double va = ball.velocityX();
+		final double vb = -ball.velocityY();
+		final double radius = ball.getRadius();
+		final double aa = ParabolicCollisions.accelerationX(va, vb, physics);
+		final double ab = ParabolicCollisions.accelerationY(va, vb, physics);
+
+		double earliest = Double.POSITIVE_INFINITY;
+		int next = -1;
+		for (int j = y1; j <= y2; j++) {
+			for (int i = x1; i <= x2; i++) {
+				final int[] cell = this.cells[i + j * this.width];
+				for (int k = 0; k < cell.length; k++) {
+					final int owner = cell[k];
+					// Gadgets larger than 1L x 1L are only tested in the first of their cells which is visited
+					if (Math.max(this.bounds[4 * owner], x1) != i || Math.max(this.bounds[4 * owner + 1], y1) != j) continue;
+					final double t = this.collisionTime(owner, ball, physics, a, b, va, vb, aa, ab, radius, earliest, hit);
+					if (this.owners[owner] == ignore && t <= ignoreBefore) continue;
+					if (t < earliest) {
+						earliest = t;
+						next = owner;
+					}
+				}
+			}
+		}
+		hit.time = earliest;
+		return next < 0 ? null : this.owners[next];
+	}
+
+	/**
+	 * Finds the outer wall of the board with which a ball will collide first.
+	 *
+	 * @param ball ball which is moving
+	 * @param physics physics of the board
+	 * @param ignore wall whose collisions at or before ignoreBefore are ignored, or null
+	 * @param ignoreBefore time in seconds
+	 * @param hit set to the time until the collision
+	 * @return the wall with which ball collides first or null if ball will not collide with any wall
+	 */
+	Gadget earliestWall(Ball ball, PhysicsContext physics, Gadget ignore, double ignoreBefore, Hit hit) {
+		final double a = ball.boardX();
+		final double b = -ball.boardY();
+		final double va = ball.velocityX();
+		final double vb = -ball.velocityY();
+		final double radius = ball.getRadius();
+		final double aa = ParabolicCollisions.accelerationX(va, vb, physics);
+		final double ab = ParabolicCollisions.accelerationY(va, vb, physics);
+
+		double earliest = Double.POSITIVE_INFINITY;
+		int next = -1;
+		for (int owner : this.walls) {
+			final double t = this.collisionTime(owner, ball, physics, a, b, va, vb, aa, ab, radius, earliest, hit);
+			if (this.owners[owner] == ignore && t <= ignoreBefore) continue;
+			if (t < earliest) {
+				earliest = t;
+				next = owner;
+			}
+		}
+		hit.time = earliest;
+		return next < 0 ? null : this.owners[next];
+	}
+
+	/**
+	 * Finds how far a point can move in any direction before it reaches a cell which is covered by a gadget
+	 * or leaves the board. A ball whose center is closer than its radius to such a cell may be touching a
+	 * gadget or an outer wall.
+	 *
+	 * @param x x coordinate of the point in board coordinates
+	 * @param y y coordinate of the point in board coordinates
+	 * @return distance in L which is at most the distance from (x, y) to every gadget and outer wall, or 0 if
+	 * 		the point is in a covered cell or off the board
+	 */
+	double clearance(double x, double y) {
+		final int i = Math.min(Math.max((int) Math.floor(x), 0), this.width - 1);
+		final int j = Math.min(Math.max((int) Math.floor(y), 0), this.height - 1);
+		final int k = this.clearance[i + j * this.width];
+		if (k == 0) return 0;
+		// Every covered cell lies outside the square of cells less than k away from (i, j)
+		final double horizontal = Math.min(x - (i - k + 1), (i + k) - x);
+		final double vertical = Math.min(y - (j - k + 1), (j + k) - y);
+		return Math.max(0, Math.min(horizontal, vertical));
+	}
+
+	/**
+	 * Calculates the time until a ball at (a, b) in cartesian coordinates moving with velocity (va, vb)
+	 * collides with an owner. If physics predicts collisions along the curved path of the ball, the ball
+	 * accelerates at (aa, ab).
+	 * @param earliest time of the earliest collision found so far. Absorbers are only tested for overlap
+	 * 		if they would be hit before earliest
+	 */
+	private double collisionTime(int owner, Ball ball, PhysicsContext physics, double a, double b, double va, double vb,
+			double aa, double ab, double radius, double earliest, Hit hit) {
+		hit.queries++;
+		if (!this.compiled[owner]) {
+			return this.owners[owner].collisionTime(ball, physics);
+		}
+		final boolean parabolic = physics.parabolicPrediction();
+		final double horizon = ParabolicCollisions.horizon(physics);
+		double t = Double.POSITIVE_INFINITY;
+		for (int s = 4 * this.segmentStart[owner]; s < 4 * this.segmentStart[owner + 1]; s += 4) {
+			t = Math.min(t, parabolic
+					? ParabolicCollisions.timeUntilWallCollision(this.segments[s], this.segments[s + 1], this.segments[s + 2],
+							this.segments[s + 3], a, b, va, vb, aa, ab, radius, horizon)
+					: Collisions.timeUntilWallCollision(this.segments[s], this.segments[s + 1], this.segments[s + 2],
+							this.segments[s + 3], a, b, va, vb, radius));
+		}
+		for (int c = 3 * this.circleStart[owner]; c < 3 * this.circleStart[owner + 1]; c += 3) {
+			t = Math.min(t, parabolic
+					? ParabolicCollisions.timeUntilCircleCollision(this.circles[c], this.circles[c + 1], this.circles[c + 2],
+							a, b, va, vb, aa, ab, radius, horizon)
+					: Collisions.timeUntilCircleCollision(this.circles[c], this.circles[c + 1], this.circles[c + 2],
+							a, b, va, vb, radius));
+		}
+		if (this.absorbers[owner] && t < earliest && this.owners[owner].ballOverlap(ball)) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return t;
+	}
+
+	@Override
+	public String toString() {
+		return "StaticGeometry{" + this.segments.length / 4 + " segments, " + this.circles.length / 3 + " circles}";
+	}
+}
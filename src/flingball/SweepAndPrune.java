@@ -0,0 +1,412 @@
+package flingball;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A SweepAndPrune is a broadphase for collisions between balls. The area each ball can reach
+ * during a tick is bounded by a box. The left and right edges of every box are kept in a single
+ * list sorted along the x axis. Since balls move only a small distance each tick the order changes
+ * very little between ticks and is restored with an insertion sort.
+ *
+ * Two balls whose boxes overlap along the x axis are a pair. Pairs are kept from one tick to the
+ * next and only change when the insertion sort moves the edge of one box past the edge of another:
+ * a left edge moving before a right edge starts a pair and a right edge moving before a left edge
+ * ends one. A pair whose boxes also overlap along the y axis is a contact. The time until the two
+ * balls of a contact collide is computed once each tick when the boxes are updated and shared by
+ * both balls. A contact's time is only computed again once one of its balls has been invalidated,
+ * which happens whenever a collision changes the velocity of the ball.
+ */
+class SweepAndPrune {
+
+	// Boxes are grown by MARGIN so balls which are touching at the start of a tick are still compared
+	private static final double MARGIN = 0.05;
+
+	private final Map<Ball, Box> boxes = new IdentityHashMap<Ball, Box>();
+	private Edge[] edges = new Edge[0];
+	private int size = 0;
+	private int tick = 0;
+
+	/*
+	 * AF(boxes, edges, size, tick) ::= The bounding boxes of the balls in play, boxes.get(ball) being the
+	 * 		box of ball, during the tick-th update. edges[0..size-1] are the left and right edges of
+	 * 		every box sorted along the x axis.
+	 * Rep Invariant ::=
+	 * 		0 <= size <= edges.length and size == 2 * boxes.size()
+	 * 		edges[0..size-1] holds the left and right edge of every box in boxes exactly once
+	 * 		edges[i] is not after edges[i+1] for 0 <= i < size - 1
+	 * 		every pair of a box appears in the pairs of both of its boxes
+	 * Safety from rep exposure ::=
+	 * 		boxes, edges and pairs are never returned. partners() returns a new list.
+	 * Thread Safety Argument ::=
+	 * 		All methods are synchronized.
+	 */
+
+	private void checkRep() {
+		assert 0 <= size && size <= edges.length : "SweepAndPrune: size";
+		assert size == 2 * boxes.size() : "SweepAndPrune: edges missing";
+		for (int i = 0; i < size - 1; i++) {
+			assert !edges[i + 1].before(edges[i]) : "SweepAndPrune: edges out of order";
+		}
+	}
+
+	/**
+	 * Updates the bounding box of every ball for the next tick and finds every pair of balls which
+	 * may collide during the tick. Balls which are no longer in play are removed and new balls
+	 * are added.
+	 *
+	 * @param balls every ball in play on the board
+	 * @param time length of the tick in seconds
+	 * @param gravity gravity on the board in L / s^2
+	 */
+	synchronized void update(Collection<Ball> balls, double time, double gravity) {
+		this.tick++;
+		int seen = 0;
+		for (Ball ball : balls) {
+			Box box = this.boxes.get(ball);
+			if (box == null) {
+				box = new Box(ball);
+				this.boxes.put(ball, box);
+				// A new box starts after every other box and is moved into place by the sort
+				this.append(box.left);
+				this.append(box.right);
+			}
+			box.tick = this.tick;
+			box.update(time, gravity);
+			seen++;
+		}
+
+		// Remove balls no longer in play while keeping the remaining edges in order
+		if (seen < this.boxes.size()) {
+			int kept = 0;
+			for (int i = 0; i < this.size; i++) {
+				final Edge edge = this.edges[i];
+				if (edge.box.tick == this.tick) {
+					this.edges[kept++] = edge;
+				} else if (edge.left) {
+					this.remove(edge.box);
+				}
+			}
+			Arrays.fill(this.edges, kept, this.size, null);
+			this.size = kept;
+		}
+
+		// Insertion sort. Nearly linear since the order is almost unchanged from the previous tick.
+		for (int i = 1; i < this.size; i++) {
+			final Edge edge = this.edges[i];
+			int j = i - 1;
+			while (j >= 0 && edge.before(this.edges[j])) {
+				final Edge passed = this.edges[j];
+				if (edge.left && !passed.left) {
+					// The box of edge now starts before the box of passed ends
+					pair(edge.box, passed.box);
+				} else if (!edge.left && passed.left) {
+					// The box of edge now ends before the box of passed starts
+					unpair(edge.box, passed.box);
+				}
+				this.edges[j + 1] = passed;
+				j--;
+			}
+			this.edges[j + 1] = edge;
+		}
+
+		// Boxes are numbered by their left edge. The partners of a ball are listed in that order.
+		int order = 0;
+		for (int i = 0; i < this.size; i++) {
+			if (this.edges[i].left) {
+				this.edges[i].box.order = order++;
+			}
+		}
+		for (int i = 0; i < this.size; i++) {
+			if (this.edges[i].left) {
+				this.edges[i].box.findContacts(this.tick);
+			}
+		}
+		checkRep();
+	}
+
+	/**
+	 * @param ball a ball on the board
+	 * @return the number of balls which may collide with ball during the current tick
+	 */
+	synchronized int partnerCount(Ball ball) {
+		final Box box = this.boxes.get(ball);
+		return box == null ? 0 : box.contactCount;
+	}
+
+	/**
+	 * @param ball a ball on the board
+	 * @param i index of a partner of ball. Must be 0 <= i < partnerCount(ball)
+	 * @return the i-th ball which may collide with ball during the current tick
+	 */
+	synchronized Ball partner(Ball ball, int i) {
+		return this.boxes.get(ball).contacts[i].other(ball);
+	}
+
+	/**
+	 * @param ball a ball on the board
+	 * @return a new list of every ball which may collide with ball during the current tick
+	 */
+	synchronized List<Ball> partners(Ball ball) {
+		final int count = this.partnerCount(ball);
+		final List<Ball> result = new ArrayList<Ball>(count);
+		for (int i = 0; i < count; i++) {
+			result.add(this.partner(ball, i));
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the time until two balls collide. The time is computed once for each pair of balls and
+	 * reused until either ball is invalidated.
+	 *
+	 * @param ball a ball on the board
+	 * @param other a partner of ball
+	 * @param elapsed time in seconds which ball has already been played during the current tick
+	 * @return time in seconds from now until the two balls collide or Double.POSITIVE_INFINITY if they
+	 * 		do not collide or are not partners.
+	 */
+	synchronized double timeUntilCollision(Ball ball, Ball other, double elapsed) {
+		final int count = this.partnerCount(ball);
+		for (int i = 0; i < count; i++) {
+			if (this.partner(ball, i) == other) {
+				return this.timeUntilCollision(ball, i, elapsed);
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Finds the time until ball collides with its i-th partner. The time is computed once for each pair
+	 * of balls and reused until either ball is invalidated.
+	 *
+	 * @param ball a ball on the board
+	 * @param i index of a partner of ball. Must be 0 <= i < partnerCount(ball)
+	 * @param elapsed time in seconds which ball has already been played during the current tick
+	 * @return time in seconds from now until the two balls collide or Double.POSITIVE_INFINITY if they
+	 * 		do not collide.
+	 */
+	synchronized double timeUntilCollision(Ball ball, int i, double elapsed) {
+		final Pair contact = this.boxes.get(ball).contacts[i];
+		if (contact.stale) {
+			contact.time = elapsed + ball.timeUntilBallCollision(contact.other(ball));
+			contact.stale = false;
+		}
+		final double time = contact.time - elapsed;
+		// A collision in the past has already been handled by the other ball
+		return time < 0 ? Double.POSITIVE_INFINITY : time;
+	}
+
+	/**
+	 * Marks every contact of a ball as stale. Must be called whenever the velocity of the ball changes
+	 * other than through gravity and friction.
+	 * @param ball ball whose velocity has changed
+	 */
+	synchronized void invalidate(Ball ball) {
+		final Box box = this.boxes.get(ball);
+		if (box == null) return;
+		for (int i = 0; i < box.contactCount; i++) {
+			box.contacts[i].stale = true;
+		}
+	}
+
+	/**
+	 * @return the number of pairs of balls which may collide during the current tick
+	 */
+	synchronized int contactCount() {
+		int count = 0;
+		for (Box box : this.boxes.values()) {
+			count += box.contactCount;
+		}
+		return count / 2;
+	}
+
+	private void append(Edge edge) {
+		if (this.size == this.edges.length) {
+			this.edges = Arrays.copyOf(this.edges, Math.max(2, 2 * this.edges.length));
+		}
+		this.edges[this.size++] = edge;
+	}
+
+	/**
+	 * Removes box and every pair it is part of.
+	 */
+	private void remove(Box box) {
+		for (int i = 0; i < box.pairCount; i++) {
+			box.pairs[i].other(box).removePair(box.pairs[i]);
+		}
+		box.pairCount = 0;
+		box.contactCount = 0;
+		this.boxes.remove(box.ball);
+	}
+
+	/**
+	 * Starts a pair for two boxes which have started to overlap along the x axis.
+	 */
+	private static void pair(Box first, Box second) {
+		final Pair pair = new Pair(first, second);
+		first.addPair(pair);
+		second.addPair(pair);
+	}
+
+	/**
+	 * Ends the pair of two boxes which no longer overlap along the x axis.
+	 */
+	private static void unpair(Box first, Box second) {
+		for (int i = 0; i < first.pairCount; i++) {
+			final Pair pair = first.pairs[i];
+			if (pair.other(first) == second) {
+				first.removePair(pair);
+				second.removePair(pair);
+				return;
+			}
+		}
+		assert false : "SweepAndPrune: ended a pair which was not started";
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "SweepAndPrune{balls=" + this.boxes.size() + ", contacts=" + this.contactCount() + "}";
+	}
+
+	/**
+	 * The left or right edge of a box.
+	 */
+	private static class Edge {
+		private final Box box;
+		private final boolean left;
+		private double x;
+
+		private Edge(Box box, boolean left) {
+			this.box = box;
+			this.left = left;
+		}
+
+		/**
+		 * @return true if this edge is sorted before other. A left edge is sorted before a right edge at
+		 * 		the same x, so boxes which touch overlap.
+		 */
+		private boolean before(Edge other) {
+			return this.x < other.x || (this.x == other.x && this.left && !other.left);
+		}
+	}
+
+	/**
+	 * The area a ball can reach during a tick. The box is centered on the ball and large enough to
+	 * contain the ball no matter how a collision changes its direction during the tick. The pairs and
+	 * contacts of a box are kept in arrays which are reused from tick to tick.
+	 */
+	private static class Box {
+		private final Ball ball;
+		private final Edge left = new Edge(this, true);
+		private final Edge right = new Edge(this, false);
+		private double minY, maxY;
+		// The last update the ball was in play for
+		private int tick;
+		// Position of the box in order of left edges
+		private int order;
+		private Pair[] pairs = new Pair[4];
+		private int pairCount = 0;
+		private Pair[] contacts = new Pair[4];
+		private int contactCount = 0;
+
+		private Box(Ball ball) {
+			this.ball = ball;
+		}
+
+		private void update(double time, double gravity) {
+			final double x = ball.boardX();
+			final double y = ball.boardY();
+			final double reach = ball.speed() * time + Math.abs(gravity) * time * time + ball.getRadius() + MARGIN;
+			this.left.x = x - reach;
+			this.right.x = x + reach;
+			this.minY = y - reach;
+			this.maxY = y + reach;
+		}
+
+		private void addPair(Pair pair) {
+			if (this.pairCount == this.pairs.length) {
+				this.pairs = Arrays.copyOf(this.pairs, 2 * this.pairs.length);
+			}
+			this.pairs[this.pairCount++] = pair;
+		}
+
+		private void removePair(Pair pair) {
+			for (int i = 0; i < this.pairCount; i++) {
+				if (this.pairs[i] == pair) {
+					this.pairs[i] = this.pairs[--this.pairCount];
+					this.pairs[this.pairCount] = null;
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Finds the contacts of this box among its pairs, in order of the other box, and computes the
+		 * time of each contact not yet seen during this update.
+		 */
+		private void findContacts(int tick) {
+			this.contactCount = 0;
+			for (int i = 0; i < this.pairCount; i++) {
+				final Pair pair = this.pairs[i];
+				if (pair.tick != tick) {
+					pair.update(tick);
+				}
+				if (!pair.near) continue;
+				if (this.contactCount == this.contacts.length) {
+					this.contacts = Arrays.copyOf(this.contacts, 2 * this.contacts.length);
+				}
+				// Insertion sort by the order of the other box. Contacts are few.
+				int j = this.contactCount++;
+				while (j > 0 && this.contacts[j - 1].other(this).order > pair.other(this).order) {
+					this.contacts[j] = this.contacts[j - 1];
+					j--;
+				}
+				this.contacts[j] = pair;
+			}
+			Arrays.fill(this.contacts, this.contactCount, this.contacts.length, null);
+		}
+	}
+
+	/**
+	 * Two boxes which overlap along the x axis. The pair is a contact during an update if the boxes also
+	 * overlap along the y axis. time is the time from the start of the tick until the two balls collide
+	 * and is computed when the boxes are updated or when the contact is stale.
+	 */
+	private static class Pair {
+		private final Box a, b;
+		// The last update near and time were found for
+		private int tick = 0;
+		private boolean near;
+		private double time;
+		private boolean stale;
+
+		private Pair(Box a, Box b) {
+			this.a = a;
+			this.b = b;
+		}
+
+		private void update(int tick) {
+			this.tick = tick;
+			this.near = this.a.minY <= this.b.maxY && this.b.minY <= this.a.maxY;
+			if (this.near) {
+				// Measured from the ball whose box starts first along the x axis
+				final Box first = this.a.order < this.b.order ? this.a : this.b;
+				this.time = first.ball.timeUntilBallCollision(this.other(first).ball);
+				this.stale = false;
+			}
+		}
+
+		private Box other(Box box) {
+			return box == this.a ? this.b : this.a;
+		}
+
+		private Ball other(Ball ball) {
+			return ball == this.a.ball ? this.b.ball : this.a.ball;
+		}
+	}
+}
@@ -0,0 +1,323 @@
+package flingball;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A World plays many flingball boards in a single JVM. Boards in a world can be joined along their outer
+ * walls and their portals can be connected to portals on other boards in the world, just as boards which
+ * are connected to a FlingballServer.
+ *
+ * Every tick of the world has two phases. In the first phase every board plays one tick in parallel on a
+ * ForkJoinPool. Boards do not touch each other during this phase. Instead a ball which crosses a joined
+ * wall or enters a connected portal is removed from its board and a request is recorded, using the same
+ * protocol a board uses to talk to the server. In the second phase the requests are delivered from a
+ * single thread, board by board in the order the boards were added and request by request in the order
+ * they were made. Balls which changed board therefore start moving on their new board in the next tick
+ * and the world is played the same way no matter how many threads are used.
+ *
+ * A request which cannot be delivered, such as a ball leaving through a wall whose neighbor is not in the
+ * world, is reported on standard error and the ball is lost, as it is by a FlingballServer.
+ *
+ * A world owns the threads which play its boards. They are stopped by close().
+ */
+public class World implements AutoCloseable {
+
+	private final ForkJoinPool pool;
+	private final List<Board> boards = new ArrayList<Board>();
+	private final Map<String, Board> names = new HashMap<String, Board>();
+	private final Map<Board, List<String>> requests = new HashMap<Board, List<String>>();
+	// Map(board name, Map(Connected border, connected board name))
+	private final Map<String, Map<Border, String>> neighbors = new HashMap<String, Map<Border, String>>();
+	// Map(board name/portal name, target board name/target portal name)
+	private final Map<String, String> portals = new HashMap<String, String>();
+	private double timestep = Board.DEFAULT_TIMESTEP;
+
+	/*
+	 * AF(pool, boards, requests, neighbors, portals) ::= The boards in boards played by the threads of pool.
+	 * 		requests holds the requests each board made during the current tick. Two boards are joined
+	 * 		if they are neighbors and a portal is connected to the portal it maps to in portals.
+	 * Rep Invariant ::=
+	 * 		No two boards have the same name and names maps each name to its board
+	 * 		Every board has a list of requests and an entry in neighbors
+	 * 		Board connections are symmetric
+	 * 		timestep > 0
+	 * Safety from rep exposure ::=
+	 * 		All fields are private. Boards are added by the client and are not returned.
+	 * Thread Safety Argument ::=
+	 * 		A world is played by one thread at a time and is not played once it is closed. During the parallel phase each board is played by
+	 * 		exactly one task and its list of requests is only written by that task. The lists are only read
+	 * 		once ForkJoinPool.invoke has returned, which happens after every task is complete.
+	 */
+
+	private void checkRep() {
+		assert boards.size() == names.size() : "World: duplicate board name";
+		for (Board board : boards) {
+			assert names.get(board.NAME) == board;
+			assert requests.containsKey(board) && neighbors.containsKey(board.NAME);
+			for (Border border : neighbors.get(board.NAME).keySet()) {
+				final String neighbor = neighbors.get(board.NAME).get(border);
+				assert board.NAME.equals(neighbors.get(neighbor).get(border.complement())) : "World: connection not symmetric " + board.NAME;
+			}
+		}
+		assert timestep > 0;
+	}
+
+	/**
+	 * Creates an empty world which plays its boards on one thread for every available processor.
+	 */
+	public World() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates an empty world.
+	 * @param parallelism number of threads used to play the boards. Must be >= 1
+	 */
+	public World(int parallelism) {
+		this.pool = new ForkJoinPool(parallelism);
+		checkRep();
+	}
+
+	/**
+	 * Adds a board to the world. The board must not be played by itself once it is in a world.
+	 * @param board board to be added
+	 * @throws IllegalArgumentException if a board with the same name is already in the world
+	 */
+	public void addBoard(Board board) {
+		if (this.names.containsKey(board.NAME)) {
+			throw new IllegalArgumentException("Duplicate board name " + board.NAME);
+		}
+		final List<String> outbox = new ArrayList<String>();
+		board.setMultiplayer();
+		board.addRequestListener(request -> outbox.add(request));
+		this.boards.add(board);
+		this.names.put(board.NAME, board);
+		this.requests.put(board, outbox);
+		this.neighbors.put(board.NAME, new HashMap<Border, String>());
+		checkRep();
+	}
+
+	/**
+	 * Joins the right wall of the board named left to the left wall of the board named right. Any existing
+	 * connections on those walls are removed.
+	 * @param left name of the board on the left
+	 * @param right name of the board on the right
+	 * @throws NoSuchElementException if either board is not in the world
+	 */
+	public void joinHorizontally(String left, String right) {
+		this.join(left, Border.RIGHT, right);
+	}
+
+	/**
+	 * Joins the bottom wall of the board named top to the top wall of the board named bottom. Any existing
+	 * connections on those walls are removed.
+	 * @param top name of the board on top
+	 * @param bottom name of the board on the bottom
+	 * @throws NoSuchElementException if either board is not in the world
+	 */
+	public void joinVertically(String top, String bottom) {
+		this.join(top, Border.BOTTOM, bottom);
+	}
+
+	/**
+	 * Joins border of the board named first to the complementary border of the board named second.
+	 */
+	private void join(String first, Border border, String second) {
+		final Board firstBoard = this.getBoard(first);
+		final Board secondBoard = this.getBoard(second);
+		this.disjoin(first, border);
+		this.disjoin(second, border.complement());
+		this.neighbors.get(first).put(border, second);
+		this.neighbors.get(second).put(border.complement(), first);
+		firstBoard.handleResponse("JOIN " + border);
+		secondBoard.handleResponse("JOIN " + border.complement());
+		checkRep();
+	}
+
+	/**
+	 * Removes the connection on border of the board named name if there is one.
+	 */
+	private void disjoin(String name, Border border) {
+		final String neighbor = this.neighbors.get(name).remove(border);
+		if (neighbor != null) {
+			this.neighbors.get(neighbor).remove(border.complement());
+			this.getBoard(name).handleResponse("DISJOIN " + border);
+			this.getBoard(neighbor).handleResponse("DISJOIN " + border.complement());
+		}
+	}
+
+	/**
+	 * Connects the portals of every board in the world. Portals whose target board is not in the world
+	 * remain disconnected.
+	 */
+	public void connectPortals() {
+		for (Board board : this.boards) {
+			board.connectPortals();
+		}
+		this.deliverRequests();
+		checkRep();
+	}
+
+	/**
+	 * Plays every board in the world for the given number of ticks as fast as possible.
+	 *
+	 * @param ticks number of ticks to play. Must be >= 0
+	 * @param timestep length of each tick in seconds. Must be > 0
+	 * @return a report for each board in the order the boards were added. The elapsed time of each report
+	 * 		is the time taken to play the whole world.
+	 */
+	public List<SimulationReport> simulate(final int ticks, final double timestep) {
+		this.timestep = timestep;
+		for (Board board : this.boards) {
+			board.putBallsInPlay(timestep);
+		}
+		final long start = System.nanoTime();
+		for (int i = 0; i < ticks; i++) {
+			this.step();
+		}
+		final long elapsed = System.nanoTime() - start;
+
+		final List<SimulationReport> reports = new ArrayList<SimulationReport>();
+		for (Board board : this.boards) {
+			reports.add(new SimulationReport(board, ticks, timestep, elapsed));
+		}
+		checkRep();
+		return reports;
+	}
+
+	/**
+	 * Stops the threads which play the boards of the world. The world cannot be played once it is closed.
+	 */
+	@Override
+	public void close() {
+		this.pool.shutdown();
+	}
+
+	/**
+	 * Plays a single tick on every board in parallel and then delivers the balls which changed board.
+	 */
+	void step() {
+		if (this.boards.isEmpty()) return;
+		this.pool.invoke(new StepBoards(0, this.boards.size()));
+		this.deliverRequests();
+	}
+
+	/**
+	 * Delivers every request made by the boards since the last delivery, in the order the boards were
+	 * added and then in the order the requests were made. A request which cannot be delivered is reported
+	 * and dropped.
+	 */
+	private void deliverRequests() {
+		for (Board board : this.boards) {
+			final List<String> outbox = this.requests.get(board);
+			for (String request : outbox) {
+				try {
+					this.deliver(board, request);
+				} catch (UnsupportedOperationException uoe) {
+					System.err.println("Invalid request from " + board.NAME + ": " + uoe.getMessage());
+				} catch (NoSuchElementException nse) {
+					System.err.println(nse.getMessage());
+				}
+			}
+			outbox.clear();
+		}
+	}
+
+	/**
+	 * Handles a single request made by board and sends the response to the board it concerns.
+	 *
+	 * @param board board which made the request
+	 * @param request request matching the Flingball server request protocol
+	 * @throws NoSuchElementException if the request involves a board or portal which is not connected, or a
+	 * 		portal which is not on the board it is connected to
+	 * @throws UnsupportedOperationException if the request is not recognized
+	 */
+	private void deliver(Board board, String request) {
+		final String[] tokens = request.split(" ");
+		switch (tokens[0]) {
+		case "addBall": { // addBall NEIGHBOR NAME X Y VX VY
+			final String neighbor = this.neighbors.get(board.NAME).get(Border.fromString(tokens[1]));
+			if (neighbor == null) {
+				throw new NoSuchElementException(board.NAME + " " + tokens[1] + " connected Board not found. Ball " + tokens[2] + " lost.");
+			}
+			this.getBoard(neighbor).handleResponse("ADD " + tokens[2] + " " + tokens[3] + " " + tokens[4]
+					+ " " + tokens[5] + " " + tokens[6]);
+			break;
+		}
+		case "teleport": { // teleport sourcePortal ballName xVelocity yVelocity
+			final String target = this.portals.get(board.NAME + "/" + tokens[1]);
+			if (target == null) {
+				throw new NoSuchElementException(board.NAME + "/" + tokens[1] + " connected Portal not found. Ball " + tokens[2] + " lost.");
+			}
+			final String[] destination = target.split("/");
+			if (!this.getBoard(destination[0]).hasPortal(destination[1])) {
+				throw new NoSuchElementException(target + " Portal not found. Ball " + tokens[2] + " lost.");
+			}
+			this.getBoard(destination[0]).handleResponse("TELEPORT " + destination[1] + " " + tokens[2]
+					+ " " + tokens[3] + " " + tokens[4]);
+			break;
+		}
+		case "connect": { // connect sourcePortal targetPortal targetBoard
+			final String source = tokens[1];
+			final String target = tokens[2];
+			final String targetBoard = tokens[3];
+			if (this.names.containsKey(targetBoard)) {
+				this.portals.put(board.NAME + "/" + source, targetBoard + "/" + target);
+				board.handleResponse("CONNECT " + source + " " + target + " " + targetBoard);
+			}
+			break;
+		}
+		default:
+			throw new UnsupportedOperationException(request);
+		}
+	}
+
+	/**
+	 * @param name name of a board
+	 * @return the board in the world with name name
+	 * @throws NoSuchElementException if the board is not in the world
+	 */
+	private Board getBoard(String name) {
+		final Board board = this.names.get(name);
+		if (board == null) {
+			throw new NoSuchElementException("Board not found: " + name);
+		}
+		return board;
+	}
+
+	/**
+	 * Plays one tick on a range of boards, splitting the range until each task plays a single board.
+	 */
+	private class StepBoards extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+
+		/**
+		 * @param from index of the first board to play
+		 * @param to index after the last board to play. Must be > from
+		 */
+		private StepBoards(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from == 1) {
+				boards.get(this.from).step(timestep);
+				return;
+			}
+			final int middle = (this.from + this.to) >>> 1;
+			invokeAll(new StepBoards(this.from, middle), new StepBoards(middle, this.to));
+		}
+	}
+}
@@ -4,15 +4,18 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.ImageObserver;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import flingball.Ball;
+import flingball.physics.PhysicsContext;
 import physics.Vect;
 
 /**
@@ -142,19 +145,26 @@ public class Absorber implements Gadget {
 		return this.width;
 	}
 
+	/**
+	 * @return the walls bounding the absorber. Walls are immutable.
+	 */
+	public List<Wall> walls() {
+		return new ArrayList<Wall>(this.walls);
+	}
+
 	@Override
-	public double collisionTime(Ball ball) {
+	public double collisionTime(Ball ball, PhysicsContext physics) {
 		double collisionTime = Double.POSITIVE_INFINITY;
 		if (!ballOverlap(ball)) {
 			for (Wall wall : walls) {
-				collisionTime = Math.min(collisionTime, wall.collisionTime(ball));
+				collisionTime = Math.min(collisionTime, wall.collisionTime(ball, physics));
 			}
 		}
 		return collisionTime;
 	}
 
 	@Override
-	public void reflectBall(Ball ball) {
+	public void reflectBall(Ball ball, PhysicsContext physics) {
 		ball.setVelocity(new Vect(0, 0));
 		final double r = ball.getRadius();
 		ball.setBoardPosition(new Vect(x + width - r, -y + height - r));
@@ -208,8 +218,55 @@ public class Absorber implements Gadget {
 				(y - radius > aY && y - radius < aY + this.height));
 	}
 
+	/**
+	 * @return the number of balls trapped in the absorber
+	 */
+	@Override
+	public int state() {
+		synchronized (this.balls) {
+			return this.balls.size();
+		}
+	}
+
 	@Override
 	public BufferedImage generate(int L) {
+		final int trapped;
+		final double radius;
+		synchronized (this.balls) {
+			trapped = this.balls.size();
+			radius = trapped > 0 ? this.balls.getFirst().getRadius() : Ball.DEFAULT_RADIUS;
+		}
+		return this.generate(L, trapped, radius);
+	}
+
+	/**
+	 * Generates an image of the absorber holding a number of balls. A trapped ball is drawn with the 
+	 * default radius. 
+	 * @param trapped number of balls trapped returned by state()
+	 * @return a BufferedImage representation of the absorber
+	 */
+	@Override
+	public BufferedImage generate(int L, int trapped) {
+		return this.generate(L, trapped, Ball.DEFAULT_RADIUS);
+	}
+
+	/**
+	 * An absorber looks the same however many balls it holds, as only one trapped ball is drawn
+	 */
+	@Override
+	public String appearance(int trapped) {
+		return this.getClass().getName() + " " + this.width + "x" + this.height + (trapped > 0 ? " full" : " empty");
+	}
+
+	/**
+	 * Absorbers are animated as they trap and fire balls
+	 */
+	@Override
+	public boolean isAnimated() {
+		return true;
+	}
+
+	private BufferedImage generate(int L, int trapped, double radius) {
 		BufferedImage output = new BufferedImage(L*this.width, L*this.height, BufferedImage.TYPE_4BYTE_ABGR);
         Graphics2D graphics = (Graphics2D) output.getGraphics();
         
@@ -223,20 +280,17 @@ public class Absorber implements Gadget {
         final int scaling = 5;
         graphics.fillRoundRect(L / scaling, L / scaling, this.width * L - (2*L / scaling), this.height * L - (2*L / scaling), 10, 10);
         
-        synchronized (this.balls) {
-	        if (this.balls.size() > 0) {
-	        	graphics.setColor(Color.BLUE);
-	        	Ball toDraw = balls.getFirst();
-	        	final double diameter = toDraw.getRadius() * 2;
-	        	
-	        	final int xAnchor = (int) ((this.width - diameter) * L);
-	        	final int yAnchor = (int) ((this.height - diameter) * L);
-	        	
-	        	final ImageObserver NO_OBSERVER_NEEDED = null;
-	        	
-	        	graphics.drawImage(toDraw.generate(L), xAnchor, yAnchor, NO_OBSERVER_NEEDED);
-	        	
-	        }
+        if (trapped > 0) {
+        	graphics.setColor(Color.BLUE);
+        	final double diameter = radius * 2;
+        	
+        	final int xAnchor = (int) ((this.width - diameter) * L);
+        	final int yAnchor = (int) ((this.height - diameter) * L);
+        	
+        	final ImageObserver NO_OBSERVER_NEEDED = null;
+        	
+        	graphics.drawImage(Ball.generate(L, radius), xAnchor, yAnchor, NO_OBSERVER_NEEDED);
+        	
         }
         return output;
 	}
@@ -5,6 +5,7 @@ import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 
 import flingball.Ball;
+import flingball.physics.PhysicsContext;
 import physics.Circle;
 import physics.Physics;
 import physics.Vect;
@@ -92,7 +93,14 @@ public class CircleBumper implements Bumper {
 	public int width() {
 		return this.WIDTH;
 	}
-	
+
+	/**
+	 * @return the circle bounding the bumper. Circles are immutable.
+	 */
+	public Circle circle() {
+		return this.bumper;
+	}
+
 	@Override
 	public double getReflectionCoefficient() {
 		synchronized (this.reflectionCoeff) {
@@ -108,8 +116,8 @@ public class CircleBumper implements Bumper {
 	}
 
 	@Override
-	public double collisionTime(Ball ball) {
-		return ball.timeUntilCircleCollision(bumper);
+	public double collisionTime(Ball ball, PhysicsContext physics) {
+		return ball.timeUntilCircleCollision(bumper, physics);
 	}
 
 	@Override
@@ -138,7 +146,7 @@ public class CircleBumper implements Bumper {
 	}
 
 	@Override
-	public void reflectBall(Ball ball) {
+	public void reflectBall(Ball ball, PhysicsContext physics) {
 		// TODO Add Spin support
 //		if (this.spin == 0) {
 			ball.reflectCircle(this.bumper);
@@ -0,0 +1,46 @@
+package flingball.gadgets;
+
+/**
+ * Flippers are a type of Bumper which rotate 90 degrees about a pivot when their action is taken.
+ * A flipper rotates in simulation time. Its pose is a function of how long it has been rotating,
+ * which is only advanced by the board playing it, so every ball moved during a tick sees the same pose.
+ */
+public interface Flipper extends Bumper {
+
+	/**
+	 * Flippers rotate at 1080 degrees per second.
+	 */
+	public final static int OMEGA = 1080;
+
+	/**
+	 * Returns true if the flipper is rotating.
+	 *
+	 * @return true if the flipper is currently rotating
+	 */
+	public boolean isRotating();
+
+	/**
+	 * Advances the rotation of the flipper by time seconds of simulation time. Has no effect if the
+	 * flipper is not rotating. Does not check for collisions.
+	 * @param time length of time in seconds. Must be >= 0
+	 */
+	public void advance(double time);
+
+	/**
+	 * Keyframes are evenly spaced through the rotation, so a flipper part of the way through a tick is in
+	 * the keyframe the same part of the way between its keyframes at the start and end of the tick
+	 */
+	@Override
+	public default int interpolate(int from, int to, double blend) {
+		return (int) Math.round(from + (to - from) * blend);
+	}
+
+	/**
+	 * Flippers are animated as they rotate
+	 */
+	@Override
+	public default boolean isAnimated() {
+		return true;
+	}
+
+}
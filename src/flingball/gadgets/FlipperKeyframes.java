@@ -0,0 +1,252 @@
+package flingball.gadgets;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import flingball.Orientation;
+import physics.Angle;
+import physics.Circle;
+import physics.Physics;
+import physics.Vect;
+
+/**
+ * The pose of a flipper at a fixed set of angles through its 90 degree rotation, relative to the anchor of
+ * the flipper. Keyframes are computed once when the first flipper with a given type and orientation is
+ * created and are shared by every flipper with the same type and orientation wherever it is placed,
+ * including flippers on other boards. There are two types of flipper with four orientations each, so at
+ * most eight sets of keyframes are ever computed.
+ *
+ * A flipper translates the keyframes to its anchor through an Anchored pose, which translates each
+ * keyframe the first time the flipper reaches it and keeps the result. A flipper rotating again allocates
+ * no geometry. Images of a flipper are drawn from the keyframes directly.
+ */
+final class FlipperKeyframes {
+
+	/**
+	 * Number of steps through the 90 degree rotation. Keyframes are half a degree apart, which moves the
+	 * tail of a flipper less than 0.015 L.
+	 */
+	static final int FRAMES = 180;
+
+	// Keyed by type and orientation, so it holds at most eight entries
+	private static final ConcurrentMap<String, FlipperKeyframes> CACHE = new ConcurrentHashMap<String, FlipperKeyframes>();
+
+	private final Circle[] tails = new Circle[FRAMES + 1];
+	private final Wall[] ports = new Wall[FRAMES + 1];
+	private final Wall[] starboards = new Wall[FRAMES + 1];
+
+	/*
+	 * AF(tails, ports, starboards) ::= The pose of a flipper with its anchor at the origin, rotated through
+	 * 		i / FRAMES of its rotation, is tails[i], ports[i] and starboards[i]. Keyframe 0 is the rest pose.
+	 * Rep Invariant ::=
+	 * 		tails, ports and starboards each hold FRAMES + 1 keyframes
+	 * Safety from rep exposure ::=
+	 * 		The arrays are never returned. Circles and Walls are immutable.
+	 * Thread Safety Argument ::=
+	 * 		Keyframes are never modified after construction and are published through a ConcurrentMap.
+	 */
+
+	private void checkRep() {
+		for (int i = 0; i <= FRAMES; i++) {
+			assert tails[i] != null && ports[i] != null && starboards[i] != null : "FlipperKeyframes: missing keyframe " + i;
+		}
+	}
+
+	/**
+	 * Computes the keyframes of a flipper by rotating its rest pose about its pivot.
+	 * @param key name shared by the walls of every keyframe
+	 * @param pivot center of rotation, relative to the anchor
+	 * @param tail tail of the flipper in its rest pose, relative to the anchor
+	 * @param port port wall of the flipper in its rest pose, relative to the anchor
+	 * @param starboard starboard wall of the flipper in its rest pose, relative to the anchor
+	 * @param clockwise true if the flipper rotates clockwise away from its rest pose
+	 */
+	private FlipperKeyframes(String key, Vect pivot, Circle tail, Wall port, Wall starboard, boolean clockwise) {
+		for (int i = 0; i <= FRAMES; i++) {
+			final Angle angle;
+			if (i == 0) {
+				angle = Angle.ZERO;
+			} else if (i == FRAMES) {
+				angle = clockwise ? Angle.DEG_270 : Angle.DEG_90;
+			} else {
+				final double radians = Math.PI / 2 * i / FRAMES;
+				angle = new Angle(clockwise ? -radians : radians);
+			}
+			this.tails[i] = i == 0 ? tail : Physics.rotateAround(tail, pivot, angle);
+			this.ports[i] = rotate(key + ":port", port, pivot, angle, i == 0);
+			this.starboards[i] = rotate(key + ":starboard", starboard, pivot, angle, i == 0);
+		}
+		checkRep();
+	}
+
+	/**
+	 * Returns the keyframes of a flipper, computing them if no flipper with the same type and orientation
+	 * has been created yet.
+	 * @param flipper flipper whose keyframes are returned. Only its type and anchor are used
+	 * @param orientation orientation of the flipper
+	 * @param pivot center of rotation
+	 * @param tail tail of the flipper in its rest pose
+	 * @param port port wall of the flipper in its rest pose
+	 * @param starboard starboard wall of the flipper in its rest pose
+	 * @param clockwise true if the flipper rotates clockwise away from its rest pose
+	 * @return keyframes relative to the anchor, shared by every flipper with the same type and orientation
+	 */
+	static FlipperKeyframes of(Flipper flipper, Orientation orientation, Vect pivot, Circle tail, Wall port, Wall starboard,
+			boolean clockwise) {
+		final String key = flipper.getClass().getSimpleName() + " " + orientation;
+		final Vect origin = anchor(flipper).neg();
+		return CACHE.computeIfAbsent(key, k -> new FlipperKeyframes(k, pivot.plus(origin), translate(tail, origin),
+				translate(k + ":port", port, origin), translate(k + ":starboard", starboard, origin), clockwise));
+	}
+
+	/**
+	 * @param flipper a flipper
+	 * @return the anchor of flipper in the Cartesian coordinates its geometry is given in
+	 */
+	static Vect anchor(Flipper flipper) {
+		return new Vect(flipper.position().x(), -flipper.position().y());
+	}
+
+	/**
+	 * Finds the keyframe nearest to the angle a flipper sweeps through while rotating for time seconds.
+	 * @param time time in seconds since the rotation started. Must be >= 0
+	 * @return the index of a keyframe between 0 and FRAMES
+	 */
+	static int frame(double time) {
+		final double swept = Math.toRadians(Flipper.OMEGA) * time / (Math.PI / 2);
+		return (int) Math.min(FRAMES, Math.round(swept * FRAMES));
+	}
+
+	/**
+	 * @param frame index of a keyframe between 0 and FRAMES
+	 * @return the tail of the flipper at frame
+	 */
+	Circle tail(int frame) {
+		return this.tails[frame];
+	}
+
+	/**
+	 * @param frame index of a keyframe between 0 and FRAMES
+	 * @return the port wall of the flipper at frame
+	 */
+	Wall port(int frame) {
+		return this.ports[frame];
+	}
+
+	/**
+	 * @param frame index of a keyframe between 0 and FRAMES
+	 * @return the starboard wall of the flipper at frame
+	 */
+	Wall starboard(int frame) {
+		return this.starboards[frame];
+	}
+
+	/**
+	 * @param anchor Cartesian anchor of a flipper
+	 * @param tail tail of the flipper in its rest pose
+	 * @param port port wall of the flipper in its rest pose
+	 * @param starboard starboard wall of the flipper in its rest pose
+	 * @return the poses of the flipper, taken from these keyframes, with the rest pose given
+	 */
+	Anchored at(Vect anchor, Circle tail, Wall port, Wall starboard) {
+		return new Anchored(this, anchor, tail, port, starboard);
+	}
+
+	/**
+	 * Translates a circle by offset.
+	 */
+	private static Circle translate(Circle circle, Vect offset) {
+		return new Circle(circle.getCenter().plus(offset), circle.getRadius());
+	}
+
+	/**
+	 * Translates a wall by offset and names the result.
+	 */
+	private static Wall translate(String name, Wall wall, Vect offset) {
+		final Vect start = wall.start().plus(offset);
+		final Vect end = wall.end().plus(offset);
+		return new Wall(name, start.x(), start.y(), end.x(), end.y());
+	}
+
+	/**
+	 * Rotates a wall about pivot and names the result.
+	 */
+	private static Wall rotate(String name, Wall wall, Vect pivot, Angle angle, boolean rest) {
+		final Vect start = rest ? wall.start() : Physics.rotateAround(wall.start(), pivot, angle);
+		final Vect end = rest ? wall.end() : Physics.rotateAround(wall.end(), pivot, angle);
+		return new Wall(name, start.x(), start.y(), end.x(), end.y());
+	}
+
+	/**
+	 * The keyframes of a single flipper translated to its anchor. A keyframe is translated the first time
+	 * it is asked for and kept for the life of the flipper. An Anchored pose is used under the lock of its
+	 * flipper.
+	 */
+	static final class Anchored {
+
+		private final FlipperKeyframes keyframes;
+		private final Vect anchor;
+		private final Circle[] tails = new Circle[FRAMES + 1];
+		private final Wall[] ports = new Wall[FRAMES + 1];
+		private final Wall[] starboards = new Wall[FRAMES + 1];
+
+		/*
+		 * AF(keyframes, anchor, tails, ports, starboards) ::= The pose of a flipper with its anchor at anchor
+		 * 		rotated through i / FRAMES of its rotation. It is tails[i], ports[i] and starboards[i] once they
+		 * 		are translated, and keyframes translated by anchor until then.
+		 * Rep Invariant ::=
+		 * 		tails[i], ports[i] and starboards[i] are all null or all set, and are set for keyframe 0
+		 * Safety from rep exposure ::=
+		 * 		The arrays are never returned. Circles and Walls are immutable.
+		 * Thread Safety Argument ::=
+		 * 		Not threadsafe. Only used while holding the lock of the flipper it belongs to.
+		 */
+
+		private Anchored(FlipperKeyframes keyframes, Vect anchor, Circle tail, Wall port, Wall starboard) {
+			this.keyframes = keyframes;
+			this.anchor = anchor;
+			// The rest pose is kept exactly as the flipper built it
+			this.tails[0] = tail;
+			this.ports[0] = port;
+			this.starboards[0] = starboard;
+		}
+
+		/**
+		 * Translates keyframe frame to the anchor if it has not been translated yet.
+		 */
+		private void translate(int frame) {
+			if (this.tails[frame] != null) return;
+			this.tails[frame] = FlipperKeyframes.translate(this.keyframes.tail(frame), this.anchor);
+			this.ports[frame] = FlipperKeyframes.translate(this.ports[0].name(), this.keyframes.port(frame), this.anchor);
+			this.starboards[frame] = FlipperKeyframes.translate(this.starboards[0].name(), this.keyframes.starboard(frame),
+					this.anchor);
+		}
+
+		/**
+		 * @param frame index of a keyframe between 0 and FRAMES
+		 * @return the tail of the flipper at frame
+		 */
+		Circle tail(int frame) {
+			this.translate(frame);
+			return this.tails[frame];
+		}
+
+		/**
+		 * @param frame index of a keyframe between 0 and FRAMES
+		 * @return the port wall of the flipper at frame
+		 */
+		Wall port(int frame) {
+			this.translate(frame);
+			return this.ports[frame];
+		}
+
+		/**
+		 * @param frame index of a keyframe between 0 and FRAMES
+		 * @return the starboard wall of the flipper at frame
+		 */
+		Wall starboard(int frame) {
+			this.translate(frame);
+			return this.starboards[frame];
+		}
+	}
+}
@@ -3,6 +3,7 @@ package flingball.gadgets;
 import java.awt.image.BufferedImage;
 import physics.*;
 import flingball.Ball;
+import flingball.physics.PhysicsContext;
 
 
 /**
@@ -46,14 +47,14 @@ public interface Gadget {
 	 * @return the time in seconds until the ball collides with the gadget. Returns POSITIE_INFINITY
 	 * if a collision will not occur. 
 	 */
-	public double collisionTime(Ball ball);
+	public double collisionTime(Ball ball, PhysicsContext physics);
 	
 	/**
 	 * Performs a collision between a ball and a gadget. 
 	 * 
 	 * @param ball ball which will collide with the gadget. 
 	 */
-	public void reflectBall(Ball ball);
+	public void reflectBall(Ball ball, PhysicsContext physics);
 	
 	/**
 	 * Get the trigger for a Gadget. 
@@ -90,6 +91,55 @@ public interface Gadget {
 	 */
 	public BufferedImage generate(int L);
 	
+	/**
+	 * Returns the part of the state of the gadget which changes during play and changes how it is drawn,
+	 * so that the gadget can later be drawn as it was. 
+	 * @return the drawn state of the gadget, or 0 if the gadget always looks the same
+	 */
+	public default int state() {
+		return 0;
+	}
+	
+	/**
+	 * Generates an image of the gadget as it was when state() returned state. 
+	 * @param state a value returned by state()
+	 * @return a BufferedImage representation of the gadget. 
+	 */
+	public default BufferedImage generate(int L, int state) {
+		return this.generate(L);
+	}
+	
+	/**
+	 * Describes how the gadget looks in a state, so that gadgets which look the same can share images. 
+	 * @param state a value returned by state()
+	 * @return a description which is equal for two gadgets exactly when generate(L, state) draws them the same
+	 */
+	public default String appearance(int state) {
+		return this.getClass().getName() + " " + this.width() + "x" + this.height() + " " + state;
+	}
+	
+	/**
+	 * Finds the state of the gadget part of the way through a tick in which its state changed. By default 
+	 * the gadget keeps its old state until the tick is over. 
+	 * @param from state at the start of the tick returned by state()
+	 * @param to state at the end of the tick returned by state()
+	 * @param blend fraction of the tick which has passed. Must be 0 <= blend <= 1
+	 * @return the state the gadget is drawn in after that fraction of the tick
+	 */
+	public default int interpolate(int from, int to, double blend) {
+		return blend < 1 ? from : to;
+	}
+	
+	/**
+	 * Returns true if the gadget changes how it looks often during play, such as a rotating flipper or an 
+	 * absorber filling with balls. Other gadgets are drawn once into the background of the board, which 
+	 * is redrawn whenever one of them changes. 
+	 * @return true if the state of the gadget changes often during play
+	 */
+	public default boolean isAnimated() {
+		return false;
+	}
+	
 	/**
 	 * TODO exposes the rep of Board this can be handled when Absorber implements it's own interface
 	 * Can fix this by placing random balls at the center of empty grid spaces on the board. 
@@ -5,9 +5,8 @@ import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 
 import flingball.Ball;
-import flingball.BoardAnimation;
+import flingball.physics.PhysicsContext;
 import flingball.Orientation;
-import physics.Angle;
 import physics.Circle;
 import physics.Physics;
 import physics.Vect;
@@ -36,7 +35,7 @@ import physics.Vect;
  *
  * 
  */
-public class LeftFlipper implements Bumper {
+public class LeftFlipper implements Flipper {
 	
 	
 	private final int x, y;
@@ -46,12 +45,18 @@ public class LeftFlipper implements Bumper {
 	private double reflectionCoeff = DEFAULT_FLIPPER_REFLECTION_COEFF;
 	private Circle pivot, tail;
 	private Wall port, starboard;
+	// Poses of the flipper through its rotation relative to its anchor, shared with every flipper with the same orientation
+	private final FlipperKeyframes keyframes;
+	// The keyframes translated to the anchor of this flipper
+	private final FlipperKeyframes.Anchored poses;
 	
 	
-	private final static int OMEGA = 1080;
+	// Keyframe of the current pose
+	private int frame = 0;
 	private boolean rotating = false;
 	private boolean rotated = false;
-	private Angle degreesRotated = Angle.ZERO;
+	// Simulation time in seconds since the current rotation started
+	private double flipTime = 0.0;
 	
 	private final static double RADIUS = 0.25;
 	private final static int HEIGHT = 2;
@@ -176,7 +181,10 @@ public class LeftFlipper implements Bumper {
 		}
 		}
 		
-		this.checkRep();
+		this.keyframes = FlipperKeyframes.of(this, o, this.pivot.getCenter(), this.tail, this.port, this.starboard, false);
+		this.poses = this.keyframes.at(FlipperKeyframes.anchor(this), this.tail, this.port, this.starboard);
+		this.setFrame(0);
+		checkRep();
 	}
 	
 	
@@ -226,8 +234,8 @@ public class LeftFlipper implements Bumper {
 	}
 
 	@Override
-	public double collisionTime(Ball ball) {
-		double collisionTime = ball.timeUntilCircleCollision(this.pivot);
+	public double collisionTime(Ball ball, PhysicsContext physics) {
+		double collisionTime = ball.timeUntilCircleCollision(this.pivot, physics);
 		int omega = OMEGA;
 		
 		synchronized (this) {
@@ -236,13 +244,13 @@ public class LeftFlipper implements Bumper {
 				omega *= -1;
 			}
 			if (this.rotating ) {
-				collisionTime = Math.min(ball.timeUntilRoatatingCircleCollision(this.tail, this.pivot.getCenter(), omega), collisionTime);
-				collisionTime = Math.min(this.port.timeUntilRotatingWallCollision(ball, this.pivot.getCenter(), omega), collisionTime);
-				collisionTime = Math.min(this.starboard.timeUntilRotatingWallCollision(ball, this.pivot.getCenter(), omega),collisionTime);
+				collisionTime = Math.min(ball.timeUntilRoatatingCircleCollision(this.tail, this.pivot.getCenter(), omega, physics), collisionTime);
+				collisionTime = Math.min(this.port.timeUntilRotatingWallCollision(ball, this.pivot.getCenter(), omega, physics), collisionTime);
+				collisionTime = Math.min(this.starboard.timeUntilRotatingWallCollision(ball, this.pivot.getCenter(), omega, physics),collisionTime);
 			} else {
-				collisionTime = Math.min(ball.timeUntilCircleCollision(tail), collisionTime);
-				collisionTime = Math.min(this.port.collisionTime(ball), collisionTime);
-				collisionTime = Math.min(this.starboard.collisionTime(ball), collisionTime);
+				collisionTime = Math.min(ball.timeUntilCircleCollision(tail, physics), collisionTime);
+				collisionTime = Math.min(this.port.collisionTime(ball, physics), collisionTime);
+				collisionTime = Math.min(this.starboard.collisionTime(ball, physics), collisionTime);
 			}
 			return collisionTime;
 		}
@@ -250,9 +258,9 @@ public class LeftFlipper implements Bumper {
 	
 
 	@Override
-	public void reflectBall(Ball ball) {
-		double collisionTime = this.collisionTime(ball);
-		if (collisionTime == ball.timeUntilCircleCollision(this.pivot)) {
+	public void reflectBall(Ball ball, PhysicsContext physics) {
+		double collisionTime = this.collisionTime(ball, physics);
+		if (collisionTime == ball.timeUntilCircleCollision(this.pivot, physics)) {
 			ball.reflectCircle(this.pivot);
 			return;
 		}
@@ -265,9 +273,9 @@ public class LeftFlipper implements Bumper {
 				omega *= -1;
 			}
 			if (this.rotating) {
-				final double tailRotating = ball.timeUntilRoatatingCircleCollision(tail, pivot.getCenter(), omega);
-				final double portRotating = this.port.timeUntilRotatingWallCollision(ball, pivot.getCenter(), omega);
-				final double starRotating = this.starboard.timeUntilRotatingWallCollision(ball, pivot.getCenter(), omega);
+				final double tailRotating = ball.timeUntilRoatatingCircleCollision(tail, pivot.getCenter(), omega, physics);
+				final double portRotating = this.port.timeUntilRotatingWallCollision(ball, pivot.getCenter(), omega, physics);
+				final double starRotating = this.starboard.timeUntilRotatingWallCollision(ball, pivot.getCenter(), omega, physics);
 				
 				// Use the minimum as collisionTime does not account for the effects of gravity and friction
 				final double minRotating = Math.min(tailRotating, Math.min(portRotating, starRotating));
@@ -281,17 +289,17 @@ public class LeftFlipper implements Bumper {
 				}
 				
 			} else {
-				final double tailCollision = ball.timeUntilCircleCollision(tail);
-				final double portCollision = this.port.collisionTime(ball);
-				final double starCollision = this.starboard.collisionTime(ball);
+				final double tailCollision = ball.timeUntilCircleCollision(tail, physics);
+				final double portCollision = this.port.collisionTime(ball, physics);
+				final double starCollision = this.starboard.collisionTime(ball, physics);
 				
 				final double min = Math.min(tailCollision, Math.min(starCollision, portCollision));
 				if (min == tailCollision) {
 					ball.reflectCircle(tail);
 				} else if (min == portCollision) {
-					this.port.reflectBall(ball);
+					this.port.reflectBall(ball, physics);
 				} else {
-					this.starboard.reflectBall(ball);
+					this.starboard.reflectBall(ball, physics);
 				} 
 				
 			}
@@ -310,61 +318,50 @@ public class LeftFlipper implements Bumper {
 	}
 
 	@Override
-	public void takeAction() {
-		if (this.rotating) return; 
-		new Thread(() ->  {
-			if (!this.rotating) {
-				this.rotating = true;
-				Angle degreeIncrement = new Angle(Math.PI / 180 * OMEGA * BoardAnimation.FRAME_RATE / 1000); 
-				Angle totalRotationAngle = Angle.DEG_90;
-				
-				if (this.rotated) {
-					totalRotationAngle = Angle.DEG_270;
-					degreeIncrement = Angle.RAD_PI.plus(Angle.RAD_PI).minus(degreeIncrement);
-				}
-				final Circle finalTail = Physics.rotateAround(this.tail, this.pivot.getCenter(), totalRotationAngle);
-				final Wall finalPort = this.port.rotateAround(this.pivot.getCenter(), totalRotationAngle);
-				final Wall finalStarboard = this.starboard.rotateAround(this.pivot.getCenter(), totalRotationAngle);
-				
-				while (true) {
-					if (Math.abs(degreesRotated.plus(degreeIncrement).radians()) >= Angle.RAD_PI_OVER_TWO.radians()) {
-						synchronized (this) {
-							this.tail = finalTail;
-							this.port = finalPort;
-							this.starboard = finalStarboard;
-							this.rotated = !this.rotated;
-							this.rotating = false;
-							this.degreesRotated = Angle.ZERO;
-						}
-						break;
-					} else {
-						this.rotate(degreeIncrement);
-					}
-					try {
-						Thread.sleep(BoardAnimation.FRAME_RATE);
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-					}
-				}
-			}
-			
-		}).start();
+	public synchronized void takeAction() {
+		if (this.rotating) return;
+		this.rotating = true;
+		this.flipTime = 0.0;
+	}
+	
+	@Override
+	public synchronized boolean isRotating() {
+		return this.rotating;
 	}
 	
 	/**
 	 * Rotates at a constant angular velocity of 1080 degrees per second to a position 90 degrees away from its starting position 
-	 * in alternating counterclockwise and clockwise directions. 
-	 * @param angle by which the flipper is rotated
+	 * in alternating counterclockwise and clockwise directions. The flipper takes the pose of the keyframe nearest to the 
+	 * angle it has swept through since the rotation started. 
+	 * @param time length of time in seconds the flipper is rotated for. 
 	 */
-	public void rotate(Angle angle) {
-		synchronized (this) {
-			this.tail = Physics.rotateAround(this.tail, this.pivot.getCenter(), angle);
-			this.port = port.rotateAround(this.pivot.getCenter(), angle);
-			this.starboard = starboard.rotateAround(this.pivot.getCenter(), angle);
-			this.degreesRotated = this.degreesRotated.plus(angle);
-			checkRep();
+	@Override
+	public synchronized void advance(double time) {
+		if (!this.rotating) return;
+		this.flipTime += time;
+		if (Math.toRadians(OMEGA) * this.flipTime >= Math.PI / 2) {
+			this.rotated = !this.rotated;
+			this.rotating = false;
+			this.flipTime = 0.0;
 		}
-			
+		if (!this.rotating) {
+			this.setFrame(this.rotated ? FlipperKeyframes.FRAMES : 0);
+			return;
+		}
+		// A rotated flipper rotates back from the last keyframe to its rest pose
+		final int swept = FlipperKeyframes.frame(this.flipTime);
+		this.setFrame(this.rotated ? FlipperKeyframes.FRAMES - swept : swept);
+	}
+	
+	/**
+	 * Sets the tail, port and starboard of the flipper to a keyframe. 
+	 * @param frame index of the keyframe
+	 */
+	private void setFrame(int frame) {
+		this.frame = frame;
+		this.tail = this.poses.tail(frame);
+		this.port = this.poses.port(frame);
+		this.starboard = this.poses.starboard(frame);
 	}
 
 	@Override
@@ -374,15 +371,42 @@ public class LeftFlipper implements Bumper {
 	}
 
 
+	/**
+	 * @return the keyframe of the current pose of the flipper
+	 */
+	@Override
+	public synchronized int state() {
+		return this.frame;
+	}
+
 	@Override
 	public BufferedImage generate(int L) {
+		return this.generate(L, this.state());
+	}
+
+	@Override
+	public String appearance(int frame) {
+		return this.getClass().getName() + " " + this.orientation + " " + frame;
+	}
+
+	/**
+	 * Generates an image of the flipper in the pose of a keyframe. 
+	 * @param frame keyframe returned by state()
+	 * @return a BufferedImage representation of the flipper in that pose
+	 */
+	@Override
+	public BufferedImage generate(int L, int frame) {
+		final Circle tail = this.keyframes.tail(frame);
+		final Wall port = this.keyframes.port(frame);
+		final Wall starboard = this.keyframes.starboard(frame);
 		BufferedImage output = new BufferedImage(2 * L, 2 * L, BufferedImage.TYPE_4BYTE_ABGR);
         Graphics2D graphics = (Graphics2D) output.getGraphics();
         
         graphics.setColor(Color.ORANGE);
         
         
-        // Use anchors to shift positions so an image can be drawn on a 2 x 2 grid
+        // Use anchors to shift the pivot so an image can be drawn on a 2 x 2 grid. The keyframes are 
+        // already relative to the anchor. 
         final int xAnchor = this.x;
         final int yAnchor = -this.y;
         
@@ -390,21 +414,21 @@ public class LeftFlipper implements Bumper {
         int ypivot = (int) ((-this.pivot.getCenter().y() - yAnchor- RADIUS) * L);
         graphics.fillArc(xpivot, ypivot, (int) (RADIUS * 2 * L), (int) (RADIUS * 2 * L), 0, 360);
         
-        int xtail = (int) ((this.tail.getCenter().x() - xAnchor - RADIUS) * L);
-        int ytail = (int) ((-this.tail.getCenter().y() - yAnchor - RADIUS) * L);
+        int xtail = (int) ((tail.getCenter().x() - RADIUS) * L);
+        int ytail = (int) ((-tail.getCenter().y() - RADIUS) * L);
         graphics.fillArc(xtail, ytail, (int) (RADIUS * 2 * L), (int) (RADIUS * 2 * L), 0, 360);
         
         final int[] xPoints = {
-        		(int) ((this.port.start().x() - xAnchor) * L), 
-        		(int) ((this.port.end().x() - xAnchor) * L),
-        		(int) ((this.starboard.end().x() - xAnchor) * L), 
-        		(int) ((this.starboard.start().x() - xAnchor) * L) 
+        		(int) (port.start().x() * L), 
+        		(int) (port.end().x() * L),
+        		(int) (starboard.end().x() * L), 
+        		(int) (starboard.start().x() * L) 
         		};
         final int[] yPoints = {
-        		(int) ((-this.port.start().y() - yAnchor) * L), 
-        		(int) ((-this.port.end().y() - yAnchor) * L),
-        		(int) ((-this.starboard.end().y() - yAnchor) * L), 
-        		(int) ((-this.starboard.start().y() - yAnchor) * L)
+        		(int) (-port.start().y() * L), 
+        		(int) (-port.end().y() * L),
+        		(int) (-starboard.end().y() * L), 
+        		(int) (-starboard.start().y() * L)
         		};
         graphics.fillPolygon(xPoints, yPoints, 4);
         return output;
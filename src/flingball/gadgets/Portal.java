@@ -5,6 +5,7 @@ import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 
 import flingball.Ball;
+import flingball.physics.PhysicsContext;
 import physics.Circle;
 import physics.Physics;
 import physics.Vect;
@@ -98,17 +99,17 @@ public class Portal implements Gadget {
 	}
 
 	@Override
-	public double collisionTime(Ball ball) {
+	public double collisionTime(Ball ball, PhysicsContext physics) {
 		double collisionTime = Double.POSITIVE_INFINITY;
 		// if the portal is unconnected or self connected then the ball passes over the portal unchanged
 		if (this.connected && !this.ballOverlap(ball)) {
-				collisionTime = ball.timeUntilCircleCollision(portal);
+				collisionTime = ball.timeUntilCircleCollision(portal, physics);
 		}
 		return collisionTime;
 	}
 
 	@Override
-	public void reflectBall(Ball ball) {
+	public void reflectBall(Ball ball, PhysicsContext physics) {
 		// Collisions only occur if the portal is connected. if not, the pass passes over the portal 
 		// unaffected. 
 		if (this.connected) {
@@ -9,14 +9,13 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import flingball.Ball;
-import flingball.BoardAnimation;
+import flingball.physics.PhysicsContext;
 import flingball.Orientation;
-import physics.Angle;
 import physics.Circle;
 import physics.Physics;
 import physics.Vect;
 
-public class RightFlipper implements Bumper {
+public class RightFlipper implements Flipper {
 	/**
 	 * A gadget which can be used on a flingball board. A right flipper has size 1 L x 2 L. 
 	 * a Left Flippers action rotates the flipper about it's pivot point which is in the 
@@ -47,14 +46,20 @@ public class RightFlipper implements Bumper {
 	private double reflectionCoeff = DEFAULT_FLIPPER_REFLECTION_COEFF;
 	private Circle pivot, tail;
 	private Wall port, starboard;
+	// Poses of the flipper through its rotation relative to its anchor, shared with every flipper with the same orientation
+	private final FlipperKeyframes keyframes;
+	// The keyframes translated to the anchor of this flipper
+	private final FlipperKeyframes.Anchored poses;
 	
 	private ConcurrentMap<String, String> nextCollision = new ConcurrentHashMap<String, String>();
 	
 	
-	private final static int OMEGA = 1080;
+	// Keyframe of the current pose
+	private int frame = 0;
 	private boolean rotating = false;
 	private boolean rotated = false;
-	private Angle degreesRotated = Angle.ZERO;
+	// Simulation time in seconds since the current rotation started
+	private double flipTime = 0.0;
 	
 	private final static double RADIUS = 0.25;
 	private final static int HEIGHT = 2;
@@ -175,6 +180,9 @@ public class RightFlipper implements Bumper {
 		
 		}
 		
+		this.keyframes = FlipperKeyframes.of(this, o, this.pivot.getCenter(), this.tail, this.port, this.starboard, true);
+		this.poses = this.keyframes.at(FlipperKeyframes.anchor(this), this.tail, this.port, this.starboard);
+		this.setFrame(0);
 		checkRep();
 		
 	}
@@ -225,13 +233,13 @@ public class RightFlipper implements Bumper {
 	}
 
 	@Override
-	public double collisionTime(Ball ball) {
+	public double collisionTime(Ball ball, PhysicsContext physics) {
 		
 		double collisionTime = Double.POSITIVE_INFINITY;
 		
 		Map<Double, String> collisionTimes = new HashMap<Double, String>();
 		
-		collisionTimes.put(ball.timeUntilCircleCollision(this.pivot), "PIVOT");
+		collisionTimes.put(ball.timeUntilCircleCollision(this.pivot, physics), "PIVOT");
 		
 		int angularVelocity = OMEGA;
 		synchronized (this) {
@@ -240,21 +248,13 @@ public class RightFlipper implements Bumper {
 				angularVelocity *= -1;
 			}
 			if (this.rotating) {
-				collisionTimes.put(ball.timeUntilRoatatingCircleCollision(this.tail, this.pivot.getCenter(), angularVelocity), "TAIL");
-				collisionTimes.put(this.port.timeUntilRotatingWallCollision(ball, this.pivot.getCenter(), angularVelocity), "PORT");
-				collisionTimes.put(this.starboard.timeUntilRotatingWallCollision(ball, this.pivot.getCenter(), angularVelocity), "STARBOARD");
-				
-				
-//				collisionTime = Math.min(ball.timeUntilRoatatingCircleCollision(this.tail, this.pivot.getCenter(), angularVelocity), collisionTime);
-//				collisionTime = Math.min(this.port.timeUntilRotatingWallCollision(ball, this.pivot.getCenter(), angularVelocity), collisionTime);
-//				collisionTime = Math.min(this.starboard.timeUntilRotatingWallCollision(ball, this.pivot.getCenter(), angularVelocity),collisionTime);
+				collisionTimes.put(ball.timeUntilRoatatingCircleCollision(this.tail, this.pivot.getCenter(), angularVelocity, physics), "TAIL");
+				collisionTimes.put(this.port.timeUntilRotatingWallCollision(ball, this.pivot.getCenter(), angularVelocity, physics), "PORT");
+				collisionTimes.put(this.starboard.timeUntilRotatingWallCollision(ball, this.pivot.getCenter(), angularVelocity, physics), "STARBOARD");
 			} else {
-				collisionTimes.put(ball.timeUntilCircleCollision(tail), "TAIL");
-				collisionTimes.put(this.port.collisionTime(ball), "PORT");
-				collisionTimes.put(this.starboard.collisionTime(ball), "STARBOARD");
-//				collisionTime = Math.min(ball.timeUntilCircleCollision(tail), collisionTime);
-//				collisionTime =  Math.min(this.port.collisionTime(ball), collisionTime);
-//				collisionTime = Math.min(this.starboard.collisionTime(ball), collisionTime);
+				collisionTimes.put(ball.timeUntilCircleCollision(tail, physics), "TAIL");
+				collisionTimes.put(this.port.collisionTime(ball, physics), "PORT");
+				collisionTimes.put(this.starboard.collisionTime(ball, physics), "STARBOARD");
 			}
 			
 			for (double time : collisionTimes.keySet()) {
@@ -277,7 +277,7 @@ public class RightFlipper implements Bumper {
 //				middle.toEllipse2D().contains(point.toPoint2D());
 //	}
 	@Override
-	public void reflectBall(Ball ball) {
+	public void reflectBall(Ball ball, PhysicsContext physics) {
 		synchronized (this) {
 			try {
 				if (nextCollision.get(ball.name()).equals("PIVOT")) {
@@ -308,10 +308,10 @@ public class RightFlipper implements Bumper {
 			else {
 				switch (nextCollision.get(ball.name())) {
 				case "PORT":
-					this.port.reflectBall(ball);
+					this.port.reflectBall(ball, physics);
 					break;
 				case "STARBOARD":
-					this.starboard.reflectBall(ball);
+					this.starboard.reflectBall(ball, physics);
 					break;
 				case "TAIL":
 					ball.reflectCircle(tail);
@@ -340,86 +340,52 @@ public class RightFlipper implements Bumper {
 	
 	
 	@Override
-	public void takeAction() {
-		if (this.rotating) return; 
-		new Thread(() ->  {
-			if (!this.rotating) {
-				this.rotating = true;
-				Angle degreeIncrement = new Angle(Math.PI / 180 * OMEGA * BoardAnimation.FRAME_RATE / 1000); 
-				Angle totalRotationAngle = Angle.DEG_90;
-				
-				if (!this.rotated) {
-					totalRotationAngle = Angle.DEG_270;
-					degreeIncrement = Angle.RAD_PI.plus(Angle.RAD_PI).minus(degreeIncrement);
-				}
-				final Circle finalTail = Physics.rotateAround(this.tail, this.pivot.getCenter(), totalRotationAngle);
-				final Wall finalPort = this.port.rotateAround(this.pivot.getCenter(), totalRotationAngle);
-				final Wall finalStarboard = this.starboard.rotateAround(this.pivot.getCenter(), totalRotationAngle);
-				
-				while (true) {
-					if (Math.abs(degreesRotated.plus(degreeIncrement).radians()) >= Angle.RAD_PI_OVER_TWO.radians()) {
-						synchronized (this) {	
-							this.tail = finalTail;
-							this.port = finalPort;
-							this.starboard = finalStarboard;
-							this.rotated = !this.rotated;
-							this.rotating = false;
-							this.degreesRotated = Angle.ZERO;
-						}
-						break;
-					} else {
-						this.rotate(degreeIncrement);
-					}
-					try {
-						Thread.sleep(BoardAnimation.FRAME_RATE);
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-					}
-				}
-			}
-			
-		}).start();
+	public synchronized void takeAction() {
+		if (this.rotating) return;
+		this.rotating = true;
+		this.flipTime = 0.0;
+	}
+	
+	@Override
+	public synchronized boolean isRotating() {
+		return this.rotating;
 	}
 	
 	/**
-	 * Rotates at a the flipper through the specified angle at a constant angular velocity of 1080 degrees 
-	 * Does not check for collisions. 
-	 * @param angle by which the flipper is rotated
+	 * Rotates at a constant angular velocity of 1080 degrees per second to a position 90 degrees away from its starting position 
+	 * in alternating counterclockwise and clockwise directions. The flipper takes the pose of the keyframe nearest to the 
+	 * angle it has swept through since the rotation started. 
+	 * @param time length of time in seconds the flipper is rotated for. 
 	 */
-	public void rotate(Angle angle) {
-		synchronized (this) {
-			//TODO Check for a ball collision. The flipper rotates toO fast and will move on top of the 
-			// ball thus trapping the ball
-			this.tail = Physics.rotateAround(this.tail, this.pivot.getCenter(), angle);
-			this.port = port.rotateAround(this.pivot.getCenter(), angle);
-			this.starboard = starboard.rotateAround(this.pivot.getCenter(), angle);
-			this.degreesRotated = this.degreesRotated.plus(angle);
-			checkRep();
+	@Override
+	public synchronized void advance(double time) {
+		if (!this.rotating) return;
+		this.flipTime += time;
+		if (Math.toRadians(OMEGA) * this.flipTime >= Math.PI / 2) {
+			this.rotated = !this.rotated;
+			this.rotating = false;
+			this.flipTime = 0.0;
+		}
+		if (!this.rotating) {
+			this.setFrame(this.rotated ? FlipperKeyframes.FRAMES : 0);
+			return;
 		}
+		// A rotated flipper rotates back from the last keyframe to its rest pose
+		final int swept = FlipperKeyframes.frame(this.flipTime);
+		this.setFrame(this.rotated ? FlipperKeyframes.FRAMES - swept : swept);
 	}
 	
 	/**
-	 * Rotates the flipper for the specified amount of time. 
-	 * Does not perform any collisions. 
-	 * @param time
+	 * Sets the tail, port and starboard of the flipper to a keyframe. 
+	 * @param frame index of the keyframe
 	 */
-	public void rotate(double time) {
-		synchronized (this) {
-			Angle angle = new Angle(time * Math.PI / 180 * OMEGA);
-			if (!this.rotated) {
-				angle = Angle.DEG_180.plus(Angle.DEG_180).minus(angle);
-			}
-			
-			this.tail = Physics.rotateAround(this.tail, this.pivot.getCenter(), angle);
-			this.port = port.rotateAround(this.pivot.getCenter(), angle);
-			this.starboard = starboard.rotateAround(this.pivot.getCenter(), angle);
-			this.degreesRotated = this.degreesRotated.plus(angle);
-			checkRep();
-		}
+	private void setFrame(int frame) {
+		this.frame = frame;
+		this.tail = this.poses.tail(frame);
+		this.port = this.poses.port(frame);
+		this.starboard = this.poses.starboard(frame);
 	}
 
-	
-
 	@Override
 	public boolean ballOverlap(Ball ball) {
 		return Math.sqrt(Physics.distanceSquared(ball.getCartesianCenter(), this.tail.getCenter())) >= ball.getRadius() &&
@@ -427,15 +393,42 @@ public class RightFlipper implements Bumper {
 			   this.starboard.ballOverlap(ball) && this.port.ballOverlap(ball);
 	}
 
+	/**
+	 * @return the keyframe of the current pose of the flipper
+	 */
+	@Override
+	public synchronized int state() {
+		return this.frame;
+	}
+
 	@Override
 	public BufferedImage generate(int L) {
+		return this.generate(L, this.state());
+	}
+
+	@Override
+	public String appearance(int frame) {
+		return this.getClass().getName() + " " + this.orientation + " " + frame;
+	}
+
+	/**
+	 * Generates an image of the flipper in the pose of a keyframe. 
+	 * @param frame keyframe returned by state()
+	 * @return a BufferedImage representation of the flipper in that pose
+	 */
+	@Override
+	public BufferedImage generate(int L, int frame) {
+		final Circle tail = this.keyframes.tail(frame);
+		final Wall port = this.keyframes.port(frame);
+		final Wall starboard = this.keyframes.starboard(frame);
 		BufferedImage output = new BufferedImage(2 * L, 2 * L, BufferedImage.TYPE_4BYTE_ABGR);
         Graphics2D graphics = (Graphics2D) output.getGraphics();
         
         graphics.setColor(Color.ORANGE);
         
         
-        // Use anchors to shift positions so an image can be drawn on a 2 x 2 grid
+        // Use anchors to shift the pivot so an image can be drawn on a 2 x 2 grid. The keyframes are 
+        // already relative to the anchor. 
         final int xAnchor = this.x;
         final int yAnchor = -this.y;
         
@@ -443,21 +436,21 @@ public class RightFlipper implements Bumper {
         int ypivot = (int) ((-this.pivot.getCenter().y() - yAnchor- RADIUS) * L);
         graphics.fillArc(xpivot, ypivot, (int) (RADIUS * 2 * L), (int) (RADIUS * 2 * L), 0, 360);
         
-        int xtail = (int) ((this.tail.getCenter().x() - xAnchor - RADIUS) * L);
-        int ytail = (int) ((-this.tail.getCenter().y() - yAnchor - RADIUS) * L);
+        int xtail = (int) ((tail.getCenter().x() - RADIUS) * L);
+        int ytail = (int) ((-tail.getCenter().y() - RADIUS) * L);
         graphics.fillArc(xtail, ytail, (int) (RADIUS * 2 * L), (int) (RADIUS * 2 * L), 0, 360);
         
         final int[] xPoints = {
-        		(int) ((this.port.start().x() - xAnchor) * L), 
-        		(int) ((this.port.end().x() - xAnchor) * L),
-        		(int) ((this.starboard.end().x() - xAnchor) * L), 
-        		(int) ((this.starboard.start().x() - xAnchor) * L) 
+        		(int) (port.start().x() * L), 
+        		(int) (port.end().x() * L),
+        		(int) (starboard.end().x() * L), 
+        		(int) (starboard.start().x() * L) 
         		};
         final int[] yPoints = {
-        		(int) ((-this.port.start().y() - yAnchor) * L), 
-        		(int) ((-this.port.end().y() - yAnchor) * L),
-        		(int) ((-this.starboard.end().y() - yAnchor) * L), 
-        		(int) ((-this.starboard.start().y() - yAnchor) * L)
+        		(int) (-port.start().y() * L), 
+        		(int) (-port.end().y() * L),
+        		(int) (-starboard.end().y() * L), 
+        		(int) (-starboard.start().y() * L)
         		};
         graphics.fillPolygon(xPoints, yPoints, 4);
         return output;
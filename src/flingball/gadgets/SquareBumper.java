@@ -3,13 +3,16 @@ package flingball.gadgets;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import flingball.Ball;
+import flingball.physics.PhysicsContext;
 import physics.Vect;
 
 /**
@@ -150,6 +153,13 @@ public class SquareBumper implements Bumper {
 		return this.WIDTH;
 	}
 
+	/**
+	 * @return the walls bounding the bumper. Walls are immutable.
+	 */
+	public List<Wall> walls() {
+		return new ArrayList<Wall>(this.walls);
+	}
+
 	
 	@Override
 	public double getReflectionCoefficient() {
@@ -166,10 +176,10 @@ public class SquareBumper implements Bumper {
 	}
 
 	@Override
-	public double collisionTime(Ball ball) {
+	public double collisionTime(Ball ball, PhysicsContext physics) {
 		double collisionTime = Double.POSITIVE_INFINITY;
 		for (Wall wall : walls) {
-			collisionTime = Math.min(collisionTime, wall.collisionTime(ball));
+			collisionTime = Math.min(collisionTime, wall.collisionTime(ball, physics));
 		}
 		return collisionTime;
 	}
@@ -202,11 +212,11 @@ public class SquareBumper implements Bumper {
 	}
 
 	@Override
-	public void reflectBall(Ball ball) {
-		double collisionTime = this.collisionTime(ball);
+	public void reflectBall(Ball ball, PhysicsContext physics) {
+		double collisionTime = this.collisionTime(ball, physics);
 		for (Wall wall : walls) {
-			if (wall.collisionTime(ball) == collisionTime) {
-				wall.reflectBall(ball);
+			if (wall.collisionTime(ball, physics) == collisionTime) {
+				wall.reflectBall(ball, physics);
 			}
 		}
 	}
@@ -7,13 +7,16 @@ import java.awt.Polygon;
 import java.awt.geom.Arc2D;
 import java.awt.geom.Area;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import flingball.Ball;
+import flingball.physics.PhysicsContext;
 import flingball.Orientation;
 import physics.Vect;
 
@@ -180,6 +183,13 @@ public class TriangleBumper implements Bumper {
 		return WIDTH;
 	}
 
+	/**
+	 * @return the walls bounding the bumper in its current orientation. Walls are immutable.
+	 */
+	public List<Wall> walls() {
+		return new ArrayList<Wall>(this.walls);
+	}
+
 	@Override
 	public double getReflectionCoefficient() {
 		synchronized (this.reflectionCoeff) {
@@ -195,10 +205,10 @@ public class TriangleBumper implements Bumper {
 	}
 
 	@Override
-	public double collisionTime(Ball ball) {
+	public double collisionTime(Ball ball, PhysicsContext physics) {
 		double collisionTime = Double.POSITIVE_INFINITY;
 		for (Wall wall : walls) {
-			collisionTime = Math.min(collisionTime, wall.collisionTime(ball));
+			collisionTime = Math.min(collisionTime, wall.collisionTime(ball, physics));
 		}
 		return collisionTime;
 	}
@@ -242,13 +252,31 @@ public class TriangleBumper implements Bumper {
 		this.orientation = newTriangle.orientation;
 	}
 	
-		@Override
+	/**
+	 * @return the index of the current orientation of the triangle in Orientation.values()
+	 */
+	@Override
+	public int state() {
+		return this.orientation.ordinal();
+	}
+	
+	@Override
 	public BufferedImage generate(int L) {
+		return this.generate(L, this.state());
+	}
+	
+	/**
+	 * Generates an image of the triangle in an orientation. 
+	 * @param orientation index of the orientation in Orientation.values() returned by state()
+	 * @return a BufferedImage representation of the triangle in that orientation
+	 */
+	@Override
+	public BufferedImage generate(int L, int orientation) {
 		BufferedImage output = new BufferedImage(L, L, BufferedImage.TYPE_4BYTE_ABGR);
         Graphics2D graphics = (Graphics2D) output.getGraphics();
         
         graphics.setColor(Color.GREEN);
-        switch (this.orientation) {
+        switch (Orientation.values()[orientation]) {
         case ZERO:{
         	final int[] xPoints = {0, L, 0};
         	final int[] yPoints = {0, 0, L};
@@ -281,11 +309,11 @@ public class TriangleBumper implements Bumper {
 	}
 
 	@Override
-	public void reflectBall(Ball ball) {
-		double collisionTime = this.collisionTime(ball);
+	public void reflectBall(Ball ball, PhysicsContext physics) {
+		double collisionTime = this.collisionTime(ball, physics);
 		for (Wall wall : walls) {
-			if (wall.collisionTime(ball) == collisionTime) {
-				wall.reflectBall(ball);
+			if (wall.collisionTime(ball, physics) == collisionTime) {
+				wall.reflectBall(ball, physics);
 			}
 		}
 	}
@@ -3,6 +3,7 @@ package flingball.gadgets;
 import java.awt.image.BufferedImage;
 
 import flingball.Ball;
+import flingball.physics.PhysicsContext;
 import physics.Angle;
 import physics.Circle;
 import physics.LineSegment;
@@ -106,7 +107,7 @@ public class Wall implements Gadget {
 	/**
 	 * @return starting point of the wall
 	 */
-	Vect start() {
+	public Vect start() {
 		return new Vect(x1, y1);
 	}
 	
@@ -114,7 +115,7 @@ public class Wall implements Gadget {
 	 * 
 	 * @return end point of the wall
 	 */
-	Vect end() {
+	public Vect end() {
 		return new Vect(x2, y2);
 	}
 
@@ -134,11 +135,11 @@ public class Wall implements Gadget {
 	}
 
 	@Override
-	public double collisionTime(Ball ball) {
+	public double collisionTime(Ball ball, PhysicsContext physics) {
 		synchronized (this) {
-			final double timeToWall = ball.timeUntilLineCollision(this.wall);
-			final double timeToc1 = ball.timeUntilCircleCollision(c1);
-			final double timeToc2 = ball.timeUntilCircleCollision(c2);
+			final double timeToWall = ball.timeUntilLineCollision(this.wall, physics);
+			final double timeToc1 = ball.timeUntilCircleCollision(c1, physics);
+			final double timeToc2 = ball.timeUntilCircleCollision(c2, physics);
 			
 			return Math.min(timeToWall, Math.min(timeToc1, timeToc2));
 		}
@@ -152,9 +153,9 @@ public class Wall implements Gadget {
 	 * @param angularVelocity Speed in degrees / seconds that the <code>wall</code> is rotating.
 	 * @return Collision time in seconds or POSITIVE_INFINITY if no collision will occu
 	 */
-	public double timeUntilRotatingWallCollision(Ball ball, Vect pivot, double angularVelocity) {
+	public double timeUntilRotatingWallCollision(Ball ball, Vect pivot, double angularVelocity, PhysicsContext physics) {
 		synchronized (this) {
-			return ball.timeUntilRotatingLineCollision(this.wall, pivot, angularVelocity);
+			return ball.timeUntilRotatingLineCollision(this.wall, pivot, angularVelocity, physics);
 		}
 	}
 
@@ -175,11 +176,11 @@ public class Wall implements Gadget {
 	}
 
 	@Override
-	public void reflectBall(Ball ball) {
+	public void reflectBall(Ball ball, PhysicsContext physics) {
 		synchronized (this) {
-			final double timeToWall = ball.timeUntilLineCollision(this.wall);
-			final double timeToc1 = ball.timeUntilCircleCollision(c1);
-			final double timeToc2 = ball.timeUntilCircleCollision(c2);
+			final double timeToWall = ball.timeUntilLineCollision(this.wall, physics);
+			final double timeToc1 = ball.timeUntilCircleCollision(c1, physics);
+			final double timeToc2 = ball.timeUntilCircleCollision(c2, physics);
 			
 			double collisionTime = Math.min(timeToWall, Math.min(timeToc1, timeToc2));
 			
@@ -0,0 +1,696 @@
+package flingball.physics;
+
+/**
+ * Collisions calculates when a ball collides with line segments, circles, rotating line segments, rotating
+ * circles and other balls and how the ball is reflected. It computes exactly the same results as the
+ * methods of <code>physics.Physics</code> used by the gadgets of a flingball board, but takes every point,
+ * velocity and radius as primitive doubles and never creates an object. All coordinates are cartesian.
+ *
+ * Collision times with stationary geometry and with other balls are static. Collisions with rotating
+ * geometry are found by Newton's method and a reflection results in a velocity with two components, so
+ * these are calculated by an instance of Collisions which holds the state of the search and the velocity
+ * computed by the last reflection.
+ */
+public final class Collisions {
+
+	/**
+	 * Foresight used by flingball boards. Collisions with rotating geometry are not searched for further
+	 * than this many seconds ahead, which prevents looking for flipper collisions past their rotation.
+	 */
+	public static final double DEFAULT_FORESIGHT = 0.0005;
+
+	/**
+	 * Number of slices the search for a collision with rotating geometry is split into
+	 */
+	public static final int SEARCH_SLICES = 15;
+
+	private static final int NEWTON_STEPS = 30;
+	private static final double NEWTON_EPSILON = 0.000000001;
+
+	// Velocity computed by the last reflection
+	private double vx = 0, vy = 0, otherVx = 0, otherVy = 0;
+
+	// The distance function searched by Newton's method and its value at the last time it was evaluated
+	private boolean rotatingWall;
+	private double r1, r2, phi1, phi2, omega, pivotX, pivotY, ballX, ballY, ballVx, ballVy, reach2;
+	private double f, fPrime;
+
+	/*
+	 * AF(vx, vy, otherVx, otherVy, rotatingWall, r1, r2, phi1, phi2, omega, pivotX, pivotY, ballX, ballY,
+	 * 		ballVx, ballVy, reach2, f, fPrime) ::=
+	 * 		A calculator whose last reflection resulted in the velocity (vx, vy) and, if it reflected two balls, (otherVx, otherVy)
+	 * 		for the second ball. If rotatingWall the last distance function searched was the squared distance
+	 * 		minus reach2 between a ball at (ballX, ballY) moving with velocity (ballVx, ballVy) and a segment whose
+	 * 		end points are r1 and r2 from the pivot (pivotX, pivotY) at angles phi1 and phi2 rotating at omega
+	 * 		radians per second. Otherwise it was the squared distance minus reach2 between the ball and the center
+	 * 		of a circle r1 from the pivot at angle phi1. The function was last evaluated as f with derivative fPrime.
+	 * Rep Invariant ::=
+	 * 		true
+	 * Safety from rep exposure ::=
+	 * 		All fields are private primitives
+	 * Thread Safety Argument ::=
+	 * 		Not thread safe. The static methods are thread safe, but an instance must only be used by one thread
+	 * 		at a time.
+	 */
+
+	/**
+	 * Creates a calculator for collisions with rotating geometry and reflections.
+	 */
+	public Collisions() {
+	}
+
+	/**
+	 * @return x component of the velocity computed by the last reflection
+	 */
+	public double vx() {
+		return this.vx;
+	}
+
+	/**
+	 * @return y component of the velocity computed by the last reflection
+	 */
+	public double vy() {
+		return this.vy;
+	}
+
+	/**
+	 * @return x component of the velocity of the second ball computed by the last reflection of two balls
+	 */
+	public double otherVx() {
+		return this.otherVx;
+	}
+
+	/**
+	 * @return y component of the velocity of the second ball computed by the last reflection of two balls
+	 */
+	public double otherVy() {
+		return this.otherVy;
+	}
+
+	/**
+	 * Calculates the time until a ball collides with the line segment from (x1, y1) to (x2, y2). Computes
+	 * exactly the same time as <code>Physics.timeUntilWallCollision</code>.
+	 *
+	 * @param a x coordinate of the center of the ball
+	 * @param b y coordinate of the center of the ball
+	 * @param va x component of the velocity of the ball
+	 * @param vb y component of the velocity of the ball
+	 * @param radius radius of the ball
+	 * @return time in seconds until the collision or POSITIVE_INFINITY if the ball will not collide with the segment
+	 */
+	public static double timeUntilWallCollision(double x1, double y1, double x2, double y2,
+			double a, double b, double va, double vb, double radius) {
+		final double width = x2 - x1;
+		final double height = y2 - y1;
+		final double F = ((va * height) - (vb * width));
+		final double G = ((a * height) - (b * width) + ((x2 * y1) - (x1 * y2)));
+		final double H = ((width * width) + (height * height));
+		final double A = F * F;
+		final double B = 2.0 * F * G;
+		final double C = G * G;
+		final double Cprime = C - (radius * radius * H);
+
+		final double collisionTime = minQuadraticSolution(A, B, Cprime);
+		if (Double.isNaN(collisionTime)) {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		// The point on the segment closest to the center of the ball at the collision is the fraction minS
+		// along the segment
+		final double cX = a + (collisionTime * va);
+		final double cY = b + (collisionTime * vb);
+		final double minS = ((width * (cX - x1)) + (height * (cY - y1))) / H;
+		if ((0.0 <= minS) && (minS < 1.0)) {
+			if (collisionTime > 0) {
+				return collisionTime;
+			}
+			// The ball overlaps the segment. It collides now if it is moving towards the segment.
+			final double impactX = x1 + minS * width;
+			final double impactY = y1 + minS * height;
+			return va * (a - impactX) + vb * (b - impactY) >= 0 ? Double.POSITIVE_INFINITY : 0;
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Calculates the time until a ball collides with the circle centered at (x, y). Computes exactly the
+	 * same time as <code>Physics.timeUntilCircleCollision</code>.
+	 *
+	 * @param circleRadius radius of the circle
+	 * @param a x coordinate of the center of the ball
+	 * @param b y coordinate of the center of the ball
+	 * @param va x component of the velocity of the ball
+	 * @param vb y component of the velocity of the ball
+	 * @param radius radius of the ball
+	 * @return time in seconds until the collision or POSITIVE_INFINITY if the ball will not collide with the circle
+	 */
+	public static double timeUntilCircleCollision(double x, double y, double circleRadius,
+			double a, double b, double va, double vb, double radius) {
+		final double distance = circleRadius + radius;
+		final double width = a - x;
+		final double height = b - y;
+		final double A = ((va * va) + (vb * vb));
+		final double B = 2.0 * ((va * width) + (vb * height));
+		final double C = (width * width) + (height * height) - (distance * distance);
+
+		final double collisionTime = minQuadraticSolution(A, B, C);
+		if (Double.isNaN(collisionTime)) {
+			return Double.POSITIVE_INFINITY;
+		} else if (collisionTime <= 0) {
+			// The ball overlaps the circle. It collides now if it is moving towards the circle.
+			return width * va + height * vb >= 0 ? Double.POSITIVE_INFINITY : 0;
+		}
+		return collisionTime;
+	}
+
+	/**
+	 * Calculates the time until two balls collide. Computes exactly the same time as
+	 * <code>Physics.timeUntilBallBallCollision</code>.
+	 *
+	 * @return time in seconds until the collision or POSITIVE_INFINITY if the balls will not collide
+	 */
+	public static double timeUntilBallBallCollision(double x1, double y1, double vx1, double vy1, double radius1,
+			double x2, double y2, double vx2, double vy2, double radius2) {
+		final double sizes = radius1 + radius2;
+		final double initPosXDelta = x1 - x2;
+		final double initPosYDelta = y1 - y2;
+		final double velXDelta = vx1 - vx2;
+		final double velYDelta = vy1 - vy2;
+		final double sizes2 = sizes * sizes;
+		final double initPosXDelta2 = initPosXDelta * initPosXDelta;
+		final double initPosYDelta2 = initPosYDelta * initPosYDelta;
+		final double initGap2 = initPosXDelta2 + initPosYDelta2 - sizes2;
+
+		// The balls overlap. They collide now if they are moving towards each other.
+		if (initGap2 <= 0.0) {
+			return velXDelta * initPosXDelta + velYDelta * initPosYDelta < 0.0 ? 0.0 : Double.POSITIVE_INFINITY;
+		}
+
+		final double a = velXDelta * velXDelta + velYDelta * velYDelta;
+		final double b = 2 * initPosXDelta * velXDelta + 2 * initPosYDelta * velYDelta;
+		final double c = initPosXDelta2 + initPosYDelta2 - sizes2;
+		final double t = minQuadraticSolution(a, b, c);
+		return t > 0 ? t : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Calculates the time until a ball collides with the line segment from (x1, y1) to (x2, y2) while the
+	 * segment rotates about (pivotX, pivotY). Computes exactly the same time as
+	 * <code>Physics.timeUntilRotatingWallCollision</code> with a foresight of at most 0.1 seconds.
+	 *
+	 * @param angularVelocity angular velocity of the segment in radians per second, counterclockwise
+	 * @param a x coordinate of the center of the ball
+	 * @param b y coordinate of the center of the ball
+	 * @param va x component of the velocity of the ball
+	 * @param vb y component of the velocity of the ball
+	 * @param radius radius of the ball
+	 * @param foresight maximal time in seconds in the future that a collision is searched for. Must be > 0
+	 * @return time in seconds until the collision or POSITIVE_INFINITY if the ball will not collide with the
+	 * 		segment within foresight seconds
+	 */
+	public double timeUntilRotatingWallCollision(double x1, double y1, double x2, double y2, double pivotX, double pivotY,
+			double angularVelocity, double a, double b, double va, double vb, double radius, double foresight) {
+		if (angularVelocity == 0.0) {
+			return timeUntilWallCollision(x1, y1, x2, y2, a, b, va, vb, radius);
+		}
+		final double r_p1_2 = (pivotX - x1) * (pivotX - x1) + (pivotY - y1) * (pivotY - y1);
+		final double r_p2_2 = (pivotX - x2) * (pivotX - x2) + (pivotY - y2) * (pivotY - y2);
+		this.rotatingWall = true;
+		this.r1 = Math.sqrt(r_p1_2);
+		this.r2 = Math.sqrt(r_p2_2);
+		this.phi1 = Math.atan2(y1 - pivotY, x1 - pivotX);
+		this.phi2 = Math.atan2(y2 - pivotY, x2 - pivotX);
+		this.omega = angularVelocity;
+		this.pivotX = pivotX;
+		this.pivotY = pivotY;
+		this.ballX = a;
+		this.ballY = b;
+		this.ballVx = va;
+		this.ballVy = vb;
+		this.reach2 = radius * radius;
+
+		// A ball which already overlaps the segment collides now if it is moving towards the segment
+		this.evaluate(0);
+		if (this.f <= 0) {
+			return this.fPrime >= 0 ? Double.POSITIVE_INFINITY : 0;
+		}
+		return this.search(this.r1 > this.r2 ? this.r1 : this.r2, radius, foresight);
+	}
+
+	/**
+	 * Calculates the time until a ball collides with the circle centered at (x, y) while the circle rotates
+	 * about (pivotX, pivotY). Computes exactly the same time as <code>Physics.timeUntilRotatingCircleCollision</code>
+	 * with a foresight of at most 0.1 seconds.
+	 *
+	 * @param circleRadius radius of the circle
+	 * @param angularVelocity angular velocity of the circle in radians per second, counterclockwise
+	 * @param a x coordinate of the center of the ball
+	 * @param b y coordinate of the center of the ball
+	 * @param va x component of the velocity of the ball
+	 * @param vb y component of the velocity of the ball
+	 * @param radius radius of the ball
+	 * @param foresight maximal time in seconds in the future that a collision is searched for. Must be > 0
+	 * @return time in seconds until the collision or POSITIVE_INFINITY if the ball will not collide with the
+	 * 		circle within foresight seconds
+	 */
+	public double timeUntilRotatingCircleCollision(double x, double y, double circleRadius, double pivotX, double pivotY,
+			double angularVelocity, double a, double b, double va, double vb, double radius, double foresight) {
+		if (angularVelocity == 0.0 || (pivotX == x && pivotY == y)) {
+			return timeUntilCircleCollision(x, y, circleRadius, a, b, va, vb, radius);
+		}
+		final double r_r2 = (pivotX - x) * (pivotX - x) + (pivotY - y) * (pivotY - y);
+		this.rotatingWall = false;
+		this.r1 = Math.sqrt(r_r2);
+		this.phi1 = Math.atan2(y - pivotY, x - pivotX);
+		this.omega = angularVelocity;
+		this.pivotX = pivotX;
+		this.pivotY = pivotY;
+		this.ballX = a;
+		this.ballY = b;
+		this.ballVx = va;
+		this.ballVy = vb;
+		this.reach2 = (radius + circleRadius) * (radius + circleRadius);
+
+		// A ball which already overlaps the circle collides now if it is moving towards the circle
+		this.evaluate(0);
+		if (this.f <= 0) {
+			return this.fPrime >= 0 ? Double.POSITIVE_INFINITY : 0;
+		}
+		return this.search(this.r1 + circleRadius, radius, foresight);
+	}
+
+	/**
+	 * Searches for the first root of the distance function while the ball is within outerRadius + radius of
+	 * the pivot and at most foresight seconds ahead.
+	 * @return time until the distance function is first 0 while decreasing or POSITIVE_INFINITY
+	 */
+	private double search(double outerRadius, double radius, double foresight) {
+		// Find when the ball is inside the circle swept out by the rotating geometry
+		final double r = outerRadius + radius;
+		final double x = this.ballX - this.pivotX;
+		final double y = this.ballY - this.pivotY;
+		final double a = this.ballVx * this.ballVx + this.ballVy * this.ballVy;
+		final double b = 2 * (x * this.ballVx + y * this.ballVy);
+		final double c = x * x + y * y - r * r;
+		final double enter;
+		final double exit;
+		if (a == 0.0) {
+			enter = b == 0.0 ? Double.NaN : -c / b;
+			exit = enter;
+		} else {
+			final double discriminant = (b * b) - (4.0 * a * c);
+			if (discriminant < 0.0) return Double.POSITIVE_INFINITY;
+			final double sqrt = Math.sqrt(discriminant);
+			final double twoA = 2.0 * a;
+			enter = a > 0 ? (-b - sqrt) / twoA : (-b + sqrt) / twoA;
+			exit = a > 0 ? (-b + sqrt) / twoA : (-b - sqrt) / twoA;
+		}
+		if (Double.isNaN(enter) || Double.isNaN(exit) || Double.isInfinite(enter) || Double.isInfinite(exit)) {
+			return Double.POSITIVE_INFINITY;
+		}
+		if (enter > foresight || exit < 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		final double start = 0 > enter ? 0 : enter;
+		final double end = foresight < exit ? foresight : exit;
+
+		final double collisionTime = this.findRoot(start, end, (end - start) / SEARCH_SLICES);
+		if (collisionTime >= 0) {
+			this.evaluate(collisionTime);
+			return this.fPrime < 0 ? collisionTime : Double.POSITIVE_INFINITY;
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Steps from start to end looking for a change of sign in the distance function or its derivative
+	 * and refines the first one found with Newton's method.
+	 * @return the first root found between start and end or NaN
+	 */
+	private double findRoot(double start, double end, double step) {
+		double f = Double.NaN;
+		double fPrime = Double.NaN;
+		for (double t = start; t < end + step; t += step) {
+			final double oldF = f;
+			final double oldFPrime = fPrime;
+			this.evaluate(t);
+			f = this.f;
+			fPrime = this.fPrime;
+			if (Double.isNaN(f) || Double.isNaN(fPrime)) {
+				continue;
+			}
+			if ((f * oldF <= 0) || (fPrime * oldFPrime <= 0)) {
+				final double root = this.newton((oldFPrime <= 0) ? t - step : t);
+				if ((t - step <= root) && (root <= t)) {
+					return root;
+				}
+			}
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * @return a root of the distance function found by Newton's method from initial or NaN if none was found
+	 */
+	private double newton(double initial) {
+		double t = initial;
+		for (int count = 0; count < NEWTON_STEPS; count++) {
+			this.evaluate(t);
+			if (Double.isNaN(this.f) || Double.isNaN(this.fPrime)) {
+				return Double.NaN;
+			}
+			final double next = t - this.f / this.fPrime;
+			if (Math.abs(next - t) < NEWTON_EPSILON) {
+				return Math.abs(this.f) < 1000 * NEWTON_EPSILON ? next : Double.NaN;
+			}
+			t = next;
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * Sets f and fPrime to the distance function and its derivative at time t. Both are NaN if a ball
+	 * would not hit the rotating wall between its end points.
+	 */
+	private void evaluate(double t) {
+		if (!this.rotatingWall) {
+			final double c_t_cos = this.r1 * Math.cos(this.omega * t + this.phi1);
+			final double c_t_sin = this.r1 * Math.sin(this.omega * t + this.phi1);
+			final double c_x_t = c_t_cos + this.pivotX;
+			final double c_y_t = c_t_sin + this.pivotY;
+			final double b_x_t = this.ballVx * t + this.ballX;
+			final double b_y_t = this.ballVy * t + this.ballY;
+			final double dist_sq = (c_x_t - b_x_t) * (c_x_t - b_x_t) + (c_y_t - b_y_t) * (c_y_t - b_y_t);
+			final double c_x_t_prime = -this.omega * c_t_sin;
+			final double c_y_t_prime = this.omega * c_t_cos;
+			this.f = dist_sq - this.reach2;
+			this.fPrime = 2 * (c_x_t - b_x_t) * (c_x_t_prime - this.ballVx) + 2 * (c_y_t - b_y_t) * (c_y_t_prime - this.ballVy);
+			return;
+		}
+		final double p1_t_cos = this.r1 * Math.cos(this.omega * t + this.phi1);
+		final double p1_t_sin = this.r1 * Math.sin(this.omega * t + this.phi1);
+		final double p2_t_cos = this.r2 * Math.cos(this.omega * t + this.phi2);
+		final double p2_t_sin = this.r2 * Math.sin(this.omega * t + this.phi2);
+		final double x1_t = p1_t_cos + this.pivotX;
+		final double y1_t = p1_t_sin + this.pivotY;
+		final double x2_t = p2_t_cos + this.pivotX;
+		final double y2_t = p2_t_sin + this.pivotY;
+		final double b_x_t = this.ballVx * t + this.ballX;
+		final double b_y_t = this.ballVy * t + this.ballY;
+
+		// The point on the segment closest to the center of the ball
+		final double height = y2_t - y1_t;
+		final double width = x2_t - x1_t;
+		final double length_squared = width * width + height * height;
+		final double fraction = (((width * (b_x_t - x1_t)) + (height * (b_y_t - y1_t))) / (length_squared));
+		if (!((0.0 <= fraction) && (fraction <= 1.0))) {
+			this.f = Double.NaN;
+			this.fPrime = Double.NaN;
+			return;
+		}
+		final double x_t = x1_t + fraction * width;
+		final double y_t = y1_t + fraction * height;
+		final double dist_sq = (x_t - b_x_t) * (x_t - b_x_t) + (y_t - b_y_t) * (y_t - b_y_t);
+
+		final double x1_t_prime = -this.omega * p1_t_sin;
+		final double y1_t_prime = this.omega * p1_t_cos;
+		final double x2_t_prime = -this.omega * p2_t_sin;
+		final double y2_t_prime = this.omega * p2_t_cos;
+		final double b_x_t_prime = this.ballVx;
+		final double b_y_t_prime = this.ballVy;
+		final double height_prime = y2_t_prime - y1_t_prime;
+		final double width_prime = x2_t_prime - x1_t_prime;
+		final double length_squared_prime = 2 * width * width_prime + 2 * height * height_prime;
+		final double fraction_prime =
+				((length_squared * ((width_prime * (b_x_t - x1_t) + width * (b_x_t_prime - x1_t_prime))
+						+ (height_prime * (b_y_t - y1_t) + height * (b_y_t_prime - y1_t_prime))))
+				- (length_squared_prime * ((width * (b_x_t - x1_t)) + (height * (b_y_t - y1_t)))))
+				/ (length_squared * length_squared);
+		final double x_t_prime = x1_t_prime + fraction * width_prime + fraction_prime * width;
+		final double y_t_prime = y1_t_prime + fraction * height_prime + fraction_prime * height;
+
+		this.f = dist_sq - this.reach2;
+		this.fPrime = 2 * (x_t - b_x_t) * (x_t_prime - b_x_t_prime) + 2 * (y_t - b_y_t) * (y_t_prime - b_y_t_prime);
+	}
+
+	/**
+	 * Reflects a velocity off the line segment from (x1, y1) to (x2, y2) in a perfectly elastic collision.
+	 * The result is available from vx() and vy(). Computes exactly the same velocity as
+	 * <code>Physics.reflectWall</code>.
+	 */
+	public void reflectWall(double x1, double y1, double x2, double y2, double vx, double vy) {
+		final double length = Math.sqrt((vx * vx) + (vy * vy));
+		if (length == 0.0) {
+			this.vx = vx;
+			this.vy = vy;
+			return;
+		}
+		// The angle of incidence is alpha - theta so the angle of reflection is 2 theta - alpha
+		final double thetaCos = unitX(x2 - x1, y2 - y1);
+		final double thetaSin = unitY(x2 - x1, y2 - y1);
+		this.reflect(thetaCos, thetaSin, unitX(vx, vy), unitY(vx, vy), length);
+	}
+
+	/**
+	 * Reflects a velocity off the line segment from (x1, y1) to (x2, y2) accounting for the coefficient of
+	 * reflection of the segment. The result is available from vx() and vy(). Computes exactly the same
+	 * velocity as <code>Physics.reflectWall</code>.
+	 * @param reflectionCoeff coefficient of reflection of the segment
+	 */
+	public void reflectWall(double x1, double y1, double x2, double y2, double vx, double vy, double reflectionCoeff) {
+		this.reflectWall(x1, y1, x2, y2, vx, vy);
+		this.applyReflectionCoeff(vx, vy, reflectionCoeff);
+	}
+
+	/**
+	 * Reflects the velocity of a ball centered at (a, b) off a circle centered at (x, y) in a perfectly
+	 * elastic collision. The result is available from vx() and vy(). Computes exactly the same velocity
+	 * as <code>Physics.reflectCircle</code>.
+	 */
+	public void reflectCircle(double x, double y, double a, double b, double vx, double vy) {
+		final double length = Math.sqrt((vx * vx) + (vy * vy));
+		if (length == 0.0) {
+			this.vx = vx;
+			this.vy = vy;
+			return;
+		}
+		// It is as if the ball hits a wall perpendicular to the angle of incidence
+		final double incidenceX = x - a;
+		final double incidenceY = y - b;
+		final double r = Math.sqrt((incidenceX * incidenceX) + (incidenceY * incidenceY));
+		final double incidenceCos = r == 0.0 ? 1.0 : unitX(incidenceX, incidenceY);
+		final double incidenceSin = r == 0.0 ? 0.0 : unitY(incidenceX, incidenceY);
+		final double cos = (incidenceCos * 0.0) - (incidenceSin * 1.0);
+		final double sin = (incidenceSin * 0.0) + (incidenceCos * 1.0);
+		this.reflect(unitX(cos, sin), unitY(cos, sin), unitX(vx, vy), unitY(vx, vy), length);
+	}
+
+	/**
+	 * Reflects the velocity of a ball centered at (a, b) off a circle centered at (x, y) accounting for
+	 * the coefficient of reflection of the circle. The result is available from vx() and vy(). Computes
+	 * exactly the same velocity as <code>Physics.reflectCircle</code>.
+	 * @param reflectionCoeff coefficient of reflection of the circle
+	 */
+	public void reflectCircle(double x, double y, double a, double b, double vx, double vy, double reflectionCoeff) {
+		this.reflectCircle(x, y, a, b, vx, vy);
+		this.applyReflectionCoeff(vx, vy, reflectionCoeff);
+	}
+
+	/**
+	 * Reflects the velocity of a ball centered at (a, b) off the line segment from (x1, y1) to (x2, y2)
+	 * rotating about (pivotX, pivotY). The result is available from vx() and vy(). Computes exactly the same
+	 * velocity as <code>Physics.reflectRotatingWall</code>.
+	 * @param angularVelocity angular velocity of the segment in radians per second, counterclockwise
+	 * @param reflectionCoeff coefficient of reflection of the segment
+	 */
+	public void reflectRotatingWall(double x1, double y1, double x2, double y2, double pivotX, double pivotY,
+			double angularVelocity, double a, double b, double vx, double vy, double reflectionCoeff) {
+		if (angularVelocity == 0.0) {
+			this.reflectWall(x1, y1, x2, y2, vx, vy, reflectionCoeff);
+			return;
+		}
+		// Translate everything so that the pivot is the origin and find where the ball and the segment collide
+		final double p1x = x1 - pivotX;
+		final double p1y = y1 - pivotY;
+		final double p2x = x2 - pivotX;
+		final double p2y = y2 - pivotY;
+		final double height = (p2y - p1y);
+		final double width = (p2x - p1x);
+		final double lengthSquared = (height * height) + (width * width);
+		final double fraction = (((width * ((a - pivotX) - p1x)) + (height * ((b - pivotY) - p1y))) / lengthSquared);
+		if (fraction < 0 || fraction > 1) {
+			this.vx = vx;
+			this.vy = vy;
+			return;
+		}
+		final double perpX = p1x + fraction * width;
+		final double perpY = p1y + fraction * height;
+
+		// Reflect in the reference frame of the moving segment
+		final double myVx = rotate90X(perpX * angularVelocity, perpY * angularVelocity);
+		final double myVy = rotate90Y(perpX * angularVelocity, perpY * angularVelocity);
+		this.reflectWall(p1x, p1y, p2x, p2y, vx - myVx, vy - myVy, reflectionCoeff);
+		this.vx = myVx + this.vx;
+		this.vy = myVy + this.vy;
+	}
+
+	/**
+	 * Reflects the velocity of a ball centered at (a, b) off the circle centered at (x, y) rotating about
+	 * (pivotX, pivotY). The result is available from vx() and vy(). Computes exactly the same velocity as
+	 * <code>Physics.reflectRotatingCircle</code>.
+	 * @param circleRadius radius of the circle
+	 * @param angularVelocity angular velocity of the circle in radians per second, counterclockwise
+	 * @param radius radius of the ball
+	 * @param reflectionCoeff coefficient of reflection of the circle
+	 */
+	public void reflectRotatingCircle(double x, double y, double circleRadius, double pivotX, double pivotY,
+			double angularVelocity, double a, double b, double radius, double vx, double vy, double reflectionCoeff) {
+		if (angularVelocity == 0.0) {
+			this.reflectCircle(x, y, a, b, vx, vy, reflectionCoeff);
+			return;
+		}
+		// Translate everything so that the pivot is the origin and find where the ball and the circle collide
+		final double circleX = x - pivotX;
+		final double circleY = y - pivotY;
+		final double ballX = a - pivotX;
+		final double ballY = b - pivotY;
+		final double ratio = circleRadius / (circleRadius + radius);
+		final double collideX = circleX + ((circleX - ballX) * ratio);
+		final double collideY = circleY + ((circleY - ballY) * ratio);
+
+		// Reflect in the reference frame of the moving circle
+		final double myVx = rotate90X(collideX * angularVelocity, collideY * angularVelocity);
+		final double myVy = rotate90Y(collideX * angularVelocity, collideY * angularVelocity);
+		this.reflectCircle(circleX, circleY, ballX, ballY, vx - myVx, vy - myVy, reflectionCoeff);
+		this.vx = myVx + this.vx;
+		this.vy = myVy + this.vy;
+	}
+
+	/**
+	 * Reflects two colliding balls in a perfectly elastic collision. The velocity of the first ball is
+	 * available from vx() and vy() and the velocity of the second from otherVx() and otherVy(). Computes
+	 * exactly the same velocities as <code>Physics.reflectBalls</code>.
+	 */
+	public void reflectBalls(double x1, double y1, double mass1, double vx1, double vy1,
+			double x2, double y2, double mass2, double vx2, double vy2) {
+		final double m1 = mass1;
+		final double m2 = mass2;
+		final double m = m1 / m2;
+
+		final double dx = x1 - x2;
+		final double dy = y1 - y2;
+		final double r = Math.sqrt((dx * dx) + (dy * dy));
+		final double cos = r == 0.0 ? 1.0 : unitX(dx, dy);
+		final double sin = r == 0.0 ? 0.0 : unitY(dx, dy);
+		final double tx = 1.0 * cos;
+		final double ty = 1.0 * sin;
+
+		final double gamma = (-2 * (vx1 * tx * m1 + vy1 * ty * m1 - vx2 * tx * m * m2 - vy2 * ty * m * m2))
+				/ (tx * tx * m1 + ty * ty * m1 + m * m * tx * tx * m2 + m * m * ty * ty * m2);
+
+		this.vx = vx1 + tx * gamma;
+		this.vy = vy1 + ty * gamma;
+		this.otherVx = vx2 + -tx * (gamma * m);
+		this.otherVy = vy2 + -ty * (gamma * m);
+	}
+
+	/**
+	 * Sets the velocity to length in the direction phi = 2 theta - alpha
+	 */
+	private void reflect(double thetaCos, double thetaSin, double alphaCos, double alphaSin, double length) {
+		final double doubleCos = (thetaCos * thetaCos) - (thetaSin * thetaSin);
+		final double doubleSin = (thetaSin * thetaCos) + (thetaCos * thetaSin);
+		final double twoThetaCos = unitX(doubleCos, doubleSin);
+		final double twoThetaSin = unitY(doubleCos, doubleSin);
+		final double cos = (twoThetaCos * alphaCos) + (twoThetaSin * alphaSin);
+		final double sin = (twoThetaSin * alphaCos) - (twoThetaCos * alphaSin);
+		this.vx = polarX(unitX(cos, sin), unitY(cos, sin), length);
+		this.vy = polarY(unitX(cos, sin), unitY(cos, sin), length);
+	}
+
+	/**
+	 * Moves the velocity computed by the last reflection of the incident velocity (vx, vy) towards the
+	 * incident velocity according to the coefficient of reflection.
+	 */
+	private void applyReflectionCoeff(double vx, double vy, double reflectionCoeff) {
+		this.vx = vx + ((this.vx - vx) * (0.5 + 0.5 * reflectionCoeff));
+		this.vy = vy + ((this.vy - vy) * (0.5 + 0.5 * reflectionCoeff));
+	}
+
+	/**
+	 * @return x component of (x, y) rotated a quarter turn counterclockwise
+	 */
+	private static double rotate90X(double x, double y) {
+		final double r = Math.sqrt((x * x) + (y * y));
+		if (r == 0.0) return 0.0;
+		final double cos = (unitX(x, y) * 0.0) - (unitY(x, y) * 1.0);
+		final double sin = (unitY(x, y) * 0.0) + (unitX(x, y) * 1.0);
+		return polarX(unitX(cos, sin), unitY(cos, sin), r);
+	}
+
+	/**
+	 * @return y component of (x, y) rotated a quarter turn counterclockwise
+	 */
+	private static double rotate90Y(double x, double y) {
+		final double r = Math.sqrt((x * x) + (y * y));
+		if (r == 0.0) return 0.0;
+		final double cos = (unitX(x, y) * 0.0) - (unitY(x, y) * 1.0);
+		final double sin = (unitY(x, y) * 0.0) + (unitX(x, y) * 1.0);
+		return polarY(unitX(cos, sin), unitY(cos, sin), r);
+	}
+
+	/**
+	 * @return x component of the vector length long at the angle (cos, sin). A negative length points
+	 * 		the opposite way.
+	 */
+	private static double polarX(double cos, double sin, double length) {
+		if (length == 0.0) return 0.0;
+		if (length > 0.0) return length * cos;
+		return -length * unitX((cos * -1.0) - (sin * 0.0), (sin * -1.0) + (cos * 0.0));
+	}
+
+	/**
+	 * @return y component of the vector length long at the angle (cos, sin). A negative length points
+	 * 		the opposite way.
+	 */
+	private static double polarY(double cos, double sin, double length) {
+		if (length == 0.0) return 0.0;
+		if (length > 0.0) return length * sin;
+		return -length * unitY((cos * -1.0) - (sin * 0.0), (sin * -1.0) + (cos * 0.0));
+	}
+
+	/**
+	 * @return x component of the unit vector in the direction of (x, y)
+	 */
+	private static double unitX(double x, double y) {
+		return x / Math.sqrt((x * x) + (y * y));
+	}
+
+	/**
+	 * @return y component of the unit vector in the direction of (x, y)
+	 */
+	private static double unitY(double x, double y) {
+		return y / Math.sqrt((x * x) + (y * y));
+	}
+
+	/**
+	 * @return the smaller solution of a * x^2 + b * x + c = 0 or NaN if there is no solution
+	 */
+	private static double minQuadraticSolution(double a, double b, double c) {
+		if (a == 0.0) {
+			return b == 0.0 ? Double.NaN : -c / b;
+		}
+		final double discriminant = (b * b) - (4.0 * a * c);
+		if (discriminant < 0.0) {
+			return Double.NaN;
+		}
+		final double sqrt = Math.sqrt(discriminant);
+		final double twoA = 2.0 * a;
+		return a > 0 ? (-b - sqrt) / twoA : (-b + sqrt) / twoA;
+	}
+
+	@Override
+	public String toString() {
+		return "Collisions{velocity=(" + this.vx + ", " + this.vy + ")}";
+	}
+}
@@ -0,0 +1,273 @@
+package flingball.physics;
+
+/**
+ * ParabolicCollisions calculates when a ball which is accelerated by gravity and friction collides with line
+ * segments and circles. <code>Ball.move</code> moves a ball at (a, b) with velocity (va, vb) for time t to
+ * (a + va * t + aa * t^2, b + vb * t + ab * t^2), where (aa, ab) is the acceleration given by
+ * <code>accelerationX</code> and <code>accelerationY</code>. Collisions are found along this curved path
+ * instead of the straight line used by <code>Collisions</code>, so a ball which is moved to a predicted
+ * collision touches the geometry even when the step is long.
+ *
+ * The distance between the ball and a segment is a quadratic in t and is solved in closed form. The squared
+ * distance between the ball and a circle is a quartic in t. It is split into pieces on which it is monotone by
+ * the roots of its derivative, which are found in the same way from the roots of the second derivative, and
+ * the first piece on which the ball reaches the circle is searched by bisection. Collisions are only searched
+ * for up to a horizon, as the path of the ball is only followed exactly for one step.
+ *
+ * All coordinates are cartesian. No method creates an object.
+ */
+public final class ParabolicCollisions {
+
+	/**
+	 * Collisions further than this many seconds ahead are not searched for unless the timestep is longer
+	 */
+	public static final double HORIZON = 0.1;
+
+	// Bisection stops once the collision is known to within this many seconds
+	private static final double EPSILON = 1e-12;
+
+	private ParabolicCollisions() {
+	}
+
+	/**
+	 * @param physics physics of a board
+	 * @return the time in seconds up to which collisions are searched for on the board
+	 */
+	public static double horizon(PhysicsContext physics) {
+		return Math.max(HORIZON, physics.timestep());
+	}
+
+	/**
+	 * @param vx x component of the velocity of a ball
+	 * @param vy y component of the velocity of a ball
+	 * @param physics physics of the board the ball is on
+	 * @return the x component of the acceleration of the ball during its next step
+	 */
+	public static double accelerationX(double vx, double vy, PhysicsContext physics) {
+		return -drag(vx, vy, physics) * vx;
+	}
+
+	/**
+	 * @param vx x component of the velocity of a ball
+	 * @param vy y component of the velocity of a ball
+	 * @param physics physics of the board the ball is on
+	 * @return the y component of the acceleration of the ball during its next step
+	 */
+	public static double accelerationY(double vx, double vy, PhysicsContext physics) {
+		return -drag(vx, vy, physics) * vy - physics.gravity();
+	}
+
+	/**
+	 * Friction slows a ball by (mu + mu2 * |v|) * v per second
+	 */
+	private static double drag(double vx, double vy, PhysicsContext physics) {
+		return physics.friction1() + physics.friction2() * Math.sqrt(vx * vx + vy * vy);
+	}
+
+	/**
+	 * Calculates the time until an accelerating ball collides with the line segment from (x1, y1) to (x2, y2),
+	 * excluding its end points. A ball which overlaps the segment collides now if it is moving towards it. If
+	 * the ball does not accelerate the time is the same as <code>Collisions.timeUntilWallCollision</code>.
+	 *
+	 * @param a x coordinate of the center of the ball
+	 * @param b y coordinate of the center of the ball
+	 * @param va x component of the velocity of the ball
+	 * @param vb y component of the velocity of the ball
+	 * @param aa x component of the acceleration of the ball
+	 * @param ab y component of the acceleration of the ball
+	 * @param radius radius of the ball
+	 * @param horizon time in seconds up to which collisions are searched for
+	 * @return time in seconds until the collision or POSITIVE_INFINITY if the ball will not collide with the
+	 * 		segment before horizon
+	 */
+	public static double timeUntilWallCollision(double x1, double y1, double x2, double y2,
+			double a, double b, double va, double vb, double aa, double ab, double radius, double horizon) {
+		if (aa == 0 && ab == 0) {
+			final double t = Collisions.timeUntilWallCollision(x1, y1, x2, y2, a, b, va, vb, radius);
+			return t <= horizon ? t : Double.POSITIVE_INFINITY;
+		}
+		final double width = x2 - x1;
+		final double height = y2 - y1;
+		final double H = (width * width) + (height * height);
+		// The distance of the ball from the line through the segment times its length is G + F * t + K * t^2
+		final double F = (va * height) - (vb * width);
+		final double G = (a * height) - (b * width) + ((x2 * y1) - (x1 * y2));
+		final double K = (aa * height) - (ab * width);
+		final double reach = radius * Math.sqrt(H);
+
+		if (G * G <= reach * reach && onSegment(x1, y1, width, height, H, a, b)) {
+			// The ball overlaps the segment. It collides now if it is moving towards the segment.
+			if (G * F < 0) {
+				return 0;
+			}
+		}
+		// The ball reaches the line from one side when the distance falls to reach and from the other when it
+		// rises to -reach
+		double earliest = Double.POSITIVE_INFINITY;
+		for (int side = -1; side <= 1; side += 2) {
+			final double c = G - side * reach;
+			double t1 = Double.NaN, t2 = Double.NaN;
+			if (K == 0) {
+				t1 = -c / F;
+			} else {
+				final double q = F * F - 4 * K * c;
+				if (q < 0) continue;
+				final double p = -0.5 * (F + Math.copySign(Math.sqrt(q), F));
+				t1 = p / K;
+				t2 = c / p;
+			}
+			for (int root = 0; root < 2; root++) {
+				final double t = root == 0 ? t1 : t2;
+				if (!(t > 0 && t <= horizon && t < earliest)) continue;
+				// Only count the root at which the ball moves towards the line
+				if (side * (F + 2 * K * t) >= 0) continue;
+				if (onSegment(x1, y1, width, height, H, a + va * t + aa * t * t, b + vb * t + ab * t * t)) {
+					earliest = t;
+				}
+			}
+		}
+		return earliest;
+	}
+
+	/**
+	 * @return true if the point on the line through the segment closest to (cX, cY) is on the segment
+	 */
+	private static boolean onSegment(double x1, double y1, double width, double height, double H, double cX, double cY) {
+		final double minS = ((width * (cX - x1)) + (height * (cY - y1))) / H;
+		return 0.0 <= minS && minS < 1.0;
+	}
+
+	/**
+	 * Calculates the time until an accelerating ball collides with the circle centered at (x, y). A ball which
+	 * overlaps the circle collides now if it is moving towards it. If the ball does not accelerate the time is
+	 * the same as <code>Collisions.timeUntilCircleCollision</code>.
+	 *
+	 * @param circleRadius radius of the circle
+	 * @param a x coordinate of the center of the ball
+	 * @param b y coordinate of the center of the ball
+	 * @param va x component of the velocity of the ball
+	 * @param vb y component of the velocity of the ball
+	 * @param aa x component of the acceleration of the ball
+	 * @param ab y component of the acceleration of the ball
+	 * @param radius radius of the ball
+	 * @param horizon time in seconds up to which collisions are searched for
+	 * @return time in seconds until the collision or POSITIVE_INFINITY if the ball will not collide with the
+	 * 		circle before horizon. The ball does not yet overlap the circle at the time returned.
+	 */
+	public static double timeUntilCircleCollision(double x, double y, double circleRadius,
+			double a, double b, double va, double vb, double aa, double ab, double radius, double horizon) {
+		if (aa == 0 && ab == 0) {
+			final double t = Collisions.timeUntilCircleCollision(x, y, circleRadius, a, b, va, vb, radius);
+			return t <= horizon ? t : Double.POSITIVE_INFINITY;
+		}
+		final double distance = circleRadius + radius;
+		final double width = a - x;
+		final double height = b - y;
+		// The squared distance between the centers minus distance^2 is c0 + c1 t + c2 t^2 + c3 t^3 + c4 t^4
+		final double c0 = (width * width) + (height * height) - (distance * distance);
+		final double c1 = 2.0 * ((width * va) + (height * vb));
+		final double c2 = (va * va) + (vb * vb) + 2.0 * ((width * aa) + (height * ab));
+		final double c3 = 2.0 * ((va * aa) + (vb * ab));
+		final double c4 = (aa * aa) + (ab * ab);
+
+		if (c0 <= 0) {
+			// The ball overlaps the circle. It collides now if it is moving towards the circle.
+			if (c1 < 0) {
+				return 0;
+			}
+		} else {
+			// The ball cannot move further than |v| * horizon + |a| * horizon^2
+			final double travel = Math.sqrt((va * va) + (vb * vb)) * horizon + Math.sqrt(c4) * horizon * horizon;
+			final double gap = Math.sqrt((width * width) + (height * height)) - distance;
+			if (gap > travel) {
+				return Double.POSITIVE_INFINITY;
+			}
+		}
+
+		// The derivative is monotone between the roots of the second derivative 12 c4 t^2 + 6 c3 t + 2 c2
+		double r1 = Double.NaN, r2 = Double.NaN;
+		final double q = 36 * c3 * c3 - 96 * c4 * c2;
+		if (q >= 0) {
+			final double p = -0.5 * (6 * c3 + Math.copySign(Math.sqrt(q), c3));
+			r1 = p / (12 * c4);
+			r2 = p == 0 ? r1 : (2 * c2) / p;
+			if (r2 < r1) {
+				final double swap = r1;
+				r1 = r2;
+				r2 = swap;
+			}
+		}
+
+		// The squared distance is monotone between the roots of its derivative. The ball reaches the circle
+		// on the first such piece which starts outside the circle and ends inside it.
+		double lo = 0;
+		double fLo = c0;
+		while (lo < horizon) {
+			final double hi = nextRootOfDerivative(lo, horizon, c1, c2, c3, c4, r1, r2);
+			final double fHi = quartic(hi, c0, c1, c2, c3, c4);
+			if (fLo > 0 && fHi <= 0) {
+				double outside = lo;
+				double inside = hi;
+				while (inside - outside > EPSILON) {
+					final double mid = 0.5 * (outside + inside);
+					if (mid <= outside || mid >= inside) break;
+					if (quartic(mid, c0, c1, c2, c3, c4) > 0) {
+						outside = mid;
+					} else {
+						inside = mid;
+					}
+				}
+				return outside;
+			}
+			lo = hi;
+			fLo = fHi;
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Finds the first root after lo of the derivative c1 + 2 c2 t + 3 c3 t^2 + 4 c4 t^3 of a quartic.
+	 * @param r1 first root of the second derivative or NaN
+	 * @param r2 second root of the second derivative, >= r1, or NaN
+	 * @return the first root in (lo, hi] or hi if there is none
+	 */
+	private static double nextRootOfDerivative(double lo, double hi, double c1, double c2, double c3, double c4,
+			double r1, double r2) {
+		double start = lo;
+		double gStart = cubic(start, c1, c2, c3, c4);
+		for (int piece = 0; piece < 3; piece++) {
+			final double split = piece == 0 ? r1 : piece == 1 ? r2 : hi;
+			if (!(split > start)) continue;
+			final double end = Math.min(split, hi);
+			final double gEnd = cubic(end, c1, c2, c3, c4);
+			if ((gStart < 0 && gEnd >= 0) || (gStart > 0 && gEnd <= 0)) {
+				// The derivative is monotone on this piece so it has exactly one root in it
+				double below = start;
+				double above = end;
+				while (above - below > EPSILON) {
+					final double mid = 0.5 * (below + above);
+					if (mid <= below || mid >= above) break;
+					final double g = cubic(mid, c1, c2, c3, c4);
+					if ((g < 0) == (gStart < 0) && g != 0) {
+						below = mid;
+					} else {
+						above = mid;
+					}
+				}
+				return above;
+			}
+			if (end >= hi) break;
+			start = end;
+			gStart = gEnd;
+		}
+		return hi;
+	}
+
+	private static double quartic(double t, double c0, double c1, double c2, double c3, double c4) {
+		return c0 + t * (c1 + t * (c2 + t * (c3 + t * c4)));
+	}
+
+	private static double cubic(double t, double c1, double c2, double c3, double c4) {
+		return c1 + t * (2 * c2 + t * (3 * c3 + t * 4 * c4));
+	}
+}
@@ -0,0 +1,289 @@
+package flingball.physics;
+
+/**
+ * An immutable set of physical constants and tuning parameters used to play one flingball board. Every
+ * board has its own context which is passed to each collision and reflection, so boards with different
+ * settings can be played side by side in one JVM. A context is changed by creating a new one with one of
+ * the <code>with</code> methods.
+ */
+public final class PhysicsContext {
+
+	/**
+	 * Default length of a tick in seconds
+	 */
+	public static final double DEFAULT_TIMESTEP = 0.005;
+
+	/**
+	 * Default gravity in L / s^2
+	 */
+	public static final double DEFAULT_GRAVITY = 25.0;
+
+	/**
+	 * Default coefficient of friction mu in s^-1
+	 */
+	public static final double DEFAULT_FRICTION_1 = 0.025;
+
+	/**
+	 * Default coefficient of friction mu2 in L^-1
+	 */
+	public static final double DEFAULT_FRICTION_2 = 0.025;
+
+	/**
+	 * Default quantization step in L used to round the position and velocity of a moving ball
+	 */
+	public static final double DEFAULT_QUANTUM = 0.01;
+
+	/**
+	 * Default time in seconds a ball must be at rest before it is put to sleep
+	 */
+	public static final double DEFAULT_SLEEP_TIME = 0.5;
+
+	/**
+	 * Step tolerance in L which a board uses when adaptive stepping is turned on without choosing one
+	 */
+	public static final double DEFAULT_STEP_TOLERANCE = 0.001;
+
+	/**
+	 * The context of a board with default settings
+	 */
+	public static final PhysicsContext DEFAULT = new PhysicsContext(Collisions.DEFAULT_FORESIGHT, DEFAULT_TIMESTEP,
+			DEFAULT_GRAVITY, DEFAULT_FRICTION_1, DEFAULT_FRICTION_2, DEFAULT_QUANTUM, DEFAULT_SLEEP_TIME, false, 0);
+
+	private final double foresight;
+	private final double timestep;
+	private final double gravity;
+	private final double friction1;
+	private final double friction2;
+	private final double quantum;
+	private final double sleepTime;
+	private final boolean parabolicPrediction;
+	private final double stepTolerance;
+
+	/*
+	 * AF(foresight, timestep, gravity, friction1, friction2, quantum, sleepTime, parabolicPrediction,
+	 * 		stepTolerance) ::= A board played in ticks of timestep seconds with gravity gravity and
+	 * 		coefficients of friction friction1 and friction2. Balls are rounded to multiples of quantum after they move and collisions with rotating gadgets are
+	 * 		searched for up to foresight seconds ahead. A ball which has been at rest for sleepTime seconds is
+	 * 		put to sleep, or never if sleepTime is 0. Collisions with stationary geometry are predicted along the
+	 * 		curved path of the ball if parabolicPrediction, otherwise along a straight line. A ball near a gadget
+	 * 		is moved in sub-steps short enough that its path strays at most stepTolerance from the straight line
+	 * 		along which its collisions are predicted, or in whole ticks if stepTolerance is 0.
+	 * Rep Invariant ::=
+	 * 		foresight > 0
+	 * 		timestep > 0
+	 * 		quantum >= 0
+	 * 		sleepTime >= 0
+	 * 		stepTolerance >= 0
+	 * Safety from rep exposure ::=
+	 * 		All fields are private, final and primitive.
+	 * Thread Safety Argument ::=
+	 * 		PhysicsContext is immutable.
+	 */
+
+	private void checkRep() {
+		assert foresight > 0 : "PhysicsContext: foresight <= 0";
+		assert timestep > 0 : "PhysicsContext: timestep <= 0";
+		assert quantum >= 0 : "PhysicsContext: quantum < 0";
+		assert sleepTime >= 0 : "PhysicsContext: sleepTime < 0";
+		assert stepTolerance >= 0 : "PhysicsContext: stepTolerance < 0";
+	}
+
+	/**
+	 * Creates a physics context.
+	 * @param foresight maximal time in seconds in the future that a collision with a rotating gadget is
+	 * 		searched for. Must be > 0
+	 * @param timestep length of a tick in seconds. Must be > 0
+	 * @param gravity gravity in L / s^2
+	 * @param friction1 coefficient of friction mu in s^-1
+	 * @param friction2 coefficient of friction mu2 in L^-1
+	 * @param quantum the position and velocity of a moving ball are rounded half up to a multiple of quantum.
+	 * 		Must be 1 / n for a whole number n or 0 if balls should not be rounded.
+	 * @param sleepTime time in seconds a ball must be at rest before it is put to sleep. Must be >= 0. A ball
+	 * 		never sleeps if sleepTime is 0
+	 * @param parabolicPrediction true if collisions with stationary geometry are predicted along the curved path
+	 * 		the ball follows under gravity and friction, false if they are predicted along a straight line
+	 * @param stepTolerance distance in L by which the path of a ball near a gadget may stray from the straight
+	 * 		line along which its collisions are predicted during one sub-step. Must be >= 0. Balls are moved in
+	 * 		whole ticks if stepTolerance is 0
+	 */
+	public PhysicsContext(double foresight, double timestep, double gravity, double friction1, double friction2,
+			double quantum, double sleepTime, boolean parabolicPrediction, double stepTolerance) {
+		this.foresight = foresight;
+		this.timestep = timestep;
+		this.gravity = gravity;
+		this.friction1 = friction1;
+		this.friction2 = friction2;
+		this.quantum = quantum;
+		this.sleepTime = sleepTime;
+		this.parabolicPrediction = parabolicPrediction;
+		this.stepTolerance = stepTolerance;
+		checkRep();
+	}
+
+	/**
+	 * @return maximal time in seconds in the future that a collision with a rotating gadget is searched for
+	 */
+	public double foresight() {
+		return this.foresight;
+	}
+
+	/**
+	 * @return length of a tick in seconds
+	 */
+	public double timestep() {
+		return this.timestep;
+	}
+
+	/**
+	 * @return gravity in L / s^2
+	 */
+	public double gravity() {
+		return this.gravity;
+	}
+
+	/**
+	 * @return coefficient of friction mu in s^-1
+	 */
+	public double friction1() {
+		return this.friction1;
+	}
+
+	/**
+	 * @return coefficient of friction mu2 in L^-1
+	 */
+	public double friction2() {
+		return this.friction2;
+	}
+
+	/**
+	 * @return the step in L to which the position and velocity of a moving ball are rounded, or 0
+	 */
+	public double quantum() {
+		return this.quantum;
+	}
+
+	/**
+	 * @return time in seconds a ball must be at rest before it is put to sleep, or 0 if balls never sleep
+	 */
+	public double sleepTime() {
+		return this.sleepTime;
+	}
+
+	/**
+	 * @return true if collisions with stationary geometry are predicted along the curved path of the ball
+	 */
+	public boolean parabolicPrediction() {
+		return this.parabolicPrediction;
+	}
+
+	/**
+	 * @return distance in L by which the path of a ball near a gadget may stray from the straight line along
+	 * 		which its collisions are predicted during one sub-step, or 0 if balls are moved in whole ticks
+	 */
+	public double stepTolerance() {
+		return this.stepTolerance;
+	}
+
+	/**
+	 * @param foresight maximal time in seconds in the future that a collision with a rotating gadget is
+	 * 		searched for. Must be > 0
+	 * @return a copy of this context with the given foresight
+	 */
+	public PhysicsContext withForesight(double foresight) {
+		return new PhysicsContext(foresight, this.timestep, this.gravity, this.friction1, this.friction2, this.quantum,
+				this.sleepTime, this.parabolicPrediction, this.stepTolerance);
+	}
+
+	/**
+	 * @param timestep length of a tick in seconds. Must be > 0
+	 * @return a copy of this context with the given timestep
+	 */
+	public PhysicsContext withTimestep(double timestep) {
+		return new PhysicsContext(this.foresight, timestep, this.gravity, this.friction1, this.friction2, this.quantum,
+				this.sleepTime, this.parabolicPrediction, this.stepTolerance);
+	}
+
+	/**
+	 * @param gravity gravity in L / s^2
+	 * @return a copy of this context with the given gravity
+	 */
+	public PhysicsContext withGravity(double gravity) {
+		return new PhysicsContext(this.foresight, this.timestep, gravity, this.friction1, this.friction2, this.quantum,
+				this.sleepTime, this.parabolicPrediction, this.stepTolerance);
+	}
+
+	/**
+	 * @param friction1 coefficient of friction mu in s^-1
+	 * @param friction2 coefficient of friction mu2 in L^-1
+	 * @return a copy of this context with the given coefficients of friction
+	 */
+	public PhysicsContext withFriction(double friction1, double friction2) {
+		return new PhysicsContext(this.foresight, this.timestep, this.gravity, friction1, friction2, this.quantum, this.sleepTime,
+				this.parabolicPrediction, this.stepTolerance);
+	}
+
+	/**
+	 * @param quantum step in L to which balls are rounded. Must be 1 / n for a whole number n or 0
+	 * @return a copy of this context with the given quantum
+	 */
+	public PhysicsContext withQuantum(double quantum) {
+		return new PhysicsContext(this.foresight, this.timestep, this.gravity, this.friction1, this.friction2, quantum,
+				this.sleepTime, this.parabolicPrediction, this.stepTolerance);
+	}
+
+	/**
+	 * @param sleepTime time in seconds a ball must be at rest before it is put to sleep. Must be >= 0. A ball
+	 * 		never sleeps if sleepTime is 0
+	 * @return a copy of this context with the given sleep time
+	 */
+	public PhysicsContext withSleepTime(double sleepTime) {
+		return new PhysicsContext(this.foresight, this.timestep, this.gravity, this.friction1, this.friction2, this.quantum,
+				sleepTime, this.parabolicPrediction, this.stepTolerance);
+	}
+
+	/**
+	 * @param parabolicPrediction true if collisions with stationary geometry should be predicted along the curved
+	 * 		path of the ball, false if they should be predicted along a straight line
+	 * @return a copy of this context with the given kind of prediction
+	 */
+	public PhysicsContext withParabolicPrediction(boolean parabolicPrediction) {
+		return new PhysicsContext(this.foresight, this.timestep, this.gravity, this.friction1, this.friction2, this.quantum,
+				this.sleepTime, parabolicPrediction, this.stepTolerance);
+	}
+
+	/**
+	 * @param stepTolerance distance in L by which the path of a ball near a gadget may stray from the straight
+	 * 		line along which its collisions are predicted during one sub-step. Must be >= 0. Balls are moved in
+	 * 		whole ticks if stepTolerance is 0
+	 * @return a copy of this context with the given step tolerance
+	 */
+	public PhysicsContext withStepTolerance(double stepTolerance) {
+		return new PhysicsContext(this.foresight, this.timestep, this.gravity, this.friction1, this.friction2, this.quantum,
+				this.sleepTime, this.parabolicPrediction, stepTolerance);
+	}
+
+	@Override
+	public boolean equals(Object that) {
+		if (!(that instanceof PhysicsContext)) return false;
+		final PhysicsContext other = (PhysicsContext) that;
+		return this.foresight == other.foresight && this.timestep == other.timestep && this.gravity == other.gravity
+				&& this.friction1 == other.friction1 && this.friction2 == other.friction2 && this.quantum == other.quantum
+				&& this.sleepTime == other.sleepTime && this.parabolicPrediction == other.parabolicPrediction
+				&& this.stepTolerance == other.stepTolerance;
+	}
+
+	@Override
+	public int hashCode() {
+		return Double.hashCode(this.foresight) + 31 * Double.hashCode(this.timestep) + 17 * Double.hashCode(this.gravity)
+				+ 13 * Double.hashCode(this.friction1) + 7 * Double.hashCode(this.friction2) + 3 * Double.hashCode(this.quantum)
+				+ Double.hashCode(this.sleepTime) + (this.parabolicPrediction ? 1 : 0) + 5 * Double.hashCode(this.stepTolerance);
+	}
+
+	@Override
+	public String toString() {
+		return "PhysicsContext{foresight=" + this.foresight + ", timestep=" + this.timestep + ", gravity=" + this.gravity
+				+ ", friction1=" + this.friction1 + ", friction2=" + this.friction2 + ", quantum=" + this.quantum
+				+ ", sleepTime=" + this.sleepTime + ", parabolicPrediction=" + this.parabolicPrediction
+				+ ", stepTolerance=" + this.stepTolerance + "}";
+	}
+}
@@ -0,0 +1,212 @@
+package flingball;
+
+import static flingball.BoardBenchmark.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import flingball.gadgets.Absorber;
+import physics.Vect;
+
+/**
+ * Benchmarks for balls held in a BallStore: the cost and garbage of moving one ball, memory per ball and
+ * slot order on crowded boards, sleeping balls trapped in absorbers, and how long drawing code waits to
+ * read the balls of a board being played. Run on its own or from BoardBenchmark.
+ */
+public class BallStoreBenchmark {
+
+	public static void main(String[] args) {
+		ballMove();
+		ballStoreScaling();
+		sleepingBalls();
+		ballRegistry();
+	}
+
+	/**
+	 * Prints the cost in time and in allocated bytes of moving a single ball for one tick with the
+	 * default quantization step and without quantization.
+	 */
+	static void ballMove() {
+		System.out.println("quantum\tns/move\tbytes/move");
+		final java.lang.management.ThreadMXBean threads = java.lang.management.ManagementFactory.getThreadMXBean();
+		final boolean allocation = threads instanceof com.sun.management.ThreadMXBean;
+		final int moves = MEASURED_TICKS * 100;
+		for (double quantum : new double[] {Ball.DEFAULT_QUANTUM, 0.0}) {
+			// The ball is put back every 100 moves so it never comes to rest against a wall
+			final Vect center = new Vect(10, 5);
+			final Vect velocity = new Vect(7.3, -4.1);
+			final Ball ball = new Ball("Benchmark", center, velocity);
+			double sink = 0;
+			for (int i = 0; i < moves; i++) {
+				if (i % 100 == 0) {
+					ball.setBoardPosition(center);
+					ball.setVelocity(velocity);
+				}
+				ball.move(TIMESTEP, Board.DEFAULT_GRAVITY, Board.DEFAULT_FRICTION_1, Board.DEFAULT_FRICTION_2, quantum);
+			}
+			final long id = Thread.currentThread().getId();
+			final long bytesBefore = allocation ? ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(id) : 0;
+			final long start = System.nanoTime();
+			for (int i = 0; i < moves; i++) {
+				if (i % 100 == 0) {
+					ball.setBoardPosition(center);
+					ball.setVelocity(velocity);
+				}
+				ball.move(TIMESTEP, Board.DEFAULT_GRAVITY, Board.DEFAULT_FRICTION_1, Board.DEFAULT_FRICTION_2, quantum);
+			}
+			final double time = (double) (System.nanoTime() - start) / moves;
+			final long bytes = allocation ? ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(id) - bytesBefore : -1;
+			sink += ball.getBoardCenter().x();
+
+			blackhole = sink;
+			System.out.println(quantum + "\t" + (long) time + "\t" + (bytes < 0 ? "n/a" : String.valueOf(bytes / moves)));
+		}
+	}
+
+	/**
+	 * Prints the memory used by each ball on a board and the cost of a tick against the number of balls
+	 * on a board without gadgets. Small balls are used so that 10000 balls fit on the board without
+	 * overlapping. The cost of moving every ball in the BallStore without checking for collisions is
+	 * timed both in slot order and in a random order to show the effect of reading the store in order.
+	 */
+	static void ballStoreScaling() {
+		System.out.println("balls\tbytes/ball\tns/tick\tns/ball (in order)\tns/ball (random order)");
+		// Load and compile the classes used before anything is measured
+		timeStoreMoves(smallBallBoard(1000, new Random(SEED)).getBallStore(), new int[1000]);
+		for (int ballCount : new int[] {1000, 5000, 10000}) {
+			final Random random = new Random(SEED);
+			final long heapBefore = usedHeap();
+			final Board board = smallBallBoard(ballCount, random);
+			final long bytes = (usedHeap() - heapBefore) / ballCount;
+
+			final int ticks = Math.max(MEASURED_TICKS * 10 / ballCount, 5);
+			for (int i = 0; i < ticks; i++) {
+				board.step(TIMESTEP);
+			}
+			long start = System.nanoTime();
+			for (int i = 0; i < ticks; i++) {
+				board.step(TIMESTEP);
+			}
+			final double tick = (double) (System.nanoTime() - start) / ticks;
+
+			final BallStore store = board.getBallStore();
+			final int[] order = new int[store.size()];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i;
+			}
+			final double inOrder = timeStoreMoves(store, order);
+			for (int i = order.length - 1; i > 0; i--) {
+				final int j = random.nextInt(i + 1);
+				final int swap = order[i];
+				order[i] = order[j];
+				order[j] = swap;
+			}
+			final double randomOrder = timeStoreMoves(store, order);
+
+			System.out.println(ballCount + "\t" + bytes + "\t" + (long) tick + "\t" + inOrder + "\t" + randomOrder);
+		}
+	}
+
+	/**
+	 * Prints the cost of a tick against the number of balls trapped in an absorber while 20 other balls
+	 * move without gravity or friction. Trapped balls are asleep so the cost should not grow with the
+	 * number of trapped balls.
+	 */
+	static void sleepingBalls() {
+		System.out.println("trapped balls\tns/tick (20 moving balls)\tballs awake");
+		for (int trapped : new int[] {0, 100, 1000, 10000}) {
+			final Board board = randomBoard("Benchmark", 60, 20, new Random(SEED));
+			board.setPhysics(board.getPhysics().withGravity(0).withFriction(0, 0));
+			final Absorber absorber = new Absorber("Absorber", 0, 0, 1, 1);
+			board.addGadget(absorber);
+			for (int i = 0; i < trapped; i++) {
+				final Ball ball = new Ball("Trapped" + i, new Vect(10, 19.5), Vect.ZERO);
+				board.addBall(ball).onStart(TIMESTEP);
+				absorber.reflectBall(ball, board.getPhysics());
+			}
+			final double tick = timeTicks(board);
+			System.out.println(trapped + "\t" + (long) tick + "\t" + board.getBallStore().awake());
+		}
+	}
+
+	/**
+	 * Prints how long drawing code waits for the balls on a board while another thread plays the board
+	 * as fast as it can, against the number of balls. Every call to getBalls is timed.
+	 */
+	static void ballRegistry() {
+		final int calls = 200000;
+		System.out.println("balls\tns/tick\tgetBalls: mean ns\t99th percentile ns\tmax ns");
+		for (int ballCount : new int[] {50, 200, 350}) {
+			final Board board = randomBoard("Benchmark", 20, 20, 40, ballCount, new Random(SEED));
+			final long[] ticks = new long[1];
+			final Thread player = new Thread(() -> {
+				while (!Thread.currentThread().isInterrupted()) {
+					board.step(TIMESTEP);
+					ticks[0]++;
+				}
+			});
+			final long[] waits = new long[calls];
+			long size = 0;
+			final long start = System.nanoTime();
+			player.start();
+			for (int i = 0; i < calls; i++) {
+				final long before = System.nanoTime();
+				size += board.getBalls().size();
+				waits[i] = System.nanoTime() - before;
+			}
+			player.interrupt();
+			try {
+				player.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			final long elapsed = System.nanoTime() - start;
+			blackhole = size;
+			long total = 0;
+			for (long wait : waits) {
+				total += wait;
+			}
+			Arrays.sort(waits);
+			System.out.println(ballCount + "\t" + elapsed / Math.max(ticks[0], 1) + "\t" + total / calls + "\t"
+					+ waits[calls * 99 / 100] + "\t" + waits[calls - 1]);
+		}
+	}
+
+	/**
+	 * Creates a 20L x 20L board without gadgets holding ballCount balls of radius 0.04 L placed on a grid
+	 * with a spacing of 0.1 L. The balls are put into play.
+	 */
+	static Board smallBallBoard(int ballCount, Random random) {
+		final Board board = new Board("Benchmark", Board.DEFAULT_GRAVITY, Board.DEFAULT_FRICTION_1,
+				Board.DEFAULT_FRICTION_2);
+		final List<Integer> points = new ArrayList<Integer>();
+		for (int i = 0; i < 190 * 190; i++) {
+			points.add(i);
+		}
+		Collections.shuffle(points, random);
+		for (int i = 0; i < ballCount; i++) {
+			final Vect center = new Vect(0.5 + points.get(i) % 190 * 0.1, 0.5 + points.get(i) / 190 * 0.1);
+			final Vect velocity = new Vect(random.nextDouble() * 4 - 2, random.nextDouble() * 4 - 2);
+			board.addBall(new Ball("Ball" + i, center, velocity, 0.04)).onStart(TIMESTEP);
+		}
+		return board;
+	}
+
+	/**
+	 * Moves every ball in a store for MEASURED_TICKS ticks visiting the slots in the given order.
+	 * @return the average cost of moving one ball in nanoseconds
+	 */
+	static double timeStoreMoves(BallStore store, int[] order) {
+		final int ticks = Math.max(MEASURED_TICKS * 100 / order.length, 5);
+		final long start = System.nanoTime();
+		for (int tick = 0; tick < ticks; tick++) {
+			for (int i : order) {
+				store.move(i, TIMESTEP, 0.0, 0.0, 0.0, Ball.DEFAULT_QUANTUM);
+			}
+		}
+		return Math.round((double) (System.nanoTime() - start) / ticks / order.length * 10) / 10.0;
+	}
+}
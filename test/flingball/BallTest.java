@@ -0,0 +1,224 @@
+package flingball;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import physics.Vect;
+
+public class BallTest {
+
+	/*
+	 * Testing strategy for Ball.move(time, gravity, mu, mu2, quantum)
+	 *
+	 * Partition on gravity: 0, > 0
+	 * Partition on friction: 0, > 0
+	 * Partition on velocity: 0, > 0
+	 * Partition on ball position after the move: on the board, off the board
+	 * Partition on quantum: 0, DEFAULT_QUANTUM, > DEFAULT_QUANTUM
+	 *
+	 * The golden trajectories were recorded from the implementation which rounded the position and
+	 * velocity of the ball by formatting them with a DecimalFormat. Every tenth of each trajectory is
+	 * recorded as {center x, center y, velocity x, velocity y}.
+	 *
+	 * Testing strategy for sleeping and waking
+	 *
+	 * Partition on the ball: awake, resting, trapped
+	 * Partition on the ball while it rests: moves less than SLEEP_DISTANCE, moves further
+	 * Partition on how a ball is woken: released, velocity set, wake()
+	 *
+	 * Testing strategy for BallStore.adopt and BallStore.remove
+	 *
+	 * Partition on the ball: never in a store, removed from a store, moved while not on a board
+	 * Partition on the other balls in the store: none, before the ball, after the ball
+	 */
+
+	private static final double TOLERANCE = 1e-9;
+
+	@Test(expected=AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	// Covers gravity > 0, friction > 0, velocity > 0, off the board, DEFAULT_QUANTUM
+	@Test
+	public void testMoveGoldenDefaultBoard() {
+		final double[][] golden = {
+				{10.4, 4.15, 3.0, -1.8},
+				{10.8, 4.29, 3.0, 3.14},
+				{11.2, 5.42, 3.0, 7.94},
+				{11.6, 7.46, 2.97, 12.34},
+				{12.0, 10.34, 2.57, 16.2},
+				{12.4, 13.93, 2.17, 19.52},
+				{12.8, 18.12, 1.77, 22.19},
+				{13.2, 19.75, 1.57, 24.35},
+				{13.6, 19.75, 1.47, 26.04},
+				{14.0, 19.75, 1.41, 27.31},
+		};
+		assertTrajectory(new Ball("Ball", new Vect(10.0, 5.0), new Vect(3.0, -7.0)), 0.005, 25.0, 0.025, 0.025, 400, golden);
+	}
+
+	// Covers gravity > 0, friction > 0, velocity > 0, off the board against two walls, DEFAULT_QUANTUM
+	@Test
+	public void testMoveGoldenCorner() {
+		final double[][] golden = {
+				{0.25, 18.25, -10.71, 5.41},
+				{0.25, 19.46, -9.35, 6.61},
+				{0.25, 19.75, -8.18, 7.63},
+				{0.25, 19.75, -7.18, 8.58},
+				{0.25, 19.75, -6.3, 9.38},
+				{0.25, 19.75, -5.5, 10.07},
+				{0.25, 19.75, -4.81, 10.67},
+				{0.25, 19.75, -4.21, 11.14},
+				{0.25, 19.75, -3.61, 11.54},
+				{0.25, 19.75, -3.18, 11.91},
+		};
+		assertTrajectory(new Ball("Ball", new Vect(2.5, 17.3), new Vect(-12.4, 4.1)), 0.01, 10.0, 0.1, 0.05, 200, golden);
+	}
+
+	// Covers gravity = 0, friction = 0, velocity = 0, on the board, DEFAULT_QUANTUM
+	@Test
+	public void testMoveGoldenAtRest() {
+		final double[][] golden = new double[10][];
+		for (int i = 0; i < golden.length; i++) {
+			golden[i] = new double[] {7.0, 7.0, 0.0, 0.0};
+		}
+		assertTrajectory(new Ball("Ball", new Vect(7.0, 7.0), new Vect(0.0, 0.0)), 0.005, 0.0, 0.0, 0.0, 100, golden);
+	}
+
+	// Covers gravity > 0, friction = 0, velocity > 0, off the board, DEFAULT_QUANTUM
+	@Test
+	public void testMoveGoldenFrictionless() {
+		final double[][] golden = {
+				{19.3, 4.7, 40.0, 35.8},
+				{19.75, 8.36, 40.0, 38.3},
+				{19.75, 12.36, 40.0, 40.8},
+				{19.75, 16.53, 40.0, 43.3},
+				{19.75, 19.75, 40.0, 45.8},
+				{19.75, 19.75, 40.0, 48.3},
+				{19.75, 19.75, 40.0, 50.8},
+				{19.75, 19.75, 40.0, 53.3},
+				{19.75, 19.75, 40.0, 55.8},
+				{19.75, 19.75, 40.0, 58.3},
+		};
+		assertTrajectory(new Ball("Ball", new Vect(15.3, 1.2), new Vect(40.0, 33.3)), 0.002, 25.0, 0.0, 0.0, 500, golden);
+	}
+
+	// Covers gravity = 0, friction = 0, velocity > 0, on the board, quantum = 0
+	@Test
+	public void testMoveNotQuantized() {
+		final Ball ball = new Ball("Ball", new Vect(5.0, 5.0), new Vect(1.0 / 3.0, 0.0));
+		ball.move(0.01, 0.0, 0.0, 0.0, 0.0);
+		assertEquals(5.0 + 0.01 / 3.0, ball.getBoardCenter().x(), TOLERANCE);
+		assertEquals(5.0, ball.getBoardCenter().y(), TOLERANCE);
+		assertEquals(1.0 / 3.0, ball.getVelocity().x(), TOLERANCE);
+	}
+
+	// Covers gravity > 0, friction = 0, velocity > 0, on the board, quantum > DEFAULT_QUANTUM
+	@Test
+	public void testMoveCoarseQuantum() {
+		final Ball ball = new Ball("Ball", new Vect(5.0, 5.0), new Vect(3.0, 0.0));
+		ball.move(0.05, 25.0, 0.0, 0.0, 0.5);
+		// Center moves to (5.15, 5.0625) and velocity becomes (3.0, 1.25)
+		assertEquals(5.0, ball.getBoardCenter().x(), TOLERANCE);
+		assertEquals(5.0, ball.getBoardCenter().y(), TOLERANCE);
+		assertEquals(3.0, ball.getVelocity().x(), TOLERANCE);
+		assertEquals(1.5, ball.getVelocity().y(), TOLERANCE);
+	}
+
+	@Test
+	public void testRoundHalfUp() {
+		assertEquals(0.13, BallStore.roundHalfUp(0.125, 100), 0);
+		assertEquals(-0.13, BallStore.roundHalfUp(-0.125, 100), 0);
+		// 1.005 is stored as 1.00499999999999989... so it rounds down
+		assertEquals(1.0, BallStore.roundHalfUp(1.005, 100), 0);
+		assertEquals(2.0, BallStore.roundHalfUp(1.5, 1), 0);
+	}
+
+	// Covers awake, resting and trapped balls, moving less and further than SLEEP_DISTANCE and every way of waking
+	@Test
+	public void testSleepAndWake() {
+		final BallStore store = new BallStore();
+		final Ball[] balls = new Ball[4];
+		for (int i = 0; i < balls.length; i++) {
+			balls[i] = new Ball("Ball" + i, new Vect(2 * i + 1, 5.0), i == 2 ? new Vect(2.0, 0.0) : Vect.ZERO);
+			store.adopt(balls[i]);
+		}
+		balls[0].trap();
+		assertTrue(balls[0].isAsleep());
+		assertFalse(balls[0].settle(1.0, 0.5));
+		assertTrue(balls[1].settle(0.25, 0.5) || balls[1].settle(0.25, 0.5));
+		assertTrue(balls[1].isAsleep());
+		for (int i = 0; i < 2; i++) {
+			balls[2].move(0.25, 0.0, 0.0, 0.0, 0.0);
+			assertFalse(balls[2].settle(0.25, 0.5));
+		}
+		assertFalse(balls[3].settle(1.0, 0));
+		assertEquals(2, store.awake());
+		assertEquals(3, store.free());
+		for (Ball ball : balls) {
+			assertEquals(ball, store.ball(ball.index()));
+		}
+		balls[0].wake();
+		assertTrue(balls[0].isAsleep());
+		balls[0].release();
+		balls[1].setVelocity(new Vect(1.0, 0.0));
+		assertFalse(balls[0].isAsleep());
+		assertFalse(balls[1].isAsleep());
+		assertEquals(4, store.awake());
+		assertEquals(4, store.free());
+		assertEquals(new Vect(6.0, 5.0), balls[2].getBoardCenter());
+	}
+
+	// Covers a ball never in a store, removed from a store with balls before and after it and moved while not on a board
+	@Test
+	public void testAdoptAndRemove() {
+		final BallStore store = new BallStore();
+		final Ball[] balls = new Ball[3];
+		for (int i = 0; i < balls.length; i++) {
+			balls[i] = new Ball("Ball" + i, new Vect(2 * i + 1, 5.0), new Vect(i, 1.0));
+			assertNull(balls[i].store());
+			store.adopt(balls[i]);
+		}
+		balls[1].trap();
+		store.remove(balls[0]);
+		assertNull(balls[0].store());
+		assertEquals(2, store.size());
+		assertEquals(new Vect(1.0, 5.0), balls[0].getBoardCenter());
+		assertEquals(new Vect(0.0, 1.0), balls[0].getVelocity());
+		for (int i = 1; i < balls.length; i++) {
+			assertEquals(balls[i], store.ball(balls[i].index()));
+			assertEquals(new Vect(2 * i + 1, 5.0), balls[i].getBoardCenter());
+		}
+		store.remove(balls[1]);
+		assertTrue(balls[1].isTrapped());
+		assertEquals(1, store.size());
+		assertEquals(balls[2], store.ball(0));
+		
+		balls[0].move(0.5, 0.0, 0.0, 0.0, 0.0);
+		assertNotNull(balls[0].store());
+		assertNotSame(store, balls[0].store());
+		assertEquals(new Vect(1.0, 5.5), balls[0].getBoardCenter());
+		store.adopt(balls[0]);
+		assertSame(store, balls[0].store());
+		assertEquals(new Vect(1.0, 5.5), balls[0].getBoardCenter());
+	}
+
+	/**
+	 * Moves ball for steps moves with the default quantization step and checks it against a golden
+	 * trajectory after every tenth of the moves.
+	 */
+	private static void assertTrajectory(Ball ball, double time, double gravity, double mu, double mu2, int steps,
+			double[][] golden) {
+		for (int i = 1; i <= steps; i++) {
+			ball.move(time, gravity, mu, mu2, Ball.DEFAULT_QUANTUM);
+			if (i % (steps / golden.length) == 0) {
+				final double[] expected = golden[i / (steps / golden.length) - 1];
+				final String step = "step " + i;
+				assertEquals(step, expected[0], ball.getBoardCenter().x(), TOLERANCE);
+				assertEquals(step, expected[1], ball.getBoardCenter().y(), TOLERANCE);
+				assertEquals(step, expected[2], ball.getVelocity().x(), TOLERANCE);
+				assertEquals(step, expected[3], ball.getVelocity().y(), TOLERANCE);
+			}
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package flingball;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+import edu.mit.eecs.parserlib.UnableToParseException;
+import flingball.gadgets.Flipper;
+import flingball.gadgets.Gadget;
+import flingball.gadgets.TriangleBumper;
+
+public class BoardBackgroundTest {
+
+	/*
+	 * Testing strategy for BoardBackground.draw(graphics, snapshot, blend, sprites, L)
+	 *
+	 * Partition on the last render: none, of the same gadgets in the same states, of the same gadgets with
+	 * 		an animated gadget in another state, of the same gadgets with a gadget which is not animated in
+	 * 		another state, of other gadgets
+	 * Partition on L: the scale last rendered at, a new scale
+	 * Partition on the pixels drawn: the same as drawing every gadget over an empty board
+	 */
+
+	private static final int L = 10;
+	private static final double TIMESTEP = 0.005;
+	private static final String BOARD = "board name=Background gravity=25.0\n"
+			+ "ball name=Ball x=1.5 y=3.5 xVelocity=0 yVelocity=0\n"
+			+ "leftFlipper name=Left x=0 y=8 orientation=0\n"
+			+ "rightFlipper name=Right x=8 y=8 orientation=90\n"
+			+ "triangleBumper name=Triangle x=10 y=2 orientation=0\n"
+			+ "squareBumper name=Square x=5 y=5\n"
+			+ "circleBumper name=Circle x=12 y=12\n"
+			+ "absorber name=Absorber x=0 y=18 width=20 height=2\n";
+
+	@Test(expected=AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	// Covers no render, then the same gadgets in the same states
+	@Test
+	public void testRenderedOnce() throws UnableToParseException {
+		final Board board = BoardParser.parse(BOARD);
+		final BoardBackground background = new BoardBackground(board.WIDTH, board.HEIGHT, null);
+		final SpriteCache sprites = new SpriteCache();
+		assertEquals(0, background.renders());
+		draw(background, board.snapshot(), sprites, L);
+		assertEquals(1, background.renders());
+		final BufferedImage drawn = draw(background, board.snapshot(), sprites, L);
+		assertEquals(1, background.renders());
+		assertTrue(same(expected(board.snapshot(), L), drawn));
+	}
+
+	// Covers an animated gadget in another state
+	@Test
+	public void testFlipperNotRendered() throws UnableToParseException {
+		final Board board = BoardParser.parse(BOARD);
+		final BoardBackground background = new BoardBackground(board.WIDTH, board.HEIGHT, null);
+		final SpriteCache sprites = new SpriteCache();
+		board.putBallsInPlay(TIMESTEP);
+		draw(background, board.snapshot(), sprites, L);
+		final int before = flipperState(board.snapshot());
+		for (Gadget gadget : board.getGadgets()) {
+			if (gadget instanceof Flipper) gadget.takeAction();
+		}
+		board.step(TIMESTEP);
+		board.step(TIMESTEP);
+		final BoardSnapshot snapshot = board.snapshot();
+		assertTrue(flipperState(snapshot) != before);
+		final BufferedImage drawn = draw(background, snapshot, sprites, L);
+		assertEquals(1, background.renders());
+		assertTrue(same(expected(snapshot, L), drawn));
+	}
+
+	// Covers a gadget which is not animated in another state
+	@Test
+	public void testTriangleRendered() throws UnableToParseException {
+		final Board board = BoardParser.parse(BOARD);
+		final BoardBackground background = new BoardBackground(board.WIDTH, board.HEIGHT, null);
+		final SpriteCache sprites = new SpriteCache();
+		draw(background, board.snapshot(), sprites, L);
+		for (Gadget gadget : board.getGadgets()) {
+			if (gadget instanceof TriangleBumper) gadget.takeAction();
+		}
+		board.step(TIMESTEP);
+		final BoardSnapshot snapshot = board.snapshot();
+		final BufferedImage drawn = draw(background, snapshot, sprites, L);
+		assertEquals(2, background.renders());
+		assertTrue(same(expected(snapshot, L), drawn));
+	}
+
+	// Covers a new scale
+	@Test
+	public void testNewScale() throws UnableToParseException {
+		final Board board = BoardParser.parse(BOARD);
+		final BoardBackground background = new BoardBackground(board.WIDTH, board.HEIGHT, null);
+		final SpriteCache sprites = new SpriteCache();
+		draw(background, board.snapshot(), sprites, L);
+		final BufferedImage drawn = draw(background, board.snapshot(), sprites, 2 * L);
+		assertEquals(2, background.renders());
+		assertTrue(same(expected(board.snapshot(), 2 * L), drawn));
+	}
+
+	// Covers other gadgets
+	@Test
+	public void testOtherGadgets() throws UnableToParseException {
+		final Board board = BoardParser.parse(BOARD);
+		final Board other = BoardParser.parse("board name=Other\nsquareBumper name=Square x=3 y=4\n");
+		final BoardBackground background = new BoardBackground(board.WIDTH, board.HEIGHT, null);
+		final SpriteCache sprites = new SpriteCache();
+		draw(background, board.snapshot(), sprites, L);
+		final BufferedImage drawn = draw(background, other.snapshot(), sprites, L);
+		assertEquals(2, background.renders());
+		assertTrue(same(expected(other.snapshot(), L), drawn));
+	}
+
+	// Covers the pixels drawn over many ticks of play, with flippers moving and triangles rotating
+	@Test
+	public void testPixelsDuringPlay() throws UnableToParseException {
+		final Board board = BoardParser.parse(BOARD);
+		final BoardBackground background = new BoardBackground(board.WIDTH, board.HEIGHT, null);
+		final SpriteCache sprites = new SpriteCache();
+		board.putBallsInPlay(TIMESTEP);
+		for (int tick = 0; tick < 300; tick++) {
+			if (tick % 37 == 0) {
+				for (Gadget gadget : board.getGadgets()) {
+					if (gadget instanceof Flipper || gadget instanceof TriangleBumper) gadget.takeAction();
+				}
+			}
+			board.step(TIMESTEP);
+			final BoardSnapshot snapshot = board.snapshot();
+			assertTrue("tick " + tick, same(expected(snapshot, L), draw(background, snapshot, sprites, L)));
+		}
+		assertTrue(background.renders() < 300);
+	}
+
+	/**
+	 * @return a new image of snapshot drawn by background
+	 */
+	private static BufferedImage draw(BoardBackground background, BoardSnapshot snapshot, SpriteCache sprites, int L) {
+		final BufferedImage image = new BufferedImage(20 * L, 20 * L, BufferedImage.TYPE_INT_RGB);
+		final Graphics2D graphics = image.createGraphics();
+		background.draw(graphics, snapshot, 1, sprites, L);
+		graphics.dispose();
+		return image;
+	}
+
+	/**
+	 * @return a new image of every gadget in snapshot drawn over an empty board
+	 */
+	private static BufferedImage expected(BoardSnapshot snapshot, int L) {
+		final BufferedImage image = new BufferedImage(20 * L, 20 * L, BufferedImage.TYPE_INT_RGB);
+		final Graphics2D graphics = image.createGraphics();
+		graphics.setColor(Color.BLACK);
+		graphics.fillRect(0, 0, 20 * L, 20 * L);
+		for (int j = 0; j < snapshot.gadgets(); j++) {
+			final Gadget gadget = snapshot.gadget(j);
+			graphics.drawImage(gadget.generate(L, snapshot.state(j, 1)),
+					(int) gadget.position().x() * L, (int) gadget.position().y() * L, null);
+		}
+		graphics.dispose();
+		return image;
+	}
+
+	/**
+	 * @return the sum of the states of the flippers in snapshot
+	 */
+	private static int flipperState(BoardSnapshot snapshot) {
+		int state = 0;
+		for (int j = 0; j < snapshot.gadgets(); j++) {
+			if (snapshot.gadget(j) instanceof Flipper) state += snapshot.state(j, 1);
+		}
+		return state;
+	}
+
+	/**
+	 * @return true if a and b have the same pixels
+	 */
+	static boolean same(BufferedImage a, BufferedImage b) {
+		if (a.getWidth() != b.getWidth() || a.getHeight() != b.getHeight()) {
+			return false;
+		}
+		for (int y = 0; y < a.getHeight(); y++) {
+			for (int x = 0; x < a.getWidth(); x++) {
+				if (a.getRGB(x, y) != b.getRGB(x, y)) return false;
+			}
+		}
+		return true;
+	}
+}
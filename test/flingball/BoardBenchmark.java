@@ -0,0 +1,124 @@
+package flingball;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import flingball.gadgets.CircleBumper;
+import flingball.gadgets.SquareBumper;
+import flingball.gadgets.TriangleBumper;
+import physics.Vect;
+
+/**
+ * Runs every benchmark for playing flingball boards and holds what they share. Each component has its
+ * own benchmark class, such as BroadphaseBenchmark or RenderingBenchmark. These are not unit tests. Run
+ * the main method with assertions disabled to print the results, for example:
+ *
+ * java -cp bin:lib/physics.jar:lib/parserlib.jar flingball.BoardBenchmark
+ */
+public class BoardBenchmark {
+
+	static final double TIMESTEP = 0.005;
+	static final int WARMUP_TICKS = 2000;
+	static final int MEASURED_TICKS = 5000;
+	static final long SEED = 6031;
+
+	// Results are written here so the JIT cannot remove the work being measured
+	static volatile double blackhole;
+
+	public static void main(String[] args) {
+		BroadphaseBenchmark.main(args);
+		EventSchedulerBenchmark.main(args);
+		BallStoreBenchmark.main(args);
+		WorldBenchmark.main(args);
+		FlipperBenchmark.main(args);
+		CollisionBenchmark.main(args);
+		RenderingBenchmark.main(args);
+	}
+
+	/**
+	 * @return the number of bytes in use on the heap after a garbage collection
+	 */
+	static long usedHeap() {
+		final Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Plays the board for WARMUP_TICKS and then times MEASURED_TICKS.
+	 * @param board board to be played
+	 * @return the average cost of a tick in nanoseconds
+	 */
+	static double timeTicks(Board board) {
+		for (int i = 0; i < WARMUP_TICKS; i++) {
+			board.step(TIMESTEP);
+		}
+		final long start = System.nanoTime();
+		for (int i = 0; i < MEASURED_TICKS; i++) {
+			board.step(TIMESTEP);
+		}
+		return (double) (System.nanoTime() - start) / MEASURED_TICKS;
+	}
+
+	/**
+	 * Creates a 20L x 20L board with randomly placed bumpers and balls. Balls are placed in the
+	 * center of squares which are not covered by a gadget and are put into play.
+	 * @param name name of the board
+	 * @param gadgetCount number of bumpers on the board
+	 * @param ballCount number of balls on the board
+	 * @param random source of randomness
+	 * @return a new board
+	 */
+	static Board randomBoard(String name, int gadgetCount, int ballCount, Random random) {
+		return randomBoard(name, Board.DEFAULT_WIDTH, Board.DEFAULT_HEIGHT, gadgetCount, ballCount, random);
+	}
+
+	/**
+	 * Creates a board of the given size with randomly placed bumpers and balls. Balls are placed in the
+	 * center of squares which are not covered by a gadget and are put into play.
+	 * @param name name of the board
+	 * @param width width of the board in L
+	 * @param height height of the board in L
+	 * @param gadgetCount number of bumpers on the board
+	 * @param ballCount number of balls on the board
+	 * @param random source of randomness
+	 * @return a new board
+	 */
+	static Board randomBoard(String name, int width, int height, int gadgetCount, int ballCount, Random random) {
+		final Board board = new Board(name, width, height, Board.DEFAULT_GRAVITY, Board.DEFAULT_FRICTION_1,
+				Board.DEFAULT_FRICTION_2);
+		final List<Integer> squares = new ArrayList<Integer>();
+		for (int i = 0; i < board.WIDTH * board.HEIGHT; i++) {
+			squares.add(i);
+		}
+		Collections.shuffle(squares, random);
+
+		for (int i = 0; i < gadgetCount; i++) {
+			final int x = squares.get(i) % board.WIDTH;
+			final int y = squares.get(i) / board.WIDTH;
+			switch (i % 3) {
+			case 0:
+				board.addGadget(new SquareBumper("Square" + i, x, y));
+				break;
+			case 1:
+				board.addGadget(new CircleBumper("Circle" + i, x, y));
+				break;
+			default:
+				board.addGadget(new TriangleBumper("Triangle" + i, x, y, Orientation.values()[random.nextInt(4)]));
+				break;
+			}
+		}
+
+		for (int i = 0; i < ballCount; i++) {
+			final int square = squares.get(gadgetCount + i);
+			final Vect center = new Vect(square % board.WIDTH + 0.5, square / board.WIDTH + 0.5);
+			final Vect velocity = new Vect(random.nextDouble() * 40 - 20, random.nextDouble() * 40 - 20);
+			board.addBall(new Ball("Ball" + i, center, velocity)).onStart(TIMESTEP);
+		}
+		return board;
+	}
+}
@@ -0,0 +1,127 @@
+package flingball;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import edu.mit.eecs.parserlib.UnableToParseException;
+
+public class BoardParserTest {
+
+	/*
+	 * Testing strategy for the width and height of a board and what fits on it, for BoardParser.parse(input)
+	 *
+	 * Partition on width: not given, 1, > 20, 0, too large for an int
+	 * Partition on height: not given, 1, > 20, 0
+	 * Partition on width * height: <= Integer.MAX_VALUE, > Integer.MAX_VALUE
+	 * Partition on order: width and height after gravity and friction, width before gravity, height before width
+	 * Partition on a gadget or ball: fits on the board, touches the right or bottom edge, past the right
+	 * 		or bottom edge
+	 */
+
+	@Test(expected=AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	// Covers width and height not given
+	@Test
+	public void testDefaultSize() throws UnableToParseException {
+		final Board board = BoardParser.parse("board name=Default gravity = 25.0\n");
+		assertEquals(Board.DEFAULT_WIDTH, board.WIDTH);
+		assertEquals(Board.DEFAULT_HEIGHT, board.HEIGHT);
+	}
+
+	// Covers width > 20, height not given
+	@Test
+	public void testWidthOnly() throws UnableToParseException {
+		final Board board = BoardParser.parse("board name=Wide width=40\n");
+		assertEquals(40, board.WIDTH);
+		assertEquals(Board.DEFAULT_HEIGHT, board.HEIGHT);
+	}
+
+	// Covers width not given, height 1
+	@Test
+	public void testHeightOnly() throws UnableToParseException {
+		final Board board = BoardParser.parse("board name=Flat height=1\n");
+		assertEquals(Board.DEFAULT_WIDTH, board.WIDTH);
+		assertEquals(1, board.HEIGHT);
+	}
+
+	// Covers width 1, height > 20, after gravity and friction, with gadgets and balls on the larger board
+	@Test
+	public void testAfterGravityAndFriction() throws UnableToParseException {
+		final Board board = BoardParser.parse("board name=Tall gravity=10.0 friction1=0.01 friction2=0.02 width=1 height=45\n"
+				+ "ball name=Ball x=0.5 y=40.5 xVelocity=0 yVelocity=0\n"
+				+ "squareBumper name=Square x=0 y=44\n");
+		assertEquals(1, board.WIDTH);
+		assertEquals(45, board.HEIGHT);
+		assertEquals(10.0, board.getGravity(), 0);
+		assertEquals(1, board.getBalls().size());
+		assertEquals(1, board.getGadgets().size());
+	}
+
+	// Covers width before gravity
+	@Test(expected=UnableToParseException.class)
+	public void testWidthBeforeGravity() throws UnableToParseException {
+		BoardParser.parse("board name=Wide width=40 gravity=10.0\n");
+	}
+
+	// Covers height before width
+	@Test(expected=UnableToParseException.class)
+	public void testHeightBeforeWidth() throws UnableToParseException {
+		BoardParser.parse("board name=Wide height=10 width=40\n");
+	}
+
+	// Covers width 0
+	@Test(expected=UnableToParseException.class)
+	public void testZeroWidth() throws UnableToParseException {
+		BoardParser.parse("board name=Empty width=0 height=10\n");
+	}
+
+	// Covers height 0
+	@Test(expected=UnableToParseException.class)
+	public void testZeroHeight() throws UnableToParseException {
+		BoardParser.parse("board name=Empty width=10 height=0\n");
+	}
+
+	// Covers width too large for an int
+	@Test(expected=UnableToParseException.class)
+	public void testWidthTooLarge() throws UnableToParseException {
+		BoardParser.parse("board name=Huge width=99999999999\n");
+	}
+
+	// Covers width * height > Integer.MAX_VALUE
+	@Test(expected=UnableToParseException.class)
+	public void testTooManyCells() throws UnableToParseException {
+		BoardParser.parse("board name=Huge width=100000 height=100000\n");
+	}
+
+	// Covers a gadget and a ball touching the right and bottom edges
+	@Test
+	public void testOnEdges() throws UnableToParseException {
+		final Board board = BoardParser.parse("board name=Edges width=10 height=10\n"
+				+ "squareBumper name=Square x=9 y=2\n"
+				+ "absorber name=Absorber x=0 y=8 width=10 height=2\n"
+				+ "ball name=Ball x=9.75 y=0.25 xVelocity=0 yVelocity=0\n");
+		assertEquals(2, board.getGadgets().size());
+		assertEquals(1, board.getBalls().size());
+	}
+
+	// Covers a gadget past the right edge
+	@Test(expected=UnableToParseException.class)
+	public void testGadgetOffBoard() throws UnableToParseException {
+		BoardParser.parse("board name=Off width=10 height=10\nsquareBumper name=Square x=15 y=2\n");
+	}
+
+	// Covers a gadget spanning several squares past the bottom edge
+	@Test(expected=UnableToParseException.class)
+	public void testAbsorberOffBoard() throws UnableToParseException {
+		BoardParser.parse("board name=Off width=10 height=10\nabsorber name=Absorber x=0 y=9 width=10 height=2\n");
+	}
+
+	// Covers a ball past the right edge
+	@Test(expected=UnableToParseException.class)
+	public void testBallOffBoard() throws UnableToParseException {
+		BoardParser.parse("board name=Off width=10 height=10\nball name=Ball x=15 y=2 xVelocity=0 yVelocity=0\n");
+	}
+}
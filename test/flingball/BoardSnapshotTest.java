@@ -0,0 +1,141 @@
+package flingball;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import flingball.gadgets.Gadget;
+import physics.Vect;
+
+public class BoardSnapshotTest {
+
+	/*
+	 * Testing strategy for BoardSnapshot
+	 *
+	 * blend(now):
+	 * 		Partition on the tick before: not known, known
+	 * 		Partition on now: before the snapshot was taken, during the next tick, after the next tick
+	 *
+	 * x(i, blend), y(i, blend):
+	 * 		Partition on the snapshot before: none, taken later in play, taken earlier in play
+	 * 		Partition on the balls: the same names in the same order, a ball removed before ball i, a ball
+	 * 			added before ball i, ball i renamed
+	 * 		Partition on the distance ball i moved: within reach of its speed, further, as through a portal
+	 */
+
+	private static final Gadget[] NO_GADGETS = new Gadget[0];
+	private static final double TIMESTEP = 0.005;
+	private static final double TOLERANCE = 1e-9;
+
+	@Test(expected=AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	// Covers blend with the tick before not known
+	@Test
+	public void testBlendWithoutPrevious() {
+		final BoardSnapshot snapshot = new BoardSnapshot(0, 0, new Ball[0], NO_GADGETS, null);
+		assertEquals(1, snapshot.blend(snapshot.nanoTime()), 0);
+		assertEquals(1, snapshot.blend(snapshot.nanoTime() - 1000), 0);
+	}
+
+	// Covers blend with now before the snapshot, during the next tick and after it
+	@Test
+	public void testBlendClamped() {
+		final BoardSnapshot first = new BoardSnapshot(0, 0, new Ball[0], NO_GADGETS, null);
+		final BoardSnapshot second = new BoardSnapshot(1, TIMESTEP, new Ball[0], NO_GADGETS, first);
+		final long tick = (long) (TIMESTEP * 1e9);
+		assertEquals(0, second.blend(second.nanoTime() - tick), 0);
+		assertEquals(0, second.blend(second.nanoTime()), 0);
+		assertEquals(0.5, second.blend(second.nanoTime() + tick / 2), TOLERANCE);
+		assertEquals(1, second.blend(second.nanoTime() + tick), TOLERANCE);
+		assertEquals(1, second.blend(second.nanoTime() + 1000 * tick), 0);
+	}
+
+	// Covers no snapshot before
+	@Test
+	public void testFirstSnapshot() {
+		final BoardSnapshot snapshot = new BoardSnapshot(0, 0, new Ball[] {ball("A", 5, 5, 10, 0)}, NO_GADGETS, null);
+		assertEquals(5, snapshot.x(0, 0), 0);
+		assertEquals(5, snapshot.x(0, 1), 0);
+		assertEquals(0, snapshot.previousTime(), 0);
+	}
+
+	// Covers the same names in the same order, within reach
+	@Test
+	public void testSameBalls() {
+		final BoardSnapshot first = new BoardSnapshot(0, 0,
+				new Ball[] {ball("A", 5, 5, 10, 0), ball("B", 8, 8, 0, 10)}, NO_GADGETS, null);
+		final BoardSnapshot second = new BoardSnapshot(1, TIMESTEP,
+				new Ball[] {ball("A", 5.05, 5, 10, 0), ball("B", 8, 8.05, 0, 10)}, NO_GADGETS, first);
+		assertEquals(5, second.x(0, 0), TOLERANCE);
+		assertEquals(5.025, second.x(0, 0.5), TOLERANCE);
+		assertEquals(5.05, second.x(0, 1), TOLERANCE);
+		assertEquals(8.025, second.y(1, 0.5), TOLERANCE);
+	}
+
+	// Covers a ball removed before ball i, which shifts its index down
+	@Test
+	public void testBallRemoved() {
+		final BoardSnapshot first = new BoardSnapshot(0, 0,
+				new Ball[] {ball("A", 5, 5, 10, 0), ball("B", 8, 8, 0, 10)}, NO_GADGETS, null);
+		final BoardSnapshot second = new BoardSnapshot(1, TIMESTEP,
+				new Ball[] {ball("B", 8, 8.05, 0, 10)}, NO_GADGETS, first);
+		assertEquals("B", second.name(0));
+		assertEquals(8, second.y(0, 0), TOLERANCE);
+		assertEquals(8.025, second.y(0, 0.5), TOLERANCE);
+	}
+
+	// Covers a ball added before ball i, which shifts its index up
+	@Test
+	public void testBallAdded() {
+		final BoardSnapshot first = new BoardSnapshot(0, 0,
+				new Ball[] {ball("B", 8, 8, 0, 10)}, NO_GADGETS, null);
+		final BoardSnapshot second = new BoardSnapshot(1, TIMESTEP,
+				new Ball[] {ball("C", 2, 2, 0, 0), ball("B", 8, 8.05, 0, 10)}, NO_GADGETS, first);
+		assertEquals(2, second.y(0, 0), 0);
+		assertEquals(8, second.y(1, 0), TOLERANCE);
+		assertEquals(8.025, second.y(1, 0.5), TOLERANCE);
+	}
+
+	// Covers ball i renamed, which is not blended with the ball it replaced
+	@Test
+	public void testBallRenamed() {
+		final BoardSnapshot first = new BoardSnapshot(0, 0,
+				new Ball[] {ball("A", 5, 5, 10, 0)}, NO_GADGETS, null);
+		final BoardSnapshot second = new BoardSnapshot(1, TIMESTEP,
+				new Ball[] {ball("C", 5.05, 5, 10, 0)}, NO_GADGETS, first);
+		assertEquals(5.05, second.x(0, 0), 0);
+	}
+
+	// Covers the same names in the same order, ball i further than its reach, as through a portal
+	@Test
+	public void testPortalJump() {
+		final BoardSnapshot first = new BoardSnapshot(0, 0,
+				new Ball[] {ball("A", 2, 2, 0, 10), ball("B", 8, 8, 0, 10)}, NO_GADGETS, null);
+		final BoardSnapshot second = new BoardSnapshot(1, TIMESTEP,
+				new Ball[] {ball("A", 15, 15, 0, 10), ball("B", 8, 8.05, 0, 10)}, NO_GADGETS, first);
+		assertEquals(15, second.x(0, 0), 0);
+		assertEquals(15, second.y(0, 0.5), 0);
+		assertEquals(8.025, second.y(1, 0.5), TOLERANCE);
+		// The snapshot before is not changed by the jump
+		assertEquals(2, first.x(0, 1), 0);
+	}
+
+	// Covers a snapshot before taken later in play, as when play is restarted
+	@Test
+	public void testPreviousLater() {
+		final BoardSnapshot first = new BoardSnapshot(10, 10 * TIMESTEP,
+				new Ball[] {ball("A", 5, 5, 10, 0)}, NO_GADGETS, null);
+		final BoardSnapshot second = new BoardSnapshot(1, TIMESTEP,
+				new Ball[] {ball("A", 5.05, 5, 10, 0)}, NO_GADGETS, first);
+		assertEquals(TIMESTEP, second.previousTime(), 0);
+		assertEquals(5.05, second.x(0, 0), 0);
+		assertEquals(1, second.blend(second.nanoTime()), 0);
+	}
+
+	private static Ball ball(String name, double x, double y, double vx, double vy) {
+		return new Ball(name, new Vect(x, y), new Vect(vx, vy));
+	}
+}
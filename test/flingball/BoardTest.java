@@ -0,0 +1,105 @@
+package flingball;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.mit.eecs.parserlib.UnableToParseException;
+import flingball.physics.PhysicsContext;
+import physics.Vect;
+
+public class BoardTest {
+
+	/*
+	 * Testing strategy for Board.step(time), played through simulate(ticks, timestep)
+	 *
+	 * Partition on the collisions of a ball during a tick: fewer than maxCollisionsPerStep, more
+	 * Partition on the step tolerance: 0, > 0
+	 * Partition on the speed of a ball next to a gadget: slow, close to the limit of 200 L/s
+	 */
+
+	private static final double TIMESTEP = 0.005;
+	private static final double LONG_TIMESTEP = 0.05;
+
+	@Test(expected=AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	// Covers more than maxCollisionsPerStep collisions for a ball wedged between two bumpers
+	@Test
+	public void testWedged() throws UnableToParseException {
+		final Board board = BoardParser.parse("board name=Wedged gravity=0.0 friction1=0.0 friction2=0.0\n"
+				+ "squareBumper name=Left x=5 y=5\n"
+				+ "squareBumper name=Right x=7 y=5\n");
+		// The ball crosses the gap of 0.002 L left between the bumpers over a hundred times each tick
+		final double radius = 0.499;
+		board.addBall(new Ball("Ball", new Vect(6.5, 5.5), new Vect(50, 0), radius));
+		board.simulate(50, TIMESTEP);
+		assertEquals(50, board.collisionCapHits());
+		assertEquals(1, board.getBalls().size());
+		final Ball ball = board.getBalls().get(0);
+		assertTrue(ball.getBoardCenter().x() >= 6 + radius && ball.getBoardCenter().x() <= 7 - radius);
+		assertEquals(5.5, ball.getBoardCenter().y(), 0);
+		assertEquals(50, ball.getVelocity().length(), 1e-9);
+	}
+
+	// Covers a step tolerance of 0, with slow balls next to gadgets
+	@Test
+	public void testZeroTolerance() throws UnableToParseException {
+		final String text = "board name=Tolerance gravity=25.0\n"
+				+ "ball name=BallA x=1.5 y=3.5 xVelocity=4 yVelocity=0\n"
+				+ "ball name=BallB x=9.5 y=1.5 xVelocity=-3 yVelocity=2\n"
+				+ "ball name=BallC x=12.5 y=8.5 xVelocity=0 yVelocity=-5\n"
+				+ "triangleBumper name=Triangle x=10 y=12 orientation=0\n"
+				+ "squareBumper name=Square x=5 y=15\n"
+				+ "circleBumper name=Circle x=12 y=4\n"
+				+ "absorber name=Absorber x=0 y=18 width=20 height=2\n"
+				+ "fire trigger=Absorber action=Absorber\n";
+		final Board ticks = BoardParser.parse(text);
+		final Board adaptive = BoardParser.parse(text);
+		adaptive.setPhysics(adaptive.getPhysics().withStepTolerance(0));
+		ticks.simulate(1000, TIMESTEP);
+		adaptive.simulate(1000, TIMESTEP);
+		final List<Ball> expected = ticks.getBalls();
+		final List<Ball> actual = adaptive.getBalls();
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).name(), actual.get(i).name());
+			assertEquals(expected.get(i).getBoardCenter(), actual.get(i).getBoardCenter());
+			assertEquals(expected.get(i).getVelocity(), actual.get(i).getVelocity());
+		}
+	}
+
+	// Covers a step tolerance > 0, with balls close to the speed limit thrown at gadgets from every direction
+	@Test
+	public void testFastBallDoesNotTunnel() throws UnableToParseException {
+		final Vect square = new Vect(9.5, 9.5);
+		final Vect circle = new Vect(14.5, 9.5);
+		for (int angle = 0; angle < 360; angle += 10) {
+			final Vect direction = new Vect(Math.cos(Math.toRadians(angle)), Math.sin(Math.toRadians(angle)));
+			final Vect side = new Vect(-direction.y(), direction.x());
+			for (Vect target : List.of(square, circle)) {
+				// Head on, and glancing off an edge or corner
+				for (double offset : new double[] {0, 0.5, 0.74}) {
+					final Board board = BoardParser.parse("board name=Fast\n"
+							+ "squareBumper name=Square x=9 y=9\n"
+							+ "circleBumper name=Circle x=14 y=9\n");
+					board.setPhysics(board.getPhysics().withStepTolerance(PhysicsContext.DEFAULT_STEP_TOLERANCE));
+					final Vect start = target.plus(direction.times(1.2)).plus(side.times(offset));
+					board.addBall(new Ball("Ball", start, direction.times(-190)));
+					for (int tick = 0; tick < 20; tick++) {
+						board.simulate(1, LONG_TIMESTEP);
+						assertEquals(1, board.getBalls().size());
+						final Vect center = board.getBalls().get(0).getBoardCenter();
+						final String at = "angle " + angle + " offset " + offset + " tick " + tick + ": " + center;
+						assertFalse(at, Math.abs(center.x() - square.x()) < 0.5 && Math.abs(center.y() - square.y()) < 0.5);
+						assertFalse(at, center.minus(circle).length() < 0.5);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package flingball;
+
+import static flingball.BoardBenchmark.*;
+
+import java.util.List;
+import java.util.Random;
+
+import flingball.gadgets.Gadget;
+import flingball.physics.PhysicsContext;
+
+/**
+ * Benchmarks for the broadphases which find what a ball may collide with: the GadgetIndex and the
+ * compiled StaticGeometry for gadgets, SweepAndPrune for other balls, and the cost of both on boards
+ * larger than 20L x 20L. Run on its own or from BoardBenchmark.
+ */
+public class BroadphaseBenchmark {
+
+	public static void main(String[] args) {
+		gadgetScaling();
+		ballScaling();
+		staticGeometry();
+		largeBoards();
+	}
+
+	/**
+	 * Prints the cost of one tick and of one collision query against the number of gadgets on the board.
+	 * Queries are timed both against every gadget on the board and against the gadgets returned by
+	 * the GadgetIndex broadphase. Queries are timed before every tick of a run, so they are averaged over
+	 * every position the balls pass through. The cost of an indexed query follows the number of gadgets
+	 * near a ball, which is printed as candidates/query. Every size is run twice and only the second run
+	 * is printed, so the first size is not timed before it has been compiled.
+	 */
+	static void gadgetScaling() {
+		for (int run = 0; run < 2; run++) {
+			if (run == 1) {
+				System.out.println("gadgets\tns/tick\tns/query (all gadgets)\tns/query (indexed)\tcandidates/query");
+			}
+			for (int gadgetCount : new int[] {10, 30, 60, 120, 240, 360}) {
+				final Board board = randomBoard("Benchmark", gadgetCount, 20, new Random(SEED));
+				final List<Gadget> gadgets = board.getGadgets();
+				final GadgetIndex index = new GadgetIndex(board.WIDTH, board.HEIGHT);
+				for (Gadget gadget : gadgets) {
+					index.add(gadget);
+				}
+
+				final double tick = timeTicks(board);
+				final List<Ball> balls = board.getBalls();
+				double sink = 0;
+				long bruteForce = 0, indexed = 0, candidates = 0;
+
+				for (int i = 0; i < MEASURED_TICKS; i++) {
+					long start = System.nanoTime();
+					for (Ball ball : balls) {
+						for (Gadget gadget : gadgets) {
+							sink += Math.min(gadget.collisionTime(ball, PhysicsContext.DEFAULT), 1);
+						}
+					}
+					bruteForce += System.nanoTime() - start;
+
+					start = System.nanoTime();
+					for (Ball ball : balls) {
+						for (Gadget gadget : index.candidates(ball, TIMESTEP, Board.DEFAULT_GRAVITY,
+								Board.DEFAULT_FRICTION_1, Board.DEFAULT_FRICTION_2)) {
+							sink += Math.min(gadget.collisionTime(ball, PhysicsContext.DEFAULT), 1);
+							candidates++;
+						}
+					}
+					indexed += System.nanoTime() - start;
+					board.step(TIMESTEP);
+				}
+
+				blackhole = sink;
+				final long queries = (long) MEASURED_TICKS * balls.size();
+				if (run == 1) {
+					System.out.println(gadgetCount + "\t" + (long) tick + "\t" + bruteForce / queries + "\t"
+							+ indexed / queries + "\t" + String.format("%.2f", (double) candidates / queries));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Prints the cost of one tick and of finding the ball collisions of every ball during one tick
+	 * against the number of balls on the board. Ball collisions are found both by comparing every
+	 * pair of balls and by the SweepAndPrune broadphase.
+	 */
+	static void ballScaling() {
+		System.out.println("balls\tns/tick\tns/tick (all pairs)\tns/tick (sweep and prune)");
+		for (int ballCount : new int[] {10, 50, 100, 200, 380}) {
+			final Board board = randomBoard("Benchmark", 20, ballCount, new Random(SEED));
+			final double tick = timeTicks(board);
+			final List<Ball> balls = board.getBalls();
+			final int ticks = Math.max(MEASURED_TICKS / ballCount, 10);
+			double sink = 0;
+
+			long start = System.nanoTime();
+			for (int i = 0; i < ticks; i++) {
+				for (Ball ball : balls) {
+					for (Ball other : balls) {
+						if (ball != other) {
+							sink += Math.min(ball.timeUntilBallCollision(other), 1);
+						}
+					}
+				}
+			}
+			final double allPairs = (double) (System.nanoTime() - start) / ticks;
+
+			final SweepAndPrune sweepAndPrune = new SweepAndPrune();
+			start = System.nanoTime();
+			for (int i = 0; i < ticks; i++) {
+				sweepAndPrune.update(balls, TIMESTEP, Board.DEFAULT_GRAVITY);
+				for (Ball ball : balls) {
+					for (Ball other : sweepAndPrune.partners(ball)) {
+						sink += Math.min(sweepAndPrune.timeUntilCollision(ball, other, 0), 1);
+					}
+				}
+			}
+			final double swept = (double) (System.nanoTime() - start) / ticks;
+
+			blackhole = sink;
+			System.out.println(ballCount + "\t" + (long) tick + "\t" + (long) allPairs + "\t" + (long) swept);
+		}
+	}
+
+	/**
+	 * Prints the cost in time and in allocated bytes of finding the next gadget a ball collides with, both by
+	 * asking every gadget found by the GadgetIndex for its collision time and by the compiled StaticGeometry.
+	 */
+	static void staticGeometry() {
+		System.out.println("gadgets\tns/query (objects)\tbytes/query (objects)\tns/query (compiled)\tbytes/query (compiled)");
+		final java.lang.management.ThreadMXBean threads = java.lang.management.ManagementFactory.getThreadMXBean();
+		final boolean allocation = threads instanceof com.sun.management.ThreadMXBean;
+		final long id = Thread.currentThread().getId();
+		for (int gadgetCount : new int[] {30, 120, 360}) {
+			final Board board = randomBoard("Benchmark", gadgetCount, 20, new Random(SEED));
+			final List<Gadget> gadgets = board.getGadgets();
+			final GadgetIndex index = new GadgetIndex(board.WIDTH, board.HEIGHT);
+			for (Gadget gadget : gadgets) {
+				index.add(gadget);
+			}
+			final StaticGeometry geometry = board.geometry();
+			final StaticGeometry.Hit hit = new StaticGeometry.Hit();
+			final List<Ball> balls = board.getBalls();
+			final double time = 0.1;
+			final long[] results = new long[4];
+			for (int pass = 0; pass < 2; pass++) {
+				double sink = 0;
+				long bytes = allocation ? ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(id) : 0;
+				long start = System.nanoTime();
+				for (int i = 0; i < MEASURED_TICKS; i++) {
+					for (int j = 0; j < balls.size(); j++) {
+						final Ball ball = balls.get(j);
+						double earliest = Double.POSITIVE_INFINITY;
+						for (Gadget gadget : index.candidates(ball, time, Board.DEFAULT_GRAVITY,
+								Board.DEFAULT_FRICTION_1, Board.DEFAULT_FRICTION_2)) {
+							earliest = Math.min(earliest, gadget.collisionTime(ball, PhysicsContext.DEFAULT));
+						}
+						sink += Math.min(earliest, 1);
+					}
+				}
+				results[0] = (System.nanoTime() - start) / MEASURED_TICKS / balls.size();
+				results[1] = allocation ? (((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(id) - bytes)
+						/ MEASURED_TICKS / balls.size() : -1;
+
+				bytes = allocation ? ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(id) : 0;
+				start = System.nanoTime();
+				for (int i = 0; i < MEASURED_TICKS; i++) {
+					for (int j = 0; j < balls.size(); j++) {
+						geometry.earliest(balls.get(j), time, PhysicsContext.DEFAULT, null, 0, hit);
+						sink += Math.min(hit.time, 1);
+					}
+				}
+				results[2] = (System.nanoTime() - start) / MEASURED_TICKS / balls.size();
+				results[3] = allocation ? (((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(id) - bytes)
+						/ MEASURED_TICKS / balls.size() : -1;
+				blackhole = sink;
+			}
+			System.out.println(gadgetCount + "\t" + results[0] + "\t" + (results[1] < 0 ? "n/a" : String.valueOf(results[1]))
+					+ "\t" + results[2] + "\t" + (results[3] < 0 ? "n/a" : String.valueOf(results[3])));
+		}
+	}
+
+	/**
+	 * Prints the cost of a tick and the heap used by a board against the size of the board. Every board
+	 * holds 60 bumpers and 20 balls, so larger boards are sparser. The first tick compiles the static
+	 * geometry of the board and is timed separately.
+	 */
+	static void largeBoards() {
+		System.out.println("board size\tns/first tick\tns/tick\tbytes/board");
+		for (int size : new int[] {20, 100, 300, 1000}) {
+			final long before = usedHeap();
+			final Board board = randomBoard("Benchmark", size, size, 60, 20, new Random(SEED));
+			final long start = System.nanoTime();
+			board.step(TIMESTEP);
+			final long first = System.nanoTime() - start;
+			final long bytes = usedHeap() - before;
+			final double tick = timeTicks(board);
+			System.out.println(size + "x" + size + "\t" + first + "\t" + (long) tick + "\t" + bytes);
+		}
+	}
+}
@@ -0,0 +1,278 @@
+package flingball;
+
+import static flingball.BoardBenchmark.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import flingball.gadgets.CircleBumper;
+import flingball.gadgets.Flipper;
+import flingball.gadgets.Gadget;
+import flingball.gadgets.SquareBumper;
+import flingball.physics.Collisions;
+import flingball.physics.PhysicsContext;
+import physics.Circle;
+import physics.LineSegment;
+import physics.Physics;
+import physics.Vect;
+
+/**
+ * Benchmarks for the cost and accuracy of collisions: the formulas of the Collisions kernel, the cap on
+ * collisions resolved per tick, collisions predicted along the curved path of a ball and adaptive
+ * sub-steps. Accuracy is measured as how often a ball enters a bumper. Run on its own or from
+ * BoardBenchmark.
+ */
+public class CollisionBenchmark {
+
+	public static void main(String[] args) {
+		collisionKernel();
+		collisionCap();
+		parabolicPrediction();
+		adaptiveStepping();
+	}
+
+	/**
+	 * Prints the cost in time and in allocated bytes of each collision formula used by the gadgets, calculated
+	 * by physics.Physics from objects and by the Collisions kernel from primitives. Every formula is
+	 * evaluated for the same random balls moving near a segment or circle about 1L long.
+	 */
+	static void collisionKernel() {
+		System.out.println("formula\tns/call (physics)\tbytes/call (physics)\tns/call (kernel)\tbytes/call (kernel)");
+		final java.lang.management.ThreadMXBean threads = java.lang.management.ManagementFactory.getThreadMXBean();
+		final boolean allocation = threads instanceof com.sun.management.ThreadMXBean;
+		final long id = Thread.currentThread().getId();
+		final String[] formulas = {"wall", "circle", "ball", "rotating wall", "rotating circle", "reflect wall",
+				"reflect circle", "reflect rotating wall", "reflect balls"};
+		final double omega = Math.toRadians(Flipper.OMEGA);
+		final Random random = new Random(SEED);
+		final int n = 1024;
+		final double[][] cases = new double[n][];
+		for (int i = 0; i < n; i++) {
+			final double[] c = new double[10];
+			for (int j = 0; j < 6; j++) {
+				c[j] = 10 + 2 * random.nextDouble();
+			}
+			c[6] = 100 * random.nextDouble() - 50;
+			c[7] = 100 * random.nextDouble() - 50;
+			c[8] = 100 * random.nextDouble() - 50;
+			c[9] = 100 * random.nextDouble() - 50;
+			cases[i] = c;
+		}
+		Physics.setForesight(Collisions.DEFAULT_FORESIGHT);
+		final Collisions collisions = new Collisions();
+		final double foresight = Collisions.DEFAULT_FORESIGHT;
+		final double radius = Ball.DEFAULT_RADIUS;
+		final int calls = MEASURED_TICKS * 200;
+		for (int formula = 0; formula < formulas.length; formula++) {
+			final double[] results = new double[4];
+			for (int pass = 0; pass < 2; pass++) {
+				for (int kernel = 0; kernel < 2; kernel++) {
+					double sink = 0;
+					final long bytes = allocation ? ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(id) : 0;
+					final long start = System.nanoTime();
+					for (int i = 0; i < calls; i++) {
+						// Segment (c0, c1) to (c2, c3), ball at (c4, c5) moving at (c6, c7), second ball moving at (c8, c9)
+						final double[] c = cases[i & (n - 1)];
+						if (kernel == 0) {
+							final LineSegment line = new LineSegment(c[0], c[1], c[2], c[3]);
+							final Circle ball = new Circle(c[4], c[5], radius);
+							final Vect velocity = new Vect(c[6], c[7]);
+							switch (formula) {
+							case 0: sink += Math.min(Physics.timeUntilWallCollision(line, ball, velocity), 1); break;
+							case 1: sink += Math.min(Physics.timeUntilCircleCollision(new Circle(c[0], c[1], 0.5), ball, velocity), 1); break;
+							case 2: sink += Math.min(Physics.timeUntilBallBallCollision(ball, velocity, new Circle(c[0], c[1], radius),
+									new Vect(c[8], c[9])), 1); break;
+							case 3: sink += Math.min(Physics.timeUntilRotatingWallCollision(line, new Vect(c[0], c[1]), omega, ball,
+									velocity), 1); break;
+							case 4: sink += Math.min(Physics.timeUntilRotatingCircleCollision(new Circle(c[2], c[3], 0.25),
+									new Vect(c[0], c[1]), omega, ball, velocity), 1); break;
+							case 5: sink += Physics.reflectWall(line, velocity, 0.95).x(); break;
+							case 6: sink += Physics.reflectCircle(new Vect(c[0], c[1]), ball.getCenter(), velocity, 0.95).x(); break;
+							case 7: sink += Physics.reflectRotatingWall(line, new Vect(c[0], c[1]), omega, ball, velocity,
+									0.95).x(); break;
+							default: sink += Physics.reflectBalls(ball.getCenter(), 1.0, velocity, new Vect(c[0], c[1]), 1.0,
+									new Vect(c[8], c[9])).v1.x(); break;
+							}
+						} else {
+							switch (formula) {
+							case 0: sink += Math.min(Collisions.timeUntilWallCollision(c[0], c[1], c[2], c[3], c[4], c[5], c[6], c[7],
+									radius), 1); break;
+							case 1: sink += Math.min(Collisions.timeUntilCircleCollision(c[0], c[1], 0.5, c[4], c[5], c[6], c[7],
+									radius), 1); break;
+							case 2: sink += Math.min(Collisions.timeUntilBallBallCollision(c[4], c[5], c[6], c[7], radius, c[0], c[1],
+									c[8], c[9], radius), 1); break;
+							case 3: sink += Math.min(collisions.timeUntilRotatingWallCollision(c[0], c[1], c[2], c[3], c[0], c[1], omega,
+									c[4], c[5], c[6], c[7], radius, foresight), 1); break;
+							case 4: sink += Math.min(collisions.timeUntilRotatingCircleCollision(c[2], c[3], 0.25, c[0], c[1], omega,
+									c[4], c[5], c[6], c[7], radius, foresight), 1); break;
+							case 5: collisions.reflectWall(c[0], c[1], c[2], c[3], c[6], c[7], 0.95); sink += collisions.vx(); break;
+							case 6: collisions.reflectCircle(c[0], c[1], c[4], c[5], c[6], c[7], 0.95); sink += collisions.vx(); break;
+							case 7: collisions.reflectRotatingWall(c[0], c[1], c[2], c[3], c[0], c[1], omega, c[4], c[5], c[6],
+									c[7], 0.95); sink += collisions.vx(); break;
+							default: collisions.reflectBalls(c[4], c[5], 1.0, c[6], c[7], c[0], c[1], 1.0, c[8], c[9]);
+									sink += collisions.vx(); break;
+							}
+						}
+					}
+					results[2 * kernel] = (double) (System.nanoTime() - start) / calls;
+					results[2 * kernel + 1] = allocation ? (((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(id)
+							- bytes) / calls : -1;
+					blackhole = sink;
+				}
+			}
+			System.out.println(formulas[formula] + "\t" + String.format("%.1f", results[0]) + "\t"
+					+ (results[1] < 0 ? "n/a" : String.valueOf((long) results[1])) + "\t" + String.format("%.1f", results[2])
+					+ "\t" + (results[3] < 0 ? "n/a" : String.valueOf((long) results[3])));
+		}
+	}
+
+	/**
+	 * Prints the average and the worst cost of a tick against the maximum number of collisions resolved
+	 * for one ball in one tick. Fast balls are played on a crowded board in long ticks so that balls
+	 * collide many times in each tick.
+	 */
+	static void collisionCap() {
+		final double timestep = 0.05;
+		System.out.println("max collisions	ns/tick	worst ns/tick	cap hits");
+		for (int max : new int[] {1, 2, 4, 8, 16, Board.DEFAULT_MAX_COLLISIONS_PER_STEP}) {
+			final Board board = randomBoard("Benchmark", 300, 40, new Random(SEED));
+			board.setMaxCollisionsPerStep(max);
+			for (Ball ball : board.getBalls()) {
+				ball.setVelocity(ball.getVelocity().times(8));
+			}
+			for (int i = 0; i < WARMUP_TICKS / 10; i++) {
+				board.step(timestep);
+			}
+			final long hits = board.collisionCapHits();
+			long worst = 0;
+			long total = 0;
+			for (int i = 0; i < MEASURED_TICKS / 10; i++) {
+				final long start = System.nanoTime();
+				board.step(timestep);
+				final long tick = System.nanoTime() - start;
+				worst = Math.max(worst, tick);
+				total += tick;
+			}
+			System.out.println(max + "\t" + total / (MEASURED_TICKS / 10) + "\t" + worst + "\t"
+					+ (board.collisionCapHits() - hits));
+		}
+	}
+
+	/**
+	 * Prints how often a ball enters a square or circle bumper and the cost of a simulated second against the
+	 * length of a tick, for collisions predicted along a straight line and along the curved path of each ball.
+	 * A ball enters a bumper when its center is inside the bumper at the end of a tick but was not at the end
+	 * of the tick before. Balls are thrown three times as fast as usual so that long ticks carry them into
+	 * bumpers when a collision is missed. Triangle bumpers are not counted as half of their square is open.
+	 */
+	static void parabolicPrediction() {
+		final double seconds = 20;
+		final int boards = 5;
+		System.out.println("timestep\tstraight: bumpers entered\tns/simulated s\tcurved: bumpers entered\tns/simulated s");
+		for (double timestep : new double[] {0.005, 0.01, 0.02, 0.04}) {
+			final StringBuilder line = new StringBuilder(String.valueOf(timestep));
+			for (boolean curved : new boolean[] {false, true}) {
+				long entered = 0;
+				long elapsed = 0;
+				for (int seed = 0; seed < boards; seed++) {
+					final Board board = randomBoard("Benchmark", 60, 20, new Random(SEED + seed));
+					board.setPhysics(board.getPhysics().withParabolicPrediction(curved));
+					for (Ball ball : board.getBalls()) {
+						ball.setVelocity(ball.getVelocity().times(3));
+					}
+					board.putBallsInPlay(timestep);
+					final Set<Ball> inside = new HashSet<Ball>();
+					final int ticks = (int) Math.round(seconds / timestep);
+					for (int i = 0; i < ticks; i++) {
+						final long start = System.nanoTime();
+						board.step(timestep);
+						elapsed += System.nanoTime() - start;
+						entered += bumpersEntered(board, inside);
+					}
+				}
+				line.append("\t" + entered + "\t" + (long) (elapsed / (seconds * boards)));
+			}
+			System.out.println(line);
+		}
+	}
+
+	/**
+	 * Prints the cost of a tick and how often a ball enters a square or circle bumper for balls moved in
+	 * whole ticks and in adaptive sub-steps. A large sparse board has balls mostly far from any gadget, and
+	 * a small dense board has fast balls mostly near gadgets. The two ways of stepping play copies of the same 
+	 * board in turn, one tick each, so both are timed while the same code is being compiled and under the 
+	 * same load. Ticks are only timed after a warm up. 
+	 */
+	static void adaptiveStepping() {
+		final double[] tolerances = {0, PhysicsContext.DEFAULT_STEP_TOLERANCE};
+		System.out.println("board\tfixed: ns/tick\tbumpers entered\tadaptive: ns/tick\tbumpers entered");
+		for (boolean sparse : new boolean[] {true, false}) {
+			final Board[] boards = new Board[tolerances.length];
+			final List<Set<Ball>> inside = new ArrayList<Set<Ball>>();
+			final long[] entered = new long[tolerances.length];
+			final long[] elapsed = new long[tolerances.length];
+			for (int k = 0; k < tolerances.length; k++) {
+				boards[k] = sparse ? randomBoard("Benchmark", 100, 100, 60, 200, new Random(SEED))
+						: randomBoard("Benchmark", 20, 20, 200, 60, new Random(SEED));
+				boards[k].setPhysics(boards[k].getPhysics().withStepTolerance(tolerances[k]));
+				for (Ball ball : boards[k].getBalls()) {
+					ball.setVelocity(ball.getVelocity().times(sparse ? 1 : 5));
+				}
+				boards[k].putBallsInPlay(TIMESTEP);
+				inside.add(new HashSet<Ball>());
+			}
+			for (int i = 0; i < WARMUP_TICKS + MEASURED_TICKS; i++) {
+				for (int k = 0; k < tolerances.length; k++) {
+					final long start = System.nanoTime();
+					boards[k].step(TIMESTEP);
+					if (i >= WARMUP_TICKS) elapsed[k] += System.nanoTime() - start;
+					entered[k] += bumpersEntered(boards[k], inside.get(k));
+				}
+			}
+			final StringBuilder line = new StringBuilder(sparse ? "100x100, 60 gadgets" : "20x20, 200 gadgets");
+			for (int k = 0; k < tolerances.length; k++) {
+				line.append("\t" + elapsed[k] / MEASURED_TICKS + "\t" + entered[k]);
+			}
+			System.out.println(line);
+		}
+	}
+
+	/**
+	 * Counts the balls on a board whose center is inside a square or circle bumper but was not at the end
+	 * of the tick before.
+	 * @param board a board
+	 * @param inside balls whose center was inside a bumper at the end of the tick before. Updated to the
+	 * 		balls whose center is inside a bumper now
+	 * @return number of balls which have entered a bumper
+	 */
+	static int bumpersEntered(Board board, Set<Ball> inside) {
+		int entered = 0;
+		for (Ball ball : board.getBalls()) {
+			if (!insideBumper(board, ball.getBoardCenter())) {
+				inside.remove(ball);
+			} else if (inside.add(ball)) {
+				entered++;
+			}
+		}
+		return entered;
+	}
+
+	/**
+	 * @param board a board
+	 * @param point a point on the board
+	 * @return true if point is inside a square or circle bumper on board
+	 */
+	static boolean insideBumper(Board board, Vect point) {
+		if (!board.isCovered((int) point.x(), (int) point.y())) return false;
+		for (Gadget gadget : board.getGadgets()) {
+			final Vect position = gadget.position();
+			if ((int) position.x() != (int) point.x() || (int) position.y() != (int) point.y()) continue;
+			if (gadget instanceof SquareBumper) return true;
+			if (gadget instanceof CircleBumper) return point.minus(position.plus(new Vect(0.5, 0.5))).length() < 0.5;
+		}
+		return false;
+	}
+}
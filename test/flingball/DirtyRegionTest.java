@@ -0,0 +1,219 @@
+package flingball;
+
+import static org.junit.Assert.*;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.mit.eecs.parserlib.UnableToParseException;
+import flingball.gadgets.Flipper;
+import flingball.gadgets.Gadget;
+import flingball.gadgets.TriangleBumper;
+import physics.Vect;
+
+public class DirtyRegionTest {
+
+	/*
+	 * Testing strategy for DirtyRegion.update(snapshot, blend, L)
+	 *
+	 * Partition on the last frame: none, invalidated, drawn at another scale, drawn with other gadgets,
+	 * 		drawn with the same gadgets at the same scale
+	 * Partition on the balls: none moved, one moved within its own square, several moved far apart, a ball
+	 * 		removed before another
+	 * Partition on the gadgets: none changed state, one changed state
+	 * Partition on the number of changed areas: 0, 1, > MAX_RECTANGLES
+	 * Partition on the pixels: drawing only the rectangles returned gives the same frame as drawing it in full
+	 */
+
+	private static final int L = 10;
+	private static final Gadget[] NO_GADGETS = new Gadget[0];
+	private static final double TIMESTEP = 0.005;
+
+	@Test(expected=AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	// Covers no last frame, then the same frame again, then invalidated, then another scale
+	@Test
+	public void testFullFrames() {
+		final DirtyRegion dirty = new DirtyRegion(20, 20);
+		final BoardSnapshot snapshot = snapshot(null, ball("A", 5, 5));
+		assertEquals(List.of(new Rectangle(0, 0, 20 * L, 20 * L)), dirty.update(snapshot, 1, L));
+		assertTrue(dirty.update(snapshot, 1, L).isEmpty());
+		dirty.invalidate();
+		assertEquals(List.of(new Rectangle(0, 0, 20 * L, 20 * L)), dirty.update(snapshot, 1, L));
+		assertEquals(List.of(new Rectangle(0, 0, 40 * L, 40 * L)), dirty.update(snapshot, 1, 2 * L));
+	}
+
+	// Covers one ball moved within its own square, whose old and new squares are merged
+	@Test
+	public void testBallMoved() {
+		final DirtyRegion dirty = new DirtyRegion(20, 20);
+		dirty.update(snapshot(null, ball("A", 5, 5)), 1, L);
+		final List<Rectangle> changed = dirty.update(snapshot(null, ball("A", 5.1, 5)), 1, L);
+		// The ball is drawn in the 5 x 5 square at (47, 47), then at (48, 47)
+		assertEquals(List.of(new Rectangle(47, 47, 6, 5)), changed);
+	}
+
+	// Covers balls moved next to each other, whose squares touch and are merged
+	@Test
+	public void testTouchingMerged() {
+		final DirtyRegion dirty = new DirtyRegion(20, 20);
+		dirty.update(snapshot(null, ball("A", 5, 5), ball("B", 5.5, 5)), 1, L);
+		final List<Rectangle> changed = dirty.update(snapshot(null, ball("A", 5, 5.5), ball("B", 5.5, 5.5)), 1, L);
+		assertEquals(List.of(new Rectangle(47, 47, 10, 10)), changed);
+	}
+
+	// Covers more than MAX_RECTANGLES balls moved far apart
+	@Test
+	public void testRectanglesCapped() {
+		final DirtyRegion dirty = new DirtyRegion(20, 20);
+		final Ball[] before = new Ball[36];
+		final Ball[] after = new Ball[36];
+		for (int k = 0; k < before.length; k++) {
+			before[k] = ball("Ball" + k, 1.5 + 3 * (k % 6), 1.5 + 3 * (k / 6));
+			after[k] = ball("Ball" + k, 1.6 + 3 * (k % 6), 1.5 + 3 * (k / 6));
+		}
+		final BoardSnapshot first = snapshot(null, before);
+		dirty.update(first, 1, L);
+		final List<Rectangle> changed = dirty.update(snapshot(null, after), 1, L);
+		assertTrue(changed.size() <= DirtyRegion.MAX_RECTANGLES);
+		assertTrue(changed.size() > 1);
+		assertDisjoint(changed);
+		for (int k = 0; k < before.length; k++) {
+			assertCovered(changed, square(first, k));
+			assertCovered(changed, new Rectangle((int) ((after[k].getBoardCenter().x() - 0.25) * L),
+					(int) ((after[k].getBoardCenter().y() - 0.25) * L), 5, 5));
+		}
+	}
+
+	// Covers a ball removed before another, which shifts the index of the other
+	@Test
+	public void testBallRemoved() {
+		final DirtyRegion dirty = new DirtyRegion(20, 20);
+		final BoardSnapshot first = snapshot(null, ball("A", 2, 2), ball("B", 10, 10));
+		dirty.update(first, 1, L);
+		final List<Rectangle> changed = dirty.update(snapshot(null, ball("B", 10, 10)), 1, L);
+		assertDisjoint(changed);
+		assertCovered(changed, square(first, 0));
+	}
+
+	// Covers a gadget which changed state, then drawn with other gadgets
+	@Test
+	public void testGadgets() throws UnableToParseException {
+		final Board board = BoardParser.parse("board name=Gadgets\ntriangleBumper name=Triangle x=10 y=2 orientation=0\n");
+		final DirtyRegion dirty = new DirtyRegion(20, 20);
+		board.putBallsInPlay(TIMESTEP);
+		dirty.update(board.snapshot(), 1, L);
+		for (Gadget gadget : board.getGadgets()) {
+			gadget.takeAction();
+		}
+		// A board publishes a new snapshot once per tick
+		board.step(TIMESTEP);
+		assertEquals(List.of(new Rectangle(10 * L, 2 * L, L, L)), dirty.update(board.snapshot(), 1, L));
+		final Board other = BoardParser.parse("board name=Other\nsquareBumper name=Square x=3 y=4\n");
+		assertEquals(List.of(new Rectangle(0, 0, 20 * L, 20 * L)), dirty.update(other.snapshot(), 1, L));
+	}
+
+	// Covers the pixels over many ticks of play with balls moving, flippers moving and triangles rotating
+	@Test
+	public void testPixelsDuringPlay() throws UnableToParseException {
+		final Board board = BoardParser.parse("board name=Pixels gravity=25.0\n"
+				+ "ball name=BallA x=1.5 y=3.5 xVelocity=4 yVelocity=0\n"
+				+ "ball name=BallB x=9.5 y=1.5 xVelocity=-3 yVelocity=2\n"
+				+ "ball name=BallC x=15.5 y=6.5 xVelocity=0 yVelocity=-5\n"
+				+ "leftFlipper name=Left x=0 y=8 orientation=0\n"
+				+ "rightFlipper name=Right x=8 y=8 orientation=90\n"
+				+ "triangleBumper name=Triangle x=10 y=12 orientation=0\n"
+				+ "squareBumper name=Square x=5 y=15\n"
+				+ "circleBumper name=Circle x=12 y=4\n"
+				+ "absorber name=Absorber x=0 y=18 width=20 height=2\n"
+				+ "fire trigger=Absorber action=Absorber\n");
+		final SpriteCache fullSprites = new SpriteCache(), sprites = new SpriteCache();
+		final BoardBackground fullBackground = new BoardBackground(board.WIDTH, board.HEIGHT, null);
+		final BoardBackground background = new BoardBackground(board.WIDTH, board.HEIGHT, null);
+		final DirtyRegion dirty = new DirtyRegion(board.WIDTH, board.HEIGHT);
+		final BufferedImage incremental = new BufferedImage(board.WIDTH * L, board.HEIGHT * L, BufferedImage.TYPE_INT_RGB);
+		final Random random = new Random(1);
+		long drawn = 0;
+		board.putBallsInPlay(TIMESTEP);
+		for (int tick = 0; tick < 400; tick++) {
+			if (tick % 37 == 0) {
+				for (Gadget gadget : board.getGadgets()) {
+					if (gadget instanceof Flipper || gadget instanceof TriangleBumper) gadget.takeAction();
+				}
+			}
+			board.step(TIMESTEP);
+			final BoardSnapshot snapshot = board.snapshot();
+			final double blend = random.nextDouble();
+			final BufferedImage full = new BufferedImage(board.WIDTH * L, board.HEIGHT * L, BufferedImage.TYPE_INT_RGB);
+			final Graphics2D fullGraphics = full.createGraphics();
+			draw(fullGraphics, snapshot, blend, fullSprites, fullBackground);
+			fullGraphics.dispose();
+			final Graphics2D graphics = incremental.createGraphics();
+			for (Rectangle region : dirty.update(snapshot, blend, L)) {
+				graphics.setClip(region);
+				draw(graphics, snapshot, blend, sprites, background);
+				drawn += (long) region.width * region.height;
+			}
+			graphics.dispose();
+			assertTrue("tick " + tick, BoardBackgroundTest.same(full, incremental));
+		}
+		// Most of the board is not drawn again
+		assertTrue(drawn < 400L * board.WIDTH * L * board.HEIGHT * L / 2);
+	}
+
+	/**
+	 * Draws the board as BoardAnimation does: the background, then every ball within the clip of graphics
+	 */
+	private static void draw(Graphics2D graphics, BoardSnapshot snapshot, double blend, SpriteCache sprites,
+			BoardBackground background) {
+		background.draw(graphics, snapshot, blend, sprites, L);
+		for (int i = 0; i < snapshot.balls(); i++) {
+			final double radius = snapshot.radius(i);
+			final int x = (int) ((snapshot.x(i, blend) - radius) * L);
+			final int y = (int) ((snapshot.y(i, blend) - radius) * L);
+			final int size = (int) (2 * radius * L);
+			if (!graphics.hitClip(x, y, size, size)) continue;
+			graphics.drawImage(sprites.ball(radius, L), x, y, null);
+		}
+	}
+
+	private static Ball ball(String name, double x, double y) {
+		return new Ball(name, new Vect(x, y), new Vect(0, 0));
+	}
+
+	private static BoardSnapshot snapshot(BoardSnapshot previous, Ball... balls) {
+		return new BoardSnapshot(0, 0, balls, NO_GADGETS, previous);
+	}
+
+	/**
+	 * @return the square ball i of snapshot is drawn in
+	 */
+	private static Rectangle square(BoardSnapshot snapshot, int i) {
+		final double radius = snapshot.radius(i);
+		return new Rectangle((int) ((snapshot.x(i) - radius) * L), (int) ((snapshot.y(i) - radius) * L),
+				(int) (2 * radius * L), (int) (2 * radius * L));
+	}
+
+	private static void assertDisjoint(List<Rectangle> rectangles) {
+		for (int a = 0; a < rectangles.size(); a++) {
+			for (int b = a + 1; b < rectangles.size(); b++) {
+				assertFalse(rectangles.get(a).intersects(rectangles.get(b)));
+			}
+		}
+	}
+
+	private static void assertCovered(List<Rectangle> rectangles, Rectangle area) {
+		for (Rectangle rectangle : rectangles) {
+			if (rectangle.contains(area)) return;
+		}
+		fail(area + " is not covered by " + rectangles);
+	}
+}
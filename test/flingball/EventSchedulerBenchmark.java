@@ -0,0 +1,50 @@
+package flingball;
+
+import static flingball.BoardBenchmark.*;
+
+import java.util.Random;
+
+/**
+ * Benchmarks for boards played by an EventScheduler from collision to collision, compared with the same
+ * boards played in fixed ticks. Run on its own or from BoardBenchmark.
+ */
+public class EventSchedulerBenchmark {
+
+	public static void main(String[] args) {
+		eventScheduling();
+	}
+
+	/**
+	 * Prints the cost of playing one second on boards of increasing density in fixed ticks and with the
+	 * EventScheduler. The scheduler is also used to fast forward through a whole second in one call. The
+	 * number of collision times computed per second of play is printed for each engine.
+	 */
+	static void eventScheduling() {
+		System.out.println("gadgets\tballs\tns/s (ticks)\tns/s (events)\tns/s (events, fast forward)"
+				+ "\tqueries/s (ticks)\tqueries/s (events)\tqueries/s (events, fast forward)");
+		final int seconds = 20;
+		final double played = (WARMUP_TICKS + MEASURED_TICKS) * TIMESTEP;
+		for (int[] size : new int[][] {{5, 2}, {20, 5}, {60, 20}, {200, 100}}) {
+			final Board ticked = randomBoard("Benchmark", size[0], size[1], new Random(SEED));
+			final double tick = timeTicks(ticked) / TIMESTEP;
+			final long tickQueries = (long) (ticked.collisionQueries() / played);
+
+			final Board evented = randomBoard("Benchmark", size[0], size[1], new Random(SEED));
+			evented.setEventDriven(true);
+			final double event = timeTicks(evented) / TIMESTEP;
+			final long eventQueries = (long) (evented.getScheduler().queries() / played);
+
+			final Board fastForward = randomBoard("Benchmark", size[0], size[1], new Random(SEED));
+			fastForward.setEventDriven(true);
+			fastForward.step(seconds);
+			final long queriesBefore = fastForward.getScheduler().queries();
+			final long start = System.nanoTime();
+			fastForward.step(seconds);
+			final double fast = (double) (System.nanoTime() - start) / seconds;
+			final long queries = (fastForward.getScheduler().queries() - queriesBefore) / seconds;
+
+			System.out.println(size[0] + "\t" + size[1] + "\t" + (long) tick + "\t" + (long) event + "\t" + (long) fast
+					+ "\t" + tickQueries + "\t" + eventQueries + "\t" + queries);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package flingball;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.mit.eecs.parserlib.UnableToParseException;
+
+public class EventSchedulerTest {
+
+	/*
+	 * Testing strategy for a board played by an EventScheduler, compared with the same board played in
+	 * fixed ticks
+	 *
+	 * Partition on the collisions during play: none, with a wall, with a square bumper, with a circle bumper,
+	 * 		with a triangle bumper, between two balls, with an absorber
+	 * Partition on gravity: 0, > 0
+	 */
+
+	private static final double TIMESTEP = 0.005;
+	private static final int TICKS = 100;
+	private static final String NO_GRAVITY = "board name=Events gravity=0.0 friction1=0.0 friction2=0.0\n";
+	// Ball.move rounds positions to 0.01 L each time a ball is moved, and the scheduler moves balls less
+	// often than once per tick, so positions may drift apart by a few roundings
+	private static final double POSITION_TOLERANCE = 0.1;
+	private static final double VELOCITY_TOLERANCE = 0.05;
+
+	@Test(expected=AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	// Covers no collisions, gravity 0
+	@Test
+	public void testNoCollisions() throws UnableToParseException {
+		assertAgree(NO_GRAVITY + "ball name=Ball x=5.5 y=5.5 xVelocity=7 yVelocity=3\n");
+	}
+
+	// Covers a collision with a wall
+	@Test
+	public void testWall() throws UnableToParseException {
+		final Board board = assertAgree(NO_GRAVITY + "ball name=Ball x=17.5 y=5.5 xVelocity=10 yVelocity=0\n");
+		assertEquals(-10, board.getBalls().get(0).getVelocity().x(), VELOCITY_TOLERANCE);
+	}
+
+	// Covers a collision with a square bumper
+	@Test
+	public void testSquareBumper() throws UnableToParseException {
+		final Board board = assertAgree(NO_GRAVITY + "ball name=Ball x=5.5 y=9.5 xVelocity=10 yVelocity=0\n"
+				+ "squareBumper name=Square x=8 y=9\n");
+		assertEquals(-10, board.getBalls().get(0).getVelocity().x(), VELOCITY_TOLERANCE);
+	}
+
+	// Covers a collision with a circle bumper
+	@Test
+	public void testCircleBumper() throws UnableToParseException {
+		final Board board = assertAgree(NO_GRAVITY + "ball name=Ball x=5.5 y=9.6 xVelocity=10 yVelocity=0\n"
+				+ "circleBumper name=Circle x=8 y=9\n");
+		assertTrue(board.getBalls().get(0).getVelocity().y() > 0);
+	}
+
+	// Covers a collision with a triangle bumper
+	@Test
+	public void testTriangleBumper() throws UnableToParseException {
+		final Board board = assertAgree(NO_GRAVITY + "ball name=Ball x=5.5 y=9.5 xVelocity=10 yVelocity=0\n"
+				+ "triangleBumper name=Triangle x=8 y=9 orientation=90\n");
+		assertEquals(10, board.getBalls().get(0).getVelocity().y(), VELOCITY_TOLERANCE);
+	}
+
+	// Covers a collision between two balls
+	@Test
+	public void testBalls() throws UnableToParseException {
+		final Board board = assertAgree(NO_GRAVITY + "ball name=Left x=5.5 y=9.5 xVelocity=10 yVelocity=0\n"
+				+ "ball name=Right x=9.5 y=9.5 xVelocity=-10 yVelocity=0\n");
+		assertEquals(-10, board.getBalls().get(0).getVelocity().x(), VELOCITY_TOLERANCE);
+		assertEquals(10, board.getBalls().get(1).getVelocity().x(), VELOCITY_TOLERANCE);
+	}
+
+	// Covers a collision with an absorber
+	@Test
+	public void testAbsorber() throws UnableToParseException {
+		final Board board = assertAgree(NO_GRAVITY + "ball name=Ball x=5.5 y=5.5 xVelocity=0 yVelocity=10\n"
+				+ "absorber name=Absorber x=0 y=10 width=20 height=2\n");
+		assertEquals(0, board.getBalls().get(0).getVelocity().length(), 0);
+	}
+
+	// Covers a collision with a square bumper, gravity > 0
+	@Test
+	public void testGravity() throws UnableToParseException {
+		assertAgree("board name=Events gravity=25.0\n"
+				+ "ball name=Ball x=5.5 y=5.5 xVelocity=3 yVelocity=0\n"
+				+ "squareBumper name=Square x=5 y=10\n");
+	}
+
+	/**
+	 * Plays board for TICKS ticks in fixed ticks and with an event scheduler, and asserts that every ball
+	 * ends up in the same place with the same velocity
+	 * @return the board played with an event scheduler
+	 */
+	private static Board assertAgree(String board) throws UnableToParseException {
+		final Board ticks = BoardParser.parse(board);
+		final Board events = BoardParser.parse(board);
+		events.setEventDriven(true);
+		ticks.simulate(TICKS, TIMESTEP);
+		events.simulate(TICKS, TIMESTEP);
+		assertNotNull(events.getScheduler());
+		final List<Ball> expected = ticks.getBalls();
+		final List<Ball> actual = events.getBalls();
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).name(), actual.get(i).name());
+			assertEquals(0, expected.get(i).getBoardCenter().minus(actual.get(i).getBoardCenter()).length(),
+					POSITION_TOLERANCE);
+			assertEquals(0, expected.get(i).getVelocity().minus(actual.get(i).getVelocity()).length(),
+					VELOCITY_TOLERANCE);
+		}
+		return events;
+	}
+}
@@ -0,0 +1,56 @@
+package flingball;
+
+import static flingball.BoardBenchmark.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import flingball.gadgets.Flipper;
+import flingball.gadgets.LeftFlipper;
+import flingball.gadgets.RightFlipper;
+
+/**
+ * Benchmarks for flippers rotating through their keyframes. Run on its own or from BoardBenchmark.
+ */
+public class FlipperBenchmark {
+
+	public static void main(String[] args) {
+		flipperRotation();
+	}
+
+	/**
+	 * Prints the cost in time and in allocated bytes of rotating 24 flippers which are all flipping at the
+	 * same time, measured per tick.
+	 */
+	static void flipperRotation() {
+		System.out.println("flippers\tns/tick\tbytes/tick");
+		final java.lang.management.ThreadMXBean threads = java.lang.management.ManagementFactory.getThreadMXBean();
+		final boolean allocation = threads instanceof com.sun.management.ThreadMXBean;
+		final List<Flipper> flippers = new ArrayList<Flipper>();
+		for (int i = 0; i < 24; i++) {
+			final int x = (i % 6) * 3;
+			final int y = (i / 6) * 4;
+			final Orientation orientation = Orientation.values()[i % 4];
+			flippers.add(i % 2 == 0 ? new LeftFlipper("Left" + i, x, y, orientation) : new RightFlipper("Right" + i, x, y, orientation));
+		}
+		final int ticks = MEASURED_TICKS * 10;
+		for (int i = 0; i < ticks; i++) {
+			for (int j = 0; j < flippers.size(); j++) {
+				flippers.get(j).takeAction();
+				flippers.get(j).advance(TIMESTEP);
+			}
+		}
+		final long id = Thread.currentThread().getId();
+		final long bytesBefore = allocation ? ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(id) : 0;
+		final long start = System.nanoTime();
+		for (int i = 0; i < ticks; i++) {
+			for (int j = 0; j < flippers.size(); j++) {
+				flippers.get(j).takeAction();
+				flippers.get(j).advance(TIMESTEP);
+			}
+		}
+		final double time = (double) (System.nanoTime() - start) / ticks;
+		final long bytes = allocation ? ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(id) - bytesBefore : -1;
+		System.out.println(flippers.size() + "\t" + (long) time + "\t" + (bytes < 0 ? "n/a" : String.valueOf(bytes / ticks)));
+	}
+}
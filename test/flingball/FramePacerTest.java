@@ -0,0 +1,89 @@
+package flingball;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import flingball.gadgets.Gadget;
+
+public class FramePacerTest {
+
+	/*
+	 * Testing strategy for FramePacer
+	 *
+	 * needsFrame(snapshot, blend, lost):
+	 * 		Partition on snapshot: first frame, same as the last frame shown, newer than the last frame shown
+	 * 		Partition on the blend of the last frame shown: < 1, 1
+	 * 		Partition on lost: true, false
+	 *
+	 * delay(now):
+	 * 		Partition on now: before the next frame is due, when it is due, after it is due
+	 */
+
+	private static final Ball[] NO_BALLS = new Ball[0];
+	private static final Gadget[] NO_GADGETS = new Gadget[0];
+	private static final long START = 1000;
+	private static final long PERIOD = 1000000000L / 50;
+
+	@Test(expected=AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	// Covers first frame, lost false
+	@Test
+	public void testFirstFrame() {
+		final FramePacer pacer = new FramePacer(50, START);
+		assertTrue(pacer.needsFrame(new BoardSnapshot(0, 0, NO_BALLS, NO_GADGETS, null), 1, false));
+	}
+
+	// Covers same snapshot as the last frame shown, blend 1, lost false and true
+	@Test
+	public void testSameSnapshotAtEndOfTick() {
+		final FramePacer pacer = new FramePacer(50, START);
+		final BoardSnapshot snapshot = new BoardSnapshot(0, 0, NO_BALLS, NO_GADGETS, null);
+		assertTrue(pacer.needsFrame(snapshot, 1, false));
+		assertFalse(pacer.needsFrame(snapshot, 1, false));
+		assertTrue(pacer.needsFrame(snapshot, 1, true));
+	}
+
+	// Covers same snapshot as the last frame shown, blend < 1, lost false
+	@Test
+	public void testSameSnapshotDuringTick() {
+		final FramePacer pacer = new FramePacer(50, START);
+		final BoardSnapshot snapshot = new BoardSnapshot(0, 0, NO_BALLS, NO_GADGETS, null);
+		assertTrue(pacer.needsFrame(snapshot, 0.25, false));
+		assertTrue(pacer.needsFrame(snapshot, 0.75, false));
+		assertTrue(pacer.needsFrame(snapshot, 1, false));
+		assertFalse(pacer.needsFrame(snapshot, 1, false));
+	}
+
+	// Covers newer snapshot than the last frame shown, blend 1, lost false
+	@Test
+	public void testNewSnapshot() {
+		final FramePacer pacer = new FramePacer(50, START);
+		final BoardSnapshot first = new BoardSnapshot(0, 0, NO_BALLS, NO_GADGETS, null);
+		final BoardSnapshot second = new BoardSnapshot(1, 0.005, NO_BALLS, NO_GADGETS, first);
+		assertTrue(pacer.needsFrame(first, 1, false));
+		assertTrue(pacer.needsFrame(second, 0, false));
+	}
+
+	// Covers now before the next frame is due and when it is due
+	@Test
+	public void testDelayOnTime() {
+		final FramePacer pacer = new FramePacer(50, START);
+		assertEquals(PERIOD - 100, pacer.delay(START + 100));
+		assertEquals(0, pacer.delay(START + 2 * PERIOD));
+		assertEquals(PERIOD, pacer.delay(START + 2 * PERIOD));
+	}
+
+	// Covers now after the next frame is due, which is not made up for
+	@Test
+	public void testDelayLate() {
+		final FramePacer pacer = new FramePacer(50, START);
+		final long late = START + 5 * PERIOD / 2;
+		assertEquals(0, pacer.delay(late));
+		assertEquals(PERIOD, pacer.delay(late));
+		assertEquals(3 * PERIOD / 2, pacer.delay(late + PERIOD / 2));
+	}
+}
@@ -0,0 +1,260 @@
+package flingball;
+
+import static flingball.BoardBenchmark.*;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import flingball.gadgets.Gadget;
+import physics.Vect;
+
+/**
+ * Benchmarks for drawing boards: publishing snapshots, images from a SpriteCache and a BoardBackground,
+ * blending between the last two snapshots and drawing only the pixels found by a DirtyRegion. Run on its
+ * own or from BoardBenchmark.
+ */
+public class RenderingBenchmark {
+
+	public static void main(String[] args) {
+		snapshots();
+		sprites();
+		interpolation();
+		dirtyRegions();
+	}
+
+	/**
+	 * Prints the cost of a tick with and without publishing a snapshot of the board every tick, and how long
+	 * drawing code takes to read every ball in the last snapshot while another thread plays the board as fast
+	 * as it can, against the number of balls. Every read is timed.
+	 */
+	static void snapshots() {
+		final int reads = 200000;
+		System.out.println("balls\tns/tick\tns/tick (publishing)\tread: mean ns\t99th percentile ns\tmax ns");
+		for (int ballCount : new int[] {50, 200, 350}) {
+			final double plain = timeTicks(randomBoard("Benchmark", 20, 20, 40, ballCount, new Random(SEED)));
+			final Board board = randomBoard("Benchmark", 20, 20, 40, ballCount, new Random(SEED));
+			board.snapshot();
+			final double publishing = timeTicks(board);
+			final Thread player = new Thread(() -> {
+				while (!Thread.currentThread().isInterrupted()) {
+					board.step(TIMESTEP);
+				}
+			});
+			final long[] waits = new long[reads];
+			double sum = 0;
+			player.start();
+			for (int i = 0; i < reads; i++) {
+				final long before = System.nanoTime();
+				final BoardSnapshot snapshot = board.snapshot();
+				for (int j = 0; j < snapshot.balls(); j++) {
+					sum += snapshot.x(j) + snapshot.y(j);
+				}
+				waits[i] = System.nanoTime() - before;
+			}
+			player.interrupt();
+			try {
+				player.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			blackhole = sum;
+			long total = 0;
+			for (long wait : waits) {
+				total += wait;
+			}
+			Arrays.sort(waits);
+			System.out.println(ballCount + "\t" + (long) plain + "\t" + (long) publishing + "\t" + total / reads
+					+ "\t" + waits[reads * 99 / 100] + "\t" + waits[reads - 1]);
+		}
+	}
+
+	/**
+	 * Prints the cost of drawing a frame of a board with 60 gadgets and 20 balls when every image is generated
+	 * each frame, when images are taken from a SpriteCache and when gadgets are drawn from a BoardBackground,
+	 * against the number of pixels in one L. The board is played for one tick between frames.
+	 */
+	static void sprites() {
+		final int frames = 500;
+		System.out.println("L\tns/frame (generated)\tns/frame (cached)\tns/frame (background)\tcached images\tbackground renders");
+		for (int L : new int[] {20, 40, 80}) {
+			final Board board = randomBoard("Benchmark", 60, 20, new Random(SEED));
+			drawFrames(board, L, null, null, frames);
+			final long generated = drawFrames(board, L, null, null, frames);
+			final SpriteCache sprites = new SpriteCache();
+			drawFrames(board, L, sprites, null, frames);
+			final long cached = drawFrames(board, L, sprites, null, frames);
+			final BoardBackground background = new BoardBackground(board.WIDTH, board.HEIGHT, null);
+			drawFrames(board, L, sprites, background, frames);
+			final long layered = drawFrames(board, L, sprites, background, frames);
+			System.out.println(L + "\t" + generated / frames + "\t" + cached / frames + "\t" + layered / frames + "\t"
+					+ sprites.size() + "\t" + background.renders());
+		}
+	}
+
+	/**
+	 * Prints how evenly balls move from frame to frame when a board played in real time at 100 ticks per second
+	 * is sampled at 60 frames per second, drawing each frame from the last snapshot and from the last two
+	 * snapshots blended. Unevenness is the standard deviation of the change in distance moved by a ball from
+	 * one frame to the next, in L. A ball which does not move by the same amount each frame stutters.
+	 */
+	static void interpolation() {
+		final double tick = 0.01;
+		final long frame = 1000000000L / 60;
+		final int frames = 120;
+		System.out.println("balls\tunevenness (last snapshot)\tunevenness (blended)");
+		for (int ballCount : new int[] {5, 20}) {
+			final Board board = new Board("Benchmark", 0, 0, 0);
+			final Random random = new Random(SEED);
+			for (int i = 0; i < ballCount; i++) {
+				// Balls cross the board without touching each other or a wall
+				final Vect center = new Vect(2 + random.nextDouble(), 1 + i * 18.0 / ballCount);
+				board.addBall(new Ball("Ball" + i, center, new Vect(2 + random.nextDouble() * 4, 0)));
+			}
+			board.snapshot();
+			board.play(tick);
+			final double[][] raw = new double[frames][ballCount];
+			final double[][] blended = new double[frames][ballCount];
+			long next = System.nanoTime();
+			for (int f = 0; f < frames; f++) {
+				next += frame;
+				try {
+					Thread.sleep(Math.max(0, (next - System.nanoTime()) / 1000000));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				final BoardSnapshot snapshot = board.snapshot();
+				final double blend = snapshot.blend(System.nanoTime());
+				for (int i = 0; i < ballCount; i++) {
+					raw[f][i] = snapshot.x(i);
+					blended[f][i] = snapshot.x(i, blend);
+				}
+			}
+			board.stop();
+			System.out.println(ballCount + "\t" + String.format("%.4f", unevenness(raw)) + "\t"
+					+ String.format("%.4f", unevenness(blended)));
+		}
+	}
+
+	/**
+	 * Prints the cost of drawing a frame in full and of drawing only the pixels found by a DirtyRegion, and
+	 * the share of the pixels of the board drawn each frame, against the size of the board, the number of
+	 * balls and the number of pixels in one L. Every board holds 60 bumpers. The board is played for one tick
+	 * between frames.
+	 */
+	static void dirtyRegions() {
+		final int frames = 500;
+		System.out.println("board size\tballs\tL\tns/frame (full)\tns/frame (dirty)\tpixels drawn\trectangles/frame");
+		for (int[] sizes : new int[][] {{20, 20, 40}, {20, 20, 80}, {20, 5, 80}, {60, 5, 20}}) {
+			final int size = sizes[0], ballCount = sizes[1], L = sizes[2];
+			final Board board = randomBoard("Benchmark", size, size, 60, ballCount, new Random(SEED));
+			final long[] drawn = new long[2];
+			drawRegions(board, L, null, frames, drawn);
+			final long full = drawRegions(board, L, null, frames, drawn);
+			drawRegions(board, L, new DirtyRegion(board.WIDTH, board.HEIGHT), frames, drawn);
+			drawn[0] = drawn[1] = 0;
+			final long dirty = drawRegions(board, L, new DirtyRegion(board.WIDTH, board.HEIGHT), frames, drawn);
+			final double share = (double) drawn[0] / ((long) frames * board.WIDTH * L * board.HEIGHT * L);
+			System.out.println(size + "x" + size + "\t" + ballCount + "\t" + L + "\t" + full / frames + "\t"
+					+ dirty / frames + "\t" + String.format("%.2f%%", share * 100) + "\t"
+					+ String.format("%.1f", (double) drawn[1] / frames));
+		}
+	}
+
+	/**
+	 * Draws the snapshot of a board after each of a number of ticks, in the same way as BoardAnimation.
+	 * @param sprites cache to take images from, or null to generate every image
+	 * @param background background to draw gadgets from, or null to draw every gadget. Requires sprites
+	 * @return the time spent drawing in nanoseconds
+	 */
+	static long drawFrames(Board board, int L, SpriteCache sprites, BoardBackground background, int frames) {
+		final BufferedImage frame = new BufferedImage(board.WIDTH * L, board.HEIGHT * L, BufferedImage.TYPE_INT_RGB);
+		long elapsed = 0;
+		for (int i = 0; i < frames; i++) {
+			board.step(TIMESTEP);
+			final long start = System.nanoTime();
+			final BoardSnapshot snapshot = board.snapshot();
+			final Graphics2D graphics = frame.createGraphics();
+			if (background != null) {
+				background.draw(graphics, snapshot, 1, sprites, L);
+			}
+			for (int j = 0; j < snapshot.gadgets() && background == null; j++) {
+				final Gadget gadget = snapshot.gadget(j);
+				final BufferedImage image = sprites == null ? gadget.generate(L, snapshot.state(j))
+						: sprites.gadget(gadget, snapshot.state(j), L);
+				graphics.drawImage(image, (int) gadget.position().x() * L, (int) gadget.position().y() * L, null);
+			}
+			for (int j = 0; j < snapshot.balls(); j++) {
+				final double radius = snapshot.radius(j);
+				final BufferedImage image = sprites == null ? Ball.generate(L, radius) : sprites.ball(radius, L);
+				graphics.drawImage(image, (int) ((snapshot.x(j) - radius) * L), (int) ((snapshot.y(j) - radius) * L), null);
+			}
+			graphics.dispose();
+			elapsed += System.nanoTime() - start;
+		}
+		return elapsed;
+	}
+
+	/**
+	 * Draws the snapshot of a board after each of a number of ticks into the same image, in the same way as
+	 * BoardAnimation, from a SpriteCache and a BoardBackground.
+	 * @param dirty region to draw each frame within, or null to draw every frame in full
+	 * @param drawn drawn[0] is increased by the number of pixels drawn and drawn[1] by the number of
+	 * 		rectangles drawn
+	 * @return the time spent drawing in nanoseconds
+	 */
+	static long drawRegions(Board board, int L, DirtyRegion dirty, int frames, long[] drawn) {
+		final BufferedImage frame = new BufferedImage(board.WIDTH * L, board.HEIGHT * L, BufferedImage.TYPE_INT_RGB);
+		final SpriteCache sprites = new SpriteCache();
+		final BoardBackground background = new BoardBackground(board.WIDTH, board.HEIGHT, null);
+		final List<Rectangle> everything = Arrays.asList(new Rectangle(0, 0, board.WIDTH * L, board.HEIGHT * L));
+		long elapsed = 0;
+		for (int i = 0; i < frames; i++) {
+			board.step(TIMESTEP);
+			final long start = System.nanoTime();
+			final BoardSnapshot snapshot = board.snapshot();
+			final List<Rectangle> regions = dirty == null ? everything : dirty.update(snapshot, 1, L);
+			final Graphics2D graphics = frame.createGraphics();
+			for (Rectangle region : regions) {
+				graphics.setClip(region);
+				background.draw(graphics, snapshot, 1, sprites, L);
+				for (int j = 0; j < snapshot.balls(); j++) {
+					final double radius = snapshot.radius(j);
+					final int x = (int) ((snapshot.x(j) - radius) * L);
+					final int y = (int) ((snapshot.y(j) - radius) * L);
+					final int diameter = (int) (2 * radius * L);
+					if (graphics.hitClip(x, y, diameter, diameter)) {
+						graphics.drawImage(sprites.ball(radius, L), x, y, null);
+					}
+				}
+				drawn[0] += (long) region.width * region.height;
+				drawn[1]++;
+			}
+			graphics.dispose();
+			elapsed += System.nanoTime() - start;
+		}
+		return elapsed;
+	}
+
+	/**
+	 * @param positions positions[f][i] is the x coordinate of ball i in frame f
+	 * @return the standard deviation of the change in distance moved by a ball from one frame to the next
+	 */
+	private static double unevenness(double[][] positions) {
+		double sum = 0, squares = 0;
+		int count = 0;
+		for (int f = 2; f < positions.length; f++) {
+			for (int i = 0; i < positions[f].length; i++) {
+				final double change = (positions[f][i] - positions[f - 1][i]) - (positions[f - 1][i] - positions[f - 2][i]);
+				sum += change;
+				squares += change * change;
+				count++;
+			}
+		}
+		final double mean = sum / count;
+		return Math.sqrt(squares / count - mean * mean);
+	}
+}
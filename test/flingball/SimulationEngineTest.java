@@ -0,0 +1,113 @@
+package flingball;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import edu.mit.eecs.parserlib.UnableToParseException;
+
+public class SimulationEngineTest {
+
+	/*
+	 * Testing strategy for SimulationEngine.advance(elapsed)
+	 *
+	 * Partition on the time due, including time left over from the last call: < timestep, a whole number
+	 * 		of ticks <= maxStepsPerFrame, a fraction of a tick over a whole number <= maxStepsPerFrame,
+	 * 		> maxStepsPerFrame ticks
+	 * Partition on the last call: none, left time over, dropped ticks
+	 *
+	 * Testing strategy for SimulationEngine.stop() and Board.play(time), Board.stop()
+	 *
+	 * Partition on the engine: running, stopped and played again straight away
+	 * Partition on the ticks after stop() returns: none played
+	 */
+
+	private static final double TIMESTEP = 0.005;
+	private static final int MAX_STEPS = 5;
+	private static final double TOLERANCE = 1e-9;
+
+	@Test(expected=AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	// Covers < timestep with no last call, then a fraction over a whole number with time left over
+	@Test
+	public void testAccumulated() throws UnableToParseException {
+		final Board board = board();
+		final SimulationEngine engine = new SimulationEngine(board, TIMESTEP, MAX_STEPS);
+		assertEquals(0.003, engine.advance(0.002), TOLERANCE);
+		assertEquals(0, engine.ticks());
+		assertEquals(0.004, engine.advance(0.004), TOLERANCE);
+		assertEquals(1, engine.ticks());
+		assertEquals(0.003, engine.advance(0.011), TOLERANCE);
+		assertEquals(3, engine.ticks());
+		assertEquals(0, engine.droppedTicks());
+		assertEquals(3, board.snapshot().tick());
+	}
+
+	// Covers a whole number of ticks equal to maxStepsPerFrame
+	@Test
+	public void testMaxSteps() throws UnableToParseException {
+		final Board board = board();
+		final SimulationEngine engine = new SimulationEngine(board, TIMESTEP, MAX_STEPS);
+		engine.advance(MAX_STEPS * TIMESTEP + TIMESTEP / 2);
+		assertEquals(MAX_STEPS, engine.ticks());
+		assertEquals(0, engine.droppedTicks());
+	}
+
+	// Covers > maxStepsPerFrame ticks, then a tick after dropped ticks
+	@Test
+	public void testDropped() throws UnableToParseException {
+		final Board board = board();
+		final SimulationEngine engine = new SimulationEngine(board, TIMESTEP, MAX_STEPS);
+		assertEquals(0.003, engine.advance(20 * TIMESTEP + 0.002), TOLERANCE);
+		assertEquals(MAX_STEPS, engine.ticks());
+		assertEquals(15, engine.droppedTicks());
+		assertEquals(MAX_STEPS, board.snapshot().tick());
+		// Dropped ticks are not played later, but the part of a tick left over is
+		assertEquals(0.004, engine.advance(0.004), TOLERANCE);
+		assertEquals(MAX_STEPS + 1, engine.ticks());
+		assertEquals(15, engine.droppedTicks());
+	}
+
+	// Covers stopping a running engine, after which no tick is played
+	@Test
+	public void testStopWaits() throws Exception {
+		final Board board = BoardParser.parse("board name=Engine\nball name=Ball x=5.5 y=5.5 xVelocity=3 yVelocity=0\n");
+		final SimulationEngine engine = new SimulationEngine(board, TIMESTEP, MAX_STEPS);
+		board.putBallsInPlay(TIMESTEP);
+		engine.start();
+		Thread.sleep(50);
+		engine.stop();
+		assertFalse(engine.isRunning());
+		assertFalse(engine.isAlive());
+		final long ticks = engine.ticks();
+		Thread.sleep(50);
+		assertEquals(ticks, engine.ticks());
+		assertEquals(ticks, board.snapshot().tick());
+	}
+
+	// Covers a board stopped and played again straight away, which plays from a single engine at a time
+	@Test
+	public void testPlayAfterStop() throws Exception {
+		final Board board = BoardParser.parse("board name=Engine\nball name=Ball x=5.5 y=5.5 xVelocity=3 yVelocity=0\n");
+		for (int i = 0; i < 20; i++) {
+			board.play(TIMESTEP);
+			board.stop();
+			final long tick = board.snapshot().tick();
+			Thread.sleep(2);
+			assertEquals(tick, board.snapshot().tick());
+		}
+		board.play(TIMESTEP);
+		Thread.sleep(50);
+		board.stop();
+		assertTrue(board.snapshot().tick() > 0);
+	}
+
+	private static Board board() throws UnableToParseException {
+		final Board board = BoardParser.parse("board name=Engine\nball name=Ball x=5.5 y=5.5 xVelocity=3 yVelocity=0\n");
+		board.putBallsInPlay(TIMESTEP);
+		return board;
+	}
+}
@@ -0,0 +1,99 @@
+package flingball;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+import flingball.gadgets.Gadget;
+import flingball.gadgets.SquareBumper;
+import flingball.gadgets.TriangleBumper;
+
+public class SpriteCacheTest {
+
+	/*
+	 * Testing strategy for SpriteCache
+	 *
+	 * gadget(gadget, state, L):
+	 * 		Partition on gadget: drawn before, not drawn before but looks like a gadget drawn before, looks like
+	 * 			no gadget drawn before
+	 * 		Partition on state: the state gadget was last drawn in, a new state, a state gadget was drawn in
+	 * 			before the last one
+	 * 		Partition on L: the scale gadget was last drawn at, a new scale
+	 *
+	 * ball(radius, L):
+	 * 		Partition on radius: the radius last drawn, a radius drawn before the last one, a new radius
+	 * 		Partition on L: the scale last drawn at, a new scale
+	 */
+
+	private static final int L = 20;
+
+	@Test(expected=AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	// Covers gadget drawn before, same state, same L
+	@Test
+	public void testGadgetReused() {
+		final SpriteCache sprites = new SpriteCache();
+		final Gadget square = new SquareBumper("Square", 1, 1);
+		final BufferedImage image = sprites.gadget(square, square.state(), L);
+		assertSame(image, sprites.gadget(square, square.state(), L));
+		assertEquals(1, sprites.size());
+	}
+
+	// Covers gadget not drawn before which looks like a gadget drawn before
+	@Test
+	public void testGadgetShared() {
+		final SpriteCache sprites = new SpriteCache();
+		final Gadget first = new SquareBumper("First", 1, 1);
+		final Gadget second = new SquareBumper("Second", 5, 7);
+		assertSame(sprites.gadget(first, first.state(), L), sprites.gadget(second, second.state(), L));
+		assertEquals(1, sprites.size());
+	}
+
+	// Covers gadget drawn before in a new state, then in a state drawn before the last one
+	@Test
+	public void testGadgetNewState() {
+		final SpriteCache sprites = new SpriteCache();
+		final Gadget triangle = new TriangleBumper("Triangle", 1, 1);
+		final int before = triangle.state();
+		final BufferedImage image = sprites.gadget(triangle, before, L);
+		triangle.takeAction();
+		final int after = triangle.state();
+		assertTrue(before != after);
+		final BufferedImage rotated = sprites.gadget(triangle, after, L);
+		assertNotSame(image, rotated);
+		assertEquals(L, rotated.getWidth());
+		assertEquals(2, sprites.size());
+		assertSame(image, sprites.gadget(triangle, before, L));
+		assertEquals(2, sprites.size());
+	}
+
+	// Covers gadget drawn before at a new L, looks like no gadget drawn before
+	@Test
+	public void testGadgetNewScale() {
+		final SpriteCache sprites = new SpriteCache();
+		final Gadget square = new SquareBumper("Square", 1, 1);
+		final BufferedImage image = sprites.gadget(square, square.state(), L);
+		final BufferedImage larger = sprites.gadget(square, square.state(), 2 * L);
+		assertNotSame(image, larger);
+		assertEquals(2 * L, larger.getWidth());
+		assertEquals(2, sprites.size());
+	}
+
+	// Covers ball with the radius last drawn, a new radius, a radius drawn before the last one, a new L
+	@Test
+	public void testBall() {
+		final SpriteCache sprites = new SpriteCache();
+		final BufferedImage image = sprites.ball(0.25, L);
+		assertSame(image, sprites.ball(0.25, L));
+		final BufferedImage larger = sprites.ball(0.5, L);
+		assertNotSame(image, larger);
+		assertSame(image, sprites.ball(0.25, L));
+		assertNotSame(image, sprites.ball(0.25, 2 * L));
+		assertEquals(3, sprites.size());
+	}
+}
@@ -0,0 +1,293 @@
+package flingball;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import flingball.gadgets.Absorber;
+import flingball.gadgets.CircleBumper;
+import flingball.gadgets.Gadget;
+import flingball.gadgets.LeftFlipper;
+import flingball.gadgets.SquareBumper;
+import flingball.gadgets.TriangleBumper;
+import flingball.gadgets.Wall;
+import flingball.physics.PhysicsContext;
+import physics.Vect;
+
+public class StaticGeometryTest {
+
+	/*
+	 * Testing strategy for StaticGeometry, compared with asking every gadget for its collision time
+	 *
+	 * earliest(ball, time, physics, ignore, ignoreBefore, hit), earliestWall(...):
+	 * 		Partition on the prediction: straight, parabolic
+	 * 		Partition on the gadgets: square, circle and triangle bumpers, absorbers larger than one cell,
+	 * 			gadgets which move and are not compiled
+	 * 		Partition on the ball: overlapping an absorber, not overlapping any gadget
+	 * 		Partition on the earliest collisions: none during time, one gadget, two gadgets at the same time
+	 * 			in different cells, two gadgets at the same time in the same cell
+	 *
+	 * clearance(x, y):
+	 * 		Partition on the cell of (x, y): covered, empty next to a covered cell, empty far from every
+	 * 			covered cell, empty next to the edge of the board
+	 */
+
+	private static final int SIZE = 20;
+	private static final int BOARDS = 20;
+	private static final int BALLS = 500;
+	// Parabolic prediction looks no further ahead than ParabolicCollisions.HORIZON
+	private static final double TIME = 0.1;
+	private static final PhysicsContext STRAIGHT = PhysicsContext.DEFAULT;
+	private static final PhysicsContext PARABOLIC = PhysicsContext.DEFAULT.withParabolicPrediction(true);
+	private static final List<Wall> WALLS = List.of(new Wall("TOP", 0, 0, SIZE, 0),
+			new Wall("BOTTOM", 0, -SIZE, SIZE, -SIZE), new Wall("LEFT", 0, 0, 0, -SIZE),
+			new Wall("RIGHT", SIZE, 0, SIZE, -SIZE));
+	private static final List<Vect> AXES = List.of(new Vect(1, 0), new Vect(0, 1), new Vect(-1, 0), new Vect(0, -1));
+
+	@Test(expected=AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	// Covers straight prediction on random boards with every kind of gadget and ball
+	@Test
+	public void testRandomStraight() {
+		assertRandomBoards(STRAIGHT);
+	}
+
+	// Covers parabolic prediction on random boards with every kind of gadget and ball
+	@Test
+	public void testRandomParabolic() {
+		assertRandomBoards(PARABOLIC);
+	}
+
+	// Covers two gadgets hit at the same time in different cells, the gadget in the first cell added last
+	@Test
+	public void testTieBetweenCells() {
+		final Gadget right = new SquareBumper("Right", 6, 10);
+		final Gadget left = new SquareBumper("Left", 5, 10);
+		final GadgetIndex index = index(right, left);
+		final StaticGeometry geometry = new StaticGeometry(index, WALLS, Collections.<Gadget>emptySet());
+		final Ball ball = new Ball("Ball", new Vect(6, 9), new Vect(0, 10));
+		for (PhysicsContext physics : List.of(STRAIGHT, PARABOLIC)) {
+			assertSame(left, assertEarliest(geometry, index, ball, physics));
+		}
+	}
+
+	// Covers two gadgets hit at the same time in the same cell
+	@Test
+	public void testTieInCell() {
+		final Gadget first = new SquareBumper("First", 5, 10);
+		final Gadget second = new SquareBumper("Second", 5, 10);
+		final GadgetIndex index = index(first, second);
+		final StaticGeometry geometry = new StaticGeometry(index, WALLS, Collections.<Gadget>emptySet());
+		final Ball ball = new Ball("Ball", new Vect(5.5, 9), new Vect(0, 10));
+		for (PhysicsContext physics : List.of(STRAIGHT, PARABOLIC)) {
+			assertSame(first, assertEarliest(geometry, index, ball, physics));
+		}
+	}
+
+	// Covers clearance in covered cells, next to them, far from them and next to the edge of the board
+	@Test
+	public void testClearance() {
+		final Random random = new Random(3);
+		for (int board = 0; board < BOARDS; board++) {
+			final List<Gadget> gadgets = randomGadgets(random, 1 + random.nextInt(12));
+			final GadgetIndex index = index(gadgets.toArray(new Gadget[0]));
+			final StaticGeometry geometry = new StaticGeometry(index, WALLS, Collections.<Gadget>emptySet());
+			for (int y = 0; y < SIZE; y++) {
+				for (int x = 0; x < SIZE; x++) {
+					// At the center of a cell k cells from the nearest covered cell the clearance is k - 0.5
+					final int k = chebyshev(index, x, y);
+					assertEquals("cell " + x + ", " + y, Math.max(k - 0.5, 0), geometry.clearance(x + 0.5, y + 0.5), 1e-9);
+				}
+			}
+			for (int i = 0; i < BALLS; i++) {
+				final double x = SIZE * random.nextDouble();
+				final double y = SIZE * random.nextDouble();
+				final double distance = distance(index, x, y);
+				final double clearance = geometry.clearance(x, y);
+				assertTrue(x + ", " + y, clearance <= distance);
+				assertTrue(x + ", " + y, clearance >= distance - 1);
+			}
+		}
+	}
+
+	/**
+	 * Compiles random boards and asserts that earliest and earliestWall find the same collisions as asking
+	 * every gadget and wall for its collision time
+	 */
+	private static void assertRandomBoards(PhysicsContext physics) {
+		final Random random = new Random(1);
+		int hits = 0, overlaps = 0, ties = 0;
+		for (int board = 0; board < BOARDS; board++) {
+			final List<Gadget> gadgets = randomGadgets(random, 10 + random.nextInt(30));
+			final Set<Gadget> moving = new HashSet<Gadget>();
+			final Gadget flipper = new LeftFlipper("Flipper", random.nextInt(SIZE - 1), random.nextInt(SIZE - 1),
+					Orientation.values()[random.nextInt(4)]);
+			gadgets.add(random.nextInt(gadgets.size()), flipper);
+			moving.add(flipper);
+			moving.add(gadgets.get(random.nextInt(gadgets.size())));
+			final GadgetIndex index = index(gadgets.toArray(new Gadget[0]));
+			final StaticGeometry geometry = new StaticGeometry(index, WALLS, moving);
+			for (int i = 0; i < BALLS; i++) {
+				// Positions and velocities along the grid make collisions at the same time likely
+				final boolean aligned = random.nextBoolean();
+				final double x = aligned ? 0.5 + random.nextInt(2 * SIZE - 1) / 2.0 : 0.5 + (SIZE - 1) * random.nextDouble();
+				final double y = aligned ? 0.5 + random.nextInt(2 * SIZE - 1) / 2.0 : 0.5 + (SIZE - 1) * random.nextDouble();
+				final Vect velocity = aligned ? AXES.get(random.nextInt(4)).times(5 + random.nextInt(30))
+						: new Vect(60 * random.nextDouble() - 30, 60 * random.nextDouble() - 30);
+				final Ball ball = new Ball("Ball", new Vect(x, y), velocity);
+				for (Gadget gadget : gadgets) {
+					if (gadget instanceof Absorber && gadget.ballOverlap(ball)) overlaps++;
+				}
+				final Gadget hit = assertEarliest(geometry, index, ball, physics);
+				if (hit != null) {
+					hits++;
+					if (hitAtSameTime(index, ball, physics, hit)) ties++;
+				}
+				assertEarliestWall(geometry, ball, physics);
+			}
+		}
+		// The random boards cover collisions, collisions at the same time and balls overlapping absorbers
+		assertTrue(hits > BOARDS * BALLS / 10);
+		assertTrue(ties > 0);
+		assertTrue(overlaps > 0);
+	}
+
+	/**
+	 * Asserts that earliest finds the same time as the earliest collision time of every gadget, and the
+	 * first gadget with that time in the order GadgetIndex.candidates lists them
+	 * @return the gadget hit during TIME, or null if none is
+	 */
+	private static Gadget assertEarliest(StaticGeometry geometry, GadgetIndex index, Ball ball, PhysicsContext physics) {
+		double expected = Double.POSITIVE_INFINITY;
+		for (int y = 0; y < SIZE; y++) {
+			for (int x = 0; x < SIZE; x++) {
+				for (Gadget gadget : index.cell(x, y)) {
+					expected = Math.min(expected, gadget.collisionTime(ball, physics));
+				}
+			}
+		}
+		final StaticGeometry.Hit hit = new StaticGeometry.Hit();
+		final Gadget actual = geometry.earliest(ball, TIME, physics, null, 0, hit);
+		if (expected > TIME) {
+			assertTrue(actual == null || hit.time > TIME);
+			return null;
+		}
+		assertEquals(expected, hit.time, 0);
+		for (Gadget gadget : index.candidates(ball, TIME, physics.gravity(), physics.friction1(), physics.friction2())) {
+			if (gadget.collisionTime(ball, physics) == expected) {
+				assertSame(gadget, actual);
+				return actual;
+			}
+		}
+		fail("no candidate is hit at " + expected);
+		return null;
+	}
+
+	/**
+	 * @return true if a gadget other than hit collides with ball at the same time as hit
+	 */
+	private static boolean hitAtSameTime(GadgetIndex index, Ball ball, PhysicsContext physics, Gadget hit) {
+		final double time = hit.collisionTime(ball, physics);
+		for (Gadget gadget : index.candidates(ball, TIME, physics.gravity(), physics.friction1(), physics.friction2())) {
+			if (gadget != hit && gadget.collisionTime(ball, physics) == time) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Asserts that earliestWall finds the first outer wall with the earliest collision time
+	 */
+	private static void assertEarliestWall(StaticGeometry geometry, Ball ball, PhysicsContext physics) {
+		Gadget expected = null;
+		double time = Double.POSITIVE_INFINITY;
+		for (Wall wall : WALLS) {
+			final double t = wall.collisionTime(ball, physics);
+			if (t < time) {
+				time = t;
+				expected = wall;
+			}
+		}
+		final StaticGeometry.Hit hit = new StaticGeometry.Hit();
+		assertSame(expected, geometry.earliestWall(ball, physics, null, 0, hit));
+		assertEquals(time, hit.time, 0);
+	}
+
+	/**
+	 * @return count gadgets of every compiled kind at random cells, absorbers up to 4L x 4L. Gadgets may
+	 * 		overlap.
+	 */
+	private static List<Gadget> randomGadgets(Random random, int count) {
+		final List<Gadget> gadgets = new ArrayList<Gadget>();
+		for (int i = 0; i < count; i++) {
+			final String name = "Gadget" + i;
+			final int x = random.nextInt(SIZE - 4);
+			final int y = random.nextInt(SIZE - 4);
+			switch (random.nextInt(4)) {
+			case 0:
+				gadgets.add(new SquareBumper(name, x, y));
+				break;
+			case 1:
+				gadgets.add(new CircleBumper(name, x, y));
+				break;
+			case 2:
+				gadgets.add(new TriangleBumper(name, x, y, Orientation.values()[random.nextInt(4)]));
+				break;
+			default:
+				gadgets.add(new Absorber(name, x, y, 1 + random.nextInt(4), 1 + random.nextInt(4)));
+			}
+		}
+		return gadgets;
+	}
+
+	private static GadgetIndex index(Gadget... gadgets) {
+		final GadgetIndex index = new GadgetIndex(SIZE, SIZE);
+		for (Gadget gadget : gadgets) {
+			index.add(gadget);
+		}
+		return index;
+	}
+
+	/**
+	 * @return the Chebyshev distance in cells from cell (x, y) to the nearest cell which is covered or lies
+	 * 		off the board, found by visiting every cell
+	 */
+	private static int chebyshev(GadgetIndex index, int x, int y) {
+		int result = Math.min(Math.min(x + 1, SIZE - x), Math.min(y + 1, SIZE - y));
+		for (int j = 0; j < SIZE; j++) {
+			for (int i = 0; i < SIZE; i++) {
+				if (index.cell(i, j).length > 0) {
+					result = Math.min(result, Math.max(Math.abs(i - x), Math.abs(j - y)));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the Chebyshev distance in L from (x, y) to the nearest covered cell or edge of the board,
+	 * 		found by visiting every cell
+	 */
+	private static double distance(GadgetIndex index, double x, double y) {
+		double result = Math.min(Math.min(x, SIZE - x), Math.min(y, SIZE - y));
+		for (int j = 0; j < SIZE; j++) {
+			for (int i = 0; i < SIZE; i++) {
+				if (index.cell(i, j).length > 0) {
+					final double dx = Math.max(Math.max(i - x, x - (i + 1)), 0);
+					final double dy = Math.max(Math.max(j - y, y - (j + 1)), 0);
+					result = Math.min(result, Math.max(dx, dy));
+				}
+			}
+		}
+		return result;
+	}
+}
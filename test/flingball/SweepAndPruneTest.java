@@ -0,0 +1,201 @@
+package flingball;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import physics.Vect;
+
+public class SweepAndPruneTest {
+
+	/*
+	 * Testing strategy for SweepAndPrune
+	 *
+	 * update(balls, time, gravity), partners(ball), contactCount():
+	 * 		Partition on the number of balls: 0, 1, > 1
+	 * 		Partition on a pair of boxes: overlapping, apart along x, overlapping along x but apart along y
+	 * 		Partition on the balls since the last update: the same, a ball removed, a ball added
+	 * 		Partition on the order of the balls along x: sorted, reversed since the last update
+	 * 		Partition on the pairs over many updates: the same as comparing the boxes of every two balls
+	 *
+	 * partnerCount(ball), partner(ball, i), timeUntilCollision(ball, i, elapsed):
+	 * 		Partition on i: the partner whose box starts first along x, a later partner
+	 *
+	 * timeUntilCollision(ball, other, elapsed), invalidate(ball):
+	 * 		Partition on other: a partner of ball, not a partner
+	 * 		Partition on elapsed: before the collision, after it
+	 * 		Partition on the contact: fresh, velocity changed but not invalidated, invalidated
+	 */
+
+	private static final double TICK = 0.05;
+	private static final double TOLERANCE = 1e-9;
+
+	@Test(expected=AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	// Covers 0 balls and 1 ball
+	@Test
+	public void testNoPairs() {
+		final SweepAndPrune broadphase = new SweepAndPrune();
+		broadphase.update(Collections.<Ball>emptyList(), TICK, 0);
+		assertEquals(0, broadphase.contactCount());
+		final Ball ball = ball(5, 5, 10, 0);
+		broadphase.update(List.of(ball), TICK, 0);
+		assertEquals(0, broadphase.contactCount());
+		assertTrue(broadphase.partners(ball).isEmpty());
+	}
+
+	// Covers > 1 balls with overlapping boxes, apart along x, and overlapping along x but apart along y
+	@Test
+	public void testPairs() {
+		final SweepAndPrune broadphase = new SweepAndPrune();
+		final Ball a = ball(5, 5, 10, 0);
+		final Ball b = ball(6, 5, -10, 0);
+		final Ball farX = ball(15, 5, 0, 0);
+		final Ball farY = ball(5.5, 15, 0, 0);
+		broadphase.update(List.of(farX, b, farY, a), TICK, 0);
+		assertEquals(1, broadphase.contactCount());
+		assertEquals(List.of(b), broadphase.partners(a));
+		assertEquals(List.of(a), broadphase.partners(b));
+		assertTrue(broadphase.partners(farX).isEmpty());
+		assertTrue(broadphase.partners(farY).isEmpty());
+	}
+
+	// Covers a ball removed, a ball added and the order reversed along x since the last update
+	@Test
+	public void testBallsChanged() {
+		final SweepAndPrune broadphase = new SweepAndPrune();
+		final Ball a = ball(5, 5, 0, 0);
+		final Ball b = ball(5.5, 5, 0, 0);
+		final Ball c = ball(6.0, 5, 0, 0);
+		broadphase.update(List.of(a, b, c), TICK, 0);
+		assertEquals(2, broadphase.contactCount());
+		assertEquals(new HashSet<Ball>(List.of(a, c)), new HashSet<Ball>(broadphase.partners(b)));
+
+		broadphase.update(List.of(a, c), TICK, 0);
+		assertEquals(0, broadphase.contactCount());
+		assertTrue(broadphase.partners(b).isEmpty());
+
+		a.setBoardPosition(new Vect(6.5, 4.75));
+		c.setBoardPosition(new Vect(6.0, 4.75));
+		final Ball d = ball(7.0, 5, 0, 0);
+		broadphase.update(Arrays.asList(d, c, a), TICK, 0);
+		assertEquals(2, broadphase.contactCount());
+		assertEquals(new HashSet<Ball>(List.of(c, d)), new HashSet<Ball>(broadphase.partners(a)));
+	}
+
+	// Covers a partner with elapsed before and after the collision, and not a partner
+	@Test
+	public void testTimeUntilCollision() {
+		final SweepAndPrune broadphase = new SweepAndPrune();
+		final Ball a = ball(5, 5, 10, 0);
+		final Ball b = ball(6, 5, -10, 0);
+		final Ball far = ball(15, 5, 0, 0);
+		broadphase.update(List.of(a, b, far), TICK, 0);
+		// The gap of 0.5 L is closed at 20 L / s
+		assertEquals(0.025, broadphase.timeUntilCollision(a, b, 0), TOLERANCE);
+		assertEquals(0.015, broadphase.timeUntilCollision(b, a, 0.01), TOLERANCE);
+		assertEquals(Double.POSITIVE_INFINITY, broadphase.timeUntilCollision(a, b, 0.03), 0);
+		assertEquals(Double.POSITIVE_INFINITY, broadphase.timeUntilCollision(a, far, 0), 0);
+	}
+
+	// Covers a contact whose velocity changed, before and after it is invalidated
+	@Test
+	public void testContactCache() {
+		final SweepAndPrune broadphase = new SweepAndPrune();
+		final Ball a = ball(5, 5, 10, 0);
+		final Ball b = ball(6, 5, -10, 0);
+		broadphase.update(List.of(a, b), TICK, 0);
+		assertEquals(0.025, broadphase.timeUntilCollision(a, b, 0), TOLERANCE);
+		b.setVelocity(new Vect(0, 0));
+		assertEquals(0.025, broadphase.timeUntilCollision(a, b, 0), TOLERANCE);
+		broadphase.invalidate(b);
+		// The gap of 0.5 L is now closed at 10 L / s
+		assertEquals(0.05, broadphase.timeUntilCollision(a, b, 0), TOLERANCE);
+		assertEquals(0.04, broadphase.timeUntilCollision(b, a, 0.01), TOLERANCE);
+	}
+
+	// Covers > 1 balls moving past each other, removed and added over many updates
+	@Test
+	public void testManyUpdates() {
+		final SweepAndPrune broadphase = new SweepAndPrune();
+		final Random random = new Random(7);
+		final List<Ball> balls = new ArrayList<Ball>();
+		for (int k = 0; k < 40; k++) {
+			balls.add(ball(1 + 18 * random.nextDouble(), 1 + 18 * random.nextDouble(),
+					40 * random.nextDouble() - 20, 40 * random.nextDouble() - 20));
+		}
+		for (int update = 0; update < 200; update++) {
+			for (Ball ball : balls) {
+				ball.setBoardPosition(new Vect(wrap(ball.boardX() + ball.getVelocity().x() * TICK),
+						wrap(ball.boardY() + ball.getVelocity().y() * TICK)));
+			}
+			if (update % 10 == 3) {
+				balls.remove(random.nextInt(balls.size()));
+			} else if (update % 10 == 7) {
+				balls.add(ball(1 + 18 * random.nextDouble(), 1 + 18 * random.nextDouble(), 0, 0));
+			}
+			broadphase.update(balls, TICK, 0);
+			int pairs = 0;
+			for (Ball ball : balls) {
+				final Set<Ball> expected = new HashSet<Ball>();
+				for (Ball other : balls) {
+					if (other != ball && overlap(ball, other)) expected.add(other);
+				}
+				pairs += expected.size();
+				assertEquals(expected.size(), broadphase.partnerCount(ball));
+				assertEquals(expected, new HashSet<Ball>(broadphase.partners(ball)));
+			}
+			assertEquals(pairs / 2, broadphase.contactCount());
+		}
+	}
+
+	// Covers the partner whose box starts first and a later partner
+	@Test
+	public void testPartnerIndex() {
+		final SweepAndPrune broadphase = new SweepAndPrune();
+		final Ball a = ball(5, 5, 10, 0);
+		final Ball b = ball(5.4, 5.25, 0, 0);
+		final Ball c = ball(6, 5, -10, 0);
+		broadphase.update(List.of(c, b, a), TICK, 0);
+		assertEquals(2, broadphase.partnerCount(b));
+		assertSame(a, broadphase.partner(b, 0));
+		assertSame(c, broadphase.partner(b, 1));
+		assertEquals(2, broadphase.partnerCount(a));
+		assertSame(c, broadphase.partner(a, 1));
+		// The gap of 0.5 L between a and c is closed at 20 L / s
+		assertEquals(0.025, broadphase.timeUntilCollision(a, 1, 0), TOLERANCE);
+		assertEquals(0.015, broadphase.timeUntilCollision(c, 0, 0.01), TOLERANCE);
+	}
+
+	/**
+	 * @return true if the boxes SweepAndPrune bounds two balls by with no gravity overlap
+	 */
+	private static boolean overlap(Ball ball, Ball other) {
+		final double reach = ball.speed() * TICK + ball.getRadius() + 0.05;
+		final double otherReach = other.speed() * TICK + other.getRadius() + 0.05;
+		return ball.boardX() - reach <= other.boardX() + otherReach && other.boardX() - otherReach <= ball.boardX() + reach
+				&& ball.boardY() - reach <= other.boardY() + otherReach && other.boardY() - otherReach <= ball.boardY() + reach;
+	}
+
+	/**
+	 * @return coordinate wrapped back onto the board between 1 and 19
+	 */
+	private static double wrap(double coordinate) {
+		return coordinate < 1 ? coordinate + 18 : coordinate > 19 ? coordinate - 18 : coordinate;
+	}
+
+	private static Ball ball(double x, double y, double vx, double vy) {
+		return new Ball("Ball", new Vect(x, y), new Vect(vx, vy));
+	}
+}
@@ -0,0 +1,44 @@
+package flingball;
+
+import static flingball.BoardBenchmark.*;
+
+import java.util.Random;
+
+/**
+ * Benchmarks for a World of joined boards played by a pool of threads. Run on its own or from
+ * BoardBenchmark.
+ */
+public class WorldBenchmark {
+
+	public static void main(String[] args) {
+		worldScaling();
+	}
+
+	/**
+	 * Prints the cost of a world tick against the number of threads playing the world. The world is a row
+	 * of random boards joined left to right so that balls are exchanged between boards.
+	 */
+	static void worldScaling() {
+		final int boardCount = 64;
+		System.out.println("threads	ns/tick (" + boardCount + " boards)	speedup");
+		double single = 0;
+		for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads *= 2) {
+			final Random random = new Random(SEED);
+			try (World world = new World(threads)) {
+				for (int i = 0; i < boardCount; i++) {
+					world.addBoard(randomBoard("Board" + i, 20, 50, random));
+					if (i > 0) {
+						world.joinHorizontally("Board" + (i - 1), "Board" + i);
+					}
+				}
+				world.simulate(WARMUP_TICKS / 10, TIMESTEP);
+				final int ticks = MEASURED_TICKS / 10;
+				final double tick = (double) world.simulate(ticks, TIMESTEP).get(0).elapsedNanos() / ticks;
+				if (threads == 1) {
+					single = tick;
+				}
+				System.out.println(threads + "\t" + (long) tick + "\t" + String.format("%.2f", single / tick));
+			}
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package flingball;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.mit.eecs.parserlib.UnableToParseException;
+import physics.Vect;
+
+public class WorldTest {
+
+	/*
+	 * Testing strategy for the merge phase of World.step()
+	 *
+	 * Partition on the request: addBall, teleport
+	 * Partition on the destination: a board in the world, a wall or portal the world has not connected, a
+	 * 		board in the world without the portal
+	 * Partition on the number of threads: 1, > 1
+	 */
+
+	private static final double TIMESTEP = 0.005;
+	private static final double TOLERANCE = 1e-9;
+
+	@Test(expected=AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	// Covers addBall to a board in the world, 1 and > 1 threads
+	@Test
+	public void testHandoff() throws UnableToParseException {
+		Vect center = null;
+		for (int threads : new int[] {1, 4}) {
+			final Board left = BoardParser.parse("board name=Left gravity=0.0 friction1=0.0 friction2=0.0\n"
+					+ "ball name=Ball x=19.0 y=10.0 xVelocity=10.0 yVelocity=0.0\n");
+			final Board right = BoardParser.parse("board name=Right gravity=0.0 friction1=0.0 friction2=0.0\n");
+			try (World world = new World(threads)) {
+				world.addBoard(left);
+				world.addBoard(right);
+				world.joinHorizontally("Left", "Right");
+				world.simulate(40, TIMESTEP);
+			}
+			assertTrue(left.getBalls().isEmpty());
+			final List<Ball> balls = right.getBalls();
+			assertEquals(1, balls.size());
+			assertEquals("Ball", balls.get(0).name());
+			assertEquals(10.0, balls.get(0).getVelocity().x(), TOLERANCE);
+			assertTrue(balls.get(0).getBoardCenter().x() < 2.0);
+			if (center == null) {
+				center = balls.get(0).getBoardCenter();
+			} else {
+				assertEquals(center, balls.get(0).getBoardCenter());
+			}
+		}
+	}
+
+	// Covers teleport to a board in the world
+	@Test
+	public void testTeleport() throws UnableToParseException {
+		final Board source = BoardParser.parse("board name=Source gravity=0.0 friction1=0.0 friction2=0.0\n"
+				+ "portal name=Entry x=10 y=12 otherBoard=Target otherPortal=Exit\n"
+				+ "ball name=Ball x=10.5 y=10.5 xVelocity=0.0 yVelocity=10.0\n");
+		final Board target = BoardParser.parse("board name=Target gravity=0.0 friction1=0.0 friction2=0.0\n"
+				+ "portal name=Exit x=5 y=5 otherBoard=Source otherPortal=Entry\n");
+		try (World world = new World(2)) {
+			world.addBoard(source);
+			world.addBoard(target);
+			world.connectPortals();
+			world.simulate(40, TIMESTEP);
+		}
+		assertTrue(source.getBalls().isEmpty());
+		final List<Ball> balls = target.getBalls();
+		assertEquals(1, balls.size());
+		assertEquals("Ball", balls.get(0).name());
+		assertEquals(10.0, balls.get(0).getVelocity().y(), TOLERANCE);
+	}
+
+	// Covers addBall through a wall the world has not joined, which loses the ball without stopping play
+	@Test
+	public void testUnknownNeighbor() throws UnableToParseException {
+		final Board board = BoardParser.parse("board name=Alone gravity=0.0 friction1=0.0 friction2=0.0\n"
+				+ "ball name=Lost x=19.0 y=10.0 xVelocity=10.0 yVelocity=0.0\n"
+				+ "ball name=Kept x=5.0 y=10.0 xVelocity=0.0 yVelocity=0.0\n");
+		try (World world = new World(1)) {
+			world.addBoard(board);
+			board.handleResponse("JOIN RIGHT");
+			world.simulate(40, TIMESTEP);
+		}
+		final List<Ball> balls = board.getBalls();
+		assertEquals(1, balls.size());
+		assertEquals("Kept", balls.get(0).name());
+	}
+
+	// Covers teleport through a portal the world has not connected, which loses the ball without stopping play
+	@Test
+	public void testUnknownPortal() throws UnableToParseException {
+		final Board board = BoardParser.parse("board name=Alone gravity=0.0 friction1=0.0 friction2=0.0\n"
+				+ "portal name=Entry x=10 y=12 otherBoard=Nowhere otherPortal=Exit\n"
+				+ "ball name=Lost x=10.5 y=10.5 xVelocity=0.0 yVelocity=10.0\n");
+		try (World world = new World(1)) {
+			world.addBoard(board);
+			world.connectPortals();
+			board.handleResponse("CONNECT Entry Exit Nowhere");
+			world.simulate(40, TIMESTEP);
+		}
+		assertTrue(board.getBalls().isEmpty());
+	}
+
+	// Covers teleport to a board in the world without the portal, which loses the ball without stopping play
+	@Test
+	public void testMissingPortal() throws UnableToParseException {
+		final Board source = BoardParser.parse("board name=Source gravity=0.0 friction1=0.0 friction2=0.0\n"
+				+ "portal name=Entry x=10 y=12 otherBoard=Target otherPortal=Missing\n"
+				+ "ball name=Lost x=10.5 y=10.5 xVelocity=0.0 yVelocity=10.0\n"
+				+ "ball name=Free x=2.5 y=2.5 xVelocity=10.0 yVelocity=0.0\n");
+		final Board target = BoardParser.parse("board name=Target gravity=0.0 friction1=0.0 friction2=0.0\n"
+				+ "portal name=Exit x=5 y=5 otherBoard=Source otherPortal=Entry\n");
+		try (World world = new World(2)) {
+			world.addBoard(source);
+			world.addBoard(target);
+			world.connectPortals();
+			world.simulate(40, TIMESTEP);
+			assertTrue(target.getBalls().isEmpty());
+			// Play goes on after the ball is lost
+			final List<Ball> balls = source.getBalls();
+			assertEquals(1, balls.size());
+			assertEquals("Free", balls.get(0).name());
+			assertEquals(4.5, balls.get(0).getBoardCenter().x(), 0.05);
+		}
+	}
+}
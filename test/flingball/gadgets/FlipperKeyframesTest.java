@@ -0,0 +1,161 @@
+package flingball.gadgets;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import flingball.Ball;
+import flingball.Orientation;
+import flingball.physics.PhysicsContext;
+import physics.Angle;
+import physics.Circle;
+import physics.Physics;
+import physics.Vect;
+
+public class FlipperKeyframesTest {
+
+	/*
+	 * Testing strategy for FlipperKeyframes and the pose of a rotating flipper
+	 *
+	 * frame(time):
+	 * 		Partition on time: 0, part of the way through a rotation, a whole rotation, longer than a rotation
+	 *
+	 * tail(frame), and tail(frame) of the keyframes at an anchor:
+	 * 		Partition on frame: 0, between 0 and FRAMES, FRAMES
+	 * 		Partition on the keyframe at an anchor: not asked for before, asked for before
+	 *
+	 * state() of a flipper advanced by time since takeAction():
+	 * 		Partition on the rotation: away from the rest pose, back to the rest pose
+	 * 		Partition on time: part of the way through a rotation, a whole rotation
+	 *
+	 * of(flipper, ...):
+	 * 		Partition on the flippers created before: none with the same type and orientation, one with the
+	 * 			same type and orientation at the same anchor, one at another anchor
+	 */
+
+	private static final double TIMESTEP = 0.005;
+	// Time a flipper takes to rotate 90 degrees
+	private static final double ROTATION = 90.0 / Flipper.OMEGA;
+	private static final double RADIUS = 0.25;
+	private static final double TOLERANCE = 1e-9;
+
+	@Test(expected=AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	// Covers time 0, part of the way through a rotation, a whole rotation and longer
+	@Test
+	public void testFrame() {
+		assertEquals(0, FlipperKeyframes.frame(0));
+		assertEquals(FlipperKeyframes.FRAMES / 4, FlipperKeyframes.frame(ROTATION / 4));
+		assertEquals(FlipperKeyframes.FRAMES / 2, FlipperKeyframes.frame(ROTATION / 2));
+		assertEquals(FlipperKeyframes.FRAMES, FlipperKeyframes.frame(ROTATION));
+		assertEquals(FlipperKeyframes.FRAMES, FlipperKeyframes.frame(10 * ROTATION));
+		int last = 0;
+		for (double time = 0; time < 2 * ROTATION; time += ROTATION / 1000) {
+			final int frame = FlipperKeyframes.frame(time);
+			assertTrue(frame >= last);
+			last = frame;
+		}
+	}
+
+	// Covers frame 0, between 0 and FRAMES and FRAMES, with the pose of a left flipper with orientation 0,
+	// relative to its anchor and at its anchor, asked for once and again
+	@Test
+	public void testTailPose() {
+		final LeftFlipper flipper = new LeftFlipper("Pose", 3, 4, Orientation.ZERO);
+		final Vect anchor = new Vect(3, -4);
+		final Vect pivot = new Vect(3 + RADIUS, -4 - RADIUS);
+		final Circle tail = new Circle(3 + RADIUS, -4 - 2 + RADIUS, RADIUS);
+		final Wall port = new Wall("Pose:port", 3, -4 - RADIUS, 3, -4 - 2 + RADIUS);
+		final Wall starboard = new Wall("Pose:starboard", 3 + 2 * RADIUS, -4 - RADIUS, 3 + 2 * RADIUS, -4 - 2 + RADIUS);
+		final FlipperKeyframes keyframes = FlipperKeyframes.of(flipper, Orientation.ZERO, pivot, tail, port, starboard, false);
+		assertEquals(anchor, FlipperKeyframes.anchor(flipper));
+		final FlipperKeyframes.Anchored poses = keyframes.at(anchor, tail, port, starboard);
+		for (int frame = 0; frame <= FlipperKeyframes.FRAMES; frame++) {
+			// A left flipper rotates counterclockwise about its pivot
+			final Vect expected = Physics.rotateAround(tail.getCenter(), pivot,
+					new Angle(Math.PI / 2 * frame / FlipperKeyframes.FRAMES));
+			assertEquals("frame " + frame, 0, expected.minus(anchor).minus(keyframes.tail(frame).getCenter()).length(),
+					TOLERANCE);
+			assertEquals(RADIUS, keyframes.tail(frame).getRadius(), 0);
+			assertEquals("frame " + frame, 0, expected.minus(poses.tail(frame).getCenter()).length(), TOLERANCE);
+			assertEquals(RADIUS, poses.tail(frame).getRadius(), 0);
+			// A pose is translated once and kept
+			assertSame(poses.tail(frame), poses.tail(frame));
+			assertSame(poses.port(frame), poses.port(frame));
+		}
+		assertSame(tail, poses.tail(0));
+		assertSame(starboard, poses.starboard(0));
+		// At the end of its rotation the tail lies 1.5 L right of the pivot
+		assertEquals(RADIUS + 1.5, keyframes.tail(FlipperKeyframes.FRAMES).getCenter().x(), TOLERANCE);
+		assertEquals(-RADIUS, keyframes.tail(FlipperKeyframes.FRAMES).getCenter().y(), TOLERANCE);
+		assertEquals(3 + RADIUS + 1.5, poses.tail(FlipperKeyframes.FRAMES).getCenter().x(), TOLERANCE);
+		assertEquals(-4 - RADIUS, poses.tail(FlipperKeyframes.FRAMES).getCenter().y(), TOLERANCE);
+	}
+
+	// Covers a rotation away from and back to the rest pose, part of the way through and a whole rotation
+	@Test
+	public void testStateOverTime() {
+		final Flipper flipper = new LeftFlipper("Rotating", 3, 4, Orientation.ZERO);
+		assertEquals(0, flipper.state());
+		for (boolean away : new boolean[] {true, false}) {
+			flipper.takeAction();
+			double time = 0;
+			while (flipper.isRotating()) {
+				flipper.advance(TIMESTEP);
+				time += TIMESTEP;
+				if (flipper.isRotating()) {
+					final int swept = FlipperKeyframes.frame(time);
+					assertEquals(away ? swept : FlipperKeyframes.FRAMES - swept, flipper.state());
+				}
+			}
+			assertTrue(time >= ROTATION && time < ROTATION + TIMESTEP + TOLERANCE);
+			assertEquals(away ? FlipperKeyframes.FRAMES : 0, flipper.state());
+		}
+	}
+
+	// Covers flippers created after one with the same type and orientation, at the same anchor on another
+	// board and at another anchor
+	@Test
+	public void testShared() {
+		final Vect pivot = new Vect(0, 0);
+		final Circle tail = new Circle(0, 0, RADIUS);
+		final Wall wall = new Wall("Shared", 0, 0, 0, 1);
+		final FlipperKeyframes first = FlipperKeyframes.of(new RightFlipper("First", 11, 12, Orientation.NINETY),
+				Orientation.NINETY, pivot, tail, wall, wall, true);
+		final FlipperKeyframes second = FlipperKeyframes.of(new RightFlipper("Second", 11, 12, Orientation.NINETY),
+				Orientation.NINETY, pivot, tail, wall, wall, true);
+		final FlipperKeyframes moved = FlipperKeyframes.of(new RightFlipper("Moved", 2, 5, Orientation.NINETY),
+				Orientation.NINETY, pivot, tail, wall, wall, true);
+		final FlipperKeyframes other = FlipperKeyframes.of(new RightFlipper("Other", 11, 12, Orientation.ZERO),
+				Orientation.ZERO, pivot, tail, wall, wall, true);
+		assertSame(first, second);
+		assertSame(first, moved);
+		assertNotSame(first, other);
+	}
+
+	// Covers two flippers with the same type and orientation at different anchors, which rotate through the
+	// same poses translated to their anchors
+	@Test
+	public void testTranslatedPoses() {
+		final Flipper near = new RightFlipper("Near", 1, 1, Orientation.ONE_EIGHTY);
+		final Flipper far = new RightFlipper("Far", 15, 9, Orientation.ONE_EIGHTY);
+		// The same ball placed the same way relative to each flipper
+		final Ball ball = new Ball("Ball", new Vect(2, 4), new Vect(0, -10));
+		final Ball moved = new Ball("Ball", new Vect(16, 12), new Vect(0, -10));
+		near.takeAction();
+		far.takeAction();
+		boolean hit = false;
+		for (int tick = 0; tick < 20; tick++) {
+			near.advance(TIMESTEP);
+			far.advance(TIMESTEP);
+			assertEquals(near.state(), far.state());
+			final double time = near.collisionTime(ball, PhysicsContext.DEFAULT);
+			assertEquals(time, far.collisionTime(moved, PhysicsContext.DEFAULT), TOLERANCE);
+			hit |= time < Double.POSITIVE_INFINITY;
+		}
+		assertTrue(hit);
+	}
+}
@@ -0,0 +1,218 @@
+package flingball.physics;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import physics.Circle;
+import physics.LineSegment;
+import physics.Physics;
+import physics.Vect;
+
+public class CollisionsTest {
+
+	/*
+	 * Testing strategy
+	 *
+	 * Every method is checked against the method of physics.Physics it replaces on the same inputs. Results
+	 * must be exactly equal.
+	 *
+	 * Partition on the ball: moving towards, away from and parallel to the geometry, at rest, overlapping
+	 * 		the geometry
+	 * Partition on the geometry: stationary, rotating clockwise, rotating counterclockwise, circles rotating
+	 * 		about their own center
+	 * Partition on the result: collision, no collision, collision now
+	 * Partition on the coefficient of reflection: 0, 1, between
+	 *
+	 * Random cases are drawn from a fixed seed in a 4L x 4L area around the geometry so that about half of
+	 * them collide. Rotating geometry spins at the angular velocity of a flipper.
+	 */
+
+	private static final int CASES = 20000;
+	private static final double OMEGA = Math.toRadians(1080);
+	private static final double FORESIGHT = Collisions.DEFAULT_FORESIGHT;
+
+	@BeforeClass
+	public static void setForesight() {
+		Physics.setForesight(FORESIGHT);
+	}
+
+	@Test(expected=AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	// Covers every partition of stationary segments and circles
+	@Test
+	public void testStationaryCollisionTimes() {
+		final Random random = new Random(1);
+		for (int i = 0; i < CASES; i++) {
+			final double[] c = randomCase(random);
+			final LineSegment line = new LineSegment(c[0], c[1], c[2], c[3]);
+			final Circle ball = new Circle(c[6], c[7], c[10]);
+			final Vect velocity = new Vect(c[8], c[9]);
+			assertEquals("case " + i, Physics.timeUntilWallCollision(line, ball, velocity),
+					Collisions.timeUntilWallCollision(c[0], c[1], c[2], c[3], c[6], c[7], c[8], c[9], c[10]), 0);
+			assertEquals("case " + i, Physics.timeUntilCircleCollision(new Circle(c[0], c[1], c[11]), ball, velocity),
+					Collisions.timeUntilCircleCollision(c[0], c[1], c[11], c[6], c[7], c[8], c[9], c[10]), 0);
+			assertEquals("case " + i, Physics.timeUntilCircleCollision(new Circle(c[0], c[1], 0), ball, velocity),
+					Collisions.timeUntilCircleCollision(c[0], c[1], 0, c[6], c[7], c[8], c[9], c[10]), 0);
+		}
+	}
+
+	// Covers a ball sliding along a segment, a ball at rest and a ball overlapping a segment
+	@Test
+	public void testStationaryEdgeCases() {
+		final LineSegment line = new LineSegment(1, 1, 3, 1);
+		final double[][] balls = {
+				{2, 1.25, 1, 0}, {2, 1.25, 0, 0}, {2, 1.1, 0, -1}, {2, 1.1, 0, 1}, {0.5, 1, 1, 0}, {2, 1.5, 0, -2},
+		};
+		for (double[] b : balls) {
+			final Circle ball = new Circle(b[0], b[1], 0.25);
+			final Vect velocity = new Vect(b[2], b[3]);
+			assertEquals(Physics.timeUntilWallCollision(line, ball, velocity),
+					Collisions.timeUntilWallCollision(1, 1, 3, 1, b[0], b[1], b[2], b[3], 0.25), 0);
+			assertEquals(Physics.timeUntilCircleCollision(new Circle(1, 1, 0.5), ball, velocity),
+					Collisions.timeUntilCircleCollision(1, 1, 0.5, b[0], b[1], b[2], b[3], 0.25), 0);
+		}
+		assertEquals(0, Collisions.timeUntilWallCollision(1, 1, 3, 1, 2, 1.1, 0, -1, 0.25), 0);
+		assertEquals(Double.POSITIVE_INFINITY, Collisions.timeUntilWallCollision(1, 1, 3, 1, 2, 1.1, 0, 1, 0.25), 0);
+		assertEquals(0.5, Collisions.timeUntilWallCollision(1, 1, 3, 1, 2, 2.25, 0, -2, 0.25), 0);
+	}
+
+	// Covers balls moving towards each other, away from each other, at rest and overlapping
+	@Test
+	public void testBallBallCollisionTimes() {
+		final Random random = new Random(2);
+		for (int i = 0; i < CASES; i++) {
+			final double[] c = randomCase(random);
+			final double radius = c[10] + (i % 3 == 0 ? 0 : 0.5);
+			assertEquals("case " + i,
+					Physics.timeUntilBallBallCollision(new Circle(c[6], c[7], c[10]), new Vect(c[8], c[9]),
+							new Circle(c[0], c[1], radius), new Vect(c[4], c[5])),
+					Collisions.timeUntilBallBallCollision(c[6], c[7], c[8], c[9], c[10], c[0], c[1], c[4], c[5], radius), 0);
+		}
+	}
+
+	// Covers rotating segments and circles, clockwise and counterclockwise, and circles rotating about their center
+	@Test
+	public void testRotatingCollisionTimes() {
+		final Random random = new Random(3);
+		final Collisions collisions = new Collisions();
+		int collided = 0;
+		for (int i = 0; i < CASES; i++) {
+			final double[] c = randomCase(random);
+			// Balls move fast enough to reach the geometry within the foresight
+			final double vx = c[8] * 400;
+			final double vy = c[9] * 400;
+			final double omega = i % 2 == 0 ? OMEGA : -OMEGA;
+			final Circle ball = new Circle(c[6], c[7], c[10]);
+			final Vect velocity = new Vect(vx, vy);
+			final Vect pivot = new Vect(c[0], c[1]);
+
+			final double wall = Physics.timeUntilRotatingWallCollision(new LineSegment(c[0], c[1], c[2], c[3]), pivot,
+					omega, ball, velocity);
+			assertEquals("case " + i, wall, collisions.timeUntilRotatingWallCollision(c[0], c[1], c[2], c[3], c[0], c[1],
+					omega, c[6], c[7], vx, vy, c[10], FORESIGHT), 0);
+			final double circle = Physics.timeUntilRotatingCircleCollision(new Circle(c[2], c[3], c[11]), pivot, omega,
+					ball, velocity);
+			assertEquals("case " + i, circle, collisions.timeUntilRotatingCircleCollision(c[2], c[3], c[11], c[0], c[1],
+					omega, c[6], c[7], vx, vy, c[10], FORESIGHT), 0);
+			assertEquals("case " + i,
+					Physics.timeUntilRotatingCircleCollision(new Circle(c[0], c[1], c[11]), pivot, omega, ball, velocity),
+					collisions.timeUntilRotatingCircleCollision(c[0], c[1], c[11], c[0], c[1], omega, c[6], c[7], vx, vy, c[10], FORESIGHT), 0);
+			assertEquals("case " + i,
+					Physics.timeUntilRotatingWallCollision(new LineSegment(c[0], c[1], c[2], c[3]), pivot, 0, ball, velocity),
+					collisions.timeUntilRotatingWallCollision(c[0], c[1], c[2], c[3], c[0], c[1], 0, c[6], c[7], vx, vy, c[10], FORESIGHT), 0);
+			if (wall < Double.POSITIVE_INFINITY || circle < Double.POSITIVE_INFINITY) collided++;
+		}
+		assertTrue("too few collisions to be a useful test: " + collided, collided > CASES / 20);
+	}
+
+	// Covers every partition of reflections off stationary and rotating geometry and coefficients 0, 1 and between
+	@Test
+	public void testReflections() {
+		final Random random = new Random(4);
+		final Collisions collisions = new Collisions();
+		for (int i = 0; i < CASES; i++) {
+			final double[] c = randomCase(random);
+			final double coeff = i % 3 == 0 ? 0 : i % 3 == 1 ? 1 : random.nextDouble();
+			final double omega = i % 2 == 0 ? OMEGA : -OMEGA;
+			final LineSegment line = new LineSegment(c[0], c[1], c[2], c[3]);
+			final Circle ball = new Circle(c[6], c[7], c[10]);
+			final Vect center = new Vect(c[6], c[7]);
+			final Vect velocity = new Vect(c[8], c[9]);
+			final Vect pivot = new Vect(c[4], c[5]);
+
+			collisions.reflectWall(c[0], c[1], c[2], c[3], c[8], c[9]);
+			assertVelocity("case " + i, Physics.reflectWall(line, velocity), collisions);
+			collisions.reflectWall(c[0], c[1], c[2], c[3], c[8], c[9], coeff);
+			assertVelocity("case " + i, Physics.reflectWall(line, velocity, coeff), collisions);
+			collisions.reflectCircle(c[0], c[1], c[6], c[7], c[8], c[9]);
+			assertVelocity("case " + i, Physics.reflectCircle(new Vect(c[0], c[1]), center, velocity), collisions);
+			collisions.reflectCircle(c[0], c[1], c[6], c[7], c[8], c[9], coeff);
+			assertVelocity("case " + i, Physics.reflectCircle(new Vect(c[0], c[1]), center, velocity, coeff), collisions);
+			collisions.reflectRotatingWall(c[0], c[1], c[2], c[3], c[4], c[5], omega, c[6], c[7], c[8], c[9], coeff);
+			assertVelocity("case " + i, Physics.reflectRotatingWall(line, pivot, omega, ball, velocity, coeff), collisions);
+			collisions.reflectRotatingCircle(c[0], c[1], c[11], c[4], c[5], omega, c[6], c[7], c[10], c[8], c[9], coeff);
+			assertVelocity("case " + i,
+					Physics.reflectRotatingCircle(new Circle(c[0], c[1], c[11]), pivot, omega, ball, velocity, coeff), collisions);
+		}
+	}
+
+	// Covers balls of equal and unequal mass, at rest and moving
+	@Test
+	public void testReflectBalls() {
+		final Random random = new Random(5);
+		final Collisions collisions = new Collisions();
+		for (int i = 0; i < CASES; i++) {
+			final double[] c = randomCase(random);
+			final double mass = i % 2 == 0 ? 1.0 : 0.5 + random.nextDouble();
+			final Physics.VectPair expected = Physics.reflectBalls(new Vect(c[6], c[7]), 1.0, new Vect(c[8], c[9]),
+					new Vect(c[0], c[1]), mass, new Vect(c[4], c[5]));
+			collisions.reflectBalls(c[6], c[7], 1.0, c[8], c[9], c[0], c[1], mass, c[4], c[5]);
+			assertEquals("case " + i, expected.v1.x(), collisions.vx(), 0);
+			assertEquals("case " + i, expected.v1.y(), collisions.vy(), 0);
+			assertEquals("case " + i, expected.v2.x(), collisions.otherVx(), 0);
+			assertEquals("case " + i, expected.v2.y(), collisions.otherVy(), 0);
+		}
+	}
+
+	// Covers a ball at rest
+	@Test
+	public void testReflectAtRest() {
+		final Collisions collisions = new Collisions();
+		collisions.reflectWall(0, 0, 1, 1, 0, 0, 0.5);
+		assertEquals(0, collisions.vx(), 0);
+		assertEquals(0, collisions.vy(), 0);
+		collisions.reflectCircle(0, 0, 1, 1, 0, 0);
+		assertEquals(0, collisions.vx(), 0);
+		assertEquals(0, collisions.vy(), 0);
+	}
+
+	/**
+	 * @return {x1, y1, x2, y2, x3, y3, ball x, ball y, ball vx, ball vy, ball radius, circle radius} with the
+	 * 		segment from (x1, y1) to (x2, y2) and the ball within 4L of each other. Velocities are between -50 and
+	 * 		50 L/s and one in twenty is 0.
+	 */
+	private static double[] randomCase(Random random) {
+		final double[] c = new double[12];
+		for (int i = 0; i < 8; i++) {
+			c[i] = 10 + 4 * random.nextDouble();
+		}
+		final boolean rest = random.nextInt(20) == 0;
+		c[8] = rest ? 0 : 100 * random.nextDouble() - 50;
+		c[9] = rest ? 0 : 100 * random.nextDouble() - 50;
+		c[10] = 0.1 + 0.4 * random.nextDouble();
+		c[11] = random.nextDouble();
+		return c;
+	}
+
+	private static void assertVelocity(String message, Vect expected, Collisions actual) {
+		assertEquals(message, expected.x(), actual.vx(), 0);
+		assertEquals(message, expected.y(), actual.vy(), 0);
+	}
+}
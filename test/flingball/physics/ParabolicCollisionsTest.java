@@ -0,0 +1,168 @@
+package flingball.physics;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ParabolicCollisionsTest {
+
+	/*
+	 * Testing strategy
+	 *
+	 * Partition on the acceleration: none, gravity only, gravity and friction
+	 * Partition on the ball: falling from rest, thrown away from the geometry and falling back, moving
+	 * 		towards, away from and past the geometry, overlapping the geometry
+	 * Partition on the result: collision, no collision, collision now, collision after the horizon
+	 *
+	 * Without acceleration results must be exactly equal to Collisions. With acceleration the ball must
+	 * touch the geometry at the time returned and must not overlap it at any earlier time, which is checked
+	 * by sampling its path. Random cases are drawn from a fixed seed.
+	 */
+
+	private static final int CASES = 5000;
+	private static final int SAMPLES = 200;
+	private static final double HORIZON = ParabolicCollisions.HORIZON;
+	private static final double GRAVITY = 25.0;
+	private static final double TOLERANCE = 1e-6;
+
+	@Test(expected=AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	// Covers no acceleration for every result
+	@Test
+	public void testNoAccelerationMatchesCollisions() {
+		final Random random = new Random(1);
+		for (int i = 0; i < CASES; i++) {
+			final double[] c = randomCase(random);
+			final double wall = Collisions.timeUntilWallCollision(c[0], c[1], c[2], c[3], c[4], c[5], c[6], c[7], c[8]);
+			assertEquals("case " + i, wall <= HORIZON ? wall : Double.POSITIVE_INFINITY, ParabolicCollisions
+					.timeUntilWallCollision(c[0], c[1], c[2], c[3], c[4], c[5], c[6], c[7], 0, 0, c[8], HORIZON), 0);
+			final double circle = Collisions.timeUntilCircleCollision(c[0], c[1], c[9], c[4], c[5], c[6], c[7], c[8]);
+			assertEquals("case " + i, circle <= HORIZON ? circle : Double.POSITIVE_INFINITY, ParabolicCollisions
+					.timeUntilCircleCollision(c[0], c[1], c[9], c[4], c[5], c[6], c[7], 0, 0, c[8], HORIZON), 0);
+		}
+	}
+
+	// Covers a ball falling from rest onto a circle and onto a segment
+	@Test
+	public void testFallingFromRest() {
+		// The ball falls 1L in sqrt(1 / 25) seconds
+		assertEquals(0.2, ParabolicCollisions.timeUntilCircleCollision(0, 0, 0.5, 0, 1.75, 0, 0, 0, -GRAVITY, 0.25, 1),
+				TOLERANCE);
+		assertEquals(0.2, ParabolicCollisions.timeUntilWallCollision(-1, 0, 1, 0, 0, 1.25, 0, 0, 0, -GRAVITY, 0.25, 1),
+				TOLERANCE);
+		// A straight line prediction never finds these collisions
+		assertEquals(Double.POSITIVE_INFINITY, Collisions.timeUntilCircleCollision(0, 0, 0.5, 0, 1.75, 0, 0, 0.25), 0);
+		// The collision is after the horizon
+		assertEquals(Double.POSITIVE_INFINITY,
+				ParabolicCollisions.timeUntilCircleCollision(0, 0, 0.5, 0, 1.75, 0, 0, 0, -GRAVITY, 0.25, 0.1), 0);
+	}
+
+	// Covers a ball thrown up away from a segment which falls back onto it, and a ball resting on a segment
+	@Test
+	public void testThrownUpAndResting() {
+		// The ball rises for 0.2 s and is back where it started after 0.4 s
+		assertEquals(0.4, ParabolicCollisions.timeUntilWallCollision(-1, 0, 1, 0, 0, 0.25, 0, 10, 0, -GRAVITY, 0.25, 1),
+				TOLERANCE);
+		assertEquals(Double.POSITIVE_INFINITY, Collisions.timeUntilWallCollision(-1, 0, 1, 0, 0, 0.25, 0, 10, 0.25), 0);
+		// A resting ball is not moving towards the segment, so it does not collide now
+		assertEquals(Double.POSITIVE_INFINITY,
+				ParabolicCollisions.timeUntilWallCollision(-1, 0, 1, 0, 0, 0.25, 0, 0, 0, -GRAVITY, 0.25, 1), 0);
+		// An overlapping ball moving towards the segment collides now
+		assertEquals(0, ParabolicCollisions.timeUntilWallCollision(-1, 0, 1, 0, 0, 0.2, 0, -1, 0, -GRAVITY, 0.25, 1), 0);
+		assertEquals(0, ParabolicCollisions.timeUntilCircleCollision(0, 0, 0.5, 0, 0.7, 0, -1, 0, -GRAVITY, 0.25, 1), 0);
+	}
+
+	// Covers gravity and friction, every kind of ball and every result against circles
+	@Test
+	public void testCircleCollisionsOnPath() {
+		final Random random = new Random(2);
+		int collided = 0;
+		for (int i = 0; i < CASES; i++) {
+			final double[] c = randomCase(random);
+			final double[] acc = acceleration(c, i);
+			final double t = ParabolicCollisions.timeUntilCircleCollision(c[0], c[1], c[9], c[4], c[5], c[6], c[7],
+					acc[0], acc[1], c[8], HORIZON);
+			final double reach = c[9] + c[8];
+			final double end = t < Double.POSITIVE_INFINITY ? t : HORIZON;
+			if (t == 0) continue;
+			for (int k = 0; k < SAMPLES; k++) {
+				final double s = end * k / SAMPLES;
+				final double gap = distance(c[0], c[1], c, acc, s) - reach;
+				// A ball which starts inside the circle moving away may only touch it again on its way back
+				if (k == 0 && gap <= 0) break;
+				assertTrue("case " + i + " overlaps at " + s + " before " + t, gap > -TOLERANCE);
+			}
+			if (t < Double.POSITIVE_INFINITY) {
+				collided++;
+				assertEquals("case " + i, reach, distance(c[0], c[1], c, acc, t), TOLERANCE);
+			}
+		}
+		assertTrue("too few collisions to be a useful test: " + collided, collided > CASES / 20);
+	}
+
+	// Covers gravity and friction, every kind of ball and every result against segments
+	@Test
+	public void testWallCollisionsOnPath() {
+		final Random random = new Random(3);
+		int collided = 0;
+		for (int i = 0; i < CASES; i++) {
+			final double[] c = randomCase(random);
+			final double[] acc = acceleration(c, i);
+			final double t = ParabolicCollisions.timeUntilWallCollision(c[0], c[1], c[2], c[3], c[4], c[5], c[6], c[7],
+					acc[0], acc[1], c[8], HORIZON);
+			if (t == 0 || t == Double.POSITIVE_INFINITY) continue;
+			collided++;
+			// At the collision the ball touches the line through the segment at a point on the segment
+			final double x = c[4] + c[6] * t + acc[0] * t * t;
+			final double y = c[5] + c[7] * t + acc[1] * t * t;
+			final double width = c[2] - c[0];
+			final double height = c[3] - c[1];
+			final double length = Math.sqrt(width * width + height * height);
+			final double along = (width * (x - c[0]) + height * (y - c[1])) / (length * length);
+			assertEquals("case " + i, c[8], Math.abs(width * (y - c[1]) - height * (x - c[0])) / length, TOLERANCE);
+			assertTrue("case " + i, along >= 0 && along < 1);
+		}
+		assertTrue("too few collisions to be a useful test: " + collided, collided > CASES / 20);
+	}
+
+	/**
+	 * @return acceleration of the ball in case c under gravity, and every other case also under friction
+	 */
+	private static double[] acceleration(double[] c, int i) {
+		final PhysicsContext physics = i % 2 == 0 ? PhysicsContext.DEFAULT.withFriction(0, 0) : PhysicsContext.DEFAULT;
+		return new double[] {ParabolicCollisions.accelerationX(c[6], c[7], physics),
+				ParabolicCollisions.accelerationY(c[6], c[7], physics)};
+	}
+
+	/**
+	 * @return distance from (x, y) to the center of the ball in case c after time s
+	 */
+	private static double distance(double x, double y, double[] c, double[] acc, double s) {
+		final double dx = c[4] + c[6] * s + acc[0] * s * s - x;
+		final double dy = c[5] + c[7] * s + acc[1] * s * s - y;
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * @return {x1, y1, x2, y2, ball x, ball y, ball vx, ball vy, ball radius, circle radius} with the segment
+	 * 		from (x1, y1) to (x2, y2) and the ball within 2L of each other. Velocities are between -20 and 20 L/s
+	 * 		and one in twenty is 0.
+	 */
+	private static double[] randomCase(Random random) {
+		final double[] c = new double[10];
+		for (int i = 0; i < 6; i++) {
+			c[i] = 10 + 2 * random.nextDouble();
+		}
+		final boolean rest = random.nextInt(20) == 0;
+		c[6] = rest ? 0 : 40 * random.nextDouble() - 20;
+		c[7] = rest ? 0 : 40 * random.nextDouble() - 20;
+		c[8] = 0.1 + 0.4 * random.nextDouble();
+		c[9] = random.nextDouble();
+		return c;
+	}
+}